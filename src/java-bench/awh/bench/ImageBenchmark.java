@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Per-pixel access, copying and rescaling of images. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ImageBenchmark {
+    /** Image width, height is set to keep 16:9 aspect ratio. */
+    @Param({ "480", "1920" })
+    public int width;
+
+    private awh.Image image;
+
+    @Setup
+    public void setUp() {
+        image = Images.createGradient(width, width * 9 / 16);
+    }
+
+    @Benchmark
+    public int getPixelLoop() {
+        int sum = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                sum += image.getPixel(x, y).getRed();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public awh.Image setPixelLoop() {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setPixel(x, y, awh.Color.TEAL);
+            }
+        }
+        return image;
+    }
+
+    @Benchmark
+    public awh.Image invertLoop() {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                awh.Color c = image.getPixel(x, y);
+                image.setPixel(x, y, awh.Color.fromRgb(
+                        255 - c.getRed(), 255 - c.getGreen(), 255 - c.getBlue()));
+            }
+        }
+        return image;
+    }
+
+    @Benchmark
+    public awh.Image copy() {
+        return image.copy();
+    }
+
+    @Benchmark
+    public awh.Image rescaleToHalf() {
+        awh.Image res = image.copy();
+        res.rescale(image.getWidth() / 2, image.getHeight() / 2);
+        return res;
+    }
+
+    @Benchmark
+    public void rescaleToVideoFrame(final Blackhole bh) {
+        awh.Image res = image.copy();
+        res.rescale(480, 270);
+        bh.consume(res);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/** Saving and loading images in all supported formats. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ImageFileBenchmark {
+    @Param({ "png", "jpg", "gif" })
+    public String format;
+
+    private awh.Image image;
+    private File loadFrom;
+    private File saveTo;
+
+    @Setup
+    public void setUp() throws IOException {
+        image = Images.createGradient(1280, 720);
+        loadFrom = File.createTempFile("awh-bench-load", "." + format);
+        saveTo = File.createTempFile("awh-bench-save", "." + format);
+        image.saveToFile(loadFrom.getPath());
+    }
+
+    @TearDown
+    public void tearDown() {
+        loadFrom.delete();
+        saveTo.delete();
+    }
+
+    @Benchmark
+    public awh.Image load() {
+        return awh.Image.loadFromFile(loadFrom.getPath());
+    }
+
+    @Benchmark
+    public void save() {
+        image.saveToFile(saveTo.getPath());
+    }
+}
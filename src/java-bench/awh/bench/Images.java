@@ -0,0 +1,44 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh.bench;
+
+/** Test images for the benchmarks. */
+final class Images {
+    private Images() {}
+
+    /** Create image with smooth gradients and some noise (to be realistic for compression). */
+    static awh.Image createGradient(final int width, final int height) {
+        awh.Image res = awh.Image.createEmpty(width, height, awh.Color.BLACK);
+        java.util.Random rnd = new java.util.Random(width * 31 + height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                res.setPixel(x, y, awh.Color.fromRgb(
+                        x * 255 / width,
+                        y * 255 / height,
+                        Math.min(255, (x + y) % 200 + rnd.nextInt(56))));
+            }
+        }
+        return res;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Basic operations on lists of integers and doubles. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListBenchmark {
+    @Param({ "1000", "1000000" })
+    public int size;
+
+    private int[] ints;
+    private double[] doubles;
+    private awh.IntList intList;
+    private awh.DoubleList doubleList;
+    private awh.IntList unsortedInts;
+    private awh.DoubleList unsortedDoubles;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(size);
+        ints = new int[size];
+        doubles = new double[size];
+        for (int i = 0; i < size; i++) {
+            ints[i] = rnd.nextInt();
+            doubles[i] = rnd.nextGaussian();
+        }
+        intList = awh.IntList.create(ints);
+        doubleList = awh.DoubleList.create(doubles);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareUnsorted() {
+        unsortedInts = awh.IntList.create(ints);
+        unsortedDoubles = awh.DoubleList.create(doubles);
+    }
+
+    @Benchmark
+    public awh.IntList addInts() {
+        awh.IntList res = new awh.IntList();
+        for (int v : ints) {
+            res.add(v);
+        }
+        return res;
+    }
+
+    @Benchmark
+    public awh.DoubleList addDoubles() {
+        awh.DoubleList res = new awh.DoubleList();
+        for (double v : doubles) {
+            res.add(v);
+        }
+        return res;
+    }
+
+    @Benchmark
+    public awh.IntList sortInts() {
+        unsortedInts.sort();
+        return unsortedInts;
+    }
+
+    @Benchmark
+    public awh.DoubleList sortDoubles() {
+        unsortedDoubles.sort();
+        return unsortedDoubles;
+    }
+
+    @Benchmark
+    public int maxInt() {
+        return intList.max();
+    }
+
+    @Benchmark
+    public double maxDouble() {
+        return doubleList.max();
+    }
+
+    @Benchmark
+    public long iterateInts() {
+        long sum = 0;
+        for (int v : intList) {
+            sum += v;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double iterateDoubles() {
+        double sum = 0;
+        for (double v : doubleList) {
+            sum += v;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long getByIndex() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += intList.get(i);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh.demo;
+
+/** Rescale (and optionally invert) all images in a directory in parallel. */
+public class BatchRescale {
+    public static void main(String[] args) {
+        if ((args.length < 4) || (args.length > 6)) {
+            awh.Sys.die("Run with input-dir output-dir width height [format [invert]].");
+        }
+
+        awh.ImageBatch batch = awh.ImageBatch.fromDirectory(args[0], args[1])
+                .rescale(Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        if (args.length >= 5) {
+            batch.saveAs(args[4]);
+        }
+        if (args.length >= 6) {
+            batch.mapColors(color -> awh.Color.fromRgb(
+                    255 - color.getRed(),
+                    255 - color.getGreen(),
+                    255 - color.getBlue()));
+        }
+
+        awh.BatchSummary summary = batch.run();
+        for (String failure : summary.getFailures()) {
+            System.out.println(failure);
+        }
+        System.out.println(summary);
+    }
+}
@@ -46,7 +46,18 @@ public class PhotosToMovie {
         );
     }
 
+    // Run with -Dawh.cache=DIR to keep rescaled photos between runs.
+    private static final String CACHE_DIR = System.getProperty("awh.cache");
+    private static final long CACHE_SIZE = 1024L * 1024 * 1024;
+    private static awh.ImageCache cache;
+
     private static awh.Image loadImage(String filename) {
+        if (CACHE_DIR != null) {
+            if (cache == null) {
+                cache = awh.ImageCache.open(CACHE_DIR, CACHE_SIZE);
+            }
+            return cache.loadRescaled(filename, 480, 270);
+        }
         awh.Image image = awh.Image.loadFromFile(filename);
         image.rescale(480, 270);
         return image;
@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ImagePerfTest {
+    private static final int WIDTH = 1024;
+    private static final int HEIGHT = 768;
+
+    private static volatile long sink;
+
+    private Image image;
+    private int[] plain;
+    private final int[] row = new int[WIDTH];
+
+    @Before
+    public void setUp() {
+        image = Image.createEmpty(WIDTH, HEIGHT, Color.NAVY);
+        image.setPixel(WIDTH / 2, HEIGHT / 2, Color.YELLOW);
+        plain = image.getPixelsUnsafe().clone();
+    }
+
+    private final Runnable readRows = new Runnable() {
+        @Override
+        public void run() {
+            long sum = 0;
+            for (int y = 0; y < HEIGHT; y++) {
+                int[] pixels = image.getRow(y, row);
+                for (int x = 0; x < WIDTH; x++) {
+                    sum += pixels[x] & 0xFF;
+                }
+            }
+            sink = sum;
+        }
+    };
+
+    private final Runnable readPlainArray = new Runnable() {
+        @Override
+        public void run() {
+            long sum = 0;
+            for (int y = 0; y < HEIGHT; y++) {
+                System.arraycopy(plain, y * WIDTH, row, 0, WIDTH);
+                for (int x = 0; x < WIDTH; x++) {
+                    sum += row[x] & 0xFF;
+                }
+            }
+            sink = sum;
+        }
+    };
+
+    @Test
+    public void bulkReadDoesNotAllocate() {
+        Perf.assertNoAllocationPerElement("getRow()", WIDTH * HEIGHT, readRows);
+    }
+
+    @Test
+    public void bulkReadIsAsFastAsArrayCopy() {
+        Perf.assertNotSlowerThan("getRow()", 3, readPlainArray, readRows);
+    }
+}
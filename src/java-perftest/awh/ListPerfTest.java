@@ -0,0 +1,114 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ListPerfTest {
+    private static final int SIZE = 1_000_000;
+
+    private static volatile double sink;
+
+    private int[] ints;
+    private double[] doubles;
+    private IntList intList;
+    private DoubleList doubleList;
+
+    @Before
+    public void setUp() {
+        Random rnd = new Random(SIZE);
+        ints = new int[SIZE];
+        doubles = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            ints[i] = rnd.nextInt(SIZE);
+            doubles[i] = rnd.nextDouble();
+        }
+        intList = IntList.create(ints);
+        doubleList = DoubleList.create(doubles);
+    }
+
+    private final Runnable iterateInts = new Runnable() {
+        @Override
+        public void run() {
+            long sum = 0;
+            for (int i = 0; i < intList.size(); i++) {
+                sum += intList.getInt(i);
+            }
+            sink = sum;
+        }
+    };
+
+    private final Runnable iterateDoubles = new Runnable() {
+        @Override
+        public void run() {
+            double sum = 0;
+            for (int i = 0; i < doubleList.size(); i++) {
+                sum += doubleList.getDouble(i);
+            }
+            sink = sum;
+        }
+    };
+
+    private final Runnable iteratePlainArray = new Runnable() {
+        @Override
+        public void run() {
+            long sum = 0;
+            for (int i = 0; i < ints.length; i++) {
+                sum += ints[i];
+            }
+            sink = sum;
+        }
+    };
+
+    @Test
+    public void primitiveIterationDoesNotAllocate() {
+        Perf.assertNoAllocationPerElement("IntList.getInt()", SIZE, iterateInts);
+        Perf.assertNoAllocationPerElement("DoubleList.getDouble()", SIZE, iterateDoubles);
+    }
+
+    @Test
+    public void maxDoesNotAllocate() {
+        Perf.assertNoAllocationPerElement("IntList.max()", SIZE, new Runnable() {
+            @Override
+            public void run() {
+                sink = intList.max();
+            }
+        });
+        Perf.assertNoAllocationPerElement("DoubleList.max()", SIZE, new Runnable() {
+            @Override
+            public void run() {
+                sink = doubleList.max();
+            }
+        });
+    }
+
+    @Test
+    public void primitiveIterationIsFast() {
+        Perf.assertNotSlowerThan("IntList.getInt()", 10, iteratePlainArray, iterateInts);
+        Perf.assertNotSlowerThan("DoubleList.getDouble()", 10, iteratePlainArray, iterateDoubles);
+    }
+}
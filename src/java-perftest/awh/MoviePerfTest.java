@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MoviePerfTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 360;
+
+    private static volatile Object sink;
+
+    private File file;
+    private Movie movie;
+    private Image frame;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("awh-perf", ".mp4");
+        movie = Movie.createMp4(file.getPath());
+        frame = Image.createEmpty(WIDTH, HEIGHT, Color.OLIVE);
+    }
+
+    @After
+    public void tearDown() {
+        movie.finish();
+        file.delete();
+    }
+
+    private final Runnable convertFrame = new Runnable() {
+        @Override
+        public void run() {
+            sink = movie.toPicture(frame);
+        }
+    };
+
+    @Test
+    public void frameConversionDoesNotAllocate() {
+        Perf.assertNoAllocationPerElement("Movie.toPicture()", WIDTH * HEIGHT, convertFrame);
+    }
+
+    @Test
+    public void frameConversionIsFast() {
+        final int[] pixels = frame.getPixelsUnsafe();
+        final byte[] plain = new byte[pixels.length];
+        Perf.assertNotSlowerThan("Movie.toPicture()", 10, new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < pixels.length; i++) {
+                    plain[i] = (byte) pixels[i];
+                }
+                sink = plain;
+            }
+        }, convertFrame);
+    }
+}
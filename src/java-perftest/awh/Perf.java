@@ -0,0 +1,148 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+
+import org.junit.Assert;
+
+/** Helpers for measuring allocations and speed of hot paths.
+ *
+ * <p>
+ * Allocations are measured through ThreadMXBean of the current thread,
+ * timing is always compared with a calibration loop executed on the
+ * same machine so the limits stay meaningful on slow CI servers.
+ */
+final class Perf {
+    /** Executions before measurement to let JIT compile the code. */
+    private static final int WARMUP_ROUNDS = 20;
+
+    /** Measured executions (best time is taken). */
+    private static final int MEASURED_ROUNDS = 10;
+
+    /** How many times to measure speed before reporting failure. */
+    private static final int ATTEMPTS = 3;
+
+    /** Bytes that may be allocated regardless of the number of elements. */
+    private static final long ALLOCATION_SLACK = 1024;
+
+    private Perf() {}
+
+    /** Measure bytes allocated by current thread when running given code.
+     *
+     * @param body Code to measure (executed once).
+     * @return Number of allocated bytes.
+     */
+    static long allocatedBytes(final Runnable body) {
+        com.sun.management.ThreadMXBean bean = getBean();
+        long threadId = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(threadId);
+        body.run();
+        long after = bean.getThreadAllocatedBytes(threadId);
+        return after - before;
+    }
+
+    /** Assert that code allocates nothing per processed element.
+     *
+     * <p>
+     * The code is warmed up first and a constant amount of memory
+     * (e.g. for the measurement itself) is tolerated.
+     *
+     * @param what Description of the measured code.
+     * @param elements Number of elements processed in a single run.
+     * @param body Code to measure.
+     */
+    static void assertNoAllocationPerElement(final String what, final long elements,
+            final Runnable body) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            body.run();
+        }
+        long noop = allocatedBytes(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        long allocated = allocatedBytes(body) - noop;
+        Assert.assertTrue(String.format("%s allocated %d bytes for %d elements",
+                    what, allocated, elements),
+                allocated < ALLOCATION_SLACK);
+    }
+
+    /** Assert that code is at most given times slower than calibration loop.
+     *
+     * @param what Description of the measured code.
+     * @param maxSlowdown How many times slower the code can be.
+     * @param calibration Calibration code (doing comparable amount of work).
+     * @param body Code to measure.
+     */
+    static void assertNotSlowerThan(final String what, final double maxSlowdown,
+            final Runnable calibration, final Runnable body) {
+        long expected = 0;
+        long actual = 0;
+        // Repeat to not fail on a single hiccup (e.g. GC or busy machine).
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            expected = bestTime(calibration);
+            actual = bestTime(body);
+            if (actual <= expected * maxSlowdown) {
+                return;
+            }
+        }
+        Assert.assertTrue(String.format("%s took %dns, calibration took %dns (limit is %.1fx)",
+                    what, actual, expected, maxSlowdown),
+                actual <= expected * maxSlowdown);
+    }
+
+    /** Get best execution time after warm-up.
+     *
+     * @param body Code to measure.
+     * @return Execution time in nanoseconds.
+     */
+    static long bestTime(final Runnable body) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            body.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            body.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return Math.max(best, 1);
+    }
+
+    /** Get thread bean, skip the test when allocation measurement is not available.
+     *
+     * @return Thread MX bean with allocation measurement enabled.
+     */
+    private static com.sun.management.ThreadMXBean getBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean res = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(res.isThreadAllocatedMemorySupported());
+        res.setThreadAllocatedMemoryEnabled(true);
+        return res;
+    }
+}
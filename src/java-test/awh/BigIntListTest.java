@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class BigIntListTest {
+    /* Tiny segments so that the tests cross segment boundaries. */
+    private static final int SEGMENT_BITS = 3;
+
+    private BigIntList list;
+    private int[] expected;
+
+    @Before
+    public void setUp() {
+        Random rnd = new Random(7);
+        list = new BigIntList(SEGMENT_BITS);
+        expected = new int[1000];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = rnd.nextInt(100);
+            list.add(expected[i]);
+        }
+    }
+
+    @Test
+    public void getAcrossSegments() {
+        Assert.assertEquals(expected.length, list.size());
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i], list.get(i));
+        }
+    }
+
+    @Test
+    public void negativeIndices() {
+        Assert.assertEquals(expected[expected.length - 1], list.get(-1));
+        Assert.assertEquals(expected[0], list.get(-expected.length));
+    }
+
+    @Test
+    public void firstSegmentGrowsWithoutLosingValues() {
+        BigIntList ints = new BigIntList(7);
+        BigDoubleList doubles = new BigDoubleList(7);
+        for (int i = 0; i < expected.length; i++) {
+            ints.add(expected[i]);
+            doubles.add(expected[i] / 2.0);
+        }
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i], ints.get(i));
+            Assert.assertEquals(expected[i] / 2.0, doubles.get(i), 0);
+        }
+        Assert.assertEquals("[1,2,3]", BigIntList.create(1, 2, 3).toString());
+    }
+
+    @Test(expected = Problem.class)
+    public void indexOutOfRange() {
+        list.get(expected.length);
+    }
+
+    @Test
+    public void setReturnsPrevious() {
+        Assert.assertEquals(expected[9], list.set(9, -5));
+        Assert.assertEquals(-5, list.get(9));
+    }
+
+    @Test
+    public void sortMatchesArraysSort() {
+        list.sort();
+        Arrays.sort(expected);
+        int i = 0;
+        for (int v : list) {
+            Assert.assertEquals(expected[i], v);
+            i++;
+        }
+        Assert.assertEquals(expected.length, i);
+    }
+
+    @Test
+    public void maximum() {
+        list.add(1000);
+        list.add(3);
+        Assert.assertEquals(1000, list.max());
+    }
+
+    @Test
+    public void joinAndHashCodeMatchIntList() {
+        BigIntList big = BigIntList.create(3, 1, 4, 1, 5, 9, 2, 6, 5, 3, 5);
+        IntList small = IntList.create(3, 1, 4, 1, 5, 9, 2, 6, 5, 3, 5);
+        Assert.assertEquals(small.join(";"), big.join(";"));
+        Assert.assertEquals(small.toString(), big.toString());
+        Assert.assertEquals(small.hashCode(), big.hashCode());
+    }
+
+    @Test
+    public void clearReleasesEverything() {
+        list.clear();
+        Assert.assertTrue(list.isEmpty());
+        Assert.assertEquals("", list.join(","));
+        list.add(42);
+        Assert.assertEquals(BigIntList.create(42), list);
+    }
+
+    @Test
+    public void doubleListSort() {
+        BigDoubleList doubles = new BigDoubleList(SEGMENT_BITS);
+        for (int i = 0; i < 100; i++) {
+            doubles.add((i * 37) % 100 / 4.0);
+        }
+        doubles.sort();
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(i / 4.0, doubles.get(i), 0.0);
+        }
+        Assert.assertEquals(24.75, doubles.max(), 0.0);
+    }
+}
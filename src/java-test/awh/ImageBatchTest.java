@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class ImageBatchTest {
+    private File input;
+    private File output;
+
+    @Before
+    public void setUp() throws IOException {
+        input = Files.createTempDirectory("awh-batch-in").toFile();
+        output = new File(input, "out");
+        for (int i = 0; i < 5; i++) {
+            Image.createEmpty(40 + i, 30, Color.RED).saveToFile(new File(input, i + ".png").getPath());
+        }
+        Files.write(new File(input, "broken.png").toPath(), new byte[] { 1, 2, 3 });
+        Files.write(new File(input, "notes.txt").toPath(), new byte[] { 1, 2, 3 });
+    }
+
+    @After
+    public void tearDown() {
+        for (File dir : new File[] { output, input }) {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    f.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    private ImageBatch batch() {
+        return ImageBatch.fromDirectory(input.getPath(), output.getPath())
+                .rescale(8, 6)
+                .mapColors(c -> Color.fromRgb(255 - c.getRed(), c.getGreen(), c.getBlue()))
+                .saveAs("gif");
+    }
+
+    @Test
+    public void processesAllImagesAndReportsFailures() {
+        BatchSummary summary = batch().run();
+        Assert.assertEquals(5, summary.getProcessed());
+        Assert.assertEquals(1, summary.getFailed());
+        Assert.assertTrue(summary.getFailures().get(0).contains("broken.png"));
+        Assert.assertEquals(5 * 30 * (40 + 44) / 2, summary.getPixels());
+
+        Image result = Image.loadFromFile(new File(output, "3.gif").getPath());
+        Assert.assertEquals(8, result.getWidth());
+        Assert.assertEquals(6, result.getHeight());
+        Assert.assertEquals(0, result.getPixel(4, 3).getRed());
+        Assert.assertFalse(new File(output, "broken.gif").exists());
+    }
+
+    @Test
+    public void upToDateOutputsAreSkipped() {
+        batch().run();
+        File changed = new File(input, "2.png");
+        Assert.assertTrue(changed.setLastModified(System.currentTimeMillis() + 60_000));
+
+        BatchSummary summary = batch().run();
+        Assert.assertEquals(1, summary.getProcessed());
+        Assert.assertEquals(4, summary.getSkipped());
+        Assert.assertEquals(1, summary.getFailed());
+    }
+
+    @Test
+    public void smallPixelBudgetStillProcessesEverything() {
+        BatchSummary summary = batch().maxPixelsInFlight(1).run();
+        Assert.assertEquals(5, summary.getProcessed());
+    }
+
+    @Test(expected = Problem.class)
+    public void unknownOutputFormatIsRejected() {
+        batch().saveAs("xyz");
+    }
+}
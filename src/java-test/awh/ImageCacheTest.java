@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class ImageCacheTest {
+    private File dir;
+    private File cacheDir;
+    private File photo;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("awh-cache").toFile();
+        cacheDir = new File(dir, "cache");
+        photo = new File(dir, "photo.png");
+        Image image = Image.createEmpty(64, 48, Color.NAVY);
+        image.setPixel(0, 0, Color.YELLOW);
+        image.saveToFile(photo.getPath());
+    }
+
+    @After
+    public void tearDown() {
+        for (File d : new File[] { cacheDir, dir }) {
+            File[] files = d.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    f.delete();
+                }
+            }
+            d.delete();
+        }
+    }
+
+    private static void assertSameImage(final Image expected, final Image actual) {
+        Assert.assertEquals(expected.getWidth(), actual.getWidth());
+        Assert.assertEquals(expected.getHeight(), actual.getHeight());
+        Assert.assertArrayEquals(expected.getPixelsUnsafe(), actual.getPixelsUnsafe());
+    }
+
+    @Test
+    public void cachedImageEqualsLoadedOne() {
+        Image expected = Image.loadFromFile(photo.getPath());
+        expected.rescale(16, 12);
+
+        ImageCache cache = ImageCache.open(cacheDir.getPath(), 1_000_000);
+        assertSameImage(expected, cache.loadRescaled(photo.getPath(), 16, 12));
+        assertSameImage(expected, cache.loadRescaled(photo.getPath(), 16, 12));
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(1, cache.getMemoryHits());
+
+        ImageCache reopened = ImageCache.open(cacheDir.getPath(), 1_000_000);
+        assertSameImage(expected, reopened.loadRescaled(photo.getPath(), 16, 12));
+        Assert.assertEquals(1, reopened.getDiskHits());
+        Assert.assertEquals(0, reopened.getMisses());
+    }
+
+    @Test
+    public void returnedImagesAreCopies() {
+        ImageCache cache = ImageCache.open(cacheDir.getPath(), 1_000_000);
+        cache.loadRescaled(photo.getPath(), 16, 12).setPixel(0, 0, Color.RED);
+        Assert.assertNotEquals(Color.RED.toMergedRgb(),
+                cache.loadRescaled(photo.getPath(), 16, 12).getPixel(0, 0).toMergedRgb());
+    }
+
+    @Test
+    public void modifiedFileIsLoadedAgain() {
+        ImageCache cache = ImageCache.open(cacheDir.getPath(), 1_000_000);
+        cache.loadRescaled(photo.getPath(), 16, 12);
+        Image.createEmpty(64, 48, Color.LIME).saveToFile(photo.getPath());
+        Assert.assertTrue(photo.setLastModified(photo.lastModified() + 10_000));
+
+        Image reloaded = cache.loadRescaled(photo.getPath(), 16, 12);
+        Assert.assertEquals(Color.LIME.toMergedRgb(), reloaded.getPixel(8, 6).toMergedRgb());
+        Assert.assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void diskUsageIsLimited() {
+        long oneImage = 16 + 4 * 16 * 12;
+        ImageCache cache = ImageCache.open(cacheDir.getPath(), 2 * oneImage).withMemoryLimit(0);
+        cache.loadRescaled(photo.getPath(), 16, 12);
+        cache.loadRescaled(photo.getPath(), 12, 16);
+        Assert.assertEquals(2 * oneImage, cache.getDiskUsage());
+        cache.loadRescaled(photo.getPath(), 16, 12);
+        cache.loadRescaled(photo.getPath(), 8, 24);
+        Assert.assertEquals(2 * oneImage, cache.getDiskUsage());
+        Assert.assertEquals(2, cacheDir.list().length);
+
+        cache.loadRescaled(photo.getPath(), 16, 12);
+        Assert.assertEquals(2, cache.getDiskHits());
+        cache.loadRescaled(photo.getPath(), 12, 16);
+        Assert.assertEquals(4, cache.getMisses());
+    }
+
+    @Test(expected = Problem.class)
+    public void missingFileIsReported() {
+        ImageCache.open(cacheDir.getPath(), 1_000_000).loadRescaled(photo.getPath() + "x", 2, 2);
+    }
+}
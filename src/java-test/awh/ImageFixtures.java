@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.Random;
+import java.util.function.IntBinaryOperator;
+
+import org.junit.Assert;
+
+/** Shared helpers for image tests. */
+final class ImageFixtures {
+    private ImageFixtures() {}
+
+    /** Create image with pixels computed from their coordinates.
+     *
+     * <p>
+     * Pixels are computed row by row (so that generators drawing from
+     * a random sequence are reproducible).
+     *
+     * @param width Image width.
+     * @param height Image height.
+     * @param pixel Pixel ARGB value for given x and y.
+     * @return New image.
+     */
+    static Image create(final int width, final int height, final IntBinaryOperator pixel) {
+        Image image = Image.createEmpty(width, height, Color.BLACK);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setPixel(x, y, Color.fromMergedRgb(pixel.applyAsInt(x, y)));
+            }
+        }
+        return image;
+    }
+
+    /** Create image filled with random colors.
+     *
+     * @param width Image width.
+     * @param height Image height.
+     * @param seed Seed of the random generator.
+     * @param translucent Whether to randomize alpha too (opaque otherwise).
+     * @return New image.
+     */
+    static Image random(final int width, final int height, final long seed,
+            final boolean translucent) {
+        final Random random = new Random(seed);
+        return create(width, height, (x, y) -> {
+            int r = random.nextInt(256);
+            int g = random.nextInt(256);
+            int b = random.nextInt(256);
+            int a = translucent ? random.nextInt(256) : 255;
+            return new Color(r, g, b, a).toMergedRgb();
+        });
+    }
+
+    /** Assert that images have the same size and channels differ at most by tolerance.
+     *
+     * @param expected Expected image.
+     * @param actual Actual image.
+     * @param tolerance Allowed difference of each channel (including alpha).
+     */
+    static void assertClose(final Image expected, final Image actual, final int tolerance) {
+        Assert.assertEquals(expected.getWidth(), actual.getWidth());
+        Assert.assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            int[] e = expected.getRow(y, null);
+            int[] a = actual.getRow(y, null);
+            for (int x = 0; x < e.length; x++) {
+                for (int shift = 0; shift < 32; shift += 8) {
+                    Assert.assertEquals("pixel " + x + ", " + y,
+                            (e[x] >>> shift) & 0xFF, (a[x] >>> shift) & 0xFF, tolerance);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class ImagePipelineTest {
+    private Image image;
+    private Image other;
+
+    @Before
+    public void setUp() {
+        image = ImageFixtures.create(300, 200, (x, y) ->
+                Color.fromRgb((x + y) % 256, (2 * x) % 256, (3 * y) % 256).toMergedRgb());
+        other = ImageFixtures.random(300, 200, 11, false);
+    }
+
+    private static void blend(final Image target, final Image source, final double opacity) {
+        for (int y = 0; y < target.getHeight(); y++) {
+            for (int x = 0; x < target.getWidth(); x++) {
+                Color a = target.getPixel(x, y);
+                Color b = source.getPixel(x, y);
+                target.setPixel(x, y, Color.fromRgb(
+                        (int) Math.round(a.getRed() + (b.getRed() - a.getRed()) * opacity),
+                        (int) Math.round(a.getGreen() + (b.getGreen() - a.getGreen()) * opacity),
+                        (int) Math.round(a.getBlue() + (b.getBlue() - a.getBlue()) * opacity)));
+            }
+        }
+    }
+
+    @Test
+    public void fusedOperationsMatchEagerOnes() {
+        ColorAdjustment adjustment = new ColorAdjustment().gamma(1.5).grayscale();
+        Image logo = Image.createEmpty(40, 30, Color.YELLOW);
+
+        Image expected = image.copy();
+        expected.filter().adjust(adjustment);
+        blend(expected, other, 0.25);
+        expected.pasteFrom(logo, 270, 180);
+
+        Image actual = image.pipeline()
+                .adjust(adjustment)
+                .blend(other, 0.25)
+                .paste(logo, 270, 180)
+                .toImage();
+        ImageFixtures.assertClose(expected, actual, 1);
+        Assert.assertEquals(Color.YELLOW.toMergedRgb(), actual.getPixel(299, 199).toMergedRgb());
+    }
+
+    @Test
+    public void otherImageIsReadWhenPipelineRuns() {
+        ImagePipeline pipeline = image.pipeline().blend(other, 0.5);
+        // Rotations of non-square image replace its pixel array.
+        other.rotate90();
+        other.rotate90();
+
+        Image expected = image.copy();
+        blend(expected, other, 0.5);
+        ImageFixtures.assertClose(expected, pipeline.toImage(), 1);
+    }
+
+    @Test
+    public void pasteOfTargetIntoItself() {
+        Image expected = image.copy();
+        expected.pasteFrom(image.copy(), 7, 5);
+
+        image.pipeline().paste(image, 7, 5).into(image);
+        ImageFixtures.assertClose(expected, image, 0);
+    }
+
+    @Test
+    public void sourceIsNotChanged() {
+        Image original = image.copy();
+        image.pipeline().map(argb -> ~argb | 0xFF000000).rescale(50, 40).toImage();
+        ImageFixtures.assertClose(original, image, 0);
+    }
+
+    @Test
+    public void pipelineCanRunInPlace() {
+        Image expected = image.copy();
+        expected.filter().adjust(new ColorAdjustment().invert());
+
+        image.pipeline().mapColors(c -> Color.fromRgb(255 - c.getRed(),
+                255 - c.getGreen(), 255 - c.getBlue())).into(image);
+        ImageFixtures.assertClose(expected, image, 0);
+    }
+
+    @Test
+    public void rescaleIsCloseToImageRescale() {
+        for (int[] size : new int[][] { { 100, 50 }, { 97, 61 }, { 450, 260 } }) {
+            Image expected = image.copy();
+            expected.rescale(size[0], size[1]);
+            Image actual = image.pipeline().rescale(size[0], size[1]).toImage();
+            ImageFixtures.assertClose(expected, actual, 2);
+        }
+    }
+
+    @Test
+    public void rescaleDoesNotDarkenTransparentEdges() {
+        Image half = Image.createBlank(2, 1);
+        half.getPixelsUnsafe()[1] = 0xFFFFFFFF;
+        Image actual = half.pipeline().rescale(1, 1).toImage();
+        Assert.assertEquals(0x80FFFFFF, actual.getPixelsUnsafe()[actual.getOffsetUnsafe()]);
+    }
+
+    @Test
+    public void rescaleIntoViewOfSource() {
+        Image expected = image.copy();
+        expected.rescale(100, 50);
+
+        image.pipeline().rescale(100, 50).into(image.view(10, 10, 100, 50));
+        ImageFixtures.assertClose(expected, image.view(10, 10, 100, 50), 2);
+    }
+
+    @Test
+    public void filtersSplitThePipeline() {
+        Image expected = image.copy();
+        expected.rescale(150, 100);
+        expected.filter().gaussianBlur(2.5);
+        expected.filter().adjust(new ColorAdjustment().invert());
+
+        Image actual = image.pipeline()
+                .rescale(150, 100)
+                .gaussianBlur(2.5)
+                .adjust(new ColorAdjustment().invert())
+                .toImage();
+        ImageFixtures.assertClose(expected, actual, 2);
+
+        Image sharpened = image.copy();
+        sharpened.filter().convolve(Kernel.sharpen(), EdgeMode.WRAP);
+        ImageFixtures.assertClose(sharpened,
+                image.pipeline().convolve(Kernel.sharpen(), EdgeMode.WRAP).toImage(), 0);
+    }
+
+    @Test(expected = Problem.class)
+    public void targetMustHaveResultSize() {
+        image.pipeline().rescale(30, 20).into(Image.createEmpty(20, 30, Color.BLACK));
+    }
+
+    @Test(expected = Problem.class)
+    public void blendedImageMustHaveSameSize() {
+        image.pipeline().rescale(30, 20).blend(other, 0.5);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class ImagePyramidTest {
+    private Image image;
+
+    @Before
+    public void setUp() {
+        image = ImageFixtures.create(200, 120, (x, y) ->
+                new Color(x, 2 * y, (x + y) / 2).toMergedRgb());
+    }
+
+    @Test
+    public void levelsHalveDownToSingleRow() {
+        Assert.assertEquals(7, image.pyramid().getLevelCount());
+        Assert.assertEquals(1, Image.createEmpty(1, 50, Color.RED).pyramid().getLevelCount());
+    }
+
+    @Test
+    public void sourceIsLeftUntouched() {
+        Image original = image.copy();
+        ImagePyramid pyramid = image.pyramid();
+        Image small = pyramid.scaledTo(30, 20);
+        small.setPixel(0, 0, Color.WHITE);
+        Assert.assertTrue(ImageComparison.pixelsEqual(original, image));
+        Assert.assertEquals(200, image.getWidth());
+    }
+
+    @Test
+    public void halvingAveragesBlocks() {
+        Image checker = Image.createEmpty(4, 2, Color.BLACK);
+        checker.setPixel(0, 0, Color.WHITE);
+        checker.setPixel(1, 1, Color.WHITE);
+        checker.setPixel(2, 0, new Color(0, 0, 0, 0));
+        Image half = checker.pyramid().scaledTo(2, 1);
+        Assert.assertEquals(0xFF808080, half.getPixel(0, 0).toMergedRgb());
+        Assert.assertEquals(0xBF000000, half.getPixel(1, 0).toMergedRgb());
+    }
+
+    @Test
+    public void transparentPixelsDoNotDarkenBlocks() {
+        Image block = Image.createEmpty(2, 2, Color.WHITE);
+        block.setPixel(0, 0, new Color(0, 0, 0, 0));
+        Image half = block.pyramid().scaledTo(1, 1);
+        Assert.assertEquals(0xBFFFFFFF, half.getPixel(0, 0).toMergedRgb());
+    }
+
+    @Test
+    public void scaledImagesMatchRescale() {
+        ImagePyramid pyramid = image.pyramid();
+        int[][] sizes = {{100, 60}, {80, 48}, {37, 11}, {200, 120}, {300, 130}};
+        for (int[] size : sizes) {
+            Image expected = image.copy();
+            expected.rescale(size[0], size[1]);
+            ImageFixtures.assertClose(expected, pyramid.scaledTo(size[0], size[1]), 3);
+        }
+    }
+
+    @Test(expected = Problem.class)
+    public void invalidSizeIsRejected() {
+        image.pyramid().scaledTo(0, 10);
+    }
+}
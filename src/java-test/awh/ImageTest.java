@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class ImageTest {
+    private Image image;
+
+    @Before
+    public void setUp() {
+        image = Image.createEmpty(40, 30, Color.NAVY);
+    }
+
+    @Test
+    public void setAndGetPixel() {
+        image.setPixel(39, 29, new Color(1, 2, 3, 4));
+        Color c = image.getPixel(39, 29);
+        Assert.assertEquals(1, c.getRed());
+        Assert.assertEquals(2, c.getGreen());
+        Assert.assertEquals(3, c.getBlue());
+        Assert.assertEquals("#01020304", c.toString());
+        Assert.assertEquals(Color.NAVY.toString(), image.getPixel(0, 0).toString());
+    }
+
+    @Test
+    public void getRowReusesLongEnoughArray() {
+        image.setPixel(2, 5, Color.RED);
+        int[] dest = new int[image.getWidth() + 1];
+        Assert.assertSame(dest, image.getRow(5, dest));
+        Assert.assertEquals(Color.RED.toMergedRgb(), dest[2]);
+        Assert.assertEquals(image.getPixel(0, 5).toMergedRgb(), image.getRow(5, null)[0]);
+    }
+
+    @Test
+    public void positionOutOfRangeNamesCoordinate() {
+        try {
+            image.getPixel(3, 30);
+            Assert.fail("Problem expected");
+        } catch (Problem e) {
+            Assert.assertEquals("y coordinate out of range, 30 not in [0, 30).", e.getMessage());
+        }
+    }
+
+    @Test
+    public void colorComponentOutOfRangeIsNamed() {
+        try {
+            new Color(0, 256, 0);
+            Assert.fail("Problem expected");
+        } catch (Problem e) {
+            Assert.assertEquals("green component out of range, 256 not in [0, 256).",
+                    e.getMessage());
+        }
+    }
+
+    @Test
+    public void mergedRgbKeepsAlpha() {
+        Color c = Color.fromMergedRgb(0x80FF0102);
+        Assert.assertEquals(0x80FF0102, c.toMergedRgb());
+        Assert.assertEquals(255, c.getRed());
+    }
+
+    @Test
+    public void loadedImageIsEditable() throws IOException {
+        File tmp = File.createTempFile("awh-image", ".jpg");
+        try {
+            image.saveToFile(tmp.getPath());
+            Image loaded = Image.loadFromFile(tmp.getPath());
+            Assert.assertEquals(40, loaded.getWidth());
+            loaded.setPixel(0, 0, Color.WHITE);
+            Assert.assertEquals(Color.WHITE.toString(), loaded.getPixel(0, 0).toString());
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    @Test
+    public void viewSharesPixelsWithParent() {
+        Image view = image.view(10, 5, 20, 10);
+        Assert.assertEquals(20, view.getWidth());
+        Assert.assertEquals(10, view.getHeight());
+
+        view.setPixel(1, 2, Color.RED);
+        Assert.assertEquals(Color.RED.toMergedRgb(), image.getPixel(11, 7).toMergedRgb());
+        image.setPixel(29, 14, Color.LIME);
+        Assert.assertEquals(Color.LIME.toMergedRgb(), view.getPixel(19, 9).toMergedRgb());
+
+        Image nested = view.view(1, 2, 3, 3);
+        Assert.assertEquals(Color.RED.toMergedRgb(), nested.getPixel(0, 0).toMergedRgb());
+        Assert.assertEquals(Color.RED.toMergedRgb(), nested.getRow(0, null)[0]);
+    }
+
+    @Test
+    public void copyAndSaveOfViewContainOnlyTheRegion() throws IOException {
+        image.setPixel(5, 6, Color.YELLOW);
+        Image view = image.view(5, 6, 4, 3);
+
+        Image copy = view.copy();
+        copy.setPixel(1, 0, Color.RED);
+        Assert.assertEquals(Color.NAVY.toMergedRgb(), image.getPixel(6, 6).toMergedRgb());
+        Assert.assertEquals(Color.YELLOW.toMergedRgb(), copy.getPixel(0, 0).toMergedRgb());
+
+        File tmp = File.createTempFile("view", ".png");
+        try {
+            view.saveToFile(tmp.getPath());
+            Image loaded = Image.loadFromFile(tmp.getPath());
+            Assert.assertEquals(4, loaded.getWidth());
+            Assert.assertEquals(3, loaded.getHeight());
+            Assert.assertEquals(Color.YELLOW.toMergedRgb(), loaded.getPixel(0, 0).toMergedRgb());
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    @Test
+    public void pastingIntoViewIsClipped() {
+        Image view = image.view(10, 10, 5, 5);
+        view.pasteFrom(Image.createEmpty(20, 20, Color.RED), 0, 0);
+        Assert.assertEquals(Color.RED.toMergedRgb(), image.getPixel(14, 14).toMergedRgb());
+        Assert.assertEquals(Color.NAVY.toMergedRgb(), image.getPixel(15, 15).toMergedRgb());
+    }
+
+    @Test(expected = Problem.class)
+    public void viewMustFitIntoImage() {
+        image.view(30, 20, 11, 5);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class ImageTest_adjust {
+    private Image image;
+
+    @Before
+    public void setUp() {
+        image = ImageFixtures.random(300, 250, 3, true);
+    }
+
+    @Test
+    public void lookupTablesChangeChannels() {
+        int[] inverted = new int[256];
+        for (int i = 0; i < 256; i++) {
+            inverted[i] = 255 - i;
+        }
+        Image actual = image.copy();
+        actual.filter().applyLut(inverted, null, null, null);
+        for (int y = 0; y < image.getHeight(); y += 7) {
+            for (int x = 0; x < image.getWidth(); x += 5) {
+                Color before = image.getPixel(x, y);
+                Color after = actual.getPixel(x, y);
+                Assert.assertEquals(255 - before.getRed(), after.getRed());
+                Assert.assertEquals(before.getGreen(), after.getGreen());
+                Assert.assertEquals(before.toMergedRgb() >>> 24, after.toMergedRgb() >>> 24);
+            }
+        }
+    }
+
+    @Test
+    public void chainOfAdjustmentsNeedsSinglePass() {
+        ColorAdjustment chain = new ColorAdjustment()
+                .gamma(1.8)
+                .brightness(-20)
+                .contrast(1.3)
+                .grayscale()
+                .invert();
+        Assert.assertEquals(1, chain.getPassCount());
+
+        Image expected = image.copy();
+        expected.filter().adjust(new ColorAdjustment().gamma(1.8));
+        expected.filter().adjust(new ColorAdjustment().brightness(-20));
+        expected.filter().adjust(new ColorAdjustment().contrast(1.3));
+        expected.filter().adjust(new ColorAdjustment().grayscale());
+        expected.filter().adjust(new ColorAdjustment().invert());
+
+        Image actual = image.copy();
+        actual.filter().adjust(chain);
+        ImageFixtures.assertClose(expected, actual, 0);
+    }
+
+    @Test
+    public void matricesAreComposed() {
+        ColorAdjustment chain = new ColorAdjustment().grayscale().sepia();
+        Assert.assertEquals(1, chain.getPassCount());
+
+        Image expected = image.copy();
+        expected.filter().adjust(new ColorAdjustment().grayscale());
+        expected.filter().applyColorMatrix(
+                0.393, 0.769, 0.189, 0, 0,
+                0.349, 0.686, 0.168, 0, 0,
+                0.272, 0.534, 0.131, 0, 0,
+                0, 0, 0, 1, 0);
+        Image actual = image.copy();
+        actual.filter().adjust(chain);
+        ImageFixtures.assertClose(expected, actual, 2);
+    }
+
+    @Test
+    public void matrixAfterTableNeedsAnotherPass() {
+        ColorAdjustment chain = new ColorAdjustment().grayscale().invert().sepia();
+        Assert.assertEquals(2, chain.getPassCount());
+
+        Image expected = image.copy();
+        expected.filter().adjust(new ColorAdjustment().grayscale().invert());
+        expected.filter().adjust(new ColorAdjustment().sepia());
+        Image actual = image.copy();
+        actual.filter().adjust(chain);
+        ImageFixtures.assertClose(expected, actual, 0);
+    }
+
+    @Test
+    public void matrixOffsetIsAdded() {
+        Image gray = Image.createEmpty(3, 3, Color.GRAY);
+        gray.filter().applyColorMatrix(
+                1, 0, 0, 0, 10,
+                0, 0, 0, 0, 0,
+                0, 0, 2, 0, 0,
+                0, 0, 0, 1, 0);
+        Assert.assertEquals(new Color(138, 0, 255).toMergedRgb(),
+                gray.getPixel(1, 1).toMergedRgb());
+    }
+
+    @Test
+    public void inversionMatrixMatchesInvert() {
+        Image expected = image.copy();
+        expected.filter().adjust(new ColorAdjustment().invert());
+        Image actual = image.copy();
+        actual.filter().applyColorMatrix(
+                -1, 0, 0, 0, 255,
+                0, -1, 0, 0, 255,
+                0, 0, -1, 0, 255,
+                0, 0, 0, 1, 0);
+        ImageFixtures.assertClose(expected, actual, 0);
+    }
+
+    @Test
+    public void saturatingMatrixIsNotMerged() {
+        ColorAdjustment chain = new ColorAdjustment()
+                .matrix(
+                    1, 0, 0, 0, 60,
+                    0, 1, 0, 0, 0,
+                    0, 0, 1, 0, 0,
+                    0, 0, 0, 1, 0)
+                .matrix(
+                    0.5, 0, 0, 0, 0,
+                    0, 1, 0, 0, 0,
+                    0, 0, 1, 0, 0,
+                    0, 0, 0, 1, 0);
+        Assert.assertEquals(2, chain.getPassCount());
+
+        Image red = Image.createEmpty(2, 2, Color.RED);
+        red.filter().adjust(chain);
+        Assert.assertEquals(new Color(128, 0, 0).toMergedRgb(),
+                red.getPixel(1, 1).toMergedRgb());
+    }
+
+    @Test(expected = Problem.class)
+    public void matrixWeightsMustBeInRange() {
+        image.filter().applyColorMatrix(
+                65, 0, 0, 0, 0,
+                0, 1, 0, 0, 0,
+                0, 0, 1, 0, 0,
+                0, 0, 0, 1, 0);
+    }
+
+    @Test(expected = Problem.class)
+    public void matrixOffsetsMustBeInRange() {
+        image.filter().applyColorMatrix(
+                1, 0, 0, 0, 1021,
+                0, 1, 0, 0, 0,
+                0, 0, 1, 0, 0,
+                0, 0, 0, 1, 0);
+    }
+
+    @Test(expected = Problem.class)
+    public void matrixMustHaveTwentyNumbers() {
+        image.filter().applyColorMatrix(1, 0, 0, 0);
+    }
+
+    @Test(expected = Problem.class)
+    public void tableValuesMustBeInRange() {
+        int[] table = new int[256];
+        table[10] = 256;
+        image.filter().applyLut(null, table, null, null);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class ImageTest_compare {
+    private Image image;
+
+    @Before
+    public void setUp() {
+        image = ImageFixtures.random(70, 40, 11, false);
+    }
+
+    private static int luma(final Image image, final int x, final int y) {
+        return Channel.LUMINANCE.of(image.getPixel(x, y).toMergedRgb());
+    }
+
+    @Test
+    public void equalityStopsAtDifferences() {
+        Image other = image.copy();
+        Assert.assertTrue(ImageComparison.pixelsEqual(image, other));
+        other.setPixel(69, 39, Color.WHITE);
+        Assert.assertFalse(ImageComparison.pixelsEqual(image, other));
+        Assert.assertFalse(ImageComparison.pixelsEqual(image, image.view(0, 0, 70, 39)));
+        Assert.assertTrue(ImageComparison.pixelsEqual(image.view(5, 6, 20, 10),
+                image.view(5, 6, 20, 10).copy()));
+    }
+
+    @Test
+    public void diffReportsBoundingBox() {
+        Image other = image.copy();
+        ImageDiff none = ImageComparison.diff(image, other);
+        Assert.assertTrue(none.isEmpty());
+        Assert.assertEquals(0, none.getWidth());
+
+        other.setPixel(3, 4, Color.WHITE);
+        other.setPixel(50, 20, Color.WHITE);
+        other.setPixel(10, 30, new Color(0, 0, 0, 0));
+        ImageDiff diff = ImageComparison.diff(image, other);
+        Assert.assertEquals(3, diff.getChangedPixelCount());
+        Assert.assertEquals(3, diff.getLeft());
+        Assert.assertEquals(4, diff.getTop());
+        Assert.assertEquals(48, diff.getWidth());
+        Assert.assertEquals(27, diff.getHeight());
+    }
+
+    @Test
+    public void psnrOfConstantShift() {
+        Assert.assertEquals(Double.POSITIVE_INFINITY, ImageComparison.psnr(image, image.copy()), 0);
+        Image dark = Image.createEmpty(30, 20, new Color(100, 100, 100));
+        Image brighter = Image.createEmpty(30, 20, new Color(110, 100, 100));
+        double expected = 10 * Math.log10(255.0 * 255.0 * 3 / 100);
+        Assert.assertEquals(expected, ImageComparison.psnr(dark, brighter), 1e-9);
+    }
+
+    @Test
+    public void ssimMatchesDirectComputation() {
+        Image other = image.copy();
+        other.filter().gaussianBlur(1.5);
+        double expected = 0;
+        int positions = 0;
+        for (int top = 0; top + 8 <= image.getHeight(); top++) {
+            for (int left = 0; left + 8 <= image.getWidth(); left++) {
+                double ma = 0;
+                double mb = 0;
+                for (int y = top; y < top + 8; y++) {
+                    for (int x = left; x < left + 8; x++) {
+                        ma += luma(image, x, y) / 64.0;
+                        mb += luma(other, x, y) / 64.0;
+                    }
+                }
+                double va = 0;
+                double vb = 0;
+                double cov = 0;
+                for (int y = top; y < top + 8; y++) {
+                    for (int x = left; x < left + 8; x++) {
+                        va += (luma(image, x, y) - ma) * (luma(image, x, y) - ma) / 64;
+                        vb += (luma(other, x, y) - mb) * (luma(other, x, y) - mb) / 64;
+                        cov += (luma(image, x, y) - ma) * (luma(other, x, y) - mb) / 64;
+                    }
+                }
+                double c1 = 6.5025;
+                double c2 = 58.5225;
+                expected += (2 * ma * mb + c1) * (2 * cov + c2)
+                        / ((ma * ma + mb * mb + c1) * (va + vb + c2));
+                positions++;
+            }
+        }
+        Assert.assertEquals(expected / positions, ImageComparison.ssim(image, other), 1e-9);
+        Assert.assertEquals(1, ImageComparison.ssim(image, image.copy()), 1e-12);
+        Assert.assertTrue(ImageComparison.ssim(image, other) < 0.9);
+    }
+
+    @Test(expected = Problem.class)
+    public void sizesMustMatch() {
+        ImageComparison.psnr(image, image.view(0, 0, 10, 10));
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class ImageTest_convolve {
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 23;
+
+    private Image image;
+
+    @Before
+    public void setUp() {
+        image = ImageFixtures.random(WIDTH, HEIGHT, 42, false);
+    }
+
+    private static int channel(final int argb, final int c) {
+        return (argb >>> (24 - 8 * c)) & 0xFF;
+    }
+
+    private static Image reference(final Image src, final Kernel kernel, final EdgeMode edges) {
+        Image res = src.copy();
+        int rx = kernel.getWidth() / 2;
+        int ry = kernel.getHeight() / 2;
+        for (int y = 0; y < src.getHeight(); y++) {
+            for (int x = 0; x < src.getWidth(); x++) {
+                double[] sums = new double[4];
+                for (int ky = 0; ky < kernel.getHeight(); ky++) {
+                    for (int kx = 0; kx < kernel.getWidth(); kx++) {
+                        int sx = edges.map(x + kx - rx, src.getWidth());
+                        int sy = edges.map(y + ky - ry, src.getHeight());
+                        if ((sx >= 0) && (sy >= 0)) {
+                            int p = src.getPixel(sx, sy).toMergedRgb();
+                            double w = kernel.getWeight(kx, ky) * channel(p, 0);
+                            sums[0] += w;
+                            for (int c = 1; c < 4; c++) {
+                                sums[c] += w * channel(p, c);
+                            }
+                        }
+                    }
+                }
+                int pixel = 0;
+                double alpha = Math.min(255, sums[0]);
+                if (Math.round(alpha) > 0) {
+                    pixel = (int) Math.round(alpha) << 24;
+                    for (int c = 1; c < 4; c++) {
+                        int value = (int) Math.max(0, Math.min(255, Math.round(sums[c] / alpha)));
+                        pixel |= value << (24 - 8 * c);
+                    }
+                }
+                res.setPixel(x, y, Color.fromMergedRgb(pixel));
+            }
+        }
+        return res;
+    }
+
+    @Test
+    public void separableKernelsAreDetected() {
+        Assert.assertTrue(Kernel.gaussian(1.5).isSeparable());
+        Assert.assertTrue(Kernel.box(2).isSeparable());
+        Assert.assertTrue(new Kernel(3, 3, 1, 2, 1, 0, 0, 0, -1, -2, -1).isSeparable());
+        Assert.assertFalse(Kernel.sharpen().isSeparable());
+    }
+
+    @Test
+    public void convolutionMatchesDefinition() {
+        Kernel[] kernels = {
+            Kernel.sharpen(),
+            Kernel.gaussian(1.2),
+            new Kernel(3, 3, 1, 2, 1, 0, 0, 0, -1, -2, -1),
+            new Kernel(5, 1, 0.1, 0.2, 0.4, 0.2, 0.1),
+        };
+        for (Kernel kernel : kernels) {
+            for (EdgeMode edges : EdgeMode.values()) {
+                Image actual = image.copy();
+                actual.filter().convolve(kernel, edges);
+                ImageFixtures.assertClose(reference(image, kernel, edges), actual, 1);
+            }
+        }
+    }
+
+    @Test
+    public void convolutionWorksOnViews() {
+        Image view = image.copy().view(5, 3, 20, 10);
+        Image expected = reference(view.copy(), Kernel.sharpen(), EdgeMode.CLAMP);
+        view.filter().convolve(Kernel.sharpen());
+        ImageFixtures.assertClose(expected, view, 0);
+    }
+
+    @Test
+    public void boxBlurMatchesBoxKernel() {
+        for (int radius : new int[] { 1, 3, 12, 40 }) {
+            Image actual = image.copy();
+            actual.filter().boxBlur(radius);
+            ImageFixtures.assertClose(reference(image, Kernel.box(radius), EdgeMode.CLAMP),
+                    actual, 1);
+        }
+    }
+
+    @Test
+    public void boxBlurSupportsEdgeModes() {
+        for (EdgeMode edges : EdgeMode.values()) {
+            Image actual = image.copy();
+            actual.filter().boxBlur(4, edges);
+            ImageFixtures.assertClose(reference(image, Kernel.box(4), edges), actual, 1);
+        }
+        Image wrapped = image.copy();
+        wrapped.filter().gaussianBlur(1.5, EdgeMode.WRAP);
+        Image clamped = image.copy();
+        clamped.filter().gaussianBlur(1.5);
+        Assert.assertFalse(ImageComparison.pixelsEqual(wrapped, clamped));
+        ImageFixtures.assertClose(clamped.view(8, 8, 10, 10), wrapped.view(8, 8, 10, 10), 0);
+    }
+
+    @Test
+    public void gaussianBlurIsCloseToGaussianKernel() {
+        Image small = image.copy();
+        small.filter().gaussianBlur(1);
+        ImageFixtures.assertClose(reference(image, Kernel.gaussian(1), EdgeMode.CLAMP), small, 1);
+
+        // Repeated box blurs differ near the edges, compare the middle only.
+        Image actual = image.copy();
+        actual.filter().gaussianBlur(2.5);
+        Image expected = reference(image, Kernel.gaussian(2.5), EdgeMode.CLAMP);
+        ImageFixtures.assertClose(expected.view(8, 8, WIDTH - 16, HEIGHT - 16),
+                actual.view(8, 8, WIDTH - 16, HEIGHT - 16), 3);
+    }
+
+    @Test
+    public void transparentPixelsDoNotBleed() {
+        Image white = Image.createEmpty(3, 3, Color.WHITE);
+        white.filter().convolve(Kernel.box(1), EdgeMode.TRANSPARENT);
+        // Corner sees 4 of 9 pixels, side 6 of 9; the color stays white.
+        Assert.assertEquals(0x71FFFFFF, white.getPixel(0, 0).toMergedRgb());
+        Assert.assertEquals(0xAAFFFFFF, white.getPixel(1, 0).toMergedRgb());
+        Assert.assertEquals(0xFFFFFFFF, white.getPixel(1, 1).toMergedRgb());
+
+        Image stripes = Image.createEmpty(8, 8, Color.RED);
+        for (int y = 0; y < 8; y++) {
+            for (int x = 4; x < 8; x++) {
+                stripes.setPixel(x, y, Color.fromMergedRgb(0));
+            }
+        }
+        Image boxed = stripes.copy();
+        boxed.filter().boxBlur(2);
+        Image blurred = stripes.copy();
+        blurred.filter().gaussianBlur(2);
+        Image convolved = stripes.copy();
+        convolved.filter().convolve(Kernel.gaussian(1));
+        for (Image result : new Image[] { boxed, blurred, convolved }) {
+            for (int x = 0; x < 8; x++) {
+                int pixel = result.getPixel(x, 4).toMergedRgb();
+                if (pixel != 0) {
+                    Assert.assertEquals("pixel " + x, 0xFF0000, pixel & 0xFFFFFF);
+                }
+            }
+            Assert.assertTrue(result.getPixel(4, 4).toMergedRgb() >>> 24 > 0);
+            Assert.assertTrue(result.getPixel(3, 4).toMergedRgb() >>> 24 < 0xFF);
+        }
+    }
+
+    @Test
+    public void transparentImageMatchesDefinition() {
+        Random random = new Random(7);
+        Image translucent = image.copy();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int rgb = translucent.getPixel(x, y).toMergedRgb() & 0xFFFFFF;
+                int alpha = random.nextInt(4) == 0 ? 0 : random.nextInt(256);
+                translucent.setPixel(x, y, Color.fromMergedRgb(alpha << 24 | rgb));
+            }
+        }
+        Kernel[] kernels = { Kernel.sharpen(), Kernel.gaussian(1.2), Kernel.box(2) };
+        for (Kernel kernel : kernels) {
+            Image actual = translucent.copy();
+            actual.filter().convolve(kernel, EdgeMode.MIRROR);
+            ImageFixtures.assertClose(reference(translucent, kernel, EdgeMode.MIRROR), actual, 1);
+        }
+        Image actual = translucent.copy();
+        actual.filter().boxBlur(3);
+        ImageFixtures.assertClose(reference(translucent, Kernel.box(3), EdgeMode.CLAMP), actual, 1);
+    }
+
+    @Test
+    public void blurKeepsUniformImage() {
+        Image uniform = Image.createEmpty(50, 40, Color.TEAL);
+        uniform.filter().gaussianBlur(6);
+        uniform.filter().boxBlur(10);
+        ImageFixtures.assertClose(Image.createEmpty(50, 40, Color.TEAL), uniform, 0);
+    }
+
+    @Test
+    public void edgeModesMapCoordinates() {
+        Assert.assertEquals(0, EdgeMode.CLAMP.map(-3, 5));
+        Assert.assertEquals(4, EdgeMode.CLAMP.map(7, 5));
+        Assert.assertEquals(2, EdgeMode.MIRROR.map(-2, 5));
+        Assert.assertEquals(3, EdgeMode.MIRROR.map(5, 5));
+        Assert.assertEquals(3, EdgeMode.WRAP.map(-2, 5));
+        Assert.assertEquals(0, EdgeMode.WRAP.map(5, 5));
+        Assert.assertEquals(-1, EdgeMode.TRANSPARENT.map(5, 5));
+        Assert.assertEquals(0, EdgeMode.MIRROR.map(-4, 1));
+    }
+
+    @Test(expected = Problem.class)
+    public void kernelMustHaveOddSize() {
+        new Kernel(2, 1, 0.5, 0.5);
+    }
+
+    @Test(expected = Problem.class)
+    public void kernelWeightsMustMatchSize() {
+        new Kernel(3, 3, 1, 2, 3);
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class ImageTest_draw {
+    private static final int INK = 0xFF102030;
+    private static final int PAPER = 0xFFFFFFFF;
+
+    private Image image;
+    private Random random;
+
+    @Before
+    public void setUp() {
+        image = Image.createEmpty(60, 45, Color.WHITE);
+        random = new Random(7);
+    }
+
+    private int pixel(final int x, final int y) {
+        return image.getPixel(x, y).toMergedRgb();
+    }
+
+    private void assertPixels(final boolean[][] expected) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                Assert.assertEquals("pixel " + x + ", " + y,
+                        expected[y][x] ? INK : PAPER, pixel(x, y));
+            }
+        }
+    }
+
+    private void mark(final boolean[][] expected, final long x, final long y) {
+        if ((x >= 0) && (y >= 0) && (x < image.getWidth()) && (y < image.getHeight())) {
+            expected[(int) y][(int) x] = true;
+        }
+    }
+
+    private double coverage() {
+        double sum = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                sum += (255 - image.getPixel(x, y).getRed()) / 255.0;
+            }
+        }
+        return sum;
+    }
+
+    @Test
+    public void rectangleIsClipped() {
+        image.draw().fillRect(-5, -7, 10, 12, Color.fromMergedRgb(INK));
+        image.draw().fillRect(55, 40, 100, 100, Color.fromMergedRgb(INK));
+        image.draw().fillRect(10, 10, 0, 5, Color.fromMergedRgb(INK));
+        boolean[][] expected = new boolean[45][60];
+        for (int y = 0; y < 45; y++) {
+            for (int x = 0; x < 60; x++) {
+                expected[y][x] = ((x < 5) && (y < 5)) || ((x >= 55) && (y >= 40));
+            }
+        }
+        assertPixels(expected);
+    }
+
+    @Test
+    public void translucentColorIsBlended() {
+        image.draw().fillRect(0, 0, 10, 10, new Color(0, 0, 0, 128));
+        Assert.assertEquals(127, image.getPixel(5, 5).getRed(), 1);
+        Assert.assertEquals(255, image.getPixel(5, 5).toMergedRgb() >>> 24);
+    }
+
+    @Test
+    public void linesMatchMidpointAlgorithm() {
+        for (int n = 0; n < 300; n++) {
+            setUp();
+            int x1 = random.nextInt(200) - 70;
+            int y1 = random.nextInt(160) - 60;
+            int x2 = random.nextInt(200) - 70;
+            int y2 = random.nextInt(160) - 60;
+            image.draw().drawLine(x1, y1, x2, y2, Color.fromMergedRgb(INK));
+
+            boolean[][] expected = new boolean[45][60];
+            boolean steep = Math.abs(y2 - y1) > Math.abs(x2 - x1);
+            long major = steep ? Math.abs(y2 - y1) : Math.abs(x2 - x1);
+            long minor = steep ? Math.abs(x2 - x1) : Math.abs(y2 - y1);
+            int sx = x2 >= x1 ? 1 : -1;
+            int sy = y2 >= y1 ? 1 : -1;
+            for (long i = 0; i <= major; i++) {
+                long q = major == 0 ? 0 : Math.floorDiv(2 * i * minor + major, 2 * major);
+                if (steep) {
+                    mark(expected, x1 + sx * q, y1 + sy * i);
+                } else {
+                    mark(expected, x1 + sx * i, y1 + sy * q);
+                }
+            }
+            assertPixels(expected);
+        }
+    }
+
+    @Test
+    public void ellipsesContainPixelCenters() {
+        for (int n = 0; n < 100; n++) {
+            setUp();
+            int cx = random.nextInt(80) - 10;
+            int cy = random.nextInt(65) - 10;
+            long rx = random.nextInt(30);
+            long ry = random.nextInt(30);
+            image.draw().fillEllipse(cx, cy, (int) rx, (int) ry, Color.fromMergedRgb(INK));
+
+            boolean[][] expected = new boolean[45][60];
+            for (int y = 0; y < 45; y++) {
+                for (int x = 0; x < 60; x++) {
+                    long dx = x - cx;
+                    long dy = y - cy;
+                    boolean inside = (ry == 0) || (rx == 0)
+                            ? (Math.abs(dx) <= rx) && (Math.abs(dy) <= ry)
+                            : dx * dx * ry * ry + dy * dy * rx * rx <= rx * rx * ry * ry;
+                    expected[y][x] = inside;
+                }
+            }
+            assertPixels(expected);
+        }
+    }
+
+    @Test
+    public void polygonsUseEvenOddRule() {
+        for (int n = 0; n < 100; n++) {
+            setUp();
+            int count = 3 + random.nextInt(6);
+            int[] xs = new int[count];
+            int[] ys = new int[count];
+            for (int i = 0; i < count; i++) {
+                xs[i] = random.nextInt(80) - 10;
+                ys[i] = random.nextInt(65) - 10;
+            }
+            image.draw().fillPolygon(xs, ys, Color.fromMergedRgb(INK));
+
+            boolean[][] expected = new boolean[45][60];
+            for (int y = 0; y < 45; y++) {
+                for (int x = 0; x < 60; x++) {
+                    boolean inside = false;
+                    for (int i = 0; i < count; i++) {
+                        int j = (i + 1) % count;
+                        if ((ys[i] > y) == (ys[j] > y)) {
+                            continue;
+                        }
+                        int top = ys[i] < ys[j] ? i : j;
+                        int bottom = top == i ? j : i;
+                        double slope = (double) (xs[bottom] - xs[top]) / (ys[bottom] - ys[top]);
+                        if (x < xs[top] + (y - ys[top]) * slope) {
+                            inside = !inside;
+                        }
+                    }
+                    expected[y][x] = inside;
+                }
+            }
+            assertPixels(expected);
+        }
+    }
+
+    @Test
+    public void smoothCircleCoversItsArea() {
+        image.draw().fillSmoothCircle(30.2, 21.7, 15.3, Color.BLACK);
+        Assert.assertEquals(Math.PI * 15.3 * 15.3, coverage(), 2);
+        Assert.assertEquals(0, image.getPixel(30, 22).getRed());
+        Assert.assertEquals(255, image.getPixel(0, 0).getRed());
+    }
+
+    @Test
+    public void smoothPolygonAlignedWithPixelsIsSharp() {
+        image.draw().fillSmoothPolygon(new double[] {9.5, 19.5, 19.5, 9.5},
+                new double[] {4.5, 4.5, 14.5, 14.5}, Color.fromMergedRgb(INK));
+        boolean[][] expected = new boolean[45][60];
+        for (int y = 5; y < 15; y++) {
+            for (int x = 10; x < 20; x++) {
+                expected[y][x] = true;
+            }
+        }
+        assertPixels(expected);
+    }
+
+    @Test
+    public void smoothLineSplitsBetweenRows() {
+        image.draw().drawSmoothLine(10, 20.5, 30, 20.5, Color.BLACK);
+        Assert.assertEquals(20, coverage(), 0.2);
+        Assert.assertEquals(image.getPixel(15, 20).getRed(), image.getPixel(15, 21).getRed());
+        Assert.assertEquals(127, image.getPixel(15, 20).getRed(), 1);
+    }
+
+    @Test
+    public void smoothShapesAreClipped() {
+        image.draw().drawSmoothLine(-1000, -300, 2000, 900, Color.BLACK);
+        image.draw().fillSmoothEllipse(-20, 50, 35, 12.5, Color.BLACK);
+        image.draw().fillSmoothPolygon(new double[] {-10, 100, 30}, new double[] {-5, 10, 80},
+                Color.BLACK);
+        Assert.assertTrue(coverage() > 0);
+    }
+
+    @Test(expected = Problem.class)
+    public void polygonNeedsMatchingCoordinates() {
+        image.draw().fillPolygon(new int[] {1, 2, 3}, new int[] {1, 2}, Color.BLACK);
+    }
+
+    @Test(expected = Problem.class)
+    public void colorIsRequired() {
+        image.draw().drawLine(0, 0, 10, 10, null);
+    }
+}
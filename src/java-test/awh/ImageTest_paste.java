@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class ImageTest_paste {
+    private Image background;
+    private Image sprite;
+
+    @Before
+    public void setUp() {
+        final Random random = new Random(5);
+        background = Image.createEmpty(200, 150, new Color(20, 40, 60));
+        sprite = ImageFixtures.create(40, 30, (x, y) -> {
+            int alpha = x < 10 ? 255 : (x < 20 ? 0 : random.nextInt(256));
+            return new Color(random.nextInt(256), random.nextInt(256),
+                    random.nextInt(256), alpha).toMergedRgb();
+        });
+    }
+
+    private static void assertColor(final Color expected, final Color actual) {
+        Assert.assertEquals(expected.toMergedRgb(), actual.toMergedRgb());
+    }
+
+    private static void assertSame(final Image expected, final Image actual) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            Assert.assertArrayEquals("row " + y, expected.getRow(y, null), actual.getRow(y, null));
+        }
+    }
+
+    @Test
+    public void blendsLikeSourceOver() {
+        background.pasteFrom(sprite, 15, 25);
+        for (int y = 0; y < sprite.getHeight(); y++) {
+            for (int x = 0; x < sprite.getWidth(); x++) {
+                Color src = sprite.getPixel(x, y);
+                Color actual = background.getPixel(x + 15, y + 25);
+                double a = src.toMergedRgb() >>> 24;
+                Assert.assertEquals(255, actual.toMergedRgb() >>> 24);
+                Assert.assertEquals(src.getRed() * a / 255 + 20 * (1 - a / 255),
+                        actual.getRed(), 0.6);
+                Assert.assertEquals(src.getBlue() * a / 255 + 60 * (1 - a / 255),
+                        actual.getBlue(), 0.6);
+            }
+        }
+        assertColor(new Color(20, 40, 60), background.getPixel(14, 25));
+        assertColor(new Color(20, 40, 60), background.getPixel(15, 55));
+    }
+
+    @Test
+    public void clipsAtAllEdges() {
+        Image expected = background.copy();
+        background.pasteFrom(sprite, -5, -7);
+        background.pasteFrom(sprite, 190, 140);
+        background.pasteFrom(sprite, 500, 10);
+        background.pasteFrom(sprite, -100, 10);
+        assertColor(sprite.getPixel(5, 7), background.getPixel(0, 0));
+        assertColor(sprite.getPixel(9, 9), background.getPixel(199, 149));
+        assertColor(expected.getPixel(100, 75), background.getPixel(100, 75));
+    }
+
+    @Test
+    public void copyKeepsTransparency() {
+        background.pasteAll(new SpriteBatch().addCopy(sprite, 3, 4));
+        assertColor(sprite.getPixel(12, 1), background.getPixel(15, 5));
+        Assert.assertEquals(0, background.getPixel(15, 5).toMergedRgb() >>> 24);
+    }
+
+    @Test
+    public void batchMatchesSequentialPasting() {
+        Image big = Image.createEmpty(700, 500, Color.WHITE);
+        Image expected = big.copy();
+        SpriteBatch batch = new SpriteBatch();
+        Random random = new Random(1);
+        for (int i = 0; i < 60; i++) {
+            int x = random.nextInt(760) - 50;
+            int y = random.nextInt(560) - 50;
+            batch.add(sprite, x, y);
+            expected.pasteFrom(sprite, x, y);
+        }
+        Assert.assertEquals(60, batch.size());
+        big.pasteAll(batch);
+        assertSame(expected, big);
+    }
+
+    @Test
+    public void pastingOverlappingViewUsesOriginalPixels() {
+        background.pasteFrom(sprite, 0, 0);
+        Image expected = background.copy();
+        expected.pasteFrom(background.view(0, 0, 40, 30).copy(), 5, 3);
+        background.pasteFrom(background.view(0, 0, 40, 30), 5, 3);
+        assertSame(expected, background);
+    }
+
+    @Test(expected = Problem.class)
+    public void nullImageIsRejected() {
+        background.pasteFrom(null, 0, 0);
+    }
+}
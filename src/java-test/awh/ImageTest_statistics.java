@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class ImageTest_statistics {
+    private static Image gradient(final int from, final int to) {
+        Image res = Image.createEmpty(to - from + 1, 3, Color.BLACK);
+        for (int x = 0; x < res.getWidth(); x++) {
+            for (int y = 0; y < 3; y++) {
+                res.setPixel(x, y, Color.fromRgb(from + x, from + x, (from + x) / 2));
+            }
+        }
+        return res;
+    }
+
+    @Test
+    public void statisticsOfTwoColors() {
+        Image image = Image.createEmpty(10, 10, Color.NAVY);
+        image.view(0, 0, 5, 5).pasteFrom(Image.createEmpty(5, 5, Color.RED), 0, 0);
+
+        ImageStatistics stats = image.statistics();
+        Assert.assertEquals(100, stats.getPixelCount());
+        Assert.assertEquals(25, stats.getHistogram(Channel.RED)[255]);
+        Assert.assertEquals(75, stats.getHistogram(Channel.RED)[0]);
+        Assert.assertEquals(100, stats.getHistogram(Channel.ALPHA)[255]);
+        Assert.assertEquals(63.75, stats.getMean(Channel.RED), 1e-9);
+        Assert.assertEquals(0.25 * 0.75 * 255 * 255, stats.getVariance(Channel.RED), 1e-6);
+        Assert.assertEquals(0, stats.getMin(Channel.RED));
+        Assert.assertEquals(255, stats.getMax(Channel.RED));
+        Assert.assertEquals(0, stats.getPercentile(Channel.RED, 0.75));
+        Assert.assertEquals(255, stats.getPercentile(Channel.RED, 0.76));
+        Assert.assertEquals(15, stats.getMin(Channel.LUMINANCE));
+        Assert.assertEquals(77, stats.getMax(Channel.LUMINANCE));
+        Assert.assertEquals(new Color(64, 0, 96).toMergedRgb(),
+                stats.getMeanColor().toMergedRgb());
+    }
+
+    @Test
+    public void parallelCountsMatchSequentialOnes() {
+        Random random = new Random(7);
+        Image image = Image.createEmpty(700, 600, Color.BLACK);
+        long[] expected = new long[256];
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int green = random.nextInt(256);
+                image.setPixel(x, y, Color.fromRgb(0, green, 0));
+                expected[green]++;
+            }
+        }
+        long[] actual = image.statistics().getHistogram(Channel.GREEN);
+        for (int i = 0; i < 256; i++) {
+            Assert.assertEquals(expected[i], actual[i]);
+        }
+    }
+
+    @Test
+    public void autoLevelsStretchChannels() {
+        Image image = gradient(100, 150);
+        image.filter().autoLevels();
+        ImageStatistics stats = image.statistics();
+        for (Channel channel : new Channel[] { Channel.RED, Channel.GREEN, Channel.BLUE }) {
+            Assert.assertEquals(0, stats.getMin(channel));
+            Assert.assertEquals(255, stats.getMax(channel));
+        }
+        Assert.assertEquals(255, stats.getMin(Channel.ALPHA));
+    }
+
+    @Test
+    public void equalizationUsesFullRange() {
+        Image image = gradient(100, 110);
+        image.filter().histogramEqualize();
+        ImageStatistics stats = image.statistics();
+        Assert.assertEquals(0, stats.getMin(Channel.RED));
+        Assert.assertEquals(255, stats.getMax(Channel.RED));
+        Assert.assertEquals(127.5, stats.getMean(Channel.RED), 15);
+    }
+
+    @Test
+    public void uniformImageIsNotChanged() {
+        Image image = Image.createEmpty(20, 20, Color.GRAY);
+        image.filter().histogramEqualize();
+        image.filter().autoLevels();
+        Assert.assertEquals(Color.GRAY.toMergedRgb(), image.getPixel(3, 4).toMergedRgb());
+    }
+
+    @Test(expected = Problem.class)
+    public void percentileMustBeFraction() {
+        Image.createEmpty(2, 2, Color.GRAY).statistics().getPercentile(Channel.RED, 1.5);
+    }
+}
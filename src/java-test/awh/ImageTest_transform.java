@@ -0,0 +1,205 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class ImageTest_transform {
+    private static final int WIDTH = 150;
+    private static final int HEIGHT = 71;
+
+    private Image image;
+
+    @Before
+    public void setUp() {
+        image = Image.createEmpty(WIDTH, HEIGHT, Color.BLACK);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.setPixel(x, y, Color.fromMergedRgb(original(x, y)));
+            }
+        }
+    }
+
+    private static int original(final int x, final int y) {
+        return 0xFF000000 | (x << 8) | y;
+    }
+
+    private int at(final int x, final int y) {
+        return image.getPixel(x, y).toMergedRgb();
+    }
+
+    private void assertSize(final int width, final int height) {
+        Assert.assertEquals(width, image.getWidth());
+        Assert.assertEquals(height, image.getHeight());
+    }
+
+    @Test
+    public void rotateClockwise() {
+        image.rotate90();
+        assertSize(HEIGHT, WIDTH);
+        for (int y = 0; y < WIDTH; y++) {
+            for (int x = 0; x < HEIGHT; x++) {
+                Assert.assertEquals(original(y, HEIGHT - 1 - x), at(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void rotateCounterclockwise() {
+        image.rotate270();
+        assertSize(HEIGHT, WIDTH);
+        for (int y = 0; y < WIDTH; y++) {
+            for (int x = 0; x < HEIGHT; x++) {
+                Assert.assertEquals(original(WIDTH - 1 - y, x), at(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void transposeSwapsAxes() {
+        image.transpose();
+        assertSize(HEIGHT, WIDTH);
+        for (int y = 0; y < WIDTH; y++) {
+            for (int x = 0; x < HEIGHT; x++) {
+                Assert.assertEquals(original(y, x), at(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void rotateHalfTurnInPlace() {
+        image.rotate180();
+        assertSize(WIDTH, HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                Assert.assertEquals(original(WIDTH - 1 - x, HEIGHT - 1 - y), at(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void flipsMirrorAxes() {
+        image.flipHorizontal();
+        Assert.assertEquals(original(WIDTH - 1, 5), at(0, 5));
+        Assert.assertEquals(original(WIDTH / 2, 7), at(WIDTH - 1 - WIDTH / 2, 7));
+        image.flipVertical();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                Assert.assertEquals(original(WIDTH - 1 - x, HEIGHT - 1 - y), at(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void fourQuarterTurnsAreIdentity() {
+        Image expected = image.copy();
+        image.rotate90();
+        image.rotate(90);
+        image.rotate(-90);
+        image.rotate(450);
+        image.rotate270();
+        image.rotate(270);
+        Assert.assertTrue(ImageComparison.pixelsEqual(expected, image));
+    }
+
+    @Test
+    public void flippingViewKeepsRestOfImage() {
+        image.view(10, 20, 30, 9).rotate180();
+        Assert.assertEquals(original(39, 28), at(10, 20));
+        Assert.assertEquals(original(10, 20), at(39, 28));
+        Assert.assertEquals(original(9, 20), at(9, 20));
+        Assert.assertEquals(original(40, 28), at(40, 28));
+    }
+
+    @Test
+    public void squareImagesAreTransformedInPlace() {
+        final int size = 130;
+        Image square = Image.createEmpty(size, size, Color.BLACK);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                square.setPixel(x, y, Color.fromMergedRgb(original(x, y)));
+            }
+        }
+        square.transpose();
+        Assert.assertEquals(original(129, 3), square.getPixel(3, 129).toMergedRgb());
+        Assert.assertEquals(original(70, 64), square.getPixel(64, 70).toMergedRgb());
+        square.transpose();
+        square.rotate90();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                Assert.assertEquals(original(y, size - 1 - x), square.getPixel(x, y).toMergedRgb());
+            }
+        }
+        square.rotate270();
+        square.rotate270();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                Assert.assertEquals(original(size - 1 - y, x), square.getPixel(x, y).toMergedRgb());
+            }
+        }
+    }
+
+    @Test
+    public void rotatedSquareViewKeepsSharingPixels() {
+        Image view = image.view(10, 5, 60, 60);
+        view.rotate90();
+        Assert.assertEquals(original(10, 64), at(10, 5));
+        Assert.assertEquals(original(10, 5), at(69, 5));
+        Assert.assertEquals(original(9, 5), at(9, 5));
+        view.setPixel(0, 0, Color.WHITE);
+        Assert.assertEquals(Color.WHITE.toMergedRgb(), at(10, 5));
+    }
+
+    @Test
+    public void rotatedOtherViewGetsNewPixels() {
+        Image view = image.view(10, 20, 30, 9);
+        view.rotate90();
+        Assert.assertEquals(9, view.getWidth());
+        Assert.assertEquals(30, view.getHeight());
+        Assert.assertEquals(original(10, 28), view.getPixel(0, 0).toMergedRgb());
+        Assert.assertEquals(original(10, 20), at(10, 20));
+        view.setPixel(0, 0, Color.WHITE);
+        Assert.assertEquals(original(10, 20), at(10, 20));
+    }
+
+    @Test
+    public void arbitraryAngleGrowsImage() {
+        Image square = Image.createEmpty(100, 100, Color.RED);
+        square.rotate(45);
+        Assert.assertEquals(142, square.getWidth());
+        Assert.assertEquals(142, square.getHeight());
+        Assert.assertEquals(Color.RED.toMergedRgb(), square.getPixel(71, 71).toMergedRgb());
+        Assert.assertEquals(0, square.getPixel(2, 2).toMergedRgb());
+        Assert.assertEquals(Color.RED.toMergedRgb() & 0xFFFFFF,
+                square.getPixel(71, 1).toMergedRgb() & 0xFFFFFF);
+    }
+
+    @Test(expected = Problem.class)
+    public void angleMustBeFinite() {
+        image.rotate(Double.NaN);
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class IntListTest {
+    private static final int RANDOM_SIZE = 10000;
+
+    private IntList random;
+    private int[] sorted;
+    private File tmpFile;
+
+    @Before
+    public void setUp() {
+        Random rnd = new Random(42);
+        random = new IntList();
+        sorted = new int[RANDOM_SIZE];
+        for (int i = 0; i < RANDOM_SIZE; i++) {
+            // Narrow range so that there are plenty of duplicates.
+            sorted[i] = rnd.nextInt(500) - 250;
+            random.add(sorted[i]);
+        }
+        Arrays.sort(sorted);
+    }
+
+    @After
+    public void tearDown() {
+        if (tmpFile != null) {
+            tmpFile.delete();
+        }
+    }
+
+    private String newTemporaryFile() throws IOException {
+        tmpFile = File.createTempFile("awh-list", ".bin");
+        return tmpFile.getPath();
+    }
+
+    @Test
+    public void kthSmallestMatchesSorting() {
+        for (int k = 0; k < RANDOM_SIZE; k += 97) {
+            Assert.assertEquals(sorted[k], (int) random.kthSmallest(k));
+        }
+        Assert.assertEquals(sorted[RANDOM_SIZE - 1], (int) random.kthSmallest(RANDOM_SIZE - 1));
+    }
+
+    @Test
+    public void kthSmallestDoesNotModifyList() {
+        IntList list = IntList.create(5, 1, 4, 2, 3);
+        Assert.assertEquals(3, (int) list.kthSmallest(2));
+        Assert.assertEquals(IntList.create(5, 1, 4, 2, 3), list);
+    }
+
+    @Test
+    public void medianOfEvenSizeIsLowerMiddle() {
+        Assert.assertEquals(2, (int) IntList.create(4, 1, 3, 2).median());
+    }
+
+    @Test
+    public void percentilesUseNearestRank() {
+        IntList list = new IntList();
+        for (int i = 20; i > 0; i--) {
+            list.add(i);
+        }
+        Assert.assertEquals(IntList.create(1, 10, 19, 20), list.percentiles(0, 50, 95, 100));
+    }
+
+    @Test
+    public void percentilesMatchSorting() {
+        IntList res = random.percentiles(99.9, 1, 50, 25, 75, 99);
+        Assert.assertEquals(IntList.create(sorted[9989], sorted[99], sorted[4999],
+                sorted[2499], sorted[7499], sorted[9899]), res);
+    }
+
+    @Test
+    public void topKMatchesSorting() {
+        IntList top = random.topK(50);
+        Assert.assertEquals(50, top.size());
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals(sorted[RANDOM_SIZE - 1 - i], (int) top.get(i));
+        }
+    }
+
+    @Test
+    public void doubleListSelection() {
+        DoubleList list = DoubleList.create(2.5, -1.0, 7.25, 0.0, 3.0);
+        Assert.assertEquals(2.5, list.median(), 0.0);
+        Assert.assertEquals(DoubleList.create(7.25, 3.0), list.topK(2));
+        Assert.assertEquals(5, list.topK(Integer.MAX_VALUE).size());
+        Assert.assertEquals(DoubleList.create(-1.0, 7.25), list.percentiles(0, 100));
+    }
+
+    @Test
+    public void saveAndLoad() throws IOException {
+        String path = newTemporaryFile();
+        random.saveToFile(path);
+        Assert.assertEquals(16 + 4 * RANDOM_SIZE, tmpFile.length());
+        Assert.assertEquals(random, IntList.loadFromFile(path));
+    }
+
+    @Test
+    public void saveAndOpenMapped() throws IOException {
+        String path = newTemporaryFile();
+        random.saveToFile(path);
+        IntList mapped = IntList.openMapped(path);
+        Assert.assertEquals(random, mapped);
+        Assert.assertEquals(sorted[RANDOM_SIZE / 2], (int) mapped.kthSmallest(RANDOM_SIZE / 2));
+    }
+
+    @Test
+    public void saveEmptyList() throws IOException {
+        String path = newTemporaryFile();
+        new IntList().saveToFile(path);
+        Assert.assertTrue(IntList.loadFromFile(path).isEmpty());
+        Assert.assertTrue(IntList.openMapped(path).isEmpty());
+    }
+
+    @Test
+    public void fileHasLittleEndianValues() throws IOException {
+        String path = newTemporaryFile();
+        IntList.create(0x01020304).saveToFile(path);
+        try (RandomAccessFile f = new RandomAccessFile(tmpFile, "r")) {
+            f.seek(16);
+            Assert.assertEquals(0x04, f.read());
+            Assert.assertEquals(0x03, f.read());
+        }
+    }
+
+    @Test(expected = Problem.class)
+    public void mappedListIsReadOnly() throws IOException {
+        String path = newTemporaryFile();
+        random.saveToFile(path);
+        IntList.openMapped(path).set(0, 1);
+    }
+
+    @Test(expected = Problem.class)
+    public void loadingDoublesAsIntegersFails() throws IOException {
+        String path = newTemporaryFile();
+        DoubleList.create(1.5).saveToFile(path);
+        IntList.loadFromFile(path);
+    }
+
+    @Test
+    public void doubleListSaveAndLoad() throws IOException {
+        String path = newTemporaryFile();
+        DoubleList list = DoubleList.create(1.5, -2.25, Double.MAX_VALUE);
+        list.saveToFile(path);
+        Assert.assertEquals(list, DoubleList.loadFromFile(path));
+        Assert.assertEquals(list, DoubleList.openMapped(path));
+    }
+
+    private static ByteArrayInputStream streamOf(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void readFromStreamWithMixedSeparators() {
+        IntList list = IntList.readFrom(streamOf("1, 2,3\n-4\r\n\t+5  2147483647 -2147483648\n"));
+        Assert.assertEquals(IntList.create(1, 2, 3, -4, 5, Integer.MAX_VALUE, Integer.MIN_VALUE),
+                list);
+    }
+
+    @Test
+    public void readFromEmptyStream() {
+        Assert.assertTrue(IntList.readFrom(streamOf(" \n ")).isEmpty());
+    }
+
+    @Test(expected = Problem.class)
+    public void readFromDetectsOverflow() {
+        IntList.readFrom(streamOf("1 2147483648"));
+    }
+
+    @Test(expected = Problem.class)
+    public void readFromDetectsGarbage() {
+        IntList.readFrom(streamOf("1 2x 3"));
+    }
+
+    @Test
+    public void readFromFile() throws IOException {
+        String path = newTemporaryFile();
+        try (FileOutputStream out = new FileOutputStream(path)) {
+            out.write(random.join("\n").getBytes(StandardCharsets.US_ASCII));
+        }
+        Assert.assertEquals(random, IntList.readFrom(path));
+        Assert.assertEquals(random, IntList.readFrom(path, true));
+    }
+
+    @Test
+    public void readDoublesFromStream() {
+        String[] numbers = {
+            "0", "-0.0", "1.5", ".25", "3.", "1e3", "-2.5E-3", "123456789012.345",
+            "0.1", "9007199254740993", "12345678901234567890", "00012.5000", "1e-400",
+            "1.7976931348623157e308", "4.9e-324", "NaN", "-Infinity",
+        };
+        DoubleList expected = new DoubleList();
+        StringBuilder text = new StringBuilder();
+        for (String n : numbers) {
+            expected.add(Double.parseDouble(n));
+            text.append(n).append(',');
+        }
+        Assert.assertEquals(expected, DoubleList.readFrom(streamOf(text.toString())));
+    }
+
+    @Test
+    public void javaLiteralSyntaxIsNotADouble() {
+        for (String n : new String[] {"1d", "2.5F", "0x1p3", "-0X10", "1e5f"}) {
+            try {
+                DoubleList.readFrom(streamOf("1, " + n));
+                Assert.fail(n);
+            } catch (Problem e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains(n));
+            }
+        }
+    }
+
+    @Test
+    public void readRandomDoublesExactly() {
+        Random rnd = new Random(3);
+        DoubleList expected = new DoubleList();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            double v = (rnd.nextDouble() - 0.5) * Math.pow(10, rnd.nextInt(30) - 15);
+            expected.add(v);
+            text.append(v).append('\n');
+            double rounded = Math.round(v * 1000) / 1000.0;
+            expected.add(rounded);
+            text.append(rounded).append('\n');
+        }
+        Assert.assertEquals(expected, DoubleList.readFrom(streamOf(text.toString())));
+    }
+
+    @Test
+    public void joinToWriterMatchesJoin() {
+        StringWriter out = new StringWriter();
+        random.joinTo(out, ", ");
+        Assert.assertEquals(random.join(", "), out.toString());
+        Assert.assertEquals(random, IntList.readFrom(streamOf(out.toString())));
+    }
+
+    @Test
+    public void doublesAreFormattedAsByDoubleToString() {
+        DoubleList list = DoubleList.create(1.0, -0.5, 1e-10, Double.NaN);
+        Assert.assertEquals("[1.0,-0.5,1.0E-10,NaN]", list.toString());
+    }
+
+    @Test
+    public void primitiveGetSupportsNegativeIndices() {
+        IntList list = IntList.create(3, 1, 4);
+        Assert.assertEquals(3, list.getInt(0));
+        Assert.assertEquals(4, list.getInt(-1));
+        Assert.assertEquals(2.5, DoubleList.create(0.5, 2.5).getDouble(-1), 0);
+    }
+
+    @Test(expected = Problem.class)
+    public void primitiveGetChecksIndex() {
+        IntList.create(3, 1, 4).getInt(-4);
+    }
+}
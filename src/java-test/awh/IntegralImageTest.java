@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class IntegralImageTest {
+    private Image image;
+    private Random random;
+
+    @Before
+    public void setUp() {
+        random = new Random(13);
+        image = Image.createEmpty(300, 90, Color.BLACK);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setPixel(x, y, new Color(random.nextInt(256), random.nextInt(256),
+                        random.nextInt(256), random.nextInt(256)));
+            }
+        }
+    }
+
+    @Test
+    public void rectangleQueriesMatchDirectSums() {
+        IntegralImage integral = image.view(7, 3, 290, 80).integralWithVariance(Channel.GREEN,
+                Channel.LUMINANCE);
+        Assert.assertEquals(290, integral.getWidth());
+        for (int n = 0; n < 200; n++) {
+            int x = random.nextInt(320) - 20;
+            int y = random.nextInt(100) - 15;
+            int w = random.nextInt(100) + 1;
+            int h = random.nextInt(40) + 1;
+            for (Channel channel : new Channel[] {Channel.GREEN, Channel.LUMINANCE}) {
+                long sum = 0;
+                long squares = 0;
+                long count = 0;
+                for (int yy = Math.max(0, y); yy < Math.min(80, y + h); yy++) {
+                    for (int xx = Math.max(0, x); xx < Math.min(290, x + w); xx++) {
+                        int v = channel.of(image.getPixel(xx + 7, yy + 3).toMergedRgb());
+                        sum += v;
+                        squares += v * v;
+                        count++;
+                    }
+                }
+                Assert.assertEquals(sum, integral.getSum(channel, x, y, w, h));
+                if (count > 0) {
+                    double mean = (double) sum / count;
+                    Assert.assertEquals(mean, integral.getMean(channel, x, y, w, h), 1e-9);
+                    Assert.assertEquals((double) squares / count - mean * mean,
+                            integral.getVariance(channel, x, y, w, h), 1e-6);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void wholeImageMatchesStatistics() {
+        IntegralImage integral = image.integralWithVariance();
+        ImageStatistics stats = image.statistics();
+        Assert.assertEquals(stats.getMean(Channel.RED),
+                integral.getMean(Channel.RED, 0, 0, 300, 90), 1e-9);
+        Assert.assertEquals(stats.getVariance(Channel.BLUE),
+                integral.getVariance(Channel.BLUE, 0, 0, 300, 90), 1e-6);
+    }
+
+    @Test(expected = Problem.class)
+    public void missingChannelIsReported() {
+        image.integral().getSum(Channel.ALPHA, 0, 0, 10, 10);
+    }
+
+    @Test(expected = Problem.class)
+    public void varianceNeedsSquares() {
+        image.integral().getVariance(Channel.RED, 0, 0, 10, 10);
+    }
+
+    @Test(expected = Problem.class)
+    public void meanOfEmptyRectangleIsReported() {
+        image.integral().getMean(Channel.RED, 400, 0, 10, 10);
+    }
+}
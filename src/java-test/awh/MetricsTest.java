@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class MetricsTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("awh-metrics", ".png");
+        Metrics.setEnabled(true);
+        Metrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        file.delete();
+    }
+
+    @Test
+    public void imageFilesAreCountedPerFormat() {
+        Image image = Image.createEmpty(20, 10, Color.RED);
+        image.saveToFile(file.getPath());
+        Image.loadFromFile(file.getPath());
+        Image.loadFromFile(file.getPath());
+
+        Map<String, Long> values = Metrics.snapshot();
+        Assert.assertEquals(Long.valueOf(1), values.get("image.encode.png.count"));
+        Assert.assertEquals(Long.valueOf(2), values.get("image.decode.png.count"));
+        Assert.assertEquals(Long.valueOf(2 * file.length()), values.get("image.decode.png.bytes"));
+        Assert.assertTrue(values.get("image.decode.png.nanos") > 0);
+    }
+
+    @Test
+    public void bulkOperationsCountPixels() {
+        Image image = Image.createEmpty(20, 10, Color.RED);
+        image.copy();
+        image.rescale(10, 5);
+
+        Map<String, Long> values = Metrics.snapshot();
+        Assert.assertEquals(Long.valueOf(200 + 50), values.get("image.pixels"));
+        Assert.assertEquals(Long.valueOf(1), values.get("image.rescale.count"));
+    }
+
+    @Test
+    public void nothingIsCollectedWhenDisabled() {
+        Metrics.setEnabled(false);
+        Image.createEmpty(20, 10, Color.RED).rescale(10, 5);
+
+        Metrics.setEnabled(true);
+        Assert.assertEquals(Long.valueOf(0), Metrics.snapshot().get("image.pixels"));
+        Assert.assertEquals(Long.valueOf(0), Metrics.snapshot().get("image.rescale.count"));
+    }
+
+    @Test
+    public void histogramReportsBucketUpperBounds() {
+        LatencyHistogram histogram = new LatencyHistogram("h");
+        for (int i = 0; i < 97; i++) {
+            histogram.record(100);
+        }
+        histogram.record(1000);
+        histogram.record(1000);
+        histogram.record(0);
+
+        Map<String, Long> values = new TreeMap<>();
+        histogram.storeTo(values);
+        Assert.assertEquals(Long.valueOf(100), values.get("h.count"));
+        Assert.assertEquals(Long.valueOf(97 * 100 + 2 * 1000), values.get("h.nanos"));
+        Assert.assertEquals(Long.valueOf(1000), values.get("h.max"));
+        Assert.assertEquals(Long.valueOf(127), values.get("h.p50"));
+        Assert.assertEquals(Long.valueOf(127), values.get("h.p90"));
+        Assert.assertEquals(Long.valueOf(1023), values.get("h.p99"));
+    }
+
+    @Test
+    public void metricsAreAvailableThroughJmx() throws Exception {
+        Object values = ManagementFactory.getPlatformMBeanServer().getAttribute(
+                new ObjectName(Metrics.MBEAN_NAME), "Enabled");
+        Assert.assertEquals(Boolean.TRUE, values);
+    }
+}
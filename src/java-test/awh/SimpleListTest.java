@@ -23,6 +23,10 @@
 
 package awh;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -110,4 +114,92 @@ public class SimpleListTest {
     public void getMaximum() {
         Assert.assertEquals("Z", unorderedLetters.max());
     }
+
+    @Test
+    public void topKReturnsLargestFirst() {
+        Assert.assertEquals("Z,Q,M", unorderedLetters.topK(3).join(","));
+        Assert.assertEquals("A,M,B,Z,Q", unorderedLetters.join(","));
+    }
+
+    @Test
+    public void topKOnShortList() {
+        Assert.assertEquals("E,D,C,B,A", alphabet.topK(10).join(","));
+        Assert.assertEquals("", alphabet.topK(0).join(","));
+        Assert.assertEquals("E,D,C,B,A", alphabet.topK(Integer.MAX_VALUE).join(","));
+    }
+
+    @Test
+    public void kthSmallest() {
+        Assert.assertEquals("A", unorderedLetters.kthSmallest(0));
+        Assert.assertEquals("M", unorderedLetters.kthSmallest(2));
+        Assert.assertEquals("Z", unorderedLetters.kthSmallest(4));
+    }
+
+    @Test
+    public void getMedian() {
+        Assert.assertEquals("M", unorderedLetters.median());
+    }
+
+    @Test
+    public void getPercentiles() {
+        Assert.assertEquals("Z,A,M", unorderedLetters.percentiles(100, 0, 50).join(","));
+    }
+
+    @Test(expected = Problem.class)
+    public void percentileOutOfRange() {
+        alphabet.percentiles(101);
+    }
+
+    @Test(expected = Problem.class)
+    public void medianOfEmpty() {
+        empty.median();
+    }
+
+    @Test
+    public void joinToWriter() {
+        StringWriter out = new StringWriter();
+        alphabet.joinTo(out, " - ");
+        Assert.assertEquals("A - B - C - D - E", out.toString());
+    }
+
+    @Test
+    public void joinToKeepsWriteFailure() {
+        Writer broken = new Writer() {
+            @Override
+            public void write(final char[] buf, final int off, final int len) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try {
+            alphabet.joinTo(broken, ",");
+            Assert.fail("Problem expected");
+        } catch (Problem e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void toStringHasBrackets() {
+        Assert.assertEquals("[A,B,C,D,E]", alphabet.toString());
+        Assert.assertEquals("[]", empty.toString());
+    }
+
+    @Test
+    public void indexOutOfRangeNamesClass() {
+        try {
+            alphabet.get(5);
+            Assert.fail("Problem expected");
+        } catch (Problem e) {
+            Assert.assertEquals("awh.SimpleList index out of range, 5 not in [-5, 5).",
+                    e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,182 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class SysTest_files {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("awh-sys", ".txt");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private void write(final String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<String> readLines() {
+        try (Stream<String> lines = Sys.lines(file.getPath())) {
+            return lines.collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void linesHandleTerminators() throws IOException {
+        write("first\r\nsecond\n\n\u010dtvrt\u00fd\nlast");
+        Assert.assertEquals(Arrays.asList("first", "second", "", "\u010dtvrt\u00fd", "last"),
+                readLines());
+    }
+
+    @Test
+    public void linesOfEmptyFile() {
+        Assert.assertEquals(Arrays.asList(), readLines());
+    }
+
+    @Test
+    public void linesLongerThanBuffer() throws IOException {
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 300_000; i++) {
+            longLine.append("\u017e\u00e1");
+        }
+        longLine.append('\r');
+        write(longLine + "\nend\n");
+        List<String> lines = readLines();
+        Assert.assertEquals(2, lines.size());
+        Assert.assertEquals(longLine.length() - 1, lines.get(0).length());
+        Assert.assertEquals("end", lines.get(1));
+    }
+
+    @Test(expected = Problem.class)
+    public void linesOfMissingFile() {
+        Sys.lines(file.getPath() + ".missing");
+    }
+
+    @Test
+    public void readAllBytesAndMapFile() throws IOException {
+        write("hello");
+        Assert.assertEquals("hello", new String(Sys.readAllBytes(file.getPath()),
+                StandardCharsets.UTF_8));
+        ByteBuffer mapped = Sys.mapFile(file.getPath());
+        Assert.assertEquals(5, mapped.remaining());
+        Assert.assertEquals('h', mapped.get(0));
+        try {
+            mapped.put(0, (byte) 'j');
+            Assert.fail("Mapped file should be read-only");
+        } catch (ReadOnlyBufferException e) {
+            Assert.assertTrue(mapped.isReadOnly());
+        }
+    }
+
+    @Test
+    public void writeAtomicallyReplacesFile() throws IOException {
+        write("old");
+        Sys.writeAtomically(file.getPath(),
+            out -> out.write("new".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals(Arrays.asList("new"), readLines());
+    }
+
+    @Test
+    public void writeAtomicallyKeepsPermissions() throws IOException {
+        Assume.assumeTrue(Files.getFileAttributeView(file.toPath(),
+                PosixFileAttributeView.class) != null);
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(file.toPath(), permissions);
+        Sys.writeAtomically(file.getPath(), out -> out.write('x'));
+        Assert.assertEquals(permissions, Files.getPosixFilePermissions(file.toPath()));
+    }
+
+    @Test
+    public void writeAtomicallyCreatesFileWithDefaultPermissions() throws IOException {
+        Assume.assumeTrue(Files.getFileAttributeView(file.toPath(),
+                PosixFileAttributeView.class) != null);
+        Path reference = file.toPath().resolveSibling(file.getName() + ".reference");
+        Path created = file.toPath().resolveSibling(file.getName() + ".created");
+        try {
+            Files.createFile(reference);
+            Sys.writeAtomically(created.toString(), out -> out.write('x'));
+            Assert.assertEquals(Files.getPosixFilePermissions(reference),
+                    Files.getPosixFilePermissions(created));
+        } finally {
+            Files.deleteIfExists(reference);
+            Files.deleteIfExists(created);
+        }
+    }
+
+    @Test
+    public void failedWriteKeepsOriginal() throws IOException {
+        write("old");
+        try {
+            Sys.writeAtomically(file.getPath(), out -> {
+                out.write('x');
+                throw new IOException("disk full");
+            });
+            Assert.fail("Problem expected");
+        } catch (Problem e) {
+            Assert.assertTrue(e.getMessage().contains("disk full"));
+        }
+        Assert.assertEquals(Arrays.asList("old"), readLines());
+        String[] leftovers = file.getParentFile().list(
+            (dir, name) -> name.startsWith("." + file.getName()));
+        Assert.assertEquals(0, leftovers.length);
+    }
+
+    @Test
+    public void baseName() {
+        Assert.assertEquals("party", Sys.getBaseName("/photos/2018/party.jpg"));
+        Assert.assertEquals("archive.tar", Sys.getBaseName("archive.tar.gz"));
+        Assert.assertEquals("README", Sys.getBaseName("dir.d/README"));
+        Assert.assertEquals("", Sys.getBaseName(".bashrc"));
+        Assert.assertEquals("a", Sys.getBaseName("a.tar."));
+        Assert.assertEquals("tar", Sys.getFileExtension("a.tar."));
+        Assert.assertEquals("notes", Sys.getBaseName("notes.."));
+    }
+}
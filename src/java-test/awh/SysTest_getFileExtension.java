@@ -42,6 +42,14 @@ public class SysTest_getFileExtension {
             { "gz", "archive.tar.gz" },
             { "html", "dir/file.html" },
             { "jkl", "/abc/def/ghi.jkl" },
+            { "", "dir.d/README" },
+            { "", "file." },
+            { "tar", "a.tar." },
+            { "tar", "a.tar.." },
+            { "", "..." },
+            { "bashrc", ".bashrc" },
+            { "txt", "dir/notes.txt/" },
+            { "", "" },
         });
     }
 
@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class SysTest_parallel {
+    @Test
+    public void parallelForVisitsEachIndexOnce() {
+        final AtomicIntegerArray visits = new AtomicIntegerArray(10_000);
+        Sys.parallelFor(0, visits.length(), i -> visits.incrementAndGet(i));
+        for (int i = 0; i < visits.length(); i++) {
+            Assert.assertEquals(1, visits.get(i));
+        }
+    }
+
+    @Test
+    public void parallelForWithEmptyRangeDoesNothing() {
+        Sys.parallelFor(5, 5, i -> Assert.fail());
+        Sys.parallelFor(5, 0, i -> Assert.fail());
+    }
+
+    @Test
+    public void parallelForRethrowsProblem() {
+        try {
+            Sys.parallelFor(0, 1000, i -> {
+                if (i == 500) {
+                    throw new Problem("Failed at %d.", i);
+                }
+            });
+            Assert.fail("Problem expected");
+        } catch (Problem e) {
+            Assert.assertEquals("Failed at 500.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void otherExceptionsAreWrapped() {
+        try {
+            Sys.parallelFor(0, 10, i -> {
+                throw new IllegalStateException("oops");
+            });
+            Assert.fail("Problem expected");
+        } catch (Problem e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void forEachConcurrentlyProcessesAllItems() {
+        final List<String> seen = Collections.synchronizedList(new ArrayList<String>());
+        List<String> items = Arrays.asList("a", "b", "c", "d", "e");
+        Sys.forEachConcurrently(items, seen::add);
+        Collections.sort(seen);
+        Assert.assertEquals(items, seen);
+    }
+
+    @Test
+    public void forEachConcurrentlyWaitsForRunningTasksOnFailure() throws InterruptedException {
+        final AtomicInteger finished = new AtomicInteger();
+        try {
+            Sys.forEachConcurrently(Arrays.asList(0, 1, 2), i -> {
+                if (i == 0) {
+                    throw new Problem("First fails.");
+                }
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finished.incrementAndGet();
+            });
+            Assert.fail("Problem expected");
+        } catch (Problem e) {
+            Assert.assertEquals("First fails.", e.getMessage());
+        }
+        int afterReturn = finished.get();
+        Thread.sleep(100);
+        Assert.assertEquals(afterReturn, finished.get());
+        Assert.assertEquals(Long.valueOf(0), Metrics.snapshot().get("parallel.queue.depth"));
+    }
+
+    @Test(timeout = 20000)
+    public void nestedForEachConcurrentlyDoesNotDeadlock() {
+        final AtomicInteger inner = new AtomicInteger();
+        List<Integer> outer = new ArrayList<>();
+        for (int i = 0; i < 4 * Runtime.getRuntime().availableProcessors() + 3; i++) {
+            outer.add(i);
+        }
+        Sys.forEachConcurrently(outer, i -> {
+            Sys.forEachConcurrently(Arrays.asList(1, 2, 3), j -> {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inner.incrementAndGet();
+            });
+        });
+        Assert.assertEquals(3 * outer.size(), inner.get());
+    }
+}
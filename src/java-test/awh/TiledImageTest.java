@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.Assert;
+
+public class TiledImageTest {
+    private static final int WIDTH = 1100;
+    private static final int HEIGHT = 700;
+
+    private File file;
+    private Image image;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("tiled", ".png");
+        image = Image.createEmpty(WIDTH, HEIGHT, Color.NAVY);
+        for (int i = 0; i < HEIGHT; i += 7) {
+            image.setPixel(i, i, Color.fromRgb(i % 256, 255 - i % 256, 3));
+        }
+        image.saveToFile(file.getPath());
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static void assertSameImage(final Image expected, final Image actual) {
+        Assert.assertEquals(expected.getWidth(), actual.getWidth());
+        Assert.assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            Assert.assertArrayEquals(expected.getRow(y, null), actual.getRow(y, null));
+        }
+    }
+
+    @Test
+    public void loadedImageMatchesOrdinaryOne() {
+        try (TiledImage tiled = TiledImage.loadFromFile(file.getPath(), TiledImage.TILE_SIZE)) {
+            Assert.assertEquals(WIDTH, tiled.getWidth());
+            Assert.assertEquals(HEIGHT, tiled.getHeight());
+            assertSameImage(image, tiled.getRegion(0, 0, WIDTH, HEIGHT));
+            Assert.assertEquals(image.getPixel(602, 602).toMergedRgb(),
+                    tiled.getPixel(602, 602).toMergedRgb());
+        }
+    }
+
+    private static long decodedBands() {
+        Long count = Metrics.snapshot().get("image.decode.png.count");
+        return count == null ? 0 : count;
+    }
+
+    @Test
+    public void bandsAreDecodedWhenFirstUsed() {
+        Metrics.setEnabled(true);
+        Metrics.reset();
+        try (TiledImage tiled = TiledImage.loadFromFile(file.getPath(), TiledImage.TILE_SIZE)) {
+            Assert.assertEquals(0, decodedBands());
+            tiled.pasteFrom(Image.createEmpty(2, 2, Color.RED), 601, 601);
+            Assert.assertEquals(1, decodedBands());
+            Assert.assertEquals(Color.RED.toMergedRgb(), tiled.getPixel(602, 602).toMergedRgb());
+            Assert.assertEquals(image.getPixel(600, 600).toMergedRgb(),
+                    tiled.getPixel(600, 600).toMergedRgb());
+            Assert.assertEquals(1, decodedBands());
+            Assert.assertEquals(image.getPixel(7, 7).toMergedRgb(),
+                    tiled.getPixel(7, 7).toMergedRgb());
+            Assert.assertEquals(2, decodedBands());
+        } finally {
+            Metrics.setEnabled(false);
+        }
+    }
+
+    @Test
+    public void tilesAreStoredBackWhenEvicted() {
+        try (TiledImage tiled = TiledImage.createEmpty(WIDTH, HEIGHT, Color.NAVY)) {
+            tiled.withCacheLimit(1);
+            tiled.forEachTile(tile -> tile.setPixel(tile.getWidth() - 1, 0, Color.RED));
+            tiled.setPixel(1099, 699, Color.LIME);
+            tiled.setPixel(0, 0, Color.YELLOW);
+
+            Assert.assertEquals(Color.RED.toMergedRgb(), tiled.getPixel(511, 0).toMergedRgb());
+            Assert.assertEquals(Color.RED.toMergedRgb(), tiled.getPixel(1099, 512).toMergedRgb());
+            Assert.assertEquals(Color.LIME.toMergedRgb(), tiled.getPixel(1099, 699).toMergedRgb());
+            Image region = tiled.getRegion(0, 0, 2, 1);
+            Assert.assertEquals(Color.YELLOW.toMergedRgb(), region.getPixel(0, 0).toMergedRgb());
+            Assert.assertEquals(Color.NAVY.toMergedRgb(), region.getPixel(1, 0).toMergedRgb());
+        }
+    }
+
+    @Test
+    public void pastedImageIsClipped() {
+        try (TiledImage tiled = TiledImage.createEmpty(WIDTH, HEIGHT, Color.NAVY)) {
+            tiled.pasteFrom(Image.createEmpty(100, 100, Color.RED), 1050, -20);
+            Assert.assertEquals(Color.RED.toMergedRgb(), tiled.getPixel(1099, 79).toMergedRgb());
+            Assert.assertEquals(Color.NAVY.toMergedRgb(), tiled.getPixel(1099, 80).toMergedRgb());
+            Assert.assertEquals(Color.NAVY.toMergedRgb(), tiled.getPixel(1049, 0).toMergedRgb());
+        }
+    }
+
+    @Test
+    public void savedImageCanBeLoaded() throws IOException {
+        File out = File.createTempFile("tiled-out", ".png");
+        try (TiledImage tiled = TiledImage.loadFromFile(file.getPath())) {
+            tiled.setPixel(700, 600, Color.YELLOW);
+            tiled.saveToFile(out.getPath());
+            image.setPixel(700, 600, Color.YELLOW);
+            assertSameImage(image, Image.loadFromFile(out.getPath()));
+        } finally {
+            out.delete();
+        }
+    }
+
+    @Test(expected = Problem.class)
+    public void regionMustFit() {
+        try (TiledImage tiled = TiledImage.createEmpty(10, 10, Color.NAVY)) {
+            tiled.getRegion(5, 5, 6, 1);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/** Common parts of lists with long indices stored outside of Java heap.
+ *
+ * <p>
+ * The elements are stored in fixed-size segments allocated as direct
+ * buffers. The list can thus hold more than 2<sup>31</sup> elements and
+ * the garbage collector never scans (or copies) the elements themselves.
+ * The first segment starts small and doubles until it reaches the full
+ * segment size, so small lists do not occupy whole segments.
+ *
+ * <p>
+ * Direct buffers are limited by the JVM option -XX:MaxDirectMemorySize
+ * (by default the same as the maximum heap size, -Xmx). Lists bigger
+ * than the heap need the limit raised explicitly, e.g.
+ * <code>java -XX:MaxDirectMemorySize=32g ...</code>.
+ *
+ * <p>
+ * Subclasses provide the actual storage, this class handles indexing
+ * and the algorithms that are independent of the element type.
+ */
+abstract class AbstractBigList {
+    /** Default number of bits for the index within a segment (4M elements). */
+    static final int DEFAULT_SEGMENT_BITS = 22;
+
+    /** Initial capacity of the first segment. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Number of bits for the index within a segment. */
+    private final int segmentBits;
+
+    /** Number of elements in the list. */
+    private long count;
+
+    /** Number of elements the (growing) first segment can hold. */
+    private int firstCapacity;
+
+    /** Constructor.
+     *
+     * @param bits Number of bits for the index within a segment.
+     */
+    AbstractBigList(final int bits) {
+        Problem.whenNotInRange("segment bits", bits, 1, Integer.SIZE - 4);
+
+        segmentBits = bits;
+    }
+
+    /** Tell number of elements in the list.
+     *
+     * @return Number of elements in the list.
+     */
+    public long size() {
+        return count;
+    }
+
+    /** Tell whether there are no elements in the list.
+     *
+     * @return True when no elements are present in the list.
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /** Removes all elements from the list and releases the memory. */
+    public void clear() {
+        count = 0;
+        firstCapacity = 0;
+        releaseSegments();
+    }
+
+    /** Naturally sorts the elements in the list (in place).
+     *
+     * <p>
+     * Ranges within a single segment are sorted on a heap copy
+     * with Arrays.sort(), larger ranges are partitioned in place first.
+     */
+    public void sort() {
+        sortRange(0, count - 1, 2 * (Long.SIZE - Long.numberOfLeadingZeros(count)));
+    }
+
+    /** Stringify elements of the list and join them.
+     *
+     * @param delim Delimiter between individual elements.
+     * @return Elements of the list joined with given separator.
+     */
+    public String join(final String delim) {
+        Problem.whenNull(delim, "separator");
+
+        StringBuilder res = new StringBuilder(estimateJoinedLength(delim));
+        joinTo(res, delim);
+        return res.toString();
+    }
+
+    /** Stringify elements of the list and write them joined to given output.
+     *
+     * <p>
+     * The text is written in small chunks, so this works with any list size
+     * (the joined text of a big list typically does not fit into a String at all).
+     *
+     * @param out Where to write the elements (StringBuilder, Writer, PrintStream etc.).
+     * @param delim Delimiter between individual elements.
+     * @throws Problem When writing fails.
+     */
+    public void joinTo(final Appendable out, final String delim) {
+        Problem.whenNull(delim, "separator");
+
+        ChunkedAppender appender = new ChunkedAppender(out);
+        try {
+            for (long i = 0; i < count; i++) {
+                if (i > 0) {
+                    appender.buffer().append(delim);
+                }
+                appendElement(appender.buffer(), i);
+                appender.flushWhenFull();
+            }
+            appender.flush();
+        } catch (IOException e) {
+            throw new Problem(e, "Failed to write list (%s).", e.getMessage());
+        }
+    }
+
+    /** Create printable form of this list.
+     *
+     * <p>
+     * This function is equivalent to calling join() with comma
+     * (<code>,</code>) as a delimiter.
+     *
+     * @return Printable from of this list.
+     */
+    @Override
+    public String toString() {
+        StringBuilder res = new StringBuilder(estimateJoinedLength(",") + 2);
+        res.append('[');
+        joinTo(res, ",");
+        res.append(']');
+        return res.toString();
+    }
+
+    /** Estimate length of the list joined with given delimiter.
+     *
+     * <p>
+     * Works as in SimpleList: a few elements evenly spread over the list
+     * are formatted and their average length is extrapolated.
+     *
+     * @param delim Delimiter between individual elements.
+     * @return Estimated number of characters.
+     */
+    final int estimateJoinedLength(final String delim) {
+        int samples = (int) Math.min(count, SimpleList.JOIN_LENGTH_SAMPLES);
+        if (samples == 0) {
+            return 0;
+        }
+
+        StringBuilder sample = new StringBuilder();
+        for (int i = 0; i < samples; i++) {
+            appendElement(sample, i * (count / samples));
+        }
+        double perElement = 1.1 * sample.length() / samples + delim.length();
+        return (int) Math.min(SimpleList.MAX_PRESIZED_LENGTH - 2, perElement * count);
+    }
+
+    /** Tell number of elements in one segment.
+     *
+     * @return Segment length.
+     */
+    final int segmentLength() {
+        return 1 << segmentBits;
+    }
+
+    /** Get segment number for given index.
+     *
+     * @param index Non-negative index.
+     * @return Segment number.
+     */
+    final int segmentOf(final long index) {
+        return (int) (index >>> segmentBits);
+    }
+
+    /** Get offset inside a segment for given index.
+     *
+     * @param index Non-negative index.
+     * @return Offset inside the segment.
+     */
+    final int offsetOf(final long index) {
+        return (int) index & (segmentLength() - 1);
+    }
+
+    /** Convert possibly negative index to a positive one.
+     *
+     * @param index Position (zero based), negative values count from the end.
+     * @return Index in range 0 to size() - 1.
+     * @throws Problem When index is out of range.
+     */
+    final long toPositiveIndex(final long index) {
+        Problem.whenIndexNotInRange(this, index, -count, count);
+
+        return index >= 0 ? index : count + index;
+    }
+
+    /** Reserve space for one more element.
+     *
+     * @return Index of the new element.
+     */
+    final long grow() {
+        if (count < segmentLength()) {
+            if (count == firstCapacity) {
+                firstCapacity = (int) Math.min(segmentLength(),
+                        Math.max(INITIAL_CAPACITY, 2L * firstCapacity));
+                allocateSegment(0, firstCapacity);
+            }
+        } else if (offsetOf(count) == 0) {
+            allocateSegment(segmentOf(count), segmentLength());
+        }
+        count++;
+        return count - 1;
+    }
+
+    /** Allocate direct buffer for a segment.
+     *
+     * @param bytes Buffer size in bytes.
+     * @return New buffer in native byte order.
+     * @throws Problem When the direct memory limit is exhausted.
+     */
+    static ByteBuffer allocateDirect(final int bytes) {
+        try {
+            return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        } catch (OutOfMemoryError e) {
+            throw new Problem(e, "Out of direct memory for %d more bytes, "
+                    + "raise the limit with -XX:MaxDirectMemorySize (defaults to -Xmx).", bytes);
+        }
+    }
+
+    /** Allocate a new segment (or enlarge the first one, keeping its contents).
+     *
+     * @param segment Number of the segment (the next one or the first one).
+     * @param capacity Number of elements the segment can hold.
+     */
+    abstract void allocateSegment(int segment, int capacity);
+
+    /** Drop all segments. */
+    abstract void releaseSegments();
+
+    /** Append string representation of an element.
+     *
+     * @param sb Where to append.
+     * @param index Index of the element.
+     */
+    abstract void appendElement(StringBuilder sb, long index);
+
+    /** Compare two elements.
+     *
+     * @param i Index of the first element.
+     * @param j Index of the second element.
+     * @return Negative, zero or positive as with Comparable.
+     */
+    abstract int compare(long i, long j);
+
+    /** Remember element as the pivot for partitioning.
+     *
+     * @param index Index of the pivot.
+     */
+    abstract void choosePivot(long index);
+
+    /** Compare element with the pivot.
+     *
+     * @param index Index of the element.
+     * @return Negative, zero or positive as with Comparable.
+     */
+    abstract int compareWithPivot(long index);
+
+    /** Swap two elements.
+     *
+     * @param i Index of the first element.
+     * @param j Index of the second element.
+     */
+    abstract void swap(long i, long j);
+
+    /** Sort range inside a single segment.
+     *
+     * @param segment Segment number.
+     * @param from First offset (inclusive).
+     * @param to Last offset (exclusive).
+     */
+    abstract void sortSegment(int segment, int from, int to);
+
+    /** Sort range of the list with introsort.
+     *
+     * @param lo First index (inclusive).
+     * @param hi Last index (inclusive).
+     * @param depthLimit Remaining recursion depth.
+     */
+    private void sortRange(final long lo, final long hi, final int depthLimit) {
+        long from = lo;
+        long to = hi;
+        int depth = depthLimit;
+        while (from < to) {
+            if (segmentOf(from) == segmentOf(to)) {
+                sortSegment(segmentOf(from), offsetOf(from), offsetOf(to) + 1);
+                return;
+            }
+            if (depth == 0) {
+                heapSort(from, to);
+                return;
+            }
+            depth--;
+
+            long mid = from + (to - from) / 2;
+            choosePivot(medianOfThree(from, mid, to));
+            long lt = from;
+            long gt = to;
+            long i = from;
+            while (i <= gt) {
+                int cmp = compareWithPivot(i);
+                if (cmp < 0) {
+                    swap(lt, i);
+                    lt++;
+                    i++;
+                } else if (cmp > 0) {
+                    swap(i, gt);
+                    gt--;
+                } else {
+                    i++;
+                }
+            }
+
+            // Recurse into the smaller part to bound the stack depth.
+            if (lt - from < to - gt) {
+                sortRange(from, lt - 1, depth);
+                from = gt + 1;
+            } else {
+                sortRange(gt + 1, to, depth);
+                to = lt - 1;
+            }
+        }
+    }
+
+    /** Choose index of median of three elements.
+     *
+     * @param a First index.
+     * @param b Second index.
+     * @param c Third index.
+     * @return Index of the median element.
+     */
+    private long medianOfThree(final long a, final long b, final long c) {
+        long lower = compare(a, b) <= 0 ? a : b;
+        long upper = compare(a, b) <= 0 ? b : a;
+        if (compare(upper, c) <= 0) {
+            return upper;
+        }
+        return compare(lower, c) <= 0 ? c : lower;
+    }
+
+    /** Sort range with heap sort (fallback for bad pivots).
+     *
+     * @param from First index (inclusive).
+     * @param to Last index (inclusive).
+     */
+    private void heapSort(final long from, final long to) {
+        long n = to - from + 1;
+        for (long i = n / 2 - 1; i >= 0; i--) {
+            siftDown(from, i, n);
+        }
+        for (long end = n - 1; end > 0; end--) {
+            swap(from, from + end);
+            siftDown(from, 0, end);
+        }
+    }
+
+    /** Restore max-heap property.
+     *
+     * @param base Index of the heap root in the list.
+     * @param start Heap node to sift down.
+     * @param n Heap size.
+     */
+    private void siftDown(final long base, final long start, final long n) {
+        long i = start;
+        while (2 * i + 1 < n) {
+            long child = 2 * i + 1;
+            if ((child + 1 < n) && (compare(base + child + 1, base + child) > 0)) {
+                child++;
+            }
+            if (compare(base + i, base + child) >= 0) {
+                return;
+            }
+            swap(base + i, base + child);
+            i = child;
+        }
+    }
+}
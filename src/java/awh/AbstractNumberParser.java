@@ -0,0 +1,317 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/** Parser of numbers in text form.
+ *
+ * <p>
+ * The numbers may be separated by any whitespace or commas.
+ * The parser works directly on the bytes of the input (files are
+ * memory-mapped), no String is created for the individual numbers.
+ * Large files can be split into chunks (at number boundaries) that are
+ * parsed in parallel and concatenated afterwards.
+ */
+abstract class AbstractNumberParser {
+    /** Buffer size for reading from streams. */
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    /** Size of a single memory-mapped window of a file. */
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    /** Minimal size of a chunk parsed in parallel. */
+    private static final long MIN_PARALLEL_CHUNK = 4L * 1024 * 1024;
+
+    /** Longest prefix of an invalid number shown in error messages. */
+    private static final int MAX_REPORTED_LENGTH = 64;
+
+    /** Message of failed reading (source and cause). */
+    private static final String READ_FAILED = "Failed to read numbers from %s (%s).";
+
+    /** Source description for error messages. */
+    private final String source;
+
+    /** Offset of the currently parsed buffer within the source. */
+    private long bufferStart;
+
+    /** Constructor.
+     *
+     * @param what Source description for error messages.
+     */
+    AbstractNumberParser(final String what) {
+        source = what;
+    }
+
+    /** Parse a single number and store it.
+     *
+     * @param buf Buffer with the input.
+     * @param start Index of the first byte of the number.
+     * @param end Index after the last byte of the number.
+     */
+    abstract void parseNumber(ByteBuffer buf, int start, int end);
+
+    /** Create an empty parser of the same kind for parsing a chunk.
+     *
+     * @return New parser.
+     */
+    abstract AbstractNumberParser newChunkParser();
+
+    /** Append numbers parsed by a chunk parser.
+     *
+     * @param chunk Parser created by newChunkParser().
+     */
+    abstract void appendChunk(AbstractNumberParser chunk);
+
+    /** Throw exception about invalid number.
+     *
+     * @param buf Buffer with the input.
+     * @param start Index of the first byte of the number.
+     * @param end Index after the last byte of the number.
+     * @throws Problem Always.
+     */
+    final void fail(final ByteBuffer buf, final int start, final int end) {
+        byte[] text = new byte[Math.min(end - start, MAX_REPORTED_LENGTH)];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = buf.get(start + i);
+        }
+        throw new Problem("Invalid number '%s' at byte %d of %s.",
+                new String(text, StandardCharsets.US_ASCII), bufferStart + start, source);
+    }
+
+    /** Tell source description.
+     *
+     * @return Source description for error messages.
+     */
+    final String getSource() {
+        return source;
+    }
+
+    /** Describe file for error messages.
+     *
+     * @param path File path.
+     * @return Description.
+     */
+    static String describeFile(final String path) {
+        Problem.whenNull(path, "file path");
+
+        return "'" + path + "'";
+    }
+
+    /** Tell whether given byte separates numbers.
+     *
+     * @param b Byte to check.
+     * @return Whether it is whitespace or comma.
+     */
+    private static boolean isSeparator(final byte b) {
+        switch (b) {
+            case ' ':
+            case '\n':
+            case ',':
+            case '\r':
+            case '\t':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /** Parse all numbers in a buffer.
+     *
+     * @param buf Buffer with the input.
+     * @param length Number of valid bytes in the buffer.
+     * @param last Whether there is no more input after this buffer.
+     * @return Index where an incomplete number at the end starts (length if there is none).
+     */
+    private int parseBuffer(final ByteBuffer buf, final int length, final boolean last) {
+        int i = 0;
+        while (true) {
+            while ((i < length) && isSeparator(buf.get(i))) {
+                i++;
+            }
+            if (i == length) {
+                return length;
+            }
+            int start = i;
+            while ((i < length) && !isSeparator(buf.get(i))) {
+                i++;
+            }
+            if ((i == length) && !last) {
+                return start;
+            }
+            parseNumber(buf, start, i);
+        }
+    }
+
+    /** Parse numbers from a stream.
+     *
+     * @param in Input stream.
+     * @throws Problem When reading fails.
+     */
+    final void parseStream(final InputStream in) {
+        Problem.whenNull(in, "input stream");
+
+        byte[] data = new byte[STREAM_BUFFER_SIZE];
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        int filled = 0;
+        try {
+            while (true) {
+                int n = in.read(data, filled, data.length - filled);
+                boolean last = n < 0;
+                filled += Math.max(n, 0);
+                int rest = parseBuffer(buf, filled, last);
+                if (last) {
+                    return;
+                }
+
+                // Move the incomplete number to the beginning.
+                System.arraycopy(data, rest, data, 0, filled - rest);
+                bufferStart += rest;
+                filled -= rest;
+                if (filled == data.length) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                    buf = ByteBuffer.wrap(data);
+                }
+            }
+        } catch (IOException e) {
+            throw new Problem(READ_FAILED, source, e.getMessage());
+        }
+    }
+
+    /** Parse numbers from a file.
+     *
+     * @param path File path.
+     * @param parallel Whether to parse large files in parallel chunks.
+     * @throws Problem When reading fails.
+     */
+    final void parseFile(final String path, final boolean parallel) {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunks = parallel ? (int) Math.min(Runtime.getRuntime().availableProcessors(),
+                    size / MIN_PARALLEL_CHUNK) : 1;
+            if (chunks <= 1) {
+                parseRange(channel, 0, size);
+            } else {
+                parseChunks(channel, chunks);
+            }
+        } catch (IOException e) {
+            throw new Problem(READ_FAILED, source, e.getMessage());
+        }
+    }
+
+    /** Parse file in parallel chunks.
+     *
+     * @param channel Open file.
+     * @param chunks Number of chunks.
+     * @throws IOException When reading fails.
+     */
+    private void parseChunks(final FileChannel channel, final int chunks) throws IOException {
+        long size = channel.size();
+        long[] bounds = new long[chunks + 1];
+        bounds[chunks] = size;
+        for (int i = 1; i < chunks; i++) {
+            bounds[i] = nextSeparator(channel, Math.max(bounds[i - 1], size / chunks * i));
+        }
+
+        List<Callable<AbstractNumberParser>> parts = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            final long from = bounds[i];
+            final long to = bounds[i + 1];
+            final AbstractNumberParser part = newChunkParser();
+            parts.add(() -> {
+                try {
+                    part.parseRange(channel, from, to);
+                } catch (IOException e) {
+                    throw new Problem(e, READ_FAILED, source, e.getMessage());
+                }
+                return part;
+            });
+        }
+        for (AbstractNumberParser part : Parallel.invokeAll(Parallel.computePool(), parts)) {
+            appendChunk(part);
+        }
+    }
+
+    /** Find first separator at or after given position.
+     *
+     * @param channel Open file.
+     * @param position Where to start.
+     * @return Position of the separator (or file size if there is none).
+     * @throws IOException When reading fails.
+     */
+    private static long nextSeparator(final FileChannel channel, final long position)
+            throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(256);
+        long pos = position;
+        while (true) {
+            buf.clear();
+            int n = channel.read(buf, pos);
+            if (n < 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < n; i++) {
+                if (isSeparator(buf.get(i))) {
+                    return pos + i;
+                }
+            }
+            pos += n;
+        }
+    }
+
+    /** Parse numbers from a range of a file (memory-mapped window by window).
+     *
+     * @param channel Open file.
+     * @param from Start of the range (at a number boundary).
+     * @param to End of the range (at a number boundary).
+     * @throws IOException When reading fails.
+     */
+    private void parseRange(final FileChannel channel, final long from, final long to)
+            throws IOException {
+        long pos = from;
+        while (pos < to) {
+            long length = Math.min(WINDOW_SIZE, to - pos);
+            boolean last = pos + length == to;
+            bufferStart = pos;
+            int rest = parseBuffer(channel.map(FileChannel.MapMode.READ_ONLY, pos, length),
+                    (int) length, last);
+            if (last) {
+                return;
+            }
+            if (rest == 0) {
+                throw new Problem("Number at byte %d of %s is too long.", pos, source);
+            }
+            pos += rest;
+        }
+    }
+}
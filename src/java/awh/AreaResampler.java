@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.Arrays;
+
+/** Rescaling by averaging the area covered by each new pixel.
+ *
+ * <p>
+ * Each new pixel is the average of the source pixels under it, weighted
+ * by the covered fraction of their area (that is the smooth scaling of
+ * AWT). New pixels are computed one by one, no intermediate image is
+ * needed. Colors are weighted by alpha so that transparent pixels do
+ * not darken their neighbours.
+ */
+final class AreaResampler {
+    /** Fraction bits of the weights. */
+    private static final int WEIGHT_BITS = 16;
+
+    /** Number of channels (alpha, red, green, blue). */
+    private static final int CHANNELS = 4;
+
+    /** Horizontal taps. */
+    private final Taps columns;
+
+    /** Vertical taps. */
+    private final Taps rows;
+
+    /** Constructor.
+     *
+     * @param srcWidth Source width.
+     * @param srcHeight Source height.
+     * @param dstWidth New width.
+     * @param dstHeight New height.
+     */
+    AreaResampler(final int srcWidth, final int srcHeight,
+            final int dstWidth, final int dstHeight) {
+        columns = new Taps(srcWidth, dstWidth);
+        rows = new Taps(srcHeight, dstHeight);
+    }
+
+    /** Compute part of a row of the rescaled image.
+     *
+     * @param src Source image.
+     * @param y Row of the rescaled image.
+     * @param x First column of the rescaled image.
+     * @param count Number of pixels to compute.
+     * @param dest Destination array.
+     * @param destOffset Index of the first computed pixel in the array.
+     */
+    void sampleRow(final Image src, final int y, final int x, final int count,
+            final int[] dest, final int destOffset) {
+        long half = 1L << (2 * WEIGHT_BITS - 1);
+        long[] acc = new long[CHANNELS];
+        for (int i = 0; i < count; i++) {
+            Arrays.fill(acc, 0);
+            for (int ty = rows.start[y]; ty < rows.start[y + 1]; ty++) {
+                addRow(src, rows.index[ty], rows.weights[ty], x + i, acc);
+            }
+            dest[destOffset + i] = Convolution.unpremultiply(
+                    (acc[0] + half) >> (2 * WEIGHT_BITS),
+                    (acc[1] + half) >> (2 * WEIGHT_BITS),
+                    (acc[2] + half) >> (2 * WEIGHT_BITS),
+                    (acc[3] + half) >> (2 * WEIGHT_BITS));
+        }
+    }
+
+    /** Add source pixels of one row covered by a new pixel.
+     *
+     * @param src Source image.
+     * @param row Source row.
+     * @param rowWeight Fixed-point weight of the row.
+     * @param column Column of the rescaled image.
+     * @param acc Premultiplied channel sums (alpha, red, green, blue).
+     */
+    private void addRow(final Image src, final int row, final long rowWeight,
+            final int column, final long[] acc) {
+        int[] pixels = src.getPixelsUnsafe();
+        int rowStart = src.getOffsetUnsafe() + row * src.getStrideUnsafe();
+        for (int tx = columns.start[column]; tx < columns.start[column + 1]; tx++) {
+            Convolution.addPremultiplied(acc, 0, rowWeight * columns.weights[tx],
+                    pixels[rowStart + columns.index[tx]]);
+        }
+    }
+
+    /** Source pixels and their weights along one axis. */
+    private static final class Taps {
+        /** First tap of each new pixel (one extra item at the end). */
+        private final int[] start;
+
+        /** Source coordinate of each tap. */
+        private final int[] index;
+
+        /** Fixed-point weight of each tap (weights of one pixel sum to one). */
+        private final int[] weights;
+
+        /** Compute taps.
+         *
+         * @param srcSize Source size.
+         * @param dstSize New size.
+         */
+        Taps(final int srcSize, final int dstSize) {
+            double scale = (double) srcSize / dstSize;
+            start = new int[dstSize + 1];
+            int total = 0;
+            for (int i = 0; i < dstSize; i++) {
+                start[i] = total;
+                total += last(i, scale, srcSize) - (int) Math.floor(i * scale) + 1;
+            }
+            start[dstSize] = total;
+            index = new int[total];
+            weights = new int[total];
+            for (int i = 0; i < dstSize; i++) {
+                double from = i * scale;
+                double to = Math.min(srcSize, (i + 1) * scale);
+                int remaining = 1 << WEIGHT_BITS;
+                for (int t = start[i]; t < start[i + 1]; t++) {
+                    int pos = (int) Math.floor(from) + t - start[i];
+                    double covered = Math.min(pos + 1, to) - Math.max(pos, from);
+                    index[t] = pos;
+                    weights[t] = t == start[i + 1] - 1 ? remaining
+                            : (int) Math.round(covered / scale * (1 << WEIGHT_BITS));
+                    remaining -= weights[t];
+                }
+            }
+        }
+
+        /** Find last source pixel covered by a new pixel.
+         *
+         * @param i New pixel.
+         * @param scale Size of new pixel in source pixels.
+         * @param srcSize Source size.
+         * @return Last covered source coordinate.
+         */
+        private static int last(final int i, final double scale, final int srcSize) {
+            double to = (i + 1) * scale;
+            int res = (int) Math.ceil(to) - 1;
+            return Math.max((int) Math.floor(i * scale), Math.min(srcSize - 1, res));
+        }
+    }
+}
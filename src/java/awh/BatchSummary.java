@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Result of batch processing of images (see ImageBatch). */
+public final class BatchSummary {
+    /** Nanoseconds in a second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /** Pixels in a megapixel. */
+    private static final double MEGAPIXEL = 1e6;
+
+    /** Number of processed images. */
+    private int processed;
+
+    /** Number of images skipped as already up to date. */
+    private int skipped;
+
+    /** Number of decoded pixels. */
+    private long pixels;
+
+    /** Descriptions of failures. */
+    private final List<String> failures = new ArrayList<>();
+
+    /** Duration of the whole batch. */
+    private long elapsedNanos;
+
+    /** Create empty summary (filled by ImageBatch). */
+    BatchSummary() {
+    }
+
+    /** Record successfully processed image.
+     *
+     * @param imagePixels Number of pixels of the input image.
+     */
+    synchronized void addProcessed(final long imagePixels) {
+        processed++;
+        pixels += imagePixels;
+    }
+
+    /** Record skipped image. */
+    synchronized void addSkipped() {
+        skipped++;
+    }
+
+    /** Record failed image.
+     *
+     * @param path Input image path.
+     * @param reason Failure description.
+     */
+    synchronized void addFailure(final String path, final String reason) {
+        failures.add(path + ": " + reason);
+    }
+
+    /** Record total duration.
+     *
+     * @param nanos Duration of the batch.
+     */
+    synchronized void setElapsedNanos(final long nanos) {
+        elapsedNanos = nanos;
+    }
+
+    /** Tell how many images were processed.
+     *
+     * @return Number of processed images.
+     */
+    public synchronized int getProcessed() {
+        return processed;
+    }
+
+    /** Tell how many images were skipped because their output was up to date.
+     *
+     * @return Number of skipped images.
+     */
+    public synchronized int getSkipped() {
+        return skipped;
+    }
+
+    /** Tell how many images failed.
+     *
+     * @return Number of failed images.
+     */
+    public synchronized int getFailed() {
+        return failures.size();
+    }
+
+    /** Get descriptions of failures.
+     *
+     * @return Failures in the form path: reason.
+     */
+    public synchronized List<String> getFailures() {
+        return Collections.unmodifiableList(new ArrayList<>(failures));
+    }
+
+    /** Tell how many pixels were processed.
+     *
+     * @return Number of pixels of processed input images.
+     */
+    public synchronized long getPixels() {
+        return pixels;
+    }
+
+    /** Tell how long the processing took.
+     *
+     * @return Duration in seconds.
+     */
+    public synchronized double getSeconds() {
+        return elapsedNanos / NANOS_PER_SECOND;
+    }
+
+    @Override
+    public synchronized String toString() {
+        double seconds = Math.max(getSeconds(), 1 / NANOS_PER_SECOND);
+        return String.format("Processed %d images (%d skipped, %d failed) in %.1f s: "
+                + "%.1f images/s, %.1f Mpx/s.",
+                processed, skipped, failures.size(), seconds,
+                processed / seconds, pixels / MEGAPIXEL / seconds);
+    }
+}
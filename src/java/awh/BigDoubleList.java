@@ -0,0 +1,312 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** List of doubles with long indices, stored outside of Java heap.
+ *
+ * <p>
+ * Unlike DoubleList, this list can hold more than 2<sup>31</sup> elements
+ * and its (potentially huge) contents does not burden the garbage collector.
+ * Apart from the long indices, the list behaves as DoubleList, including
+ * negative indices counting from the end of the list.
+ */
+public final class BigDoubleList extends AbstractBigList implements Iterable<Double> {
+    /** Segments with the values (only the used ones are allocated). */
+    private DoubleBuffer[] segments = new DoubleBuffer[0];
+
+    /** Pivot used during sorting. */
+    private double pivot;
+
+    /** Scratch array for sorting within a segment. */
+    private double[] sortScratch;
+
+    /** Default constructor. */
+    public BigDoubleList() {
+        this(DEFAULT_SEGMENT_BITS);
+    }
+
+    /** Constructor with custom segment size.
+     *
+     * @param bits Number of bits for the index within a segment.
+     */
+    BigDoubleList(final int bits) {
+        super(bits);
+    }
+
+    /** Create list of doubles and populate it with initial values.
+     *
+     * @param values Initial values.
+     * @return Populated list of doubles.
+     */
+    public static BigDoubleList create(final double... values) {
+        BigDoubleList res = new BigDoubleList();
+        for (double v : values) {
+            res.add(v);
+        }
+        return res;
+    }
+
+    /** Append value to the end of the list.
+     *
+     * @param value Value to append.
+     */
+    public void add(final double value) {
+        put(grow(), value);
+    }
+
+    /** Return element at the specified position in the list.
+     *
+     * <p>
+     * For positive indices, count from beginning of the list (as with normal lists).
+     * For negative indices, count from end of the list (-1 is the last element).
+     *
+     * @param index Position (zero based).
+     * @return Element at given index.
+     */
+    public double get(final long index) {
+        return at(toPositiveIndex(index));
+    }
+
+    /** Set element at the specified position in the list.
+     *
+     * <p>
+     * For positive indices, count from beginning of the list (as with normal lists).
+     * For negative indices, count from end of the list (-1 is the last element).
+     *
+     * @param index Position (zero based).
+     * @param newValue New value to be set.
+     * @return Previous element at given index.
+     */
+    public double set(final long index, final double newValue) {
+        long i = toPositiveIndex(index);
+        double old = at(i);
+        put(i, newValue);
+        return old;
+    }
+
+    /** Get maximum value in the list.
+     *
+     * @return Maximum value.
+     * @throws Problem When list is empty.
+     */
+    public double max() {
+        if (isEmpty()) {
+            throw new Problem("Cannot find maximum for empty list");
+        }
+        double res = at(0);
+        int lastSegment = segmentOf(size() - 1);
+        for (int s = 0; s <= lastSegment; s++) {
+            DoubleBuffer segment = segments[s];
+            int length = s == lastSegment ? offsetOf(size() - 1) + 1 : segmentLength();
+            for (int i = 0; i < length; i++) {
+                if (Double.compare(segment.get(i), res) > 0) {
+                    res = segment.get(i);
+                }
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public void sort() {
+        try {
+            super.sort();
+        } finally {
+            sortScratch = null;
+        }
+    }
+
+    /** Checks for equality of two lists.
+     *
+     * @param obj Other object to compare with.
+     * @return Whether both lists are equal (all their elements are equal and in the same order).
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof BigDoubleList)) {
+            return false;
+        }
+        BigDoubleList other = (BigDoubleList) obj;
+        if (size() != other.size()) {
+            return false;
+        }
+        for (long i = 0; i < size(); i++) {
+            if (Double.compare(at(i), other.at(i)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Compute hash code of this list.
+     *
+     * @return Hash code of this list (same as for DoubleList with the same elements).
+     */
+    @Override
+    public int hashCode() {
+        int res = 1;
+        for (long i = 0; i < size(); i++) {
+            res = 31 * res + hashOf(at(i));
+        }
+        return res;
+    }
+
+    /** Return iterator over this list.
+     *
+     * <p>
+     * The iterator walks the segments sequentially, without computing
+     * the position of each element.
+     *
+     * @return Standard Java iterator to be used in for loops etc.
+     */
+    @Override
+    public Iterator<Double> iterator() {
+        return new SegmentIterator();
+    }
+
+    @Override
+    void allocateSegment(final int segment, final int capacity) {
+        if (segment == segments.length) {
+            segments = Arrays.copyOf(segments, Math.max(1, segments.length * 2));
+        }
+        DoubleBuffer buffer = allocateDirect(capacity * 8).asDoubleBuffer();
+        if (segments[segment] != null) {
+            DoubleBuffer old = segments[segment].duplicate();
+            old.rewind();
+            buffer.put(old);
+            buffer.rewind();
+        }
+        segments[segment] = buffer;
+    }
+
+    @Override
+    void releaseSegments() {
+        segments = new DoubleBuffer[0];
+    }
+
+    @Override
+    void appendElement(final StringBuilder sb, final long index) {
+        sb.append(at(index));
+    }
+
+    @Override
+    int compare(final long i, final long j) {
+        return Double.compare(at(i), at(j));
+    }
+
+    @Override
+    void choosePivot(final long index) {
+        pivot = at(index);
+    }
+
+    @Override
+    int compareWithPivot(final long index) {
+        return Double.compare(at(index), pivot);
+    }
+
+    @Override
+    void swap(final long i, final long j) {
+        double tmp = at(i);
+        put(i, at(j));
+        put(j, tmp);
+    }
+
+    @Override
+    void sortSegment(final int segment, final int from, final int to) {
+        if (sortScratch == null) {
+            sortScratch = new double[(int) Math.min(segmentLength(), size())];
+        }
+        DoubleBuffer values = segments[segment].duplicate();
+        values.position(from);
+        values.get(sortScratch, 0, to - from);
+        Arrays.sort(sortScratch, 0, to - from);
+        values.position(from);
+        values.put(sortScratch, 0, to - from);
+    }
+
+    /** Compute hash code of a double as Double.hashCode() does.
+     *
+     * @param value Value to hash.
+     * @return Hash code.
+     */
+    private static int hashOf(final double value) {
+        long bits = Double.doubleToLongBits(value);
+        return (int) (bits ^ (bits >>> 32));
+    }
+
+    /** Get element without range checks.
+     *
+     * @param index Non-negative index.
+     * @return Element at given index.
+     */
+    private double at(final long index) {
+        return segments[segmentOf(index)].get(offsetOf(index));
+    }
+
+    /** Set element without range checks.
+     *
+     * @param index Non-negative index.
+     * @param value New value.
+     */
+    private void put(final long index, final double value) {
+        segments[segmentOf(index)].put(offsetOf(index), value);
+    }
+
+    /** Iterator walking the segments sequentially. */
+    private final class SegmentIterator implements Iterator<Double> {
+        /** Index of the next element. */
+        private long next;
+
+        /** Current segment. */
+        private DoubleBuffer current;
+
+        @Override
+        public boolean hasNext() {
+            return next < size();
+        }
+
+        @Override
+        public Double next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int offset = offsetOf(next);
+            if ((offset == 0) || (current == null)) {
+                current = segments[segmentOf(next)];
+            }
+            next++;
+            return current.get(offset);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+    }
+}
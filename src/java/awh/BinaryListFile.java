@@ -0,0 +1,322 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/** Binary file format for IntList and DoubleList.
+ *
+ * <p>
+ * The file starts with a 16 byte header followed by the raw values,
+ * everything is stored in little-endian byte order.
+ * The header contains the magic bytes <code>AWHL</code>, format version (one byte),
+ * element type (one byte, <code>I</code> for 32-bit integers and
+ * <code>D</code> for 64-bit doubles), two reserved zero bytes and
+ * number of elements as a 64-bit integer.
+ *
+ * <p>
+ * The header size keeps the values aligned, so the data part can be
+ * memory-mapped and used directly.
+ */
+final class BinaryListFile {
+    /** Element type of integer lists. */
+    static final byte TYPE_INT = 'I';
+
+    /** Element type of double lists. */
+    static final byte TYPE_DOUBLE = 'D';
+
+    /** Magic bytes "AWHL" read as little-endian integer. */
+    private static final int MAGIC = 0x4C485741;
+
+    /** Current format version. */
+    private static final byte VERSION = 1;
+
+    /** Header size in bytes. */
+    private static final int HEADER_SIZE = 16;
+
+    /** Size of the buffer used for reading and writing (multiple of all element sizes). */
+    private static final int BATCH_SIZE = 256 * 1024;
+
+    /** Prevent instantiation. */
+    private BinaryListFile() {}
+
+    /** Write integers to a file.
+     *
+     * @param path File path.
+     * @param values Values to write (from position to limit).
+     * @throws Problem When file cannot be written.
+     */
+    static void writeInts(final String path, final IntBuffer values) {
+        IntBuffer src = values.duplicate();
+        try (FileChannel channel = openForWriting(path)) {
+            ByteBuffer batch = newBatch();
+            putHeader(batch, TYPE_INT, src.remaining());
+            while (src.hasRemaining()) {
+                int n = Math.min(src.remaining(), batch.remaining() / 4);
+                IntBuffer chunk = src.duplicate();
+                chunk.limit(src.position() + n);
+                batch.asIntBuffer().put(chunk);
+                batch.position(batch.position() + n * 4);
+                src.position(src.position() + n);
+                flush(channel, batch);
+            }
+            flush(channel, batch);
+        } catch (IOException e) {
+            throw new Problem("Failed to save list to '%s' (%s).", path, e.getMessage());
+        }
+    }
+
+    /** Write doubles to a file.
+     *
+     * @param path File path.
+     * @param values Values to write (from position to limit).
+     * @throws Problem When file cannot be written.
+     */
+    static void writeDoubles(final String path, final DoubleBuffer values) {
+        DoubleBuffer src = values.duplicate();
+        try (FileChannel channel = openForWriting(path)) {
+            ByteBuffer batch = newBatch();
+            putHeader(batch, TYPE_DOUBLE, src.remaining());
+            while (src.hasRemaining()) {
+                int n = Math.min(src.remaining(), batch.remaining() / 8);
+                DoubleBuffer chunk = src.duplicate();
+                chunk.limit(src.position() + n);
+                batch.asDoubleBuffer().put(chunk);
+                batch.position(batch.position() + n * 8);
+                src.position(src.position() + n);
+                flush(channel, batch);
+            }
+            flush(channel, batch);
+        } catch (IOException e) {
+            throw new Problem("Failed to save list to '%s' (%s).", path, e.getMessage());
+        }
+    }
+
+    /** Read integers from a file into memory.
+     *
+     * @param path File path.
+     * @return Values stored in the file.
+     * @throws Problem When file cannot be read or has wrong format.
+     */
+    static int[] readInts(final String path) {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            int[] res = new int[readHeader(channel, path, TYPE_INT, 4)];
+            ByteBuffer batch = newBatch();
+            int done = 0;
+            while (done < res.length) {
+                batch.clear();
+                batch.limit(Math.min(BATCH_SIZE, (res.length - done) * 4));
+                readFully(channel, batch, path);
+                batch.flip();
+                IntBuffer values = batch.asIntBuffer();
+                int n = values.remaining();
+                values.get(res, done, n);
+                done += n;
+            }
+            return res;
+        } catch (IOException e) {
+            throw new Problem("Failed to load list from '%s' (%s).", path, e.getMessage());
+        }
+    }
+
+    /** Read doubles from a file into memory.
+     *
+     * @param path File path.
+     * @return Values stored in the file.
+     * @throws Problem When file cannot be read or has wrong format.
+     */
+    static double[] readDoubles(final String path) {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            double[] res = new double[readHeader(channel, path, TYPE_DOUBLE, 8)];
+            ByteBuffer batch = newBatch();
+            int done = 0;
+            while (done < res.length) {
+                batch.clear();
+                batch.limit(Math.min(BATCH_SIZE, (res.length - done) * 8));
+                readFully(channel, batch, path);
+                batch.flip();
+                DoubleBuffer values = batch.asDoubleBuffer();
+                int n = values.remaining();
+                values.get(res, done, n);
+                done += n;
+            }
+            return res;
+        } catch (IOException e) {
+            throw new Problem("Failed to load list from '%s' (%s).", path, e.getMessage());
+        }
+    }
+
+    /** Memory-map integers stored in a file.
+     *
+     * @param path File path.
+     * @return Read-only buffer with the values.
+     * @throws Problem When file cannot be read or has wrong format.
+     */
+    static IntBuffer mapInts(final String path) {
+        return map(path, TYPE_INT, 4).asIntBuffer();
+    }
+
+    /** Memory-map doubles stored in a file.
+     *
+     * @param path File path.
+     * @return Read-only buffer with the values.
+     * @throws Problem When file cannot be read or has wrong format.
+     */
+    static DoubleBuffer mapDoubles(final String path) {
+        return map(path, TYPE_DOUBLE, 8).asDoubleBuffer();
+    }
+
+    /** Memory-map data part of a list file.
+     *
+     * @param path File path.
+     * @param type Expected element type.
+     * @param elementSize Element size in bytes.
+     * @return Read-only little-endian buffer with the data part.
+     * @throws Problem When file cannot be read or has wrong format.
+     */
+    private static ByteBuffer map(final String path, final byte type, final int elementSize) {
+        Problem.whenNull(path, "list path");
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            int count = readHeader(channel, path, type, elementSize);
+            // The mapping remains valid after the channel is closed.
+            return channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE,
+                    (long) count * elementSize).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            throw new Problem("Failed to map list from '%s' (%s).", path, e.getMessage());
+        }
+    }
+
+    /** Open file for writing, truncating existing one.
+     *
+     * @param path File path.
+     * @return Open channel.
+     * @throws IOException When file cannot be opened.
+     */
+    private static FileChannel openForWriting(final String path) throws IOException {
+        Problem.whenNull(path, "list path");
+
+        return FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /** Allocate buffer for batched reading and writing.
+     *
+     * @return Empty little-endian buffer.
+     */
+    private static ByteBuffer newBatch() {
+        return ByteBuffer.allocateDirect(BATCH_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** Put file header to a buffer.
+     *
+     * @param buf Destination buffer.
+     * @param type Element type.
+     * @param count Number of elements.
+     */
+    private static void putHeader(final ByteBuffer buf, final byte type, final long count) {
+        buf.putInt(MAGIC);
+        buf.put(VERSION);
+        buf.put(type);
+        buf.putShort((short) 0);
+        buf.putLong(count);
+    }
+
+    /** Read and validate file header.
+     *
+     * <p>
+     * Invalid header is reported as Problem.
+     *
+     * @param channel Channel positioned at the beginning of the file.
+     * @param path File path (for error messages).
+     * @param type Expected element type.
+     * @param elementSize Element size in bytes.
+     * @return Number of elements in the file.
+     * @throws IOException When reading fails.
+     */
+    private static int readHeader(final FileChannel channel, final String path,
+            final byte type, final int elementSize) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header, path);
+        header.flip();
+
+        if ((header.getInt() != MAGIC) || (header.get() != VERSION)) {
+            throw new Problem("File '%s' is not a list file.", path);
+        }
+        byte actualType = header.get();
+        if (actualType != type) {
+            throw new Problem("File '%s' contains list of type '%c', expected '%c'.",
+                    path, (char) actualType, (char) type);
+        }
+        header.getShort();
+        long count = header.getLong();
+        if ((count < 0) || (count > (Integer.MAX_VALUE - HEADER_SIZE) / elementSize)) {
+            throw new Problem("File '%s' contains too many elements (%d).", path, count);
+        }
+        if (channel.size() < HEADER_SIZE + count * elementSize) {
+            throw new Problem("File '%s' is truncated.", path);
+        }
+        return (int) count;
+    }
+
+    /** Fill buffer from a channel.
+     *
+     * <p>
+     * Premature end of file is reported as Problem.
+     *
+     * @param channel Source channel.
+     * @param buf Destination buffer.
+     * @param path File path (for error messages).
+     * @throws IOException When reading fails.
+     */
+    private static void readFully(final FileChannel channel, final ByteBuffer buf,
+            final String path) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf) < 0) {
+                throw new Problem("File '%s' is truncated.", path);
+            }
+        }
+    }
+
+    /** Write out contents of the buffer and clear it afterwards.
+     *
+     * @param channel Destination channel.
+     * @param buf Buffer to write.
+     * @throws IOException When writing fails.
+     */
+    private static void flush(final FileChannel channel, final ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+}
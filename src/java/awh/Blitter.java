@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.List;
+
+/** Pasting images into each other directly in their pixel arrays. */
+final class Blitter {
+    /** Minimal number of target pixels composed by one task. */
+    private static final int MIN_PIXELS_PER_TASK = 64 * 1024;
+
+    /** Pixels processed by bulk operations (metrics). */
+    private static final MetricCounter PIXELS_PROCESSED = Metrics.counter("image.pixels");
+
+    /** Prevent instantiation. */
+    private Blitter() {}
+
+    /** Paste image into another one.
+     *
+     * @param target Target image.
+     * @param src Pasted image.
+     * @param x Position of the left edge of pasted image.
+     * @param y Position of the top edge of pasted image.
+     * @param blend Whether to blend with the background (or replace it).
+     */
+    static void paste(final Image target, final Image src, final int x, final int y,
+            final boolean blend) {
+        pasteRows(target, detach(target, src), x, y, blend, 0, target.getHeight());
+    }
+
+    /** Paste all sprites of a batch, target rows are split among tasks.
+     *
+     * @param target Target image.
+     * @param batch Sprites to paste.
+     */
+    static void pasteAll(final Image target, final SpriteBatch batch) {
+        final List<SpriteBatch.Sprite> sprites = batch.getSpritesUnsafe();
+        final Image[] images = new Image[sprites.size()];
+        for (int i = 0; i < images.length; i++) {
+            images[i] = detach(target, sprites.get(i).getImage());
+        }
+        final int height = target.getHeight();
+        final int rows = Parallel.rowsPerTask(MIN_PIXELS_PER_TASK, target.getWidth());
+        Parallel.forRange(0, (height + rows - 1) / rows, 1, band -> {
+            int from = band * rows;
+            int to = Math.min(height, from + rows);
+            for (int i = 0; i < images.length; i++) {
+                SpriteBatch.Sprite sprite = sprites.get(i);
+                pasteRows(target, images[i], sprite.getX(), sprite.getY(), sprite.isBlended(),
+                        from, to);
+            }
+        });
+    }
+
+    /** Paste part of an image (only given target rows are modified).
+     *
+     * @param target Target image.
+     * @param src Pasted image (not sharing pixels with the target).
+     * @param x Position of the left edge of pasted image.
+     * @param y Position of the top edge of pasted image.
+     * @param blend Whether to blend with the background (or replace it).
+     * @param fromRow First target row that can be modified (inclusive).
+     * @param toRow Last target row that can be modified (exclusive).
+     */
+    private static void pasteRows(final Image target, final Image src, final int x, final int y,
+            final boolean blend, final int fromRow, final int toRow) {
+        int left = Math.max(x, 0);
+        int top = Math.max(y, fromRow);
+        int right = (int) Math.min((long) x + src.getWidth(), target.getWidth());
+        int bottom = (int) Math.min((long) y + src.getHeight(), toRow);
+        if ((left >= right) || (top >= bottom)) {
+            return;
+        }
+        int width = right - left;
+        int[] dst = target.getPixelsUnsafe();
+        int[] pixels = src.getPixelsUnsafe();
+        for (int row = top; row < bottom; row++) {
+            int d = target.getOffsetUnsafe() + row * target.getStrideUnsafe() + left;
+            int s = src.getOffsetUnsafe() + (row - y) * src.getStrideUnsafe() + (left - x);
+            if (blend) {
+                blendRow(pixels, s, dst, d, width);
+            } else {
+                System.arraycopy(pixels, s, dst, d, width);
+            }
+        }
+        PIXELS_PROCESSED.add((long) width * (bottom - top));
+    }
+
+    /** Blend one row, opaque runs are copied and transparent runs skipped.
+     *
+     * @param src Source pixels.
+     * @param srcStart Index of the first source pixel.
+     * @param dst Target pixels.
+     * @param dstStart Index of the first target pixel.
+     * @param width Number of pixels.
+     */
+    private static void blendRow(final int[] src, final int srcStart, final int[] dst,
+            final int dstStart, final int width) {
+        int i = 0;
+        while (i < width) {
+            int alpha = src[srcStart + i] >>> 24;
+            if ((alpha == 0xFF) || (alpha == 0)) {
+                int end = i + 1;
+                while ((end < width) && ((src[srcStart + end] >>> 24) == alpha)) {
+                    end++;
+                }
+                if (alpha == 0xFF) {
+                    System.arraycopy(src, srcStart + i, dst, dstStart + i, end - i);
+                }
+                i = end;
+            } else {
+                dst[dstStart + i] = PixelBlend.over(dst[dstStart + i], src[srcStart + i]);
+                i++;
+            }
+        }
+    }
+
+    /** Make sure that pasted image does not share pixels with the target.
+     *
+     * @param target Target image.
+     * @param src Pasted image.
+     * @return Pasted image or its copy.
+     */
+    private static Image detach(final Image target, final Image src) {
+        if (src.getPixelsUnsafe() == target.getPixelsUnsafe()) {
+            return src.copy();
+        }
+        return src;
+    }
+}
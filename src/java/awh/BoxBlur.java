@@ -0,0 +1,223 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+/** Box blur and Gaussian blur approximated by repeated box blurs.
+ *
+ * <p>
+ * Both passes keep running sums of the window, so the cost does not
+ * depend on the radius. Like Convolution, sums are computed from colors
+ * premultiplied by alpha.
+ */
+final class BoxBlur {
+    /** Fraction bits of reciprocal used for averaging in box blur. */
+    private static final int RECIPROCAL_BITS = 24;
+
+    /** Number of box blurs approximating the Gaussian one. */
+    private static final int GAUSSIAN_PASSES = 3;
+
+    /** Smaller sigmas use exact kernel (boxes are too coarse for them). */
+    private static final double MIN_BOX_SIGMA = 2;
+
+    /** Pixels processed by bulk operations (metrics). */
+    private static final MetricCounter PIXELS_PROCESSED = Metrics.counter("image.pixels");
+
+    /** Prevent instantiation. */
+    private BoxBlur() {}
+
+    /** Blur the image with a box (average of square neighbourhood).
+     *
+     * @param image Image to filter (in place).
+     * @param radius Blur radius.
+     * @param edges Treatment of pixels outside of the image.
+     */
+    static void blur(final Image image, final int radius, final EdgeMode edges) {
+        if (radius == 0) {
+            return;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int size = 2 * radius + 1;
+        int[] xmap = Convolution.edgeMap(edges, width, radius);
+        int[] ymap = Convolution.edgeMap(edges, height, radius);
+        int[] tmp = new int[width * height];
+        Convolution.forBands(width, height, 1, (from, to) -> {
+            for (int y = from; y < to; y++) {
+                int rowStart = image.getOffsetUnsafe() + y * image.getStrideUnsafe();
+                boxRow(image.getPixelsUnsafe(), rowStart, xmap, size, tmp, y * width);
+            }
+        });
+        // Each band starts by summing the whole window, so the bands are
+        // kept several windows high to make the start negligible.
+        Convolution.forBands(width, height, 4 * size,
+            (from, to) -> boxColumns(tmp, width, ymap, size, image, from, to));
+        PIXELS_PROCESSED.add(2L * width * height);
+    }
+
+    /** Approximate Gaussian blur by repeated box blurs.
+     *
+     * @param image Image to filter (in place).
+     * @param sigma Standard deviation of the Gaussian.
+     * @param edges Treatment of pixels outside of the image.
+     */
+    static void gaussian(final Image image, final double sigma, final EdgeMode edges) {
+        if (sigma < MIN_BOX_SIGMA) {
+            Convolution.convolve(image, Kernel.gaussian(sigma), edges);
+            return;
+        }
+        // Box sizes as in "Fast Almost-Gaussian Filtering" (W. Kovesi):
+        // m passes of the smaller and the rest of the bigger odd size.
+        double variance = 12 * sigma * sigma;
+        int smaller = (int) Math.floor(Math.sqrt(variance / GAUSSIAN_PASSES + 1));
+        if (smaller % 2 == 0) {
+            smaller--;
+        }
+        int n = GAUSSIAN_PASSES;
+        long m = Math.round((variance - n * smaller * smaller - 4 * n * smaller - 3 * n)
+                / (-4 * smaller - 4));
+        for (int i = 0; i < n; i++) {
+            int size = i < m ? smaller : smaller + 2;
+            blur(image, size / 2, edges);
+        }
+    }
+
+    /** Horizontal box blur of one row using running sums.
+     *
+     * <p>
+     * The result is stored without premultiplication (as ordinary pixels).
+     *
+     * @param pixels Source pixels.
+     * @param rowStart Index of the first pixel of the row.
+     * @param xmap Source column for padded columns.
+     * @param size Box size.
+     * @param dest Destination array.
+     * @param destStart Index of the first destination pixel.
+     */
+    private static void boxRow(final int[] pixels, final int rowStart, final int[] xmap,
+            final int size, final int[] dest, final int destStart) {
+        int[] sums = new int[4];
+        for (int k = 0; k < size - 1; k++) {
+            add(sums, 0, pixels, rowStart, xmap[k], 1);
+        }
+        long reciprocal = reciprocal(size);
+        for (int x = 0; x < xmap.length - size + 1; x++) {
+            add(sums, 0, pixels, rowStart, xmap[x + size - 1], 1);
+            dest[destStart + x] = average(sums, 0, reciprocal);
+            add(sums, 0, pixels, rowStart, xmap[x], -1);
+        }
+    }
+
+    /** Vertical box blur of rows using running sums of all columns.
+     *
+     * @param tmp Source pixels (stride equal to width).
+     * @param width Image width.
+     * @param ymap Source row for padded rows.
+     * @param size Box size.
+     * @param image Destination image.
+     * @param from First row (inclusive).
+     * @param to Last row (exclusive).
+     */
+    private static void boxColumns(final int[] tmp, final int width, final int[] ymap,
+            final int size, final Image image, final int from, final int to) {
+        int[] sums = new int[4 * width];
+        for (int k = 0; k < size - 1; k++) {
+            addRow(sums, tmp, width, ymap[from + k], 1);
+        }
+        long reciprocal = reciprocal(size);
+        int[] pixels = image.getPixelsUnsafe();
+        for (int y = from; y < to; y++) {
+            addRow(sums, tmp, width, ymap[y + size - 1], 1);
+            int pos = image.getOffsetUnsafe() + y * image.getStrideUnsafe();
+            for (int x = 0; x < width; x++) {
+                pixels[pos + x] = average(sums, 4 * x, reciprocal);
+            }
+            addRow(sums, tmp, width, ymap[y], -1);
+        }
+    }
+
+    /** Add (or subtract) whole row to running sums of columns.
+     *
+     * @param sums Sums of premultiplied channels (four values per pixel).
+     * @param pixels Source pixels (stride equal to width).
+     * @param width Image width.
+     * @param row Row to add (-1 for transparent one).
+     * @param sign 1 to add, -1 to subtract.
+     */
+    private static void addRow(final int[] sums, final int[] pixels, final int width,
+            final int row, final int sign) {
+        if (row >= 0) {
+            for (int x = 0; x < width; x++) {
+                add(sums, 4 * x, pixels, row * width, x, sign);
+            }
+        }
+    }
+
+    /** Add (or subtract) single premultiplied pixel to running sums.
+     *
+     * @param sums Sums of premultiplied channels.
+     * @param index Index of the alpha sum (others follow).
+     * @param pixels Source pixels.
+     * @param start Index of the first pixel in the row.
+     * @param x Pixel column (-1 for transparent one).
+     * @param sign 1 to add, -1 to subtract.
+     */
+    private static void add(final int[] sums, final int index, final int[] pixels,
+            final int start, final int x, final int sign) {
+        if (x < 0) {
+            return;
+        }
+        int p = pixels[start + x];
+        int alpha = sign * (p >>> 24);
+        if (alpha != 0) {
+            sums[index] += alpha * 0xFF;
+            sums[index + 1] += ((p >> 16) & 0xFF) * alpha;
+            sums[index + 2] += ((p >> 8) & 0xFF) * alpha;
+            sums[index + 3] += (p & 0xFF) * alpha;
+        }
+    }
+
+    /** Compute fixed-point reciprocal of box size.
+     *
+     * @param size Box size.
+     * @return Reciprocal with RECIPROCAL_BITS fraction bits.
+     */
+    private static long reciprocal(final int size) {
+        return ((1L << RECIPROCAL_BITS) + size / 2) / size;
+    }
+
+    /** Compute average pixel from premultiplied channel sums.
+     *
+     * @param sums Sums of premultiplied channels.
+     * @param index Index of the alpha sum (others follow).
+     * @param reciprocal Fixed-point reciprocal of the number of pixels.
+     * @return Average pixel (ARGB).
+     */
+    private static int average(final int[] sums, final int index, final long reciprocal) {
+        long half = 1L << (RECIPROCAL_BITS - 1);
+        return Convolution.unpremultiply((sums[index] * reciprocal + half) >> RECIPROCAL_BITS,
+                (sums[index + 1] * reciprocal + half) >> RECIPROCAL_BITS,
+                (sums[index + 2] * reciprocal + half) >> RECIPROCAL_BITS,
+                (sums[index + 3] * reciprocal + half) >> RECIPROCAL_BITS);
+    }
+}
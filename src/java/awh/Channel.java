@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+/** Color channel of image pixels (for statistics and histograms). */
+public enum Channel {
+    /** Red component. */
+    RED,
+
+    /** Green component. */
+    GREEN,
+
+    /** Blue component. */
+    BLUE,
+
+    /** Transparency (0 being fully transparent). */
+    ALPHA,
+
+    /** Perceived brightness (weighted sum of red, green and blue). */
+    LUMINANCE;
+
+    /** Extract channel value from a pixel.
+     *
+     * @param argb Pixel in ARGB format.
+     * @return Channel value in 0 to 255 range.
+     */
+    int of(final int argb) {
+        switch (this) {
+            case RED:
+                return (argb >> 16) & 0xFF;
+            case GREEN:
+                return (argb >> 8) & 0xFF;
+            case BLUE:
+                return argb & 0xFF;
+            case ALPHA:
+                return argb >>> 24;
+            default:
+                return luminance(argb);
+        }
+    }
+
+    /** Compute luminance of a pixel.
+     *
+     * <p>
+     * Uses the ITU-R BT.601 weights in 8-bit fixed point.
+     *
+     * @param argb Pixel in ARGB format.
+     * @return Luminance in 0 to 255 range.
+     */
+    static int luminance(final int argb) {
+        return (77 * ((argb >> 16) & 0xFF) + 150 * ((argb >> 8) & 0xFF)
+                + 29 * (argb & 0xFF) + 128) >> 8;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/** Streams text to an Appendable in moderately sized chunks.
+ *
+ * <p>
+ * Text is first collected in a small buffer that is written out once it is
+ * full, so that producing a huge text never needs memory proportional to its
+ * length. Writers receive the characters directly from a reused array;
+ * StringBuilder destinations are appended to without any buffering.
+ */
+final class ChunkedAppender {
+    /** Number of characters collected before they are written out. */
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    /** Final destination. */
+    private final Appendable out;
+
+    /** Buffer for collecting the text. */
+    private final StringBuilder chunk;
+
+    /** Scratch array for passing text to a Writer. */
+    private char[] scratch;
+
+    /** Constructor.
+     *
+     * @param destination Where to write the text.
+     */
+    ChunkedAppender(final Appendable destination) {
+        Problem.whenNull(destination, "output");
+
+        out = destination;
+        if (destination instanceof StringBuilder) {
+            chunk = (StringBuilder) destination;
+        } else {
+            chunk = new StringBuilder(CHUNK_SIZE + CHUNK_SIZE / 4);
+        }
+    }
+
+    /** Get buffer to append the text to.
+     *
+     * @return Buffer (call flushWhenFull() after appending to it).
+     */
+    StringBuilder buffer() {
+        return chunk;
+    }
+
+    /** Write out the buffer when it is full enough.
+     *
+     * @throws IOException When writing fails.
+     */
+    void flushWhenFull() throws IOException {
+        if (chunk.length() >= CHUNK_SIZE) {
+            flush();
+        }
+    }
+
+    /** Write out the buffer.
+     *
+     * @throws IOException When writing fails.
+     */
+    void flush() throws IOException {
+        if (chunk == out) {
+            return;
+        }
+        if (out instanceof Writer) {
+            int length = chunk.length();
+            if ((scratch == null) || (scratch.length < length)) {
+                scratch = new char[length];
+            }
+            chunk.getChars(0, length, scratch, 0);
+            ((Writer) out).write(scratch, 0, length);
+        } else {
+            out.append(chunk);
+        }
+        chunk.setLength(0);
+    }
+}
@@ -104,10 +104,14 @@ public final class Color {
      * @param a Alpha component in 0 to 255 range (inclusive), 0 being fully transparent.
      */
     public Color(final int r, final int g, final int b, final int a) {
-        Problem.whenNotInRange("red component", r, 0, 256);
-        Problem.whenNotInRange("green component", g, 0, 256);
-        Problem.whenNotInRange("blue component", b, 0, 256);
-        Problem.whenNotInRange("alpha component", a, 0, 256);
+        // Negative values have the high bits set too, one test covers all.
+        final int bits = r | g | b;
+        if (((bits | a) & ~0xFF) != 0) {
+            Problem.whenNotInRange("red component", r, 0, 256);
+            Problem.whenNotInRange("green component", g, 0, 256);
+            Problem.whenNotInRange("blue component", b, 0, 256);
+            Problem.whenNotInRange("alpha component", a, 0, 256);
+        }
 
         red = r;
         green = g;
@@ -115,6 +119,17 @@ public final class Color {
         alpha = a;
     }
 
+    /** Constructor from merged ARGB value (no checks needed).
+     *
+     * @param argb Color as single integer, alpha in the highest byte.
+     */
+    private Color(final int argb) {
+        alpha = argb >>> 24;
+        red = (argb >> 16) & 0xFF;
+        green = (argb >> 8) & 0xFF;
+        blue = argb & 0xFF;
+    }
+
     /** Create color from RGB components.
      *
      * @param r Red component in 0 to 255 range (inclusive).
@@ -132,12 +147,7 @@ public final class Color {
      * @return Constructed color.
      */
     public static Color fromMergedRgb(final int rgb) {
-        return new Color(
-                (rgb & 0x00ff0000) >> 16,
-                (rgb & 0x0000ff00) >> 8,
-                (rgb & 0x000000ff) >> 0,
-                (((rgb & 0xff000000) >> 24) + 256) % 256
-        );
+        return new Color(rgb);
     }
 
     /** Get red component of the color.
@@ -0,0 +1,409 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Chain of color adjustments applied to an image in a single pass.
+ *
+ * <p>
+ * Adjustments of individual channels (gamma, brightness, contrast,
+ * inversion or any lookup table) are composed into one table per
+ * channel, adjustments mixing the channels (grayscale, sepia or any
+ * color matrix) are composed into one matrix. Typical chains therefore
+ * read and write every pixel just once.
+ *
+ * <pre>
+ * ColorAdjustment vintage = new ColorAdjustment()
+ *     .gamma(1.2)
+ *     .contrast(0.8)
+ *     .sepia();
+ * photo.filter().adjust(vintage);
+ * </pre>
+ */
+public final class ColorAdjustment {
+    /** Number of distinct channel values. */
+    private static final int LEVELS = 256;
+
+    /** Results less than this out of range still round into it (no clamping needed). */
+    private static final double SATURATION_TOLERANCE = 0.5;
+
+    /** Number of rows of color matrix (output channels). */
+    private static final int MATRIX_ROWS = 4;
+
+    /** Number of columns of color matrix (input channels and offset). */
+    private static final int MATRIX_COLUMNS = 5;
+
+    /** Passes over the image (each of them maps, mixes and maps again). */
+    private final List<Pass> passes = new ArrayList<>();
+
+    /** Create adjustment that keeps the colors. */
+    public ColorAdjustment() {
+        passes.add(new Pass());
+    }
+
+    /** Apply lookup table to each channel.
+     *
+     * <p>
+     * Each table has 256 items with the new value for each old value,
+     * null table keeps the channel.
+     *
+     * @param red Table for the red channel.
+     * @param green Table for the green channel.
+     * @param blue Table for the blue channel.
+     * @param alpha Table for the alpha channel.
+     * @return Reference to itself to allow chaining.
+     * @throws Problem When a table does not have 256 items in 0 to 255 range.
+     */
+    public ColorAdjustment lut(final int[] red, final int[] green, final int[] blue,
+            final int[] alpha) {
+        int[][] tables = { checkTable(red, "red"), checkTable(green, "green"),
+            checkTable(blue, "blue"), checkTable(alpha, "alpha") };
+        Pass last = passes.get(passes.size() - 1);
+        int[][] target = last.matrix == null ? last.before : last.after;
+        for (int c = 0; c < tables.length; c++) {
+            if (tables[c] != null) {
+                for (int i = 0; i < LEVELS; i++) {
+                    target[c][i] = tables[c][target[c][i]];
+                }
+            }
+        }
+        return this;
+    }
+
+    /** Apply color matrix.
+     *
+     * <p>
+     * The matrix has 4 rows (computing red, green, blue and alpha)
+     * and 5 columns (weights of red, green, blue and alpha and a constant
+     * added to the result). Values are in 0 to 255 range, results are
+     * clamped to it. Weights must be within -64 to 64, constants within
+     * -1020 to 1020.
+     *
+     * <p>
+     * Matrix following another one is merged with it unless the first one
+     * can produce values outside of 0 to 255 range (the merged matrix would
+     * skip the clamping in between), such matrices need another pass.
+     *
+     * @param matrix Matrix row by row (20 numbers).
+     * @return Reference to itself to allow chaining.
+     * @throws Problem When the matrix does not have 20 values in range.
+     */
+    public ColorAdjustment matrix(final double... matrix) {
+        Problem.whenNull(matrix, "color matrix");
+        if (matrix.length != MATRIX_ROWS * MATRIX_COLUMNS) {
+            throw new Problem("Color matrix needs %d numbers (got %d).",
+                    MATRIX_ROWS * MATRIX_COLUMNS, matrix.length);
+        }
+        if (!isInRange(matrix)) {
+            throw new Problem("Color matrix values are out of range (%s).",
+                    Arrays.toString(matrix));
+        }
+        Pass last = passes.get(passes.size() - 1);
+        double[] merged = null;
+        if ((last.matrix != null) && last.isAfterIdentity() && !canSaturate(last.matrix)) {
+            merged = multiply(matrix, last.matrix);
+        }
+        if (last.matrix == null) {
+            last.setMatrix(matrix.clone());
+        } else if ((merged != null) && isInRange(merged)) {
+            last.setMatrix(merged);
+        } else {
+            Pass next = new Pass();
+            next.setMatrix(matrix.clone());
+            passes.add(next);
+        }
+        return this;
+    }
+
+    /** Apply gamma correction to color channels.
+     *
+     * @param gamma Gamma (values above 1 brighten the image).
+     * @return Reference to itself to allow chaining.
+     */
+    public ColorAdjustment gamma(final double gamma) {
+        if (!(gamma > 0)) {
+            throw new Problem("Gamma must be positive (got %f).", gamma);
+        }
+        int[] table = new int[LEVELS];
+        for (int i = 0; i < LEVELS; i++) {
+            table[i] = (int) Math.round(255 * Math.pow(i / 255.0, 1 / gamma));
+        }
+        return lut(table, table, table, null);
+    }
+
+    /** Add a constant to color channels.
+     *
+     * @param delta Value to add (negative to darken the image).
+     * @return Reference to itself to allow chaining.
+     */
+    public ColorAdjustment brightness(final int delta) {
+        int[] table = new int[LEVELS];
+        for (int i = 0; i < LEVELS; i++) {
+            table[i] = clamp(i + delta);
+        }
+        return lut(table, table, table, null);
+    }
+
+    /** Change contrast of color channels (around the middle gray).
+     *
+     * @param factor Contrast factor (1 keeps the image, 0 makes it gray).
+     * @return Reference to itself to allow chaining.
+     */
+    public ColorAdjustment contrast(final double factor) {
+        if (!(factor >= 0)) {
+            throw new Problem("Contrast factor must not be negative (got %f).", factor);
+        }
+        int[] table = new int[LEVELS];
+        for (int i = 0; i < LEVELS; i++) {
+            table[i] = clamp(Math.round((i - 127.5) * factor + 127.5));
+        }
+        return lut(table, table, table, null);
+    }
+
+    /** Invert color channels (make a negative).
+     *
+     * @return Reference to itself to allow chaining.
+     */
+    public ColorAdjustment invert() {
+        int[] table = new int[LEVELS];
+        for (int i = 0; i < LEVELS; i++) {
+            table[i] = 255 - i;
+        }
+        return lut(table, table, table, null);
+    }
+
+    /** Convert to shades of gray (using luminance weights).
+     *
+     * @return Reference to itself to allow chaining.
+     */
+    public ColorAdjustment grayscale() {
+        return matrix(
+                0.299, 0.587, 0.114, 0, 0,
+                0.299, 0.587, 0.114, 0, 0,
+                0.299, 0.587, 0.114, 0, 0,
+                0, 0, 0, 1, 0);
+    }
+
+    /** Convert to brownish tones of old photos.
+     *
+     * @return Reference to itself to allow chaining.
+     */
+    public ColorAdjustment sepia() {
+        return matrix(
+                0.393, 0.769, 0.189, 0, 0,
+                0.349, 0.686, 0.168, 0, 0,
+                0.272, 0.534, 0.131, 0, 0,
+                0, 0, 0, 1, 0);
+    }
+
+    /** Apply the adjustment to an image.
+     *
+     * @param image Image to modify.
+     */
+    void applyTo(final Image image) {
+        for (Pass pass : passes) {
+            ColorTables.apply(image, pass.before, pass.matrix, pass.after);
+        }
+    }
+
+    /** Apply the adjustment to part of a row.
+     *
+     * @param pixels Pixels to modify.
+     * @param from First pixel (inclusive).
+     * @param to Last pixel (exclusive).
+     */
+    void applyToRow(final int[] pixels, final int from, final int to) {
+        for (Pass pass : passes) {
+            ColorTables.applyRow(pixels, from, to, pass.before, pass.fixed, pass.after);
+        }
+    }
+
+    /** Get number of passes over the image.
+     *
+     * @return Number of passes needed to apply the adjustment.
+     */
+    int getPassCount() {
+        return passes.size();
+    }
+
+    /** Check lookup table.
+     *
+     * @param table Table to check (may be null).
+     * @param name Channel name.
+     * @return The table.
+     * @throws Problem When the table is invalid.
+     */
+    private static int[] checkTable(final int[] table, final String name) {
+        if (table == null) {
+            return null;
+        }
+        if (table.length != LEVELS) {
+            throw new Problem("Table for %s channel needs %d items (got %d).",
+                    name, LEVELS, table.length);
+        }
+        for (int i = 0; i < LEVELS; i++) {
+            Problem.whenNotInRange(name + " table item", table[i], 0, LEVELS);
+        }
+        return table;
+    }
+
+    /** Check that values of color matrix are in range.
+     *
+     * @param matrix Matrix to check (20 numbers).
+     * @return Whether weights and offsets are in range.
+     */
+    private static boolean isInRange(final double[] matrix) {
+        for (int i = 0; i < matrix.length; i++) {
+            double limit = i % MATRIX_COLUMNS == MATRIX_COLUMNS - 1
+                    ? ColorTables.MAX_MATRIX_OFFSET : ColorTables.MAX_MATRIX_VALUE;
+            if (!(Math.abs(matrix[i]) <= limit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Tell whether color matrix can produce values outside of 0 to 255 range.
+     *
+     * @param matrix Matrix to check (20 numbers).
+     * @return Whether some result may need clamping.
+     */
+    private static boolean canSaturate(final double[] matrix) {
+        for (int row = 0; row < MATRIX_ROWS; row++) {
+            double min = matrix[row * MATRIX_COLUMNS + MATRIX_COLUMNS - 1];
+            double max = min;
+            for (int col = 0; col < MATRIX_COLUMNS - 1; col++) {
+                double weight = matrix[row * MATRIX_COLUMNS + col] * (LEVELS - 1);
+                min += Math.min(0, weight);
+                max += Math.max(0, weight);
+            }
+            if ((min <= -SATURATION_TOLERANCE) || (max >= LEVELS - 1 + SATURATION_TOLERANCE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Compose two color matrices.
+     *
+     * @param second Matrix applied second.
+     * @param first Matrix applied first.
+     * @return Matrix equal to applying both (without clamping in between).
+     */
+    private static double[] multiply(final double[] second, final double[] first) {
+        double[] res = new double[MATRIX_ROWS * MATRIX_COLUMNS];
+        for (int row = 0; row < MATRIX_ROWS; row++) {
+            for (int col = 0; col < MATRIX_COLUMNS; col++) {
+                res[row * MATRIX_COLUMNS + col] = product(second, first, row, col);
+            }
+        }
+        return res;
+    }
+
+    /** Compute one entry of composed color matrices.
+     *
+     * <p>
+     * The last column holds offsets, the offset of the second matrix
+     * is added to the transformed offsets of the first one.
+     *
+     * @param second Matrix applied second.
+     * @param first Matrix applied first.
+     * @param row Entry row.
+     * @param col Entry column.
+     * @return Entry of the composed matrix.
+     */
+    private static double product(final double[] second, final double[] first, final int row,
+            final int col) {
+        double sum = col == MATRIX_COLUMNS - 1 ? second[row * MATRIX_COLUMNS + col] : 0;
+        for (int k = 0; k < MATRIX_ROWS; k++) {
+            sum += second[row * MATRIX_COLUMNS + k] * first[k * MATRIX_COLUMNS + col];
+        }
+        return sum;
+    }
+
+    /** Clamp channel value to 0 to 255 range.
+     *
+     * @param value Value to clamp.
+     * @return Value in range 0 to 255.
+     */
+    private static int clamp(final long value) {
+        return (int) Math.max(0, Math.min(LEVELS - 1, value));
+    }
+
+    /** Single pass over the image: tables, matrix and tables again. */
+    private static final class Pass {
+        /** Tables applied before the matrix (red, green, blue, alpha). */
+        private final int[][] before = identityTables();
+
+        /** Color matrix (null when there is none). */
+        private double[] matrix;
+
+        /** Color matrix in fixed point (null when there is none). */
+        private int[] fixed;
+
+        /** Tables applied after the matrix (red, green, blue, alpha). */
+        private final int[][] after = identityTables();
+
+        /** Set color matrix (converting it to fixed point once).
+         *
+         * @param value New matrix.
+         */
+        void setMatrix(final double[] value) {
+            matrix = value;
+            fixed = ColorTables.toFixedPoint(value);
+        }
+
+        /** Tell whether the tables after the matrix keep all values.
+         *
+         * @return Whether the tables are identity.
+         */
+        boolean isAfterIdentity() {
+            for (int[] table : after) {
+                for (int i = 0; i < LEVELS; i++) {
+                    if (table[i] != i) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /** Create identity tables for all channels.
+         *
+         * @return Four tables that keep all values.
+         */
+        private static int[][] identityTables() {
+            int[][] res = new int[MATRIX_ROWS][LEVELS];
+            for (int[] table : res) {
+                for (int i = 0; i < LEVELS; i++) {
+                    table[i] = i;
+                }
+            }
+            return res;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+/** Lookup tables and color matrices applied to image pixels.
+ *
+ * <p>
+ * Matrices are applied in fixed point (integers with 12 fraction bits).
+ */
+final class ColorTables {
+    /** Maximum absolute weight in color matrix (keeps fixed-point sums in range). */
+    static final double MAX_MATRIX_VALUE = 64;
+
+    /** Maximum absolute offset (last column) in color matrix. */
+    static final double MAX_MATRIX_OFFSET = 4 * 255;
+
+    /** Fraction bits of fixed-point matrix values. */
+    private static final int MATRIX_BITS = 12;
+
+    /** Minimal number of pixels processed by one task. */
+    private static final int MIN_PIXELS_PER_TASK = 64 * 1024;
+
+    /** Fraction of pixels that may saturate in auto levels. */
+    private static final double LEVELS_CLIP = 0.005;
+
+    /** Pixels processed by bulk operations (metrics). */
+    private static final MetricCounter PIXELS_PROCESSED = Metrics.counter("image.pixels");
+
+    /** Prevent instantiation. */
+    private ColorTables() {}
+
+    /** Equalize histograms of color channels of the image.
+     *
+     * @param image Image to modify.
+     */
+    static void equalize(final Image image) {
+        ImageStatistics stats = ImageStatistics.compute(image);
+        new ColorAdjustment().lut(stats.equalizationTable(Channel.RED),
+                stats.equalizationTable(Channel.GREEN),
+                stats.equalizationTable(Channel.BLUE), null).applyTo(image);
+    }
+
+    /** Stretch each color channel to the full range.
+     *
+     * @param image Image to modify.
+     */
+    static void autoLevels(final Image image) {
+        ImageStatistics stats = ImageStatistics.compute(image);
+        new ColorAdjustment().lut(stats.levelsTable(Channel.RED, LEVELS_CLIP),
+                stats.levelsTable(Channel.GREEN, LEVELS_CLIP),
+                stats.levelsTable(Channel.BLUE, LEVELS_CLIP), null).applyTo(image);
+    }
+
+    /** Map all pixels through tables, color matrix and tables again.
+     *
+     * @param image Image to modify.
+     * @param before Tables for red, green, blue and alpha applied first.
+     * @param matrix Color matrix (4 rows of 5 numbers) or null.
+     * @param after Tables for red, green, blue and alpha applied last.
+     */
+    static void apply(final Image image, final int[][] before, final double[] matrix,
+            final int[][] after) {
+        final int[] pixels = image.getPixelsUnsafe();
+        final int width = image.getWidth();
+        final int[] fixed = toFixedPoint(matrix);
+        final int rows = Parallel.rowsPerTask(MIN_PIXELS_PER_TASK, width);
+        Parallel.forRange(0, image.getHeight(), rows, y -> {
+            int rowStart = image.getOffsetUnsafe() + y * image.getStrideUnsafe();
+            applyRow(pixels, rowStart, rowStart + width, before, fixed, after);
+        });
+        PIXELS_PROCESSED.add((long) width * image.getHeight());
+    }
+
+    /** Map part of a row through tables, color matrix and tables again.
+     *
+     * @param pixels Pixels to modify.
+     * @param from First pixel (inclusive).
+     * @param to Last pixel (exclusive).
+     * @param before Tables for red, green, blue and alpha applied first.
+     * @param fixed Fixed-point color matrix (see toFixedPoint()) or null.
+     * @param after Tables for red, green, blue and alpha applied last.
+     */
+    static void applyRow(final int[] pixels, final int from, final int to,
+            final int[][] before, final int[] fixed, final int[][] after) {
+        for (int i = from; i < to; i++) {
+            int p = pixels[i];
+            int r = before[0][(p >> 16) & 0xFF];
+            int g = before[1][(p >> 8) & 0xFF];
+            int b = before[2][p & 0xFF];
+            int a = before[3][p >>> 24];
+            if (fixed != null) {
+                final int r2 = mix(fixed, 0, r, g, b, a);
+                final int g2 = mix(fixed, 5, r, g, b, a);
+                final int b2 = mix(fixed, 10, r, g, b, a);
+                a = mix(fixed, 15, r, g, b, a);
+                r = r2;
+                g = g2;
+                b = b2;
+            }
+            pixels[i] = (after[3][a] << 24) | (after[0][r] << 16)
+                    | (after[1][g] << 8) | after[2][b];
+        }
+    }
+
+    /** Convert color matrix to fixed point.
+     *
+     * @param matrix Color matrix (or null).
+     * @return Matrix values multiplied by 2^MATRIX_BITS (or null).
+     */
+    static int[] toFixedPoint(final double[] matrix) {
+        if (matrix == null) {
+            return null;
+        }
+        int[] res = new int[matrix.length];
+        for (int i = 0; i < matrix.length; i++) {
+            res[i] = (int) Math.round(matrix[i] * (1 << MATRIX_BITS));
+        }
+        return res;
+    }
+
+    /** Compute one channel using a row of fixed-point color matrix.
+     *
+     * @param matrix Fixed-point matrix.
+     * @param row Index of the first item of the row.
+     * @param r Red value.
+     * @param g Green value.
+     * @param b Blue value.
+     * @param a Alpha value.
+     * @return New channel value (clamped to 0 to 255 range).
+     */
+    private static int mix(final int[] matrix, final int row, final int r, final int g,
+            final int b, final int a) {
+        int value = (matrix[row] * r + matrix[row + 1] * g + matrix[row + 2] * b
+                + matrix[row + 3] * a + matrix[row + 4] + (1 << (MATRIX_BITS - 1))) >> MATRIX_BITS;
+        if (value < 0) {
+            return 0;
+        }
+        return value > 0xFF ? 0xFF : value;
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.Arrays;
+
+/** Convolution filters for Image (box blurs are in BoxBlur).
+ *
+ * <p>
+ * All filters work on the packed ARGB pixels with integer (fixed-point)
+ * weights. Colors are premultiplied by alpha before filtering (and divided
+ * by the new alpha afterwards) so that colors of transparent pixels do not
+ * bleed into their neighbours. Premultiplied channels are kept with 16 bits
+ * (alpha is scaled by 255 to match the colors).
+ * Rows are split into bands that are processed in parallel.
+ */
+final class Convolution {
+    /** Minimal number of pixels processed by one task. */
+    private static final int MIN_PIXELS_PER_TASK = 64 * 1024;
+
+    /** Fraction bits of fixed-point weights. */
+    private static final int WEIGHT_BITS = 14;
+
+    /** Maximal value of premultiplied channel (255 * 255). */
+    private static final int MAX_PREMULTIPLIED = 255 * 255;
+
+    /** Fraction bits of reciprocal used for dividing by alpha. */
+    private static final int ALPHA_RECIPROCAL_BITS = 32;
+
+    /** Pixels processed by bulk operations (metrics). */
+    private static final MetricCounter PIXELS_PROCESSED = Metrics.counter("image.pixels");
+
+    /** Prevent instantiation. */
+    private Convolution() {}
+
+    /** Apply kernel to the image.
+     *
+     * @param image Image to filter (in place).
+     * @param kernel Kernel to apply.
+     * @param edges Treatment of pixels outside of the image.
+     */
+    static void convolve(final Image image, final Kernel kernel, final EdgeMode edges) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] xmap = edgeMap(edges, width, kernel.getWidth() / 2);
+        int[] ymap = edgeMap(edges, height, kernel.getHeight() / 2);
+        if (kernel.isSeparable()) {
+            int[] columns = toFixedPoint(kernel.getColumnWeightsUnsafe());
+            int[] rows = toFixedPoint(kernel.getRowWeightsUnsafe());
+            if (4L * width * height > Integer.MAX_VALUE) {
+                throw new Problem("Image %dx%d is too big for convolution.", width, height);
+            }
+            int[] tmp = new int[4 * width * height];
+            forBands(width, height, 1,
+                (from, to) -> horizontalPass(image, rows, xmap, tmp, from, to));
+            forBands(width, height, 1,
+                (from, to) -> verticalPass(tmp, columns, ymap, image, from, to));
+        } else {
+            DirectKernel direct = new DirectKernel(packedCopy(image), width,
+                    toFixedPoint(kernel.getWeightsUnsafe()), kernel.getWidth(), xmap, ymap);
+            forBands(width, height, 1, (from, to) -> {
+                long[] acc = new long[4 * width];
+                for (int y = from; y < to; y++) {
+                    direct.convolveRow(y, acc);
+                    storeRow(acc, WEIGHT_BITS, image, y);
+                }
+            });
+        }
+        PIXELS_PROCESSED.add((long) width * height);
+    }
+
+    /** Split rows into bands processed in parallel.
+     *
+     * @param width Number of pixels in a row.
+     * @param height Number of rows.
+     * @param minRows Minimal number of rows in a band.
+     * @param body Code processing one band.
+     */
+    static void forBands(final int width, final int height, final int minRows,
+            final Band body) {
+        int rows = Math.max(minRows, Parallel.rowsPerTask(MIN_PIXELS_PER_TASK, width));
+        int bands = (height + rows - 1) / rows;
+        Parallel.forRange(0, bands, 1, band -> body.run(band * rows,
+                Math.min(height, band * rows + rows)));
+    }
+
+    /** Precompute source coordinates for a padded row or column.
+     *
+     * @param edges Treatment of pixels outside of the image.
+     * @param size Image size in given dimension.
+     * @param radius Padding on each side.
+     * @return Source coordinate (or -1) for coordinates -radius to size + radius.
+     */
+    static int[] edgeMap(final EdgeMode edges, final int size, final int radius) {
+        int[] res = new int[size + 2 * radius];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = edges.map(i - radius, size);
+        }
+        return res;
+    }
+
+    /** Convert weights to fixed-point integers.
+     *
+     * @param weights Weights to convert.
+     * @return Weights multiplied by 2^WEIGHT_BITS.
+     */
+    private static int[] toFixedPoint(final double[] weights) {
+        int[] res = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            res[i] = (int) Math.round(weights[i] * (1 << WEIGHT_BITS));
+        }
+        return res;
+    }
+
+    /** Copy image pixels into a packed array.
+     *
+     * @param image Source image.
+     * @return Pixels row by row (stride equal to width).
+     */
+    private static int[] packedCopy(final Image image) {
+        int width = image.getWidth();
+        int[] res = new int[width * image.getHeight()];
+        for (int y = 0; y < image.getHeight(); y++) {
+            System.arraycopy(image.getPixelsUnsafe(),
+                    image.getOffsetUnsafe() + y * image.getStrideUnsafe(), res, y * width, width);
+        }
+        return res;
+    }
+
+    /** First pass of separable kernel: rows to premultiplied channels.
+     *
+     * @param image Source image.
+     * @param weights Fixed-point row weights.
+     * @param xmap Source column for padded columns.
+     * @param tmp Premultiplied channels (four values per pixel).
+     * @param from First row (inclusive).
+     * @param to Last row (exclusive).
+     */
+    private static void horizontalPass(final Image image, final int[] weights, final int[] xmap,
+            final int[] tmp, final int from, final int to) {
+        for (int y = from; y < to; y++) {
+            horizontalRow(image, y, weights, xmap, tmp);
+        }
+    }
+
+    /** Apply row weights to one row.
+     *
+     * @param image Source image.
+     * @param y Row to filter.
+     * @param weights Fixed-point row weights.
+     * @param xmap Source column for padded columns.
+     * @param tmp Premultiplied channels (four values per pixel).
+     */
+    private static void horizontalRow(final Image image, final int y, final int[] weights,
+            final int[] xmap, final int[] tmp) {
+        int[] pixels = image.getPixelsUnsafe();
+        int width = image.getWidth();
+        int rowStart = image.getOffsetUnsafe() + y * image.getStrideUnsafe();
+        long half = 1L << (WEIGHT_BITS - 1);
+        long[] acc = new long[4];
+        int out = 4 * y * width;
+        for (int x = 0; x < width; x++) {
+            Arrays.fill(acc, 0);
+            for (int k = 0; k < weights.length; k++) {
+                int sx = xmap[x + k];
+                if (sx >= 0) {
+                    addPremultiplied(acc, 0, weights[k], pixels[rowStart + sx]);
+                }
+            }
+            tmp[out++] = (int) ((acc[0] + half) >> WEIGHT_BITS);
+            tmp[out++] = (int) ((acc[1] + half) >> WEIGHT_BITS);
+            tmp[out++] = (int) ((acc[2] + half) >> WEIGHT_BITS);
+            tmp[out++] = (int) ((acc[3] + half) >> WEIGHT_BITS);
+        }
+    }
+
+    /** Second pass of separable kernel: premultiplied channels to columns.
+     *
+     * @param tmp Premultiplied channels (four values per pixel).
+     * @param weights Fixed-point column weights.
+     * @param ymap Source row for padded rows.
+     * @param image Destination image.
+     * @param from First row (inclusive).
+     * @param to Last row (exclusive).
+     */
+    private static void verticalPass(final int[] tmp, final int[] weights, final int[] ymap,
+            final Image image, final int from, final int to) {
+        int channels = 4 * image.getWidth();
+        long[] acc = new long[channels];
+        for (int y = from; y < to; y++) {
+            Arrays.fill(acc, 0);
+            for (int k = 0; k < weights.length; k++) {
+                int sy = ymap[y + k];
+                if ((sy >= 0) && (weights[k] != 0)) {
+                    addRow(acc, weights[k], tmp, sy * channels);
+                }
+            }
+            storeRow(acc, WEIGHT_BITS, image, y);
+        }
+    }
+
+    /** Add weighted row of premultiplied channels.
+     *
+     * @param acc Channel sums.
+     * @param weight Fixed-point weight.
+     * @param tmp Premultiplied channels (four values per pixel).
+     * @param base Index of the row start in tmp.
+     */
+    private static void addRow(final long[] acc, final long weight, final int[] tmp,
+            final int base) {
+        for (int i = 0; i < acc.length; i++) {
+            acc[i] += weight * tmp[base + i];
+        }
+    }
+
+    /** Add weighted pixel to premultiplied channel sums.
+     *
+     * @param acc Channel sums (four values per pixel).
+     * @param index Index of the alpha sum of the pixel.
+     * @param weight Fixed-point weight.
+     * @param argb Pixel to add.
+     */
+    static void addPremultiplied(final long[] acc, final int index, final long weight,
+            final int argb) {
+        int alpha = argb >>> 24;
+        if (alpha != 0) {
+            acc[index] += weight * (alpha * 0xFF);
+            acc[index + 1] += weight * (((argb >> 16) & 0xFF) * alpha);
+            acc[index + 2] += weight * (((argb >> 8) & 0xFF) * alpha);
+            acc[index + 3] += weight * ((argb & 0xFF) * alpha);
+        }
+    }
+
+    /** Store fixed-point premultiplied channel sums as pixels of one row.
+     *
+     * @param acc Premultiplied channel sums (four values per pixel).
+     * @param shift Number of fraction bits of the sums.
+     * @param image Destination image.
+     * @param y Destination row.
+     */
+    private static void storeRow(final long[] acc, final int shift, final Image image,
+            final int y) {
+        int[] pixels = image.getPixelsUnsafe();
+        int pos = image.getOffsetUnsafe() + y * image.getStrideUnsafe();
+        long half = 1L << (shift - 1);
+        for (int i = 0; i < acc.length; i += 4) {
+            pixels[pos++] = unpremultiply((acc[i] + half) >> shift,
+                    (acc[i + 1] + half) >> shift, (acc[i + 2] + half) >> shift,
+                    (acc[i + 3] + half) >> shift);
+        }
+    }
+
+    /** Convert premultiplied channels back to pixel.
+     *
+     * <p>
+     * Alpha is clamped first, colors are then clamped to the alpha
+     * (they cannot be brighter than white).
+     *
+     * @param alpha Alpha multiplied by 255.
+     * @param red Red multiplied by alpha.
+     * @param green Green multiplied by alpha.
+     * @param blue Blue multiplied by alpha.
+     * @return Pixel (ARGB), zero when it is fully transparent.
+     */
+    static int unpremultiply(final long alpha, final long red, final long green,
+            final long blue) {
+        if (alpha < 0x80) {
+            return 0;
+        }
+        long a = Math.min(alpha, MAX_PREMULTIPLIED);
+        long half = 1L << (ALPHA_RECIPROCAL_BITS - 1);
+        long reciprocal = (0xFFL << ALPHA_RECIPROCAL_BITS) / a;
+        return (int) ((a + 0x7F) / 0xFF) << 24
+                | (int) ((clampTo(red, a) * reciprocal + half) >> ALPHA_RECIPROCAL_BITS) << 16
+                | (int) ((clampTo(green, a) * reciprocal + half) >> ALPHA_RECIPROCAL_BITS) << 8
+                | (int) ((clampTo(blue, a) * reciprocal + half) >> ALPHA_RECIPROCAL_BITS);
+    }
+
+    /** Clamp value to 0 to max range.
+     *
+     * @param value Value to clamp.
+     * @param max Upper bound.
+     * @return Value in range 0 to max.
+     */
+    private static long clampTo(final long value, final long max) {
+        if (value < 0) {
+            return 0;
+        }
+        return value > max ? max : value;
+    }
+
+    /** General (not separable) kernel applied directly. */
+    private static final class DirectKernel {
+        /** Source pixels (stride equal to width). */
+        private final int[] src;
+
+        /** Image width. */
+        private final int width;
+
+        /** Fixed-point weights. */
+        private final int[] weights;
+
+        /** Kernel width. */
+        private final int kernelWidth;
+
+        /** Source column for padded columns. */
+        private final int[] xmap;
+
+        /** Source row for padded rows. */
+        private final int[] ymap;
+
+        /** Constructor.
+         *
+         * @param pixels Source pixels (stride equal to width).
+         * @param imageWidth Image width.
+         * @param fixedWeights Fixed-point weights.
+         * @param columns Kernel width.
+         * @param columnMap Source column for padded columns.
+         * @param rowMap Source row for padded rows.
+         */
+        DirectKernel(final int[] pixels, final int imageWidth, final int[] fixedWeights,
+                final int columns, final int[] columnMap, final int[] rowMap) {
+            src = pixels;
+            width = imageWidth;
+            weights = fixedWeights;
+            kernelWidth = columns;
+            xmap = columnMap;
+            ymap = rowMap;
+        }
+
+        /** Compute one row.
+         *
+         * @param y Row to compute.
+         * @param acc Premultiplied channel sums of the row (four values per pixel).
+         */
+        void convolveRow(final int y, final long[] acc) {
+            Arrays.fill(acc, 0);
+            for (int ky = 0; ky < weights.length / kernelWidth; ky++) {
+                int sy = ymap[y + ky];
+                if (sy < 0) {
+                    continue;
+                }
+                for (int kx = 0; kx < kernelWidth; kx++) {
+                    long w = weights[ky * kernelWidth + kx];
+                    if (w != 0) {
+                        addShiftedRow(acc, w, sy * width, kx);
+                    }
+                }
+            }
+        }
+
+        /** Add weighted source row shifted by kernel column.
+         *
+         * @param acc Premultiplied channel sums of the row.
+         * @param weight Fixed-point weight.
+         * @param rowStart Index of the source row.
+         * @param kx Kernel column.
+         */
+        private void addShiftedRow(final long[] acc, final long weight, final int rowStart,
+                final int kx) {
+            for (int x = 0; x < width; x++) {
+                int sx = xmap[x + kx];
+                if (sx >= 0) {
+                    addPremultiplied(acc, 4 * x, weight, src[rowStart + sx]);
+                }
+            }
+        }
+    }
+
+    /** Band of rows processed by one task. */
+    interface Band {
+        /** Process rows of the band.
+         *
+         * @param from First row (inclusive).
+         * @param to Last row (exclusive).
+         */
+        void run(int from, int to);
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/** Parser of doubles in text form.
+ *
+ * <p>
+ * Plain decimal numbers whose digits form an integer below 2<sup>53</sup>
+ * and that have small exponents (most of real data) are converted
+ * directly: both the digits and the power of ten are then exact doubles
+ * and a single multiplication or division is correctly rounded.
+ * Everything else (full-precision values, huge exponents, NaN, Infinity etc.)
+ * is handed over to Double.parseDouble(), except for syntax specific to
+ * Java literals (type suffixes and hexadecimal numbers) that is rejected.
+ */
+final class DoubleParser extends AbstractNumberParser {
+    /** Largest integer that is exactly representable as a double. */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /** Significant digits that can be accumulated without overflow. */
+    private static final int MAX_DIGITS = 18;
+
+    /** Exactly representable powers of ten. */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+    };
+
+    /** Largest exactly representable power of ten. */
+    private static final int MAX_EXACT_POWER = POWERS_OF_TEN.length - 1;
+
+    /** Exponent limit, anything bigger is out of double range anyway. */
+    private static final int MAX_EXPONENT = 100000;
+
+    /** Parsed values. */
+    private final DoubleStorage values = new DoubleStorage();
+
+    /** Index of the currently parsed byte. */
+    private int cursor;
+
+    /** Digits of the currently parsed number (as an integer). */
+    private long mantissa;
+
+    /** Number of digits in mantissa (without leading zeros). */
+    private int significantDigits;
+
+    /** Decimal exponent of the currently parsed number. */
+    private int decimalExponent;
+
+    /** Scratch space for numbers parsed by Double.parseDouble(). */
+    private byte[] slowText = new byte[MAX_DIGITS];
+
+    /** Constructor.
+     *
+     * @param what Source description for error messages.
+     */
+    private DoubleParser(final String what) {
+        super(what);
+    }
+
+    /** Read doubles from a text file.
+     *
+     * @param path Path to the file.
+     * @param parallel Whether to parse large files in parallel chunks.
+     * @return Parsed doubles.
+     * @throws Problem When file cannot be read or contains invalid numbers.
+     */
+    static DoubleStorage readFile(final String path, final boolean parallel) {
+        DoubleParser parser = new DoubleParser(describeFile(path));
+        parser.parseFile(path, parallel);
+        return parser.values;
+    }
+
+    /** Read doubles from a stream.
+     *
+     * @param in Input stream (not closed by this method).
+     * @return Parsed doubles.
+     * @throws Problem When stream cannot be read or contains invalid numbers.
+     */
+    static DoubleStorage readStream(final InputStream in) {
+        DoubleParser parser = new DoubleParser("input stream");
+        parser.parseStream(in);
+        return parser.values;
+    }
+
+    @Override
+    void parseNumber(final ByteBuffer buf, final int start, final int end) {
+        cursor = start;
+        boolean negative = skipSign(buf, end);
+        long digits = parseMantissa(buf, end);
+        if ((digits < 0) || !parseExponent(buf, end) || (cursor != end)
+                || (Math.abs(decimalExponent) > MAX_EXACT_POWER)) {
+            parseSlowly(buf, start, end);
+            return;
+        }
+
+        double value = digits;
+        if (decimalExponent < 0) {
+            value /= POWERS_OF_TEN[-decimalExponent];
+        } else {
+            value *= POWERS_OF_TEN[decimalExponent];
+        }
+        values.addDouble(negative ? -value : value);
+    }
+
+    @Override
+    AbstractNumberParser newChunkParser() {
+        return new DoubleParser(getSource());
+    }
+
+    @Override
+    void appendChunk(final AbstractNumberParser chunk) {
+        values.append(((DoubleParser) chunk).values);
+    }
+
+    /** Skip optional sign.
+     *
+     * @param buf Buffer with the input.
+     * @param end Index after the last byte of the number.
+     * @return Whether the sign was minus.
+     */
+    private boolean skipSign(final ByteBuffer buf, final int end) {
+        if (cursor == end) {
+            return false;
+        }
+        byte c = buf.get(cursor);
+        if ((c == '-') || (c == '+')) {
+            cursor++;
+        }
+        return c == '-';
+    }
+
+    /** Parse digits with optional decimal point.
+     *
+     * <p>
+     * Stops at the first byte that is not a digit (or second decimal point),
+     * the position of the decimal point is stored in decimalExponent.
+     *
+     * @param buf Buffer with the input.
+     * @param end Index after the last byte of the number.
+     * @return All digits as an integer, -1 if there are none or they are not exact as double.
+     */
+    private long parseMantissa(final ByteBuffer buf, final int end) {
+        mantissa = 0;
+        significantDigits = 0;
+        decimalExponent = 0;
+        final int first = cursor;
+        parseDigits(buf, end, false);
+        int digits = cursor - first;
+        if ((cursor < end) && (buf.get(cursor) == '.')) {
+            cursor++;
+            final int fractionStart = cursor;
+            parseDigits(buf, end, true);
+            digits += cursor - fractionStart;
+        }
+        boolean exact = (digits > 0) && (significantDigits <= MAX_DIGITS)
+                && (mantissa <= MAX_EXACT_MANTISSA);
+        return exact ? mantissa : -1;
+    }
+
+    /** Accumulate a run of decimal digits into the mantissa.
+     *
+     * @param buf Buffer with the input.
+     * @param end Index after the last byte of the number.
+     * @param fraction Whether the digits follow the decimal point.
+     */
+    private void parseDigits(final ByteBuffer buf, final int end, final boolean fraction) {
+        for (; (cursor < end) && isDigit(buf.get(cursor)); cursor++) {
+            if (significantDigits < MAX_DIGITS) {
+                mantissa = mantissa * 10 + (buf.get(cursor) - '0');
+            }
+            if (mantissa != 0) {
+                significantDigits++;
+            }
+            if (fraction) {
+                decimalExponent--;
+            }
+        }
+    }
+
+    /** Parse optional exponent part (e.g. <code>e-5</code>).
+     *
+     * @param buf Buffer with the input.
+     * @param end Index after the last byte of the number.
+     * @return Whether the exponent was well-formed (or missing).
+     */
+    private boolean parseExponent(final ByteBuffer buf, final int end) {
+        if ((cursor == end) || ((buf.get(cursor) != 'e') && (buf.get(cursor) != 'E'))) {
+            return true;
+        }
+        cursor++;
+        boolean negative = skipSign(buf, end);
+        int exponentStart = cursor;
+        int exponent = 0;
+        while ((cursor < end) && isDigit(buf.get(cursor))) {
+            exponent = Math.min(exponent * 10 + buf.get(cursor) - '0', MAX_EXPONENT);
+            cursor++;
+        }
+        decimalExponent += negative ? -exponent : exponent;
+        return cursor > exponentStart;
+    }
+
+    /** Tell whether given byte is a decimal digit.
+     *
+     * @param c Byte to check.
+     * @return Whether it is 0 to 9.
+     */
+    private static boolean isDigit(final byte c) {
+        return (c >= '0') && (c <= '9');
+    }
+
+    /** Tell whether number uses syntax of Java literals only.
+     *
+     * <p>
+     * Double.parseDouble() accepts also type suffixes (<code>1d</code>,
+     * <code>1f</code>), hexadecimal numbers (<code>0x1p3</code>) and
+     * surrounding control characters, none of which is a number in
+     * a data file.
+     *
+     * @param buf Buffer with the input.
+     * @param start Index of the first byte of the number.
+     * @param end Index after the last byte of the number.
+     * @return Whether the number must be rejected.
+     */
+    private static boolean isJavaSyntax(final ByteBuffer buf, final int start, final int end) {
+        switch (buf.get(end - 1)) {
+            case 'd':
+            case 'D':
+            case 'f':
+            case 'F':
+                return true;
+            default:
+                break;
+        }
+        for (int i = start; i < end; i++) {
+            byte c = buf.get(i);
+            if ((c <= ' ') || (c == 'x') || (c == 'X')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Parse number with Double.parseDouble().
+     *
+     * @param buf Buffer with the input.
+     * @param start Index of the first byte of the number.
+     * @param end Index after the last byte of the number.
+     * @throws Problem When the number is not valid.
+     */
+    private void parseSlowly(final ByteBuffer buf, final int start, final int end) {
+        if (isJavaSyntax(buf, start, end)) {
+            fail(buf, start, end);
+        }
+        int length = end - start;
+        if (slowText.length < length) {
+            slowText = new byte[length];
+        }
+        for (int i = 0; i < length; i++) {
+            slowText[i] = buf.get(start + i);
+        }
+        try {
+            values.addDouble(Double.parseDouble(
+                    new String(slowText, 0, length, StandardCharsets.ISO_8859_1)));
+        } catch (NumberFormatException e) {
+            fail(buf, start, end);
+        }
+    }
+}
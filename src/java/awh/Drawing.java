@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+/** Drawing of basic shapes into an image (see Image.draw()).
+ *
+ * <p>
+ * Shapes may extend outside of the image, only the visible part
+ * is drawn. Translucent colors are blended with the image.
+ * Smooth variants use anti-aliasing and accept fractional coordinates.
+ *
+ * <pre>
+ * photo.draw()
+ *     .fillRect(0, 0, 200, 30, Color.WHITE)
+ *     .drawSmoothLine(10.5, 15, 190.5, 15, Color.RED)
+ *     .fillSmoothCircle(100, 100, 20.5, Color.BLUE);
+ * </pre>
+ */
+public final class Drawing {
+    /** Name of the fill color argument (for messages). */
+    private static final String FILL_COLOR = "fill color";
+
+    /** Name of the line color argument (for messages). */
+    private static final String LINE_COLOR = "line color";
+
+    /** Image to draw into. */
+    private final Image image;
+
+    /** Constructor.
+     *
+     * @param image Image to draw into.
+     */
+    Drawing(final Image image) {
+        this.image = image;
+    }
+
+    /** Fill rectangle with given color.
+     *
+     * @param x Position of the left edge.
+     * @param y Position of the top edge.
+     * @param width Width of the rectangle.
+     * @param height Height of the rectangle.
+     * @param color Fill color.
+     * @return Reference to itself to allow chaining.
+     */
+    public Drawing fillRect(final int x, final int y, final int width, final int height,
+            final Color color) {
+        Problem.whenNull(color, FILL_COLOR);
+        Rasterizer.fillRect(image, x, y, width, height, color.toMergedRgb());
+        return this;
+    }
+
+    /** Draw one pixel wide line.
+     *
+     * @param x1 X coordinate of the start.
+     * @param y1 Y coordinate of the start.
+     * @param x2 X coordinate of the end.
+     * @param y2 Y coordinate of the end.
+     * @param color Line color.
+     * @return Reference to itself to allow chaining.
+     */
+    public Drawing drawLine(final int x1, final int y1, final int x2, final int y2,
+            final Color color) {
+        Problem.whenNull(color, LINE_COLOR);
+        Rasterizer.drawLine(image, x1, y1, x2, y2, color.toMergedRgb());
+        return this;
+    }
+
+    /** Fill circle with given color.
+     *
+     * @param cx X coordinate of the center.
+     * @param cy Y coordinate of the center.
+     * @param radius Circle radius.
+     * @param color Fill color.
+     * @return Reference to itself to allow chaining.
+     */
+    public Drawing fillCircle(final int cx, final int cy, final int radius, final Color color) {
+        return fillEllipse(cx, cy, radius, radius, color);
+    }
+
+    /** Fill ellipse with given color.
+     *
+     * @param cx X coordinate of the center.
+     * @param cy Y coordinate of the center.
+     * @param rx Horizontal radius.
+     * @param ry Vertical radius.
+     * @param color Fill color.
+     * @return Reference to itself to allow chaining.
+     */
+    public Drawing fillEllipse(final int cx, final int cy, final int rx, final int ry,
+            final Color color) {
+        Problem.whenNull(color, FILL_COLOR);
+        Rasterizer.fillEllipse(image, cx, cy, rx, ry, color.toMergedRgb());
+        return this;
+    }
+
+    /** Fill polygon with given color.
+     *
+     * @param xs X coordinates of the vertices.
+     * @param ys Y coordinates of the vertices.
+     * @param color Fill color.
+     * @return Reference to itself to allow chaining.
+     */
+    public Drawing fillPolygon(final int[] xs, final int[] ys, final Color color) {
+        Problem.whenNull(color, FILL_COLOR);
+        Rasterizer.fillPolygon(image, xs, ys, color.toMergedRgb());
+        return this;
+    }
+
+    /** Draw anti-aliased (smooth) line.
+     *
+     * @param x1 X coordinate of the start.
+     * @param y1 Y coordinate of the start.
+     * @param x2 X coordinate of the end.
+     * @param y2 Y coordinate of the end.
+     * @param color Line color.
+     * @return Reference to itself to allow chaining.
+     */
+    public Drawing drawSmoothLine(final double x1, final double y1, final double x2,
+            final double y2, final Color color) {
+        Problem.whenNull(color, LINE_COLOR);
+        SmoothRasterizer.drawSmoothLine(image, x1, y1, x2, y2, color.toMergedRgb());
+        return this;
+    }
+
+    /** Fill circle with anti-aliased (smooth) edges.
+     *
+     * @param cx X coordinate of the center.
+     * @param cy Y coordinate of the center.
+     * @param radius Circle radius.
+     * @param color Fill color.
+     * @return Reference to itself to allow chaining.
+     */
+    public Drawing fillSmoothCircle(final double cx, final double cy, final double radius,
+            final Color color) {
+        return fillSmoothEllipse(cx, cy, radius, radius, color);
+    }
+
+    /** Fill ellipse with anti-aliased (smooth) edges.
+     *
+     * @param cx X coordinate of the center.
+     * @param cy Y coordinate of the center.
+     * @param rx Horizontal radius.
+     * @param ry Vertical radius.
+     * @param color Fill color.
+     * @return Reference to itself to allow chaining.
+     */
+    public Drawing fillSmoothEllipse(final double cx, final double cy, final double rx,
+            final double ry, final Color color) {
+        Problem.whenNull(color, FILL_COLOR);
+        SmoothRasterizer.fillSmoothEllipse(image, cx, cy, rx, ry, color.toMergedRgb());
+        return this;
+    }
+
+    /** Fill polygon with anti-aliased (smooth) edges.
+     *
+     * @param xs X coordinates of the vertices.
+     * @param ys Y coordinates of the vertices.
+     * @param color Fill color.
+     * @return Reference to itself to allow chaining.
+     */
+    public Drawing fillSmoothPolygon(final double[] xs, final double[] ys, final Color color) {
+        Problem.whenNull(color, FILL_COLOR);
+        SmoothRasterizer.fillSmoothPolygon(image, xs, ys, color.toMergedRgb());
+        return this;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+/** How filters treat pixels outside of the image.
+ *
+ * <p>
+ * Filters such as blur need neighbours of every pixel, this decides
+ * what the neighbours of pixels near the image edge are.
+ */
+public enum EdgeMode {
+    /** Repeat the nearest edge pixel (the default). */
+    CLAMP,
+
+    /** Mirror the image at its edges (without repeating the edge pixel). */
+    MIRROR,
+
+    /** Continue from the opposite edge (for tiling textures). */
+    WRAP,
+
+    /** Treat outside pixels as transparent black. */
+    TRANSPARENT;
+
+    /** Map coordinate outside of the image to an existing one.
+     *
+     * @param coordinate Coordinate (possibly out of range).
+     * @param size Image size in given dimension.
+     * @return Coordinate inside the image or -1 for a transparent pixel.
+     */
+    int map(final int coordinate, final int size) {
+        if ((coordinate >= 0) && (coordinate < size)) {
+            return coordinate;
+        }
+        switch (this) {
+            case CLAMP:
+                return coordinate < 0 ? 0 : size - 1;
+            case MIRROR:
+                if (size == 1) {
+                    return 0;
+                }
+                int period = 2 * (size - 1);
+                int pos = Math.floorMod(coordinate, period);
+                return pos < size ? pos : period - pos;
+            case WRAP:
+                return Math.floorMod(coordinate, size);
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** Lazy reader of lines of a UTF-8 text file.
+ *
+ * <p>
+ * The file is read through one large direct buffer and decoded in bulk,
+ * lines are terminated by \n or \r\n. Invalid UTF-8 sequences are
+ * replaced by the replacement character.
+ */
+final class FileLines implements Iterator<String>, Closeable {
+    /** Size of the byte and character buffers. */
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    /** File path (for error messages). */
+    private final String path;
+
+    /** Open file. */
+    private final FileChannel channel;
+
+    /** Bytes read from the file (in read mode between fills). */
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /** Decoded characters (in read mode). */
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+    /** UTF-8 decoder. */
+    private final CharsetDecoder decoder = newDecoder();
+
+    /** Start of a line spanning several buffers. */
+    private final StringBuilder pending = new StringBuilder();
+
+    /** Whether the whole file was read and decoded. */
+    private boolean endOfFile;
+
+    /** Next line (null when not read yet). */
+    private String nextLine;
+
+    /** Open file for reading.
+     *
+     * @param filePath File path.
+     * @throws Problem When file cannot be opened.
+     */
+    FileLines(final String filePath) {
+        path = filePath;
+        try {
+            channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new Problem(e, "Failed to read lines from '%s' (%s).", path, e.getMessage());
+        }
+        bytes.flip();
+        chars.flip();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextLine == null) {
+            nextLine = readLine();
+        }
+        return nextLine != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String res = nextLine;
+        nextLine = null;
+        return res;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new Problem(e, "Failed to close '%s' (%s).", path, e.getMessage());
+        }
+    }
+
+    /** Read next line.
+     *
+     * @return Next line or null at end of file.
+     */
+    private String readLine() {
+        while (true) {
+            char[] array = chars.array();
+            int start = chars.position();
+            int end = chars.limit();
+            for (int i = start; i < end; i++) {
+                if (array[i] == '\n') {
+                    chars.position(i + 1);
+                    return finishLine(array, start, i);
+                }
+            }
+            pending.append(array, start, end - start);
+            chars.position(end);
+
+            if (endOfFile) {
+                if (pending.length() == 0) {
+                    return null;
+                }
+                return finishLine(array, end, end);
+            }
+            fill();
+        }
+    }
+
+    /** Create line from pending characters and part of the buffer.
+     *
+     * @param array Buffer with characters.
+     * @param start Start of the line in the buffer.
+     * @param end End of the line (position of \n) in the buffer.
+     * @return Line without the terminator.
+     */
+    private String finishLine(final char[] array, final int start, final int end) {
+        String res;
+        if (pending.length() == 0) {
+            int last = end;
+            if ((last > start) && (array[last - 1] == '\r')) {
+                last--;
+            }
+            res = new String(array, start, last - start);
+        } else {
+            pending.append(array, start, end - start);
+            int length = pending.length();
+            if (pending.charAt(length - 1) == '\r') {
+                length--;
+            }
+            res = pending.substring(0, length);
+            pending.setLength(0);
+        }
+        return res;
+    }
+
+    /** Read and decode next block of the file. */
+    private void fill() {
+        chars.clear();
+        bytes.compact();
+        try {
+            if (channel.read(bytes) < 0) {
+                endOfFile = true;
+            }
+        } catch (IOException e) {
+            throw new Problem(e, "Failed to read lines from '%s' (%s).", path, e.getMessage());
+        }
+        bytes.flip();
+        decoder.decode(bytes, chars, endOfFile);
+        if (endOfFile) {
+            decoder.flush(chars);
+        }
+        chars.flip();
+    }
+
+    /** Create UTF-8 decoder that replaces invalid input.
+     *
+     * @return New decoder.
+     */
+    private static CharsetDecoder newDecoder() {
+        CharsetDecoder res = StandardCharsets.UTF_8.newDecoder();
+        res.onMalformedInput(CodingErrorAction.REPLACE);
+        res.onUnmappableCharacter(CodingErrorAction.REPLACE);
+        return res;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+/** Filters changing pixels of an image in place (see Image.filter()).
+ *
+ * <p>
+ * Blurs and convolutions compute each pixel from its neighbourhood,
+ * color adjustments change each pixel on its own. All of them process
+ * the whole image in parallel.
+ *
+ * <pre>
+ * photo.filter()
+ *     .gaussianBlur(1.5)
+ *     .autoLevels()
+ *     .adjust(new ColorAdjustment().contrast(1.2));
+ * </pre>
+ */
+public final class Filters {
+    /** Name of the edge mode argument (for messages). */
+    private static final String EDGE_MODE = "edge mode";
+
+    /** Image to filter. */
+    private final Image image;
+
+    /** Constructor.
+     *
+     * @param image Image to filter.
+     */
+    Filters(final Image image) {
+        this.image = image;
+    }
+
+    /** Apply convolution kernel (e.g. sharpening) to the image.
+     *
+     * <p>
+     * Pixels outside of the image are taken from the nearest edge.
+     *
+     * @param kernel Kernel to apply.
+     * @return Reference to itself to allow chaining.
+     */
+    public Filters convolve(final Kernel kernel) {
+        return convolve(kernel, EdgeMode.CLAMP);
+    }
+
+    /** Apply convolution kernel to the image.
+     *
+     * @param kernel Kernel to apply.
+     * @param edges Treatment of pixels outside of the image.
+     * @return Reference to itself to allow chaining.
+     */
+    public Filters convolve(final Kernel kernel, final EdgeMode edges) {
+        Problem.whenNull(kernel, "kernel");
+        Problem.whenNull(edges, EDGE_MODE);
+        Convolution.convolve(image, kernel, edges);
+        return this;
+    }
+
+    /** Blur the image by averaging square neighbourhood of each pixel.
+     *
+     * <p>
+     * The speed does not depend on the radius.
+     *
+     * @param radius Blur radius in pixels.
+     * @return Reference to itself to allow chaining.
+     */
+    public Filters boxBlur(final int radius) {
+        return boxBlur(radius, EdgeMode.CLAMP);
+    }
+
+    /** Blur the image by averaging square neighbourhood of each pixel.
+     *
+     * @param radius Blur radius in pixels.
+     * @param edges Treatment of pixels outside of the image.
+     * @return Reference to itself to allow chaining.
+     */
+    public Filters boxBlur(final int radius, final EdgeMode edges) {
+        Problem.whenNotInRange("blur radius", radius, 0, Kernel.MAX_SIZE / 2 + 1);
+        Problem.whenNull(edges, EDGE_MODE);
+        BoxBlur.blur(image, radius, edges);
+        return this;
+    }
+
+    /** Blur the image with (approximate) Gaussian blur.
+     *
+     * <p>
+     * The speed does not depend on sigma, use convolve(Kernel.gaussian(sigma))
+     * for the exact (but slower) one.
+     *
+     * @param sigma Standard deviation in pixels.
+     * @return Reference to itself to allow chaining.
+     */
+    public Filters gaussianBlur(final double sigma) {
+        return gaussianBlur(sigma, EdgeMode.CLAMP);
+    }
+
+    /** Blur the image with (approximate) Gaussian blur.
+     *
+     * @param sigma Standard deviation in pixels.
+     * @param edges Treatment of pixels outside of the image.
+     * @return Reference to itself to allow chaining.
+     */
+    public Filters gaussianBlur(final double sigma, final EdgeMode edges) {
+        Kernel.checkSigma(sigma);
+        Problem.whenNull(edges, EDGE_MODE);
+        BoxBlur.gaussian(image, sigma, edges);
+        return this;
+    }
+
+    /** Spread values evenly over the whole range (histogram equalization).
+     *
+     * <p>
+     * Each color channel is equalized separately, this improves
+     * contrast of dull photos but may change their colors.
+     * @return Reference to itself to allow chaining.
+     */
+    public Filters histogramEqualize() {
+        ColorTables.equalize(image);
+        return this;
+    }
+
+    /** Stretch each color channel to the full range (auto levels).
+     *
+     * <p>
+     * The darkest and brightest half percent of pixels are ignored
+     * when finding the range. This also removes a color cast.
+     * @return Reference to itself to allow chaining.
+     */
+    public Filters autoLevels() {
+        ColorTables.autoLevels(image);
+        return this;
+    }
+
+    /** Apply chain of color adjustments (in a single pass when possible).
+     *
+     * @param adjustment Adjustments to apply.
+     * @return Reference to itself to allow chaining.
+     */
+    public Filters adjust(final ColorAdjustment adjustment) {
+        Problem.whenNull(adjustment, "color adjustment");
+        adjustment.applyTo(image);
+        return this;
+    }
+
+    /** Replace channel values using lookup tables.
+     *
+     * @param red New red for each of 256 values (null to keep the channel).
+     * @param green New green for each of 256 values (null to keep the channel).
+     * @param blue New blue for each of 256 values (null to keep the channel).
+     * @param alpha New alpha for each of 256 values (null to keep the channel).
+     * @return Reference to itself to allow chaining.
+     */
+    public Filters applyLut(final int[] red, final int[] green, final int[] blue,
+            final int[] alpha) {
+        return adjust(new ColorAdjustment().lut(red, green, blue, alpha));
+    }
+
+    /** Mix color channels using a matrix (see ColorAdjustment.matrix()).
+     *
+     * @param matrix Color matrix, 4 rows of 5 numbers.
+     * @return Reference to itself to allow chaining.
+     */
+    public Filters applyColorMatrix(final double... matrix) {
+        return adjust(new ColorAdjustment().matrix(matrix));
+    }
+}
@@ -25,9 +25,9 @@ package awh;
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
-import javax.imageio.ImageIO;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 
 /** Raster image representation. */
 public final class Image {
@@ -41,15 +41,33 @@ public final class Image {
      */
     private static final int MAX_DIMENSION = Short.MAX_VALUE;
 
-    /** Actual image. */
+    /** Pixels processed by bulk operations (metrics). */
+    private static final MetricCounter PIXELS_PROCESSED = Metrics.counter("image.pixels");
+
+    /** Actual image (always of TYPE_INT_ARGB). */
     private BufferedImage backend;
 
+    /** Pixels of the backend image (ARGB, row by row, possibly shared with other images). */
+    private int[] pixels;
+
+    /** Index of the top-left pixel in the pixels array. */
+    private int offset;
+
+    /** Distance between rows in the pixels array. */
+    private int stride;
+
+    /** Image width (cached from the backend). */
+    private int width;
+
+    /** Image height (cached from the backend). */
+    private int height;
+
     /** Constructor from existing image.
      *
      * @param im Existing image.
      */
     private Image(final BufferedImage im) {
-        backend = im;
+        setBackend(im);
     }
 
     /** Load image from file on disk.
@@ -59,16 +77,7 @@ public final class Image {
      * @throws Problem When image cannot be loaded.
      */
     public static Image loadFromFile(final String path) {
-        Problem.whenNull(path, "image path");
-
-        BufferedImage image;
-        try {
-            image = ImageIO.read(new File(path));
-        } catch (IOException e) {
-            throw new Problem(String.format("Failed to load image from '%s' (%s).",
-                    path, e.getMessage()));
-        }
-        return new Image(image);
+        return new Image(ImageFiles.load(path));
     }
 
     /** Create empty image.
@@ -97,7 +106,58 @@ public final class Image {
      * @return Copy of this image.
      */
     public Image copy() {
-        return new Image(recreateImage(backend, BufferedImage.TYPE_INT_ARGB));
+        PIXELS_PROCESSED.add((long) width * height);
+        Image res = createBlank(width, height);
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(pixels, offset + y * stride, res.pixels, y * width, width);
+        }
+        return res;
+    }
+
+    /** Get view of a rectangular part of this image.
+     *
+     * <p>
+     * The view shares pixels with this image (nothing is copied),
+     * changes made through the view are visible in this image and
+     * vice versa. Note that rescale() makes the view a standalone image.
+     *
+     * @param x Left edge of the region.
+     * @param y Top edge of the region.
+     * @param regionWidth Region width.
+     * @param regionHeight Region height.
+     * @return Image representing the region.
+     * @throws Problem When the region does not fit into this image.
+     */
+    public Image view(final int x, final int y, final int regionWidth, final int regionHeight) {
+        checkPosition(x, y);
+        Problem.whenNotInRange("view width", regionWidth, 1, width - x + 1);
+        Problem.whenNotInRange("view height", regionHeight, 1, height - y + 1);
+
+        return new Image(backend.getSubimage(x, y, regionWidth, regionHeight));
+    }
+
+    /** Create image with all pixels transparent black.
+     *
+     * <p>
+     * Faster than createEmpty(), for library code that overwrites all
+     * the pixels anyway.
+     *
+     * @param width Image width.
+     * @param height Image height.
+     * @return New image.
+     */
+    static Image createBlank(final int width, final int height) {
+        checkDimensions(width, height);
+        return new Image(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB));
+    }
+
+    /** Create image from an AWT image (converted when not of TYPE_INT_ARGB).
+     *
+     * @param im AWT image.
+     * @return New image.
+     */
+    static Image wrap(final BufferedImage im) {
+        return new Image(im);
     }
 
     /** Tell image width.
@@ -105,7 +165,7 @@ public final class Image {
      * @return Image width in pixels.
      */
     public int getWidth() {
-        return backend.getWidth();
+        return width;
     }
 
     /** Tell image height.
@@ -113,7 +173,7 @@ public final class Image {
      * @return Image height in pixels.
      */
     public int getHeight() {
-        return backend.getHeight();
+        return height;
     }
 
     /** Get color at given position.
@@ -125,7 +185,7 @@ public final class Image {
     public Color getPixel(final int x, final int y) {
         checkPosition(x, y);
 
-        return Color.fromMergedRgb(backend.getRGB(x, y));
+        return Color.fromMergedRgb(pixels[offset + y * stride + x]);
     }
 
     /** Set color at given position.
@@ -138,7 +198,30 @@ public final class Image {
         checkPosition(x, y);
         Problem.whenNull(color, "new pixel color");
 
-        backend.setRGB(x, y, color.toMergedRgb());
+        pixels[offset + y * stride + x] = color.toMergedRgb();
+    }
+
+    /** Read whole row of pixels at once.
+     *
+     * <p>
+     * Colors are returned in merged RGB notation (see Color.toMergedRgb())
+     * so reading large images does not create any objects when the
+     * destination array is reused.
+     *
+     * @param y Row to read (zero based, top to bottom).
+     * @param dest Destination array, new one is created when null or too short.
+     * @return Array with the pixels (first getWidth() items are valid).
+     */
+    public int[] getRow(final int y, final int[] dest) {
+        checkPosition(0, y);
+
+        int[] res = dest;
+        if ((res == null) || (res.length < width)) {
+            res = new int[width];
+        }
+        System.arraycopy(pixels, offset + y * stride, res, 0, width);
+        PIXELS_PROCESSED.add(width);
+        return res;
     }
 
     /** Get image as BufferedImage from awt package.
@@ -151,6 +234,36 @@ public final class Image {
         return backend;
     }
 
+    /** Get pixels of the image for bulk processing.
+     *
+     * <p>
+     * Pixels are stored row by row in ARGB format, library code uses
+     * this to process the whole image after checking the bounds once.
+     * Pixel [x, y] is at index getOffsetUnsafe() + y * getStrideUnsafe() + x
+     * (views share the array with the whole image).
+     *
+     * @return Reference (not copy!) of the backend pixels.
+     */
+    int[] getPixelsUnsafe() {
+        return pixels;
+    }
+
+    /** Get index of the top-left pixel in getPixelsUnsafe().
+     *
+     * @return Index of pixel [0, 0].
+     */
+    int getOffsetUnsafe() {
+        return offset;
+    }
+
+    /** Get distance between rows in getPixelsUnsafe().
+     *
+     * @return Row stride (equal to width unless this is a view).
+     */
+    int getStrideUnsafe() {
+        return stride;
+    }
+
     /** Rescale image to new size.
      *
      * @param newWidth New width (in pixels).
@@ -159,28 +272,162 @@ public final class Image {
     public void rescale(final int newWidth, final int newHeight) {
         checkDimensions(newWidth, newHeight);
 
-        java.awt.Image rescaled = backend.getScaledInstance(newWidth, newHeight,
-                java.awt.Image.SCALE_SMOOTH);
-        if (rescaled instanceof BufferedImage) {
-            backend = (BufferedImage) rescaled;
-        } else {
-            backend = recreateImage(rescaled, BufferedImage.TYPE_INT_ARGB);
-        }
+        setBackend(Transforms.rescale(this, newWidth, newHeight).backend);
+    }
+
+    /** Rotate the image by 90 degrees clockwise.
+     *
+     * <p>
+     * Width and height of the image are swapped. Square images are rotated
+     * in place, others get new pixels (a view then stops sharing pixels
+     * with its parent image, as with rescale()).
+     */
+    public void rotate90() {
+        replaceWith(Transforms.rotate90(this));
+    }
+
+    /** Rotate the image by 180 degrees. */
+    public void rotate180() {
+        Transforms.rotate180(this);
+    }
+
+    /** Rotate the image by 90 degrees counterclockwise.
+     *
+     * <p>
+     * Width and height of the image are swapped. Square images are rotated
+     * in place, others get new pixels (a view then stops sharing pixels
+     * with its parent image, as with rescale()).
+     */
+    public void rotate270() {
+        replaceWith(Transforms.rotate270(this));
+    }
+
+    /** Rotate the image by arbitrary angle.
+     *
+     * <p>
+     * The image grows to hold the whole rotated picture, the corners
+     * are transparent. Apart from right angles (handled as by rotate90()
+     * etc.), the image gets new pixels and a view stops sharing pixels
+     * with its parent image.
+     *
+     * @param degrees Clockwise angle in degrees.
+     * @throws Problem When the angle is not a finite number.
+     */
+    public void rotate(final double degrees) {
+        replaceWith(Transforms.rotate(this, degrees));
+    }
+
+    /** Mirror the image horizontally (swap left and right). */
+    public void flipHorizontal() {
+        Transforms.flipHorizontal(this);
+    }
+
+    /** Mirror the image vertically (swap top and bottom). */
+    public void flipVertical() {
+        Transforms.flipVertical(this);
+    }
+
+    /** Mirror the image along its main diagonal (swap rows and columns).
+     *
+     * <p>
+     * Square images are transposed in place, others get new pixels (a view
+     * then stops sharing pixels with its parent image, as with rescale()).
+     */
+    public void transpose() {
+        replaceWith(Transforms.transpose(this));
+    }
+
+    /** Build pyramid of successively halved copies of the image.
+     *
+     * <p>
+     * Use it when the same image is needed in several sizes: unlike
+     * rescale(), the pyramid creates new images and leaves this one
+     * untouched.
+     *
+     * @return Image pyramid.
+     */
+    public ImagePyramid pyramid() {
+        return new ImagePyramid(this);
     }
 
     /** Insert another image into this one.
+     *
+     * <p>
+     * Transparent parts of the other image are blended with this one,
+     * parts that do not fit into this image are ignored.
      *
      * @param other Other image to insert.
      * @param x Position of left-top corner of the inserted image.
      * @param y Position of left-top corner of the inserted image.
      */
     public void pasteFrom(final Image other, final int x, final int y) {
-        checkPosition(x, y);
-        Problem.whenNull(backend, "image to be pasted");
+        Problem.whenNull(other, "image to be pasted");
 
-        Graphics2D gr = backend.createGraphics();
-        gr.drawImage(other.backend, x, y, null);
-        gr.dispose();
+        Blitter.paste(this, other, x, y, true);
+    }
+
+    /** Insert many images at once (see SpriteBatch).
+     *
+     * @param batch Images to insert.
+     */
+    public void pasteAll(final SpriteBatch batch) {
+        Problem.whenNull(batch, "sprite batch");
+
+        Blitter.pasteAll(this, batch);
+    }
+
+    /** Draw shapes (lines, rectangles, circles etc.) into the image.
+     *
+     * @return Object drawing into this image.
+     */
+    public Drawing draw() {
+        return new Drawing(this);
+    }
+
+    /** Compute histograms and other statistics of all pixels.
+     *
+     * @return Statistics of this image.
+     */
+    public ImageStatistics statistics() {
+        return ImageStatistics.compute(this);
+    }
+
+    /** Build summed-area tables of given channels.
+     *
+     * <p>
+     * The result answers sum and mean of any rectangle in constant time
+     * (see IntegralImage).
+     *
+     * @param channels Channels to include (red, green and blue when none are given).
+     * @return Tables of given channels.
+     */
+    public IntegralImage integral(final Channel... channels) {
+        return IntegralImage.compute(this, false, channels);
+    }
+
+    /** Build summed-area tables of given channels and of their squares.
+     *
+     * @param channels Channels to include (red, green and blue when none are given).
+     * @return Tables answering also variance of any rectangle.
+     */
+    public IntegralImage integralWithVariance(final Channel... channels) {
+        return IntegralImage.compute(this, true, channels);
+    }
+
+    /** Apply filters (blur, color adjustments etc.) to the image.
+     *
+     * @return Object filtering this image.
+     */
+    public Filters filter() {
+        return new Filters(this);
+    }
+
+    /** Start lazy chain of operations (computed in a single pass).
+     *
+     * @return New pipeline reading this image.
+     */
+    public ImagePipeline pipeline() {
+        return new ImagePipeline(this);
     }
 
     /** Save image to file.
@@ -192,56 +439,37 @@ public final class Image {
      * @param path Destination file path.
      */
     public void saveToFile(final String path) {
-        Problem.whenNull(path, "file path");
-
-        String format = determineImageFormatFromFilename(path);
-        try {
-            BufferedImage toSave = backend;
-            if ("JPEG".equals(format)) {
-                toSave = recreateImage(backend, BufferedImage.TYPE_INT_RGB);
-            }
-            ImageIO.write(toSave, format, new File(path));
-        } catch (IOException e) {
-            throw new Problem("Failed to save image to '%s' as %s (%s).",
-                    path, format, e.getMessage());
-        }
+        ImageFiles.save(this, path);
     }
 
-    /** Convert existing image to a new type.
+    /** Take over pixels of a transformed image.
      *
-     * @param im Image to be converted.
-     * @param type New type (see constructor of BufferedImage class for available types).
-     * @return Converted image.
+     * @param transformed Result of a transformation (this image when done in place).
      */
-    private static BufferedImage recreateImage(final java.awt.Image im, final int type) {
-        BufferedImage res = new BufferedImage(im.getWidth(null), im.getHeight(null), type);
-        Graphics2D gr = res.createGraphics();
-        gr.drawImage(im, 0, 0, null);
-        gr.dispose();
-        return res;
+    private void replaceWith(final Image transformed) {
+        if (transformed != this) {
+            setBackend(transformed.backend);
+        }
     }
 
-    /** Determine image format from a filename.
+    /** Replace the backend image.
      *
-     * @param path File path.
-     * @return Image format recognizable by javax.imageio.ImageIO class.
+     * @param im New image (converted to TYPE_INT_ARGB when of other type).
      */
-    private String determineImageFormatFromFilename(final String path) {
-        String ext;
-        try {
-            ext = Sys.getFileExtension(path).toLowerCase();
-        } catch (Problem e) {
-            ext = "";
-        }
-        if ("png".equals(ext)) {
-            return "PNG";
-        } else if ("jpg".equals(ext) || "jpeg".equals(ext)) {
-            return "JPEG";
-        } else if ("gif".equals(ext)) {
-            return "GIF";
+    private void setBackend(final BufferedImage im) {
+        if (im.getType() == BufferedImage.TYPE_INT_ARGB) {
+            backend = im;
         } else {
-            throw new Problem("Failed to determine image format from path '%s'.", path);
+            backend = ImageFiles.recreateImage(im, BufferedImage.TYPE_INT_ARGB);
         }
+        WritableRaster raster = backend.getRaster();
+        DataBufferInt data = (DataBufferInt) raster.getDataBuffer();
+        pixels = data.getData();
+        stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+        offset = data.getOffset() - raster.getSampleModelTranslateY() * stride
+                - raster.getSampleModelTranslateX();
+        width = backend.getWidth();
+        height = backend.getHeight();
     }
 
     /** Check that given coordinates are valid for current picture.
@@ -251,8 +479,10 @@ public final class Image {
      * @throws Problem When one of the coordinates is out of range.
      */
     private void checkPosition(final int x, final int y) {
-        Problem.whenNotInRange("x coordinate", x, 0, getWidth());
-        Problem.whenNotInRange("y coordinate", y, 0, getHeight());
+        if ((x < 0) || (x >= width) || (y < 0) || (y >= height)) {
+            Problem.whenNotInRange("x coordinate", x, 0, width);
+            Problem.whenNotInRange("y coordinate", y, 0, height);
+        }
     }
 
     /** Check that given dimensions are valid.
@@ -261,7 +491,7 @@ public final class Image {
      * @param height Image height.
      * @throws Problem When dimensions are either too big or negative.
      */
-    private static void checkDimensions(final int width, final int height) {
+    static void checkDimensions(final int width, final int height) {
         Problem.whenNotInRange("new image width", width, 1, MAX_DIMENSION);
         Problem.whenNotInRange("new image height", height, 1, MAX_DIMENSION);
     }
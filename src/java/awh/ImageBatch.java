@@ -0,0 +1,303 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/** Process all images in a directory in parallel.
+ *
+ * <p>
+ * Loading, processing and saving of different images overlap: files
+ * are loaded and saved by I/O threads while the operations run on the
+ * shared compute pool. The number of images (and pixels) in flight is
+ * limited to keep memory usage under control.
+ *
+ * <p>
+ * Images whose output is newer than the input are skipped, so an
+ * interrupted batch continues where it stopped when run again.
+ *
+ * <pre>
+ * BatchSummary summary = ImageBatch.fromDirectory("photos", "thumbnails")
+ *         .rescale(480, 270)
+ *         .saveAs("jpg")
+ *         .run();
+ * System.out.println(summary);
+ * </pre>
+ */
+public final class ImageBatch {
+    /** Default limit of pixels in flight (about 1 GB of memory). */
+    private static final long DEFAULT_MAX_PIXELS = 256L * 1024 * 1024;
+
+    /** Images in flight per core. */
+    private static final int IMAGES_PER_CORE = 4;
+
+    /** Recognized image extensions. */
+    private static final List<String> EXTENSIONS = Arrays.asList("png", "jpg", "jpeg", "gif");
+
+    /** Images in flight (metrics). */
+    private static final MetricCounter QUEUE_DEPTH = Metrics.gauge("batch.queue.depth");
+
+    /** Directory with input images. */
+    private final File inputDir;
+
+    /** Directory for the results. */
+    private final File outputDir;
+
+    /** Operations applied to each image. */
+    private final List<Consumer<Image>> operations = new ArrayList<>();
+
+    /** Extension of output files (null to keep the input one). */
+    private String outputExtension;
+
+    /** Maximum number of pixels in flight. */
+    private long maxPixels = DEFAULT_MAX_PIXELS;
+
+    /** Constructor.
+     *
+     * @param input Directory with input images.
+     * @param output Directory for the results.
+     */
+    private ImageBatch(final File input, final File output) {
+        inputDir = input;
+        outputDir = output;
+    }
+
+    /** Prepare processing of all images in a directory.
+     *
+     * @param inputDir Directory with input images (PNG, JPEG and GIF).
+     * @param outputDir Directory for the results (created when missing).
+     * @return New batch without any operations.
+     */
+    public static ImageBatch fromDirectory(final String inputDir, final String outputDir) {
+        Problem.whenNull(inputDir, "input directory");
+        Problem.whenNull(outputDir, "output directory");
+
+        return new ImageBatch(new File(inputDir), new File(outputDir));
+    }
+
+    /** Rescale each image.
+     *
+     * @param width New width (in pixels).
+     * @param height New height (in pixels).
+     * @return Reference to itself to allow chaining.
+     */
+    public ImageBatch rescale(final int width, final int height) {
+        Image.checkDimensions(width, height);
+
+        return apply(image -> image.rescale(width, height));
+    }
+
+    /** Change color of each pixel.
+     *
+     * @param mapping Function computing new color from the original one.
+     * @return Reference to itself to allow chaining.
+     */
+    public ImageBatch mapColors(final UnaryOperator<Color> mapping) {
+        Problem.whenNull(mapping, "color mapping");
+
+        return apply(image -> {
+            int[] pixels = image.getPixelsUnsafe();
+            for (int y = 0; y < image.getHeight(); y++) {
+                int rowStart = image.getOffsetUnsafe() + y * image.getStrideUnsafe();
+                for (int i = rowStart; i < rowStart + image.getWidth(); i++) {
+                    pixels[i] = mapping.apply(Color.fromMergedRgb(pixels[i])).toMergedRgb();
+                }
+            }
+        });
+    }
+
+    /** Apply any operation on each image.
+     *
+     * @param operation Operation modifying the image.
+     * @return Reference to itself to allow chaining.
+     */
+    public ImageBatch apply(final Consumer<Image> operation) {
+        Problem.whenNull(operation, "image operation");
+
+        operations.add(operation);
+        return this;
+    }
+
+    /** Save results in a different format.
+     *
+     * @param extension Extension (and thus format) of the output files, e.g. png.
+     * @return Reference to itself to allow chaining.
+     */
+    public ImageBatch saveAs(final String extension) {
+        Problem.whenNull(extension, "output extension");
+        ImageFiles.formatFromFilename("image." + extension);
+
+        outputExtension = extension;
+        return this;
+    }
+
+    /** Limit memory used by images being processed.
+     *
+     * @param pixels Maximum number of pixels of images in flight.
+     * @return Reference to itself to allow chaining.
+     */
+    public ImageBatch maxPixelsInFlight(final long pixels) {
+        Problem.whenNotInRange("pixels in flight", pixels, 1, Long.MAX_VALUE);
+
+        maxPixels = pixels;
+        return this;
+    }
+
+    /** Process all images.
+     *
+     * <p>
+     * Failure of one image does not stop the batch, failures are
+     * reported in the summary instead.
+     *
+     * @return Summary of the processing.
+     * @throws Problem When the directories cannot be used.
+     */
+    public BatchSummary run() {
+        File[] inputs = inputDir.listFiles(file -> file.isFile()
+                && EXTENSIONS.contains(Sys.getFileExtension(file.getName()).toLowerCase()));
+        if (inputs == null) {
+            throw new Problem("Cannot list images in '%s'.", inputDir);
+        }
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new Problem("Cannot create output directory '%s'.", outputDir);
+        }
+        Arrays.sort(inputs);
+
+        BatchSummary summary = new BatchSummary();
+        PixelBudget budget = new PixelBudget(maxPixels,
+                IMAGES_PER_CORE * Runtime.getRuntime().availableProcessors());
+        long start = System.nanoTime();
+        try {
+            for (File input : inputs) {
+                File output = getOutputFile(input);
+                if (output.lastModified() >= input.lastModified()) {
+                    summary.addSkipped();
+                    continue;
+                }
+                long pixels = peekPixels(input);
+                budget.acquire(pixels);
+                QUEUE_DEPTH.increment();
+                process(input, output, pixels).whenComplete((res, e) -> {
+                    if (e != null) {
+                        summary.addFailure(input.getPath(), describe(e));
+                    } else {
+                        summary.addProcessed(pixels);
+                    }
+                    QUEUE_DEPTH.decrement();
+                    budget.release(pixels);
+                });
+            }
+            budget.awaitEmpty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Problem(e, "Interrupted while processing images from '%s'.", inputDir);
+        }
+        summary.setElapsedNanos(System.nanoTime() - start);
+        return summary;
+    }
+
+    /** Start processing of a single image.
+     *
+     * @param input Input image.
+     * @param output Where to store the result.
+     * @param pixels Pixels of the input image.
+     * @return Future completed when the result is saved.
+     */
+    private CompletableFuture<Void> process(final File input, final File output,
+            final long pixels) {
+        Supplier<Image> load = () -> Image.loadFromFile(input.getPath());
+        Consumer<Image> save = image -> ImageFiles.saveAtomically(image, output.getPath());
+        CompletableFuture<Image> loaded = CompletableFuture.supplyAsync(load,
+                Parallel.ioExecutor());
+        CompletableFuture<Image> edited = loaded.thenApplyAsync(image -> {
+            for (Consumer<Image> op : operations) {
+                op.accept(image);
+            }
+            return image;
+        }, Parallel.computePool());
+        return edited.thenAcceptAsync(save, Parallel.ioExecutor());
+    }
+
+    /** Determine output file for given input.
+     *
+     * @param input Input image.
+     * @return Output file.
+     */
+    private File getOutputFile(final File input) {
+        if (outputExtension == null) {
+            return new File(outputDir, input.getName());
+        }
+        return new File(outputDir, Sys.getBaseName(input.getName()) + "." + outputExtension);
+    }
+
+    /** Read image dimensions without decoding the image.
+     *
+     * @param input Image file.
+     * @return Number of pixels (1 when it cannot be determined).
+     */
+    private static long peekPixels(final File input) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(input)) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if ((readers == null) || !readers.hasNext()) {
+                return 1;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return (long) reader.getWidth(0) * reader.getHeight(0);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            return 1;
+        }
+    }
+
+    /** Describe failure of an image.
+     *
+     * @param failure Exception thrown while processing the image.
+     * @return Failure description.
+     */
+    private static String describe(final Throwable failure) {
+        Throwable cause = failure;
+        while ((cause.getCause() != null)
+                && (cause instanceof CompletionException)) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() == null ? cause.toString() : cause.getMessage();
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Cache of loaded and rescaled images (e.g. thumbnails).
+ *
+ * <p>
+ * Results of loading and rescaling are stored on disk as raw pixels
+ * (which load much faster than PNG or JPEG) and the most recently
+ * used ones are also kept in memory. Cached images are found by the
+ * canonical path, modification time and size of the original file and
+ * the requested dimensions, so changed files are always loaded again.
+ *
+ * <p>
+ * Disk usage is limited, least recently used images are removed when
+ * the limit is exceeded. Images in memory can be released by the
+ * garbage collector when memory runs low.
+ *
+ * <pre>
+ * ImageCache cache = ImageCache.open(".thumbnails", 500_000_000);
+ * Image thumbnail = cache.loadRescaled("photo.jpg", 480, 270);
+ * </pre>
+ */
+public final class ImageCache {
+    /** Default limit of memory used by images (in bytes). */
+    private static final long DEFAULT_MEMORY_LIMIT = 64L * 1024 * 1024;
+
+    /** Extension of files with cached images. */
+    private static final String EXTENSION = ".raster";
+
+    /** Identification of the rescaling algorithm (part of the key). */
+    private static final String RESCALE_KERNEL = "smooth";
+
+    /** Number of bytes of the hash used as the file name. */
+    private static final int KEY_BYTES = 16;
+
+    /** Images found in memory (metrics). */
+    private static final MetricCounter MEMORY_HITS = Metrics.counter("cache.memory.hits");
+
+    /** Images found on disk (metrics). */
+    private static final MetricCounter DISK_HITS = Metrics.counter("cache.disk.hits");
+
+    /** Images that had to be loaded (metrics). */
+    private static final MetricCounter MISSES = Metrics.counter("cache.misses");
+
+    /** Directory with cached images. */
+    private final File directory;
+
+    /** Maximum disk usage. */
+    private final long maxDiskBytes;
+
+    /** Maximum memory usage. */
+    private long maxMemoryBytes = DEFAULT_MEMORY_LIMIT;
+
+    /** Files in the cache directory with their sizes (least recently used first). */
+    private final LinkedHashMap<String, Long> diskEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Current disk usage. */
+    private long diskBytes;
+
+    /** Images in memory (least recently used first). */
+    private final LinkedHashMap<String, MemoryEntry> memoryEntries =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Current memory usage. */
+    private long memoryBytes;
+
+    /** Requests served from memory. */
+    private long memoryHits;
+
+    /** Requests served from disk. */
+    private long diskHits;
+
+    /** Requests that had to load the original. */
+    private long misses;
+
+    /** Constructor.
+     *
+     * @param dir Cache directory (must exist).
+     * @param diskLimit Maximum disk usage.
+     */
+    private ImageCache(final File dir, final long diskLimit) {
+        directory = dir;
+        maxDiskBytes = diskLimit;
+
+        File[] files = dir.listFiles((d, name) -> name.endsWith(EXTENSION));
+        if (files == null) {
+            throw new Problem("Cannot list cache directory '%s'.", dir);
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File f : files) {
+            diskEntries.put(f.getName(), f.length());
+            diskBytes += f.length();
+        }
+        evictFromDisk();
+    }
+
+    /** Open (or create) cache in given directory.
+     *
+     * @param directory Cache directory (created when missing).
+     * @param maxDiskBytes Maximum size of cached files (in bytes).
+     * @return Opened cache.
+     * @throws Problem When the directory cannot be used.
+     */
+    public static ImageCache open(final String directory, final long maxDiskBytes) {
+        Problem.whenNull(directory, "cache directory");
+        Problem.whenNotInRange("cache size", maxDiskBytes, 0, Long.MAX_VALUE);
+
+        File dir = new File(directory);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new Problem("Cannot create cache directory '%s'.", directory);
+        }
+        return new ImageCache(dir, maxDiskBytes);
+    }
+
+    /** Change limit of memory used by cached images.
+     *
+     * @param bytes Maximum memory usage (zero disables caching in memory).
+     * @return Reference to itself to allow chaining.
+     */
+    public synchronized ImageCache withMemoryLimit(final long bytes) {
+        Problem.whenNotInRange("memory limit", bytes, 0, Long.MAX_VALUE);
+
+        maxMemoryBytes = bytes;
+        evictFromMemory();
+        return this;
+    }
+
+    /** Load image from file and rescale it, using cached result when possible.
+     *
+     * <p>
+     * The result is the same as of Image.loadFromFile() followed by
+     * rescale(). The returned image is a private copy that can be freely
+     * modified.
+     *
+     * @param path Path to the image file.
+     * @param width Width of the rescaled image.
+     * @param height Height of the rescaled image.
+     * @return Loaded and rescaled image.
+     * @throws Problem When image cannot be loaded.
+     */
+    public Image loadRescaled(final String path, final int width, final int height) {
+        Problem.whenNull(path, "image path");
+        Image.checkDimensions(width, height);
+
+        String name = keyOf(new File(path), width, height);
+
+        Image cached = findInMemory(name);
+        if (cached != null) {
+            MEMORY_HITS.add(1);
+            return cached.copy();
+        }
+
+        cached = findOnDisk(name);
+        if (cached != null) {
+            DISK_HITS.add(1);
+            storeInMemory(name, cached.copy());
+            return cached;
+        }
+
+        MISSES.add(1);
+        synchronized (this) {
+            misses++;
+        }
+        Image res = Image.loadFromFile(path);
+        res.rescale(width, height);
+        storeOnDisk(name, res);
+        storeInMemory(name, res.copy());
+        return res;
+    }
+
+    /** Remove all cached images. */
+    public synchronized void clear() {
+        for (String name : diskEntries.keySet()) {
+            deleteQuietly(name);
+        }
+        diskEntries.clear();
+        diskBytes = 0;
+        memoryEntries.clear();
+        memoryBytes = 0;
+    }
+
+    /** Tell how much disk space is used by cached images.
+     *
+     * @return Size of cached files in bytes.
+     */
+    public synchronized long getDiskUsage() {
+        return diskBytes;
+    }
+
+    /** Tell how many images were found in memory.
+     *
+     * @return Number of memory hits.
+     */
+    public synchronized long getMemoryHits() {
+        return memoryHits;
+    }
+
+    /** Tell how many images were found on disk.
+     *
+     * @return Number of disk hits.
+     */
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+
+    /** Tell how many images had to be loaded from the original file.
+     *
+     * @return Number of cache misses.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** Find image in memory.
+     *
+     * @param name Cache key.
+     * @return Cached image (must not be modified) or null.
+     */
+    private synchronized Image findInMemory(final String name) {
+        MemoryEntry entry = memoryEntries.get(name);
+        if (entry == null) {
+            return null;
+        }
+        Image res = entry.image.get();
+        if (res == null) {
+            memoryEntries.remove(name);
+            memoryBytes -= entry.bytes;
+            return null;
+        }
+        memoryHits++;
+        return res;
+    }
+
+    /** Find image on disk.
+     *
+     * @param name Cache key.
+     * @return Loaded image or null.
+     */
+    private Image findOnDisk(final String name) {
+        synchronized (this) {
+            if (diskEntries.get(name) == null) {
+                return null;
+            }
+        }
+        File file = new File(directory, name);
+        Image res = RasterFile.read(file.toPath());
+        synchronized (this) {
+            if (res == null) {
+                Long size = diskEntries.remove(name);
+                diskBytes -= size == null ? 0 : size;
+                deleteQuietly(name);
+                return null;
+            }
+            diskHits++;
+        }
+        // Keep the order across runs (for eviction after reopening).
+        file.setLastModified(System.currentTimeMillis());
+        return res;
+    }
+
+    /** Store image in memory.
+     *
+     * @param name Cache key.
+     * @param image Image to store (must not be modified afterwards).
+     */
+    private synchronized void storeInMemory(final String name, final Image image) {
+        MemoryEntry entry = new MemoryEntry(image);
+        MemoryEntry previous = memoryEntries.put(name, entry);
+        memoryBytes += entry.bytes - (previous == null ? 0 : previous.bytes);
+        evictFromMemory();
+    }
+
+    /** Store image on disk.
+     *
+     * @param name Cache key.
+     * @param image Image to store.
+     */
+    private void storeOnDisk(final String name, final Image image) {
+        long size = RasterFile.sizeOf(image);
+        if (size > maxDiskBytes) {
+            return;
+        }
+        try {
+            RasterFile.write(new File(directory, name).toPath(), image);
+        } catch (Problem e) {
+            // Caching is only an optimization, the image was loaded fine.
+            return;
+        }
+        synchronized (this) {
+            Long previous = diskEntries.put(name, size);
+            diskBytes += size - (previous == null ? 0 : previous);
+            evictFromDisk();
+        }
+    }
+
+    /** Remove least recently used images from memory when over the limit. */
+    private synchronized void evictFromMemory() {
+        Iterator<MemoryEntry> it = memoryEntries.values().iterator();
+        while ((memoryBytes > maxMemoryBytes) && it.hasNext()) {
+            memoryBytes -= it.next().bytes;
+            it.remove();
+        }
+    }
+
+    /** Remove least recently used files when over the limit. */
+    private synchronized void evictFromDisk() {
+        Iterator<Map.Entry<String, Long>> it = diskEntries.entrySet().iterator();
+        while ((diskBytes > maxDiskBytes) && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            diskBytes -= eldest.getValue();
+            deleteQuietly(eldest.getKey());
+        }
+    }
+
+    /** Delete cached file, ignoring errors.
+     *
+     * @param name File name.
+     */
+    private void deleteQuietly(final String name) {
+        try {
+            Files.deleteIfExists(new File(directory, name).toPath());
+        } catch (IOException e) {
+            new File(directory, name).deleteOnExit();
+        }
+    }
+
+    /** Compute cache key for an image file.
+     *
+     * @param file Original image file.
+     * @param width Requested width.
+     * @param height Requested height.
+     * @return File name of the cached image.
+     * @throws Problem When the file does not exist.
+     */
+    private static String keyOf(final File file, final int width, final int height) {
+        Path canonical;
+        try {
+            canonical = file.getCanonicalFile().toPath();
+        } catch (IOException e) {
+            throw new Problem(e, "Failed to load image from '%s' (%s).", file, e.getMessage());
+        }
+        if (!file.isFile()) {
+            throw new Problem("Failed to load image from '%s' (no such file).", file);
+        }
+        String key = String.format("%s|%d|%d|%dx%d|%s", canonical, file.lastModified(),
+                file.length(), width, height, RESCALE_KERNEL);
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            byte[] digest = sha.digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder res = new StringBuilder();
+            for (int i = 0; i < KEY_BYTES; i++) {
+                res.append(String.format("%02x", digest[i]));
+            }
+            return res.append(EXTENSION).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new Problem(e, "SHA-256 not available.");
+        }
+    }
+
+    /** Image kept in memory. */
+    private static final class MemoryEntry {
+        /** The image (released by GC when memory runs low). */
+        private final SoftReference<Image> image;
+
+        /** Memory used by the image. */
+        private final long bytes;
+
+        /** Constructor.
+         *
+         * @param img Image to keep.
+         */
+        MemoryEntry(final Image img) {
+            image = new SoftReference<>(img);
+            bytes = 4L * img.getWidth() * img.getHeight();
+        }
+    }
+}
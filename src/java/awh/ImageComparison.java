@@ -0,0 +1,371 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+/** Comparison of two images (exact difference, PSNR and SSIM).
+ *
+ * <p>
+ * All methods read the pixel arrays directly, the numeric ones split
+ * rows into bands processed in parallel and merge partial sums.
+ *
+ * <pre>
+ * if (ImageComparison.psnr(compressed, original) &lt; 40) {
+ *     System.out.println("Visible compression artifacts");
+ * }
+ * </pre>
+ */
+public final class ImageComparison {
+    /** Minimal number of pixels processed by one task. */
+    private static final int MIN_PIXELS_PER_TASK = 256 * 1024;
+
+    /** Size of the square SSIM window. */
+    private static final int SSIM_WINDOW = 8;
+
+    /** SSIM stabilizing constant for means ((0.01 * 255)^2). */
+    private static final double SSIM_C1 = 6.5025;
+
+    /** SSIM stabilizing constant for variances ((0.03 * 255)^2). */
+    private static final double SSIM_C2 = 58.5225;
+
+    /** Maximal channel value. */
+    private static final double MAX_VALUE = 255;
+
+    /** Prevent instantiation. */
+    private ImageComparison() {}
+
+    /** Tell whether two images have the same size and pixels.
+     *
+     * <p>
+     * Much faster than comparing pixels one by one with getPixel(),
+     * stops at the first difference.
+     *
+     * @param a First image.
+     * @param b Second image.
+     * @return Whether the images are identical.
+     */
+    public static boolean pixelsEqual(final Image a, final Image b) {
+        Problem.whenNull(a, "first image");
+        Problem.whenNull(b, "second image");
+        if ((a.getWidth() != b.getWidth()) || (a.getHeight() != b.getHeight())) {
+            return false;
+        }
+        final int[] pa = a.getPixelsUnsafe();
+        final int[] pb = b.getPixelsUnsafe();
+        final int width = a.getWidth();
+        for (int y = 0; y < a.getHeight(); y++) {
+            int ia = a.getOffsetUnsafe() + y * a.getStrideUnsafe();
+            int ib = b.getOffsetUnsafe() + y * b.getStrideUnsafe();
+            if ((pa == pb) && (ia == ib)) {
+                continue;
+            }
+            for (int x = 0; x < width; x++) {
+                if (pa[ia + x] != pb[ib + x]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Find which pixels differ in two images of the same size.
+     *
+     * @param a First image.
+     * @param b Second image (of the same size).
+     * @return Number of changed pixels and their bounding box.
+     * @throws Problem When the images have different sizes.
+     */
+    public static ImageDiff diff(final Image a, final Image b) {
+        checkSameSize(a, b);
+        final int width = a.getWidth();
+        final int height = a.getHeight();
+        final int rows = Parallel.rowsPerTask(MIN_PIXELS_PER_TASK, width);
+        // Per band: changed count, left, top, right, bottom.
+        final long[][] partial = new long[(height + rows - 1) / rows][];
+        Parallel.forRange(0, partial.length, 1, band -> {
+            partial[band] = diffBand(a, b, band * rows, Math.min(height, band * rows + rows));
+        });
+
+        long[] res = {0, width, height, 0, 0};
+        for (long[] p : partial) {
+            res[0] += p[0];
+            res[1] = Math.min(res[1], p[1]);
+            res[2] = Math.min(res[2], p[2]);
+            res[3] = Math.max(res[3], p[3]);
+            res[4] = Math.max(res[4], p[4]);
+        }
+        if (res[0] == 0) {
+            return new ImageDiff(0, 0, 0, 0, 0);
+        }
+        return new ImageDiff(res[0], (int) res[1], (int) res[2], (int) res[3], (int) res[4]);
+    }
+
+    /** Find changed pixels in a band of rows.
+     *
+     * @param a First image.
+     * @param b Second image (of the same size).
+     * @param from First row (inclusive).
+     * @param to Last row (exclusive).
+     * @return Changed count, left, top, right and bottom of the band.
+     */
+    private static long[] diffBand(final Image a, final Image b, final int from, final int to) {
+        final int width = a.getWidth();
+        final int[] pa = a.getPixelsUnsafe();
+        final int[] pb = b.getPixelsUnsafe();
+        long[] res = {0, width, a.getHeight(), 0, 0};
+        for (int y = from; y < to; y++) {
+            int ia = a.getOffsetUnsafe() + y * a.getStrideUnsafe();
+            int ib = b.getOffsetUnsafe() + y * b.getStrideUnsafe();
+            int first = -1;
+            int last = -1;
+            for (int x = 0; x < width; x++) {
+                if (pa[ia + x] != pb[ib + x]) {
+                    res[0]++;
+                    first = first < 0 ? x : first;
+                    last = x;
+                }
+            }
+            if (first >= 0) {
+                res[1] = Math.min(res[1], first);
+                res[2] = Math.min(res[2], y);
+                res[3] = Math.max(res[3], last + 1);
+                res[4] = y + 1;
+            }
+        }
+        return res;
+    }
+
+    /** Compute peak signal-to-noise ratio of color channels (alpha is ignored).
+     *
+     * <p>
+     * Higher is better, values above 40 dB usually mean differences
+     * invisible to the eye.
+     *
+     * @param a First image.
+     * @param b Second image (of the same size).
+     * @return PSNR in decibels (infinity for identical images).
+     * @throws Problem When the images have different sizes.
+     */
+    public static double psnr(final Image a, final Image b) {
+        checkSameSize(a, b);
+        final int width = a.getWidth();
+        final int height = a.getHeight();
+        final int rows = Parallel.rowsPerTask(MIN_PIXELS_PER_TASK, width);
+        final long[] partial = new long[(height + rows - 1) / rows];
+        Parallel.forRange(0, partial.length, 1, band -> {
+            int[] pa = a.getPixelsUnsafe();
+            int[] pb = b.getPixelsUnsafe();
+            long sum = 0;
+            for (int y = band * rows; y < Math.min(height, band * rows + rows); y++) {
+                int ia = a.getOffsetUnsafe() + y * a.getStrideUnsafe();
+                int ib = b.getOffsetUnsafe() + y * b.getStrideUnsafe();
+                for (int x = 0; x < width; x++) {
+                    sum += squaredError(pa[ia + x], pb[ib + x]);
+                }
+            }
+            partial[band] = sum;
+        });
+
+        long total = 0;
+        for (long p : partial) {
+            total += p;
+        }
+        if (total == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double mse = (double) total / (3.0 * width * height);
+        return 10 * Math.log10(MAX_VALUE * MAX_VALUE / mse);
+    }
+
+    /** Sum squared differences of color channels of two pixels.
+     *
+     * @param pixelA First pixel (ARGB).
+     * @param pixelB Second pixel (ARGB).
+     * @return Sum of squared differences of red, green and blue.
+     */
+    private static int squaredError(final int pixelA, final int pixelB) {
+        int red = ((pixelA >> 16) & 0xFF) - ((pixelB >> 16) & 0xFF);
+        int green = ((pixelA >> 8) & 0xFF) - ((pixelB >> 8) & 0xFF);
+        int blue = (pixelA & 0xFF) - (pixelB & 0xFF);
+        return red * red + green * green + blue * blue;
+    }
+
+    /** Compute mean structural similarity of the luminance of two images.
+     *
+     * <p>
+     * SSIM is computed for every position of a square 8x8 window (smaller
+     * for tiny images) and averaged. The window sums are maintained
+     * incrementally: per-column sums are moved one row down and the
+     * window moves along them, so each pixel costs a constant amount
+     * of work regardless of the window size.
+     *
+     * @param a First image.
+     * @param b Second image (of the same size).
+     * @return SSIM, 1 for identical images.
+     * @throws Problem When the images have different sizes.
+     */
+    public static double ssim(final Image a, final Image b) {
+        checkSameSize(a, b);
+        final int width = a.getWidth();
+        final int height = a.getHeight();
+        final int window = Math.min(SSIM_WINDOW, Math.min(width, height));
+        final int[] lumaA = luminance(a);
+        final int[] lumaB = luminance(b);
+        final int positions = height - window + 1;
+        final int rows = Parallel.rowsPerTask(MIN_PIXELS_PER_TASK, width);
+        final double[] partial = new double[(positions + rows - 1) / rows];
+        Parallel.forRange(0, partial.length, 1, band -> {
+            partial[band] = ssimBand(lumaA, lumaB, width, window,
+                    band * rows, Math.min(positions, band * rows + rows));
+        });
+
+        double total = 0;
+        for (double p : partial) {
+            total += p;
+        }
+        return total / ((double) positions * (width - window + 1));
+    }
+
+    /** Sum SSIM of window positions with top edge in given range.
+     *
+     * @param lumaA Luminance of the first image.
+     * @param lumaB Luminance of the second image.
+     * @param width Image width.
+     * @param window Window size.
+     * @param from First window row (inclusive).
+     * @param to Last window row (exclusive).
+     * @return Sum of SSIM of all windows.
+     */
+    private static double ssimBand(final int[] lumaA, final int[] lumaB, final int width,
+            final int window, final int from, final int to) {
+        // Column sums of a, b, a^2, b^2 and a*b over the current window rows.
+        final long[][] columns = new long[5][width];
+        for (int y = from; y < from + window; y++) {
+            addRow(columns, lumaA, lumaB, y * width, 1);
+        }
+        double res = 0;
+        for (int y = from; y < to; y++) {
+            if (y > from) {
+                addRow(columns, lumaA, lumaB, (y - 1) * width, -1);
+                addRow(columns, lumaA, lumaB, (y + window - 1) * width, 1);
+            }
+            res += ssimRow(columns, window);
+        }
+        return res;
+    }
+
+    /** Sum SSIM of windows along one row of column sums.
+     *
+     * @param columns Column sums of a, b, a^2, b^2 and a*b.
+     * @param window Window size.
+     * @return Sum of SSIM of all windows in the row.
+     */
+    private static double ssimRow(final long[][] columns, final int window) {
+        final double n = (double) window * window;
+        long sumA = 0;
+        long sumB = 0;
+        long sumAA = 0;
+        long sumBB = 0;
+        long sumAB = 0;
+        double res = 0;
+        for (int x = 0; x < columns[0].length; x++) {
+            sumA += columns[0][x];
+            sumB += columns[1][x];
+            sumAA += columns[2][x];
+            sumBB += columns[3][x];
+            sumAB += columns[4][x];
+            if (x >= window) {
+                sumA -= columns[0][x - window];
+                sumB -= columns[1][x - window];
+                sumAA -= columns[2][x - window];
+                sumBB -= columns[3][x - window];
+                sumAB -= columns[4][x - window];
+            }
+            if (x >= window - 1) {
+                double meanA = sumA / n;
+                double meanB = sumB / n;
+                double varA = sumAA / n - meanA * meanA;
+                double varB = sumBB / n - meanB * meanB;
+                double cov = sumAB / n - meanA * meanB;
+                res += (2 * meanA * meanB + SSIM_C1) * (2 * cov + SSIM_C2)
+                        / ((meanA * meanA + meanB * meanB + SSIM_C1) * (varA + varB + SSIM_C2));
+            }
+        }
+        return res;
+    }
+
+    /** Add (or subtract) one row to the column sums.
+     *
+     * @param columns Column sums of a, b, a^2, b^2 and a*b.
+     * @param lumaA Luminance of the first image.
+     * @param lumaB Luminance of the second image.
+     * @param start Index of the first pixel of the row.
+     * @param sign 1 to add, -1 to subtract.
+     */
+    private static void addRow(final long[][] columns, final int[] lumaA, final int[] lumaB,
+            final int start, final int sign) {
+        for (int x = 0; x < columns[0].length; x++) {
+            int va = lumaA[start + x];
+            int vb = lumaB[start + x];
+            columns[0][x] += sign * va;
+            columns[1][x] += sign * vb;
+            columns[2][x] += sign * va * va;
+            columns[3][x] += sign * vb * vb;
+            columns[4][x] += sign * va * vb;
+        }
+    }
+
+    /** Extract luminance of all pixels (in parallel).
+     *
+     * @param image Source image.
+     * @return Luminance values, row by row without gaps.
+     */
+    private static int[] luminance(final Image image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int[] res = new int[width * height];
+        final int[] pixels = image.getPixelsUnsafe();
+        Parallel.forRange(0, height, Parallel.rowsPerTask(MIN_PIXELS_PER_TASK, width), y -> {
+            int src = image.getOffsetUnsafe() + y * image.getStrideUnsafe();
+            for (int x = 0; x < width; x++) {
+                res[y * width + x] = Channel.luminance(pixels[src + x]);
+            }
+        });
+        return res;
+    }
+
+    /** Check that two images have the same size.
+     *
+     * @param a First image.
+     * @param b Second image.
+     * @throws Problem When an image is null or the sizes differ.
+     */
+    private static void checkSameSize(final Image a, final Image b) {
+        Problem.whenNull(a, "first image");
+        Problem.whenNull(b, "second image");
+        if ((a.getWidth() != b.getWidth()) || (a.getHeight() != b.getHeight())) {
+            throw new Problem("Cannot compare %dx%d image with %dx%d image.",
+                    a.getWidth(), a.getHeight(), b.getWidth(), b.getHeight());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+/** Difference of two images of the same size (see ImageComparison.diff()).
+ *
+ * <pre>
+ * ImageDiff diff = ImageComparison.diff(rendered, golden);
+ * if (!diff.isEmpty()) {
+ *     System.out.println(diff);
+ * }
+ * </pre>
+ */
+public final class ImageDiff {
+    /** Number of pixels that differ. */
+    private final long changedPixels;
+
+    /** Left edge of the changed area. */
+    private final int left;
+
+    /** Top edge of the changed area. */
+    private final int top;
+
+    /** Right edge of the changed area (exclusive). */
+    private final int right;
+
+    /** Bottom edge of the changed area (exclusive). */
+    private final int bottom;
+
+    /** Constructor.
+     *
+     * @param changedPixels Number of pixels that differ.
+     * @param left Left edge of the changed area.
+     * @param top Top edge of the changed area.
+     * @param right Right edge of the changed area (exclusive).
+     * @param bottom Bottom edge of the changed area (exclusive).
+     */
+    ImageDiff(final long changedPixels, final int left, final int top,
+            final int right, final int bottom) {
+        this.changedPixels = changedPixels;
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    /** Tell whether the images are identical.
+     *
+     * @return Whether no pixel differs.
+     */
+    public boolean isEmpty() {
+        return changedPixels == 0;
+    }
+
+    /** Get number of changed pixels.
+     *
+     * @return Number of pixels that differ (in any channel).
+     */
+    public long getChangedPixelCount() {
+        return changedPixels;
+    }
+
+    /** Get left edge of the smallest rectangle containing all changes.
+     *
+     * @return X coordinate of the leftmost changed pixel (0 for identical images).
+     */
+    public int getLeft() {
+        return left;
+    }
+
+    /** Get top edge of the smallest rectangle containing all changes.
+     *
+     * @return Y coordinate of the topmost changed pixel (0 for identical images).
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /** Get width of the smallest rectangle containing all changes.
+     *
+     * @return Width of the changed area (0 for identical images).
+     */
+    public int getWidth() {
+        return right - left;
+    }
+
+    /** Get height of the smallest rectangle containing all changes.
+     *
+     * @return Height of the changed area (0 for identical images).
+     */
+    public int getHeight() {
+        return bottom - top;
+    }
+
+    @Override
+    public String toString() {
+        if (isEmpty()) {
+            return "ImageDiff[no changes]";
+        }
+        return String.format("ImageDiff[%d pixels changed in %dx%d at %d,%d]",
+                changedPixels, getWidth(), getHeight(), left, top);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+/** Loading and saving of images (in formats supported by ImageIO). */
+final class ImageFiles {
+    /** Prevent instantiation. */
+    private ImageFiles() {}
+
+    /** Load image from file on disk.
+     *
+     * @param path Path to the file.
+     * @return Loaded image (of any type).
+     * @throws Problem When image cannot be loaded.
+     */
+    static BufferedImage load(final String path) {
+        Problem.whenNull(path, "image path");
+
+        long start = Metrics.startTimer();
+        File file = new File(path);
+        BufferedImage image;
+        try {
+            image = ImageIO.read(file);
+        } catch (IOException e) {
+            throw new Problem(String.format("Failed to load image from '%s' (%s).",
+                    path, e.getMessage()));
+        }
+        if (image == null) {
+            throw new Problem("Failed to load image from '%s' (unknown format).", path);
+        }
+        Metrics.recordImageFile("decode", formatForMetrics(path), file.length(), start);
+        return image;
+    }
+
+    /** Save image to file.
+     *
+     * @param image Image to save.
+     * @param path Destination file path.
+     * @throws Problem When image cannot be saved.
+     */
+    static void save(final Image image, final String path) {
+        Problem.whenNull(path, "file path");
+
+        String format = formatFromFilename(path);
+        long start = Metrics.startTimer();
+        File file = new File(path);
+        try {
+            ImageIO.write(prepareForSaving(image, format), format, file);
+        } catch (IOException e) {
+            throw new Problem("Failed to save image to '%s' as %s (%s).",
+                    path, format, e.getMessage());
+        }
+        Metrics.recordImageFile("encode", format, file.length(), start);
+    }
+
+    /** Save image so that the file never appears half-written.
+     *
+     * <p>
+     * Used by batch processing where an existing output means that
+     * the image was already processed.
+     *
+     * @param image Image to save.
+     * @param path Destination file path.
+     * @throws Problem When the image cannot be saved.
+     */
+    static void saveAtomically(final Image image, final String path) {
+        final String format = formatFromFilename(path);
+        long start = Metrics.startTimer();
+        Sys.writeAtomically(path, out -> {
+            if (!ImageIO.write(prepareForSaving(image, format), format, out)) {
+                throw new IOException("no writer for " + format);
+            }
+        });
+        Metrics.recordImageFile("encode", format, new File(path).length(), start);
+    }
+
+    /** Determine image format from a filename.
+     *
+     * @param path File path.
+     * @return Image format recognizable by javax.imageio.ImageIO class.
+     */
+    static String formatFromFilename(final String path) {
+        String ext;
+        try {
+            ext = Sys.getFileExtension(path).toLowerCase();
+        } catch (Problem e) {
+            ext = "";
+        }
+        if ("png".equals(ext)) {
+            return "PNG";
+        } else if ("jpg".equals(ext) || "jpeg".equals(ext)) {
+            return "JPEG";
+        } else if ("gif".equals(ext)) {
+            return "GIF";
+        } else {
+            throw new Problem("Failed to determine image format from path '%s'.", path);
+        }
+    }
+
+    /** Convert existing image to a new type.
+     *
+     * @param im Image to be converted.
+     * @param type New type (see constructor of BufferedImage class for available types).
+     * @return Converted image.
+     */
+    static BufferedImage recreateImage(final java.awt.Image im, final int type) {
+        BufferedImage res = new BufferedImage(im.getWidth(null), im.getHeight(null), type);
+        Graphics2D gr = res.createGraphics();
+        gr.drawImage(im, 0, 0, null);
+        gr.dispose();
+        return res;
+    }
+
+    /** Get image suitable for saving in given format.
+     *
+     * @param image Image to save.
+     * @param format Image format.
+     * @return Backend image or its copy without alpha channel (for JPEG).
+     */
+    private static BufferedImage prepareForSaving(final Image image, final String format) {
+        if ("JPEG".equals(format)) {
+            return recreateImage(image.getAsAwtImageUnsafe(), BufferedImage.TYPE_INT_RGB);
+        }
+        return image.getAsAwtImageUnsafe();
+    }
+
+    /** Determine image format for metrics of a loaded file.
+     *
+     * @param path File path.
+     * @return Image format (other when it cannot be determined from the name).
+     */
+    private static String formatForMetrics(final String path) {
+        try {
+            return formatFromFilename(path);
+        } catch (Problem e) {
+            return "other";
+        }
+    }
+}
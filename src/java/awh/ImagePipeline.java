@@ -0,0 +1,484 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
+import java.util.function.UnaryOperator;
+
+/** Lazily recorded chain of image operations.
+ *
+ * <p>
+ * Operations are only recorded until into() or toImage() is called.
+ * Then the result is computed in small tiles (in parallel) and each
+ * tile goes through all the operations while it is in the processor
+ * cache. Unlike calling the Image methods one after another, the pixels
+ * are read and written only once and no intermediate images are created.
+ *
+ * <pre>
+ * Image thumbnail = photo.pipeline()
+ *     .rescale(320, 240)
+ *     .adjust(new ColorAdjustment().contrast(1.2))
+ *     .paste(logo, 10, 10)
+ *     .toImage();
+ * </pre>
+ *
+ * <p>
+ * Filters that need neighbouring pixels (such as blur) cannot be fused
+ * this way, the result computed so far is stored in an intermediate
+ * image before them.
+ */
+public final class ImagePipeline {
+    /** Tile width in pixels. */
+    private static final int TILE_WIDTH = 256;
+
+    /** Tile height in pixels. */
+    private static final int TILE_HEIGHT = 32;
+
+    /** Pixels processed by bulk operations (metrics). */
+    private static final MetricCounter PIXELS_PROCESSED = Metrics.counter("image.pixels");
+
+    /** Source image. */
+    private final Image source;
+
+    /** Parts of the pipeline that are computed in one pass each. */
+    private final List<Segment> segments = new ArrayList<>();
+
+    /** Constructor.
+     *
+     * @param source Source image.
+     */
+    ImagePipeline(final Image source) {
+        this.source = source;
+        segments.add(new Segment(source.getWidth(), source.getHeight()));
+    }
+
+    /** Rescale the image (with smooth scaling).
+     *
+     * @param width New width (in pixels).
+     * @param height New height (in pixels).
+     * @return Reference to itself to allow chaining.
+     */
+    public ImagePipeline rescale(final int width, final int height) {
+        Image.checkDimensions(width, height);
+
+        Segment last = last();
+        if (last.resampler != null || !last.stages.isEmpty()) {
+            last = barrier(null);
+        }
+        last.resampler = new AreaResampler(last.width, last.height, width, height);
+        last.width = width;
+        last.height = height;
+        return this;
+    }
+
+    /** Change each pixel (in merged ARGB notation, see Color.toMergedRgb()).
+     *
+     * @param mapping Function computing new pixel from the old one.
+     * @return Reference to itself to allow chaining.
+     */
+    public ImagePipeline map(final IntUnaryOperator mapping) {
+        Problem.whenNull(mapping, "pixel mapping");
+
+        return stage((row, from, count, x, y) -> {
+            for (int i = from; i < from + count; i++) {
+                row[i] = mapping.applyAsInt(row[i]);
+            }
+        });
+    }
+
+    /** Change color of each pixel.
+     *
+     * @param mapping Function computing new color from the old one.
+     * @return Reference to itself to allow chaining.
+     */
+    public ImagePipeline mapColors(final UnaryOperator<Color> mapping) {
+        Problem.whenNull(mapping, "color mapping");
+
+        return map(argb -> mapping.apply(Color.fromMergedRgb(argb)).toMergedRgb());
+    }
+
+    /** Apply color adjustments.
+     *
+     * <p>
+     * The adjustment is used when the pipeline runs, it must not
+     * be changed until then.
+     *
+     * @param adjustment Adjustments to apply.
+     * @return Reference to itself to allow chaining.
+     */
+    public ImagePipeline adjust(final ColorAdjustment adjustment) {
+        Problem.whenNull(adjustment, "color adjustment");
+
+        return stage((row, from, count, x, y) -> adjustment.applyToRow(row, from, from + count));
+    }
+
+    /** Mix the image with another one of the same size.
+     *
+     * <p>
+     * The other image is read when the pipeline runs (it is copied first
+     * when it shares pixels with the target).
+     *
+     * @param other The other image.
+     * @param opacity Weight of the other image (0 to 1).
+     * @return Reference to itself to allow chaining.
+     */
+    public ImagePipeline blend(final Image other, final double opacity) {
+        Problem.whenNull(other, "blended image");
+        if (!(opacity >= 0) || (opacity > 1)) {
+            throw new Problem("Opacity %f is out of range [0, 1].", opacity);
+        }
+        Segment last = last();
+        if ((other.getWidth() != last.width) || (other.getHeight() != last.height)) {
+            throw new Problem("Blended image is %dx%d, expected %dx%d.",
+                    other.getWidth(), other.getHeight(), last.width, last.height);
+        }
+        final int weight = (int) Math.round(opacity * 256);
+        final Input input = input(other);
+        return stage((row, from, count, x, y) -> {
+            Image image = input.current;
+            int[] pixels = image.getPixelsUnsafe();
+            int pos = image.getOffsetUnsafe() + y * image.getStrideUnsafe() + x;
+            for (int i = from; i < from + count; i++) {
+                row[i] = PixelBlend.mix(row[i], pixels[pos++], weight);
+            }
+        });
+    }
+
+    /** Draw another image over this one (see Image.pasteFrom()).
+     *
+     * <p>
+     * The other image is read when the pipeline runs (it is copied first
+     * when it shares pixels with the target).
+     *
+     * @param other Image to paste.
+     * @param left Where to put the left edge of the other image.
+     * @param top Where to put the top edge of the other image.
+     * @return Reference to itself to allow chaining.
+     */
+    public ImagePipeline paste(final Image other, final int left, final int top) {
+        Problem.whenNull(other, "pasted image");
+
+        final Input input = input(other);
+        return stage((row, from, count, x, y) -> {
+            Image image = input.current;
+            int sy = y - top;
+            int start = Math.max(x, left);
+            int end = (int) Math.min((long) x + count, (long) left + image.getWidth());
+            if ((sy < 0) || (sy >= image.getHeight()) || (start >= end)) {
+                return;
+            }
+            int[] pixels = image.getPixelsUnsafe();
+            int pos = image.getOffsetUnsafe() + sy * image.getStrideUnsafe() + start - left;
+            for (int i = from + start - x; i < from + end - x; i++) {
+                row[i] = PixelBlend.over(row[i], pixels[pos++]);
+            }
+        });
+    }
+
+    /** Apply convolution kernel (see Filters.convolve()).
+     *
+     * @param kernel Kernel to apply.
+     * @param edges Treatment of pixels outside of the image.
+     * @return Reference to itself to allow chaining.
+     */
+    public ImagePipeline convolve(final Kernel kernel, final EdgeMode edges) {
+        Problem.whenNull(kernel, "kernel");
+        Problem.whenNull(edges, "edge mode");
+
+        barrier(image -> image.filter().convolve(kernel, edges));
+        return this;
+    }
+
+    /** Apply Gaussian blur (see Filters.gaussianBlur()).
+     *
+     * @param sigma Standard deviation in pixels.
+     * @return Reference to itself to allow chaining.
+     */
+    public ImagePipeline gaussianBlur(final double sigma) {
+        Kernel.checkSigma(sigma);
+
+        barrier(image -> image.filter().gaussianBlur(sigma));
+        return this;
+    }
+
+    /** Compute the result into an existing image.
+     *
+     * @param target Image for the result (of the resulting size, may be the source one).
+     */
+    public void into(final Image target) {
+        Problem.whenNull(target, "target image");
+        Segment last = last();
+        if ((target.getWidth() != last.width) || (target.getHeight() != last.height)) {
+            throw new Problem("Target image is %dx%d, expected %dx%d.",
+                    target.getWidth(), target.getHeight(), last.width, last.height);
+        }
+
+        Image input = source;
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            boolean isLast = i == segments.size() - 1;
+            boolean nextIsCopy = !isLast && (i == segments.size() - 2) && last.isCopy();
+            Image output;
+            if (isLast || nextIsCopy) {
+                output = target;
+            } else {
+                output = Image.createBlank(segment.width, segment.height);
+            }
+            compute(segment, input, output);
+            if (nextIsCopy) {
+                return;
+            }
+            input = output;
+        }
+    }
+
+    /** Compute the result as a new image.
+     *
+     * @return New image with the result.
+     */
+    public Image toImage() {
+        Segment last = last();
+        Image res = Image.createBlank(last.width, last.height);
+        into(res);
+        return res;
+    }
+
+    /** Get the last segment.
+     *
+     * @return Segment where new operations are added.
+     */
+    private Segment last() {
+        return segments.get(segments.size() - 1);
+    }
+
+    /** Add per-pixel operation to the last segment.
+     *
+     * @param stage Operation to add.
+     * @return Reference to itself to allow chaining.
+     */
+    private ImagePipeline stage(final Stage stage) {
+        last().stages.add(stage);
+        return this;
+    }
+
+    /** Register another image read by the last segment.
+     *
+     * @param image Image to read.
+     * @return Input to use in the operation.
+     */
+    private Input input(final Image image) {
+        Input res = new Input(image);
+        last().inputs.add(res);
+        return res;
+    }
+
+    /** End the last segment (its result will be stored in an image).
+     *
+     * @param finish Operation applied to the stored result (or null).
+     * @return New last segment.
+     */
+    private Segment barrier(final Consumer<Image> finish) {
+        Segment last = last();
+        last.finish = finish;
+        Segment next = new Segment(last.width, last.height);
+        segments.add(next);
+        return next;
+    }
+
+    /** Compute one segment, through a temporary image when needed.
+     *
+     * @param segment Segment to compute.
+     * @param input Input image.
+     * @param output Image for the result.
+     */
+    private static void compute(final Segment segment, final Image input, final Image output) {
+        if (overlaps(segment, input, output)) {
+            Image tmp = Image.createBlank(segment.width, segment.height);
+            run(segment, input, tmp);
+            run(new Segment(segment.width, segment.height), tmp, output);
+        } else if (!segment.isCopy() || (output != input)) {
+            run(segment, input, output);
+        }
+        if (segment.finish != null) {
+            segment.finish.accept(output);
+        }
+    }
+
+    /** Tell whether computing in place could overwrite pixels not read yet.
+     *
+     * <p>
+     * Per-pixel operations can run in place, rescaling or shifted
+     * views of the same pixels cannot.
+     *
+     * @param segment Segment to compute.
+     * @param input Input image.
+     * @param output Output image.
+     * @return Whether the images share pixels and the segment cannot run in place.
+     */
+    private static boolean overlaps(final Segment segment, final Image input,
+            final Image output) {
+        return (input.getPixelsUnsafe() == output.getPixelsUnsafe())
+                && ((segment.resampler != null) || !isSameRegion(input, output));
+    }
+
+    /** Tell whether two images sharing pixels cover the same region.
+     *
+     * @param first First image.
+     * @param second Second image.
+     * @return Whether the images start at the same pixel and have the same layout.
+     */
+    private static boolean isSameRegion(final Image first, final Image second) {
+        boolean sameStart = (first.getOffsetUnsafe() == second.getOffsetUnsafe())
+                && (first.getStrideUnsafe() == second.getStrideUnsafe());
+        return sameStart && (first.getWidth() == second.getWidth())
+                && (first.getHeight() == second.getHeight());
+    }
+
+    /** Compute one segment tile by tile.
+     *
+     * @param segment Segment to compute.
+     * @param input Input image.
+     * @param output Image for the result.
+     */
+    private static void run(final Segment segment, final Image input, final Image output) {
+        final int columns = (segment.width + TILE_WIDTH - 1) / TILE_WIDTH;
+        final int rows = (segment.height + TILE_HEIGHT - 1) / TILE_HEIGHT;
+        for (Input other : segment.inputs) {
+            other.detachFrom(output);
+        }
+        Parallel.forRange(0, columns * rows, 1, tile -> {
+            int x = (tile % columns) * TILE_WIDTH;
+            int count = Math.min(TILE_WIDTH, segment.width - x);
+            int[] row = new int[count];
+            int[] out = output.getPixelsUnsafe();
+            for (int y = (tile / columns) * TILE_HEIGHT;
+                    y < Math.min(segment.height, (tile / columns + 1) * TILE_HEIGHT); y++) {
+                if (segment.resampler == null) {
+                    System.arraycopy(input.getPixelsUnsafe(),
+                            input.getOffsetUnsafe() + y * input.getStrideUnsafe() + x,
+                            row, 0, count);
+                } else {
+                    segment.resampler.sampleRow(input, y, x, count, row, 0);
+                }
+                for (Stage stage : segment.stages) {
+                    stage.apply(row, 0, count, x, y);
+                }
+                System.arraycopy(row, 0, out,
+                        output.getOffsetUnsafe() + y * output.getStrideUnsafe() + x, count);
+            }
+        });
+        for (Input other : segment.inputs) {
+            other.current = null;
+        }
+        PIXELS_PROCESSED.add((long) segment.width * segment.height);
+    }
+
+    /** Per-pixel operation applied to parts of rows. */
+    private interface Stage {
+        /** Apply the operation.
+         *
+         * @param row Pixels to modify.
+         * @param from Index of the first pixel in the array.
+         * @param count Number of pixels.
+         * @param x Image column of the first pixel.
+         * @param y Image row of the pixels.
+         */
+        void apply(int[] row, int from, int count, int x, int y);
+    }
+
+    /** Operations computed in one pass over the image. */
+    private static final class Segment {
+        /** Per-pixel operations. */
+        private final List<Stage> stages = new ArrayList<>();
+
+        /** Width of the result. */
+        private int width;
+
+        /** Height of the result. */
+        private int height;
+
+        /** Rescaling of the input (null to copy it). */
+        private AreaResampler resampler;
+
+        /** Other images read by the operations. */
+        private final List<Input> inputs = new ArrayList<>();
+
+        /** Operation applied to the whole result (or null). */
+        private Consumer<Image> finish;
+
+        /** Constructor.
+         *
+         * @param width Width of the input.
+         * @param height Height of the input.
+         */
+        Segment(final int width, final int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        /** Tell whether the segment just copies its input.
+         *
+         * @return Whether there is no rescaling and no operations.
+         */
+        boolean isCopy() {
+            return (resampler == null) && stages.isEmpty();
+        }
+    }
+
+    /** Another image read by the operations (blended or pasted one). */
+    private static final class Input {
+        /** Image given to the pipeline. */
+        private final Image image;
+
+        /** Image read by the running segment (the image or its copy). */
+        private Image current;
+
+        /** Constructor.
+         *
+         * @param image Image to read.
+         */
+        Input(final Image image) {
+            this.image = image;
+        }
+
+        /** Choose image to read while computing given output.
+         *
+         * <p>
+         * Image sharing pixels with the output is copied, otherwise
+         * parallel tiles could read pixels already overwritten.
+         *
+         * @param output Image being computed.
+         */
+        void detachFrom(final Image output) {
+            if (image.getPixelsUnsafe() == output.getPixelsUnsafe()) {
+                current = image.copy();
+            } else {
+                current = image;
+            }
+        }
+    }
+}
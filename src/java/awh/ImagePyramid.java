@@ -0,0 +1,195 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Image at successively halved resolutions (see Image.pyramid()).
+ *
+ * <p>
+ * Every level is half the size of the previous one (averaging 2x2
+ * pixel blocks) down to a single row or column. Any requested size is
+ * then resampled from the smallest level that is still at least as
+ * large, so producing many sizes costs little more than producing one.
+ * The pyramid needs about one third more memory than the image itself.
+ *
+ * <pre>
+ * ImagePyramid pyramid = photo.pyramid();
+ * Image thumbnail = pyramid.scaledTo(160, 90);
+ * Image preview = pyramid.scaledTo(1280, 720);
+ * </pre>
+ */
+public final class ImagePyramid {
+    /** Minimal number of pixels processed by one task. */
+    private static final int MIN_PIXELS_PER_TASK = 64 * 1024;
+
+    /** Mask of red and blue (or alpha and green after shifting) channels. */
+    private static final int ALTERNATE_CHANNELS = 0x00FF00FF;
+
+    /** Rounding constant for averaging four values in both lanes. */
+    private static final int ROUNDING = 0x00020002;
+
+    /** Number of channels (alpha, red, green, blue). */
+    private static final int CHANNELS = 4;
+
+    /** Pixels processed by bulk operations (metrics). */
+    private static final MetricCounter PIXELS_PROCESSED = Metrics.counter("image.pixels");
+
+    /** Levels from the largest (copy of the original) to the smallest. */
+    private final List<Image> levels = new ArrayList<>();
+
+    /** Build the pyramid.
+     *
+     * @param source Source image (it is copied, later changes are not reflected).
+     */
+    ImagePyramid(final Image source) {
+        Image level = source.copy();
+        levels.add(level);
+        while ((level.getWidth() > 1) && (level.getHeight() > 1)) {
+            level = halve(level);
+            levels.add(level);
+        }
+    }
+
+    /** Get number of levels.
+     *
+     * @return Number of levels including the full-size one.
+     */
+    public int getLevelCount() {
+        return levels.size();
+    }
+
+    /** Create rescaled copy of the image.
+     *
+     * <p>
+     * The result is resampled (by area averaging, as Image.rescale())
+     * from the smallest level that is not smaller than the requested
+     * size. Sizes larger than the original are scaled up from it.
+     *
+     * @param width Width of the new image.
+     * @param height Height of the new image.
+     * @return New image.
+     */
+    public Image scaledTo(final int width, final int height) {
+        Image.checkDimensions(width, height);
+
+        Image source = levels.get(0);
+        for (Image level : levels) {
+            if ((level.getWidth() < width) || (level.getHeight() < height)) {
+                break;
+            }
+            source = level;
+        }
+        if ((source.getWidth() == width) && (source.getHeight() == height)) {
+            return source.copy();
+        }
+
+        return resample(source, width, height);
+    }
+
+    /** Halve the image by averaging 2x2 blocks (in parallel).
+     *
+     * <p>
+     * For odd sizes the image is resampled by area averaging instead, so
+     * that the last row or column is not lost.
+     *
+     * @param src Source image.
+     * @return Image of half the size.
+     */
+    private static Image halve(final Image src) {
+        final int width = src.getWidth() / 2;
+        final int height = src.getHeight() / 2;
+        if ((src.getWidth() % 2 != 0) || (src.getHeight() % 2 != 0)) {
+            return resample(src, width, height);
+        }
+        final Image dst = Image.createBlank(width, height);
+        final int[] in = src.getPixelsUnsafe();
+        final int[] out = dst.getPixelsUnsafe();
+        Parallel.forRange(0, height, Parallel.rowsPerTask(MIN_PIXELS_PER_TASK, width), y -> {
+            int upper = src.getOffsetUnsafe() + 2 * y * src.getStrideUnsafe();
+            int lower = upper + src.getStrideUnsafe();
+            int to = dst.getOffsetUnsafe() + y * dst.getStrideUnsafe();
+            long[] acc = new long[CHANNELS];
+            for (int x = 0; x < width; x++) {
+                out[to + x] = average(in[upper + 2 * x], in[upper + 2 * x + 1],
+                        in[lower + 2 * x], in[lower + 2 * x + 1], acc);
+            }
+        });
+        PIXELS_PROCESSED.add((long) width * height);
+        return dst;
+    }
+
+    /** Average a 2x2 block of pixels.
+     *
+     * <p>
+     * Opaque blocks (the common case) average two channels at once in
+     * the lanes of one int. Other blocks are weighted by alpha so that
+     * transparent pixels do not darken their neighbours.
+     *
+     * @param p0 Top-left pixel.
+     * @param p1 Top-right pixel.
+     * @param p2 Bottom-left pixel.
+     * @param p3 Bottom-right pixel.
+     * @param acc Scratch space for premultiplied channel sums.
+     * @return Average pixel (ARGB).
+     */
+    private static int average(final int p0, final int p1, final int p2, final int p3,
+            final long[] acc) {
+        if (((p0 & p1 & p2 & p3) >>> 24) != 0xFF) {
+            Arrays.fill(acc, 0);
+            Convolution.addPremultiplied(acc, 0, 1, p0);
+            Convolution.addPremultiplied(acc, 0, 1, p1);
+            Convolution.addPremultiplied(acc, 0, 1, p2);
+            Convolution.addPremultiplied(acc, 0, 1, p3);
+            return Convolution.unpremultiply((acc[0] + 2) >> 2, (acc[1] + 2) >> 2,
+                    (acc[2] + 2) >> 2, (acc[3] + 2) >> 2);
+        }
+        int rb = (p0 & ALTERNATE_CHANNELS) + (p1 & ALTERNATE_CHANNELS) + ROUNDING;
+        rb += (p2 & ALTERNATE_CHANNELS) + (p3 & ALTERNATE_CHANNELS);
+        int ag = ((p0 >>> 8) & ALTERNATE_CHANNELS) + ((p1 >>> 8) & ALTERNATE_CHANNELS) + ROUNDING;
+        ag += ((p2 >>> 8) & ALTERNATE_CHANNELS) + ((p3 >>> 8) & ALTERNATE_CHANNELS);
+        return ((rb >>> 2) & ALTERNATE_CHANNELS) | (((ag >>> 2) & ALTERNATE_CHANNELS) << 8);
+    }
+
+    /** Resample image by area averaging (in parallel).
+     *
+     * @param src Source image.
+     * @param width New width.
+     * @param height New height.
+     * @return Resampled image.
+     */
+    private static Image resample(final Image src, final int width, final int height) {
+        final Image dst = Image.createBlank(width, height);
+        final AreaResampler resampler = new AreaResampler(src.getWidth(), src.getHeight(),
+                width, height);
+        Parallel.forRange(0, height, Parallel.rowsPerTask(MIN_PIXELS_PER_TASK, width), y -> {
+            resampler.sampleRow(src, y, 0, width, dst.getPixelsUnsafe(),
+                    dst.getOffsetUnsafe() + y * dst.getStrideUnsafe());
+        });
+        PIXELS_PROCESSED.add((long) width * height);
+        return dst;
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+/** Histograms and summary statistics of image pixels.
+ *
+ * <p>
+ * All the values are computed in a single (parallel) pass over the image
+ * by Image.statistics(), the object does not change afterwards.
+ *
+ * <pre>
+ * ImageStatistics stats = photo.statistics();
+ * if (stats.getMean(Channel.LUMINANCE) &lt; 40) {
+ *     System.out.println("Underexposed photo");
+ * }
+ * </pre>
+ */
+public final class ImageStatistics {
+    /** Number of distinct channel values. */
+    private static final int LEVELS = 256;
+
+    /** Minimal number of pixels processed by one task. */
+    private static final int MIN_PIXELS_PER_TASK = 256 * 1024;
+
+    /** Histograms of all channels (indexed by channel ordinal, then value). */
+    private final long[][] histograms;
+
+    /** Number of pixels. */
+    private final long pixelCount;
+
+    /** Constructor.
+     *
+     * @param histograms Histograms of all channels.
+     * @param pixelCount Number of pixels.
+     */
+    private ImageStatistics(final long[][] histograms, final long pixelCount) {
+        this.histograms = histograms;
+        this.pixelCount = pixelCount;
+    }
+
+    /** Compute statistics of an image.
+     *
+     * <p>
+     * Rows are split into bands, each band counts its own histograms
+     * which are summed at the end (so the tasks never share counters).
+     *
+     * @param image Image to analyze.
+     * @return Computed statistics.
+     */
+    static ImageStatistics compute(final Image image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int rows = Parallel.rowsPerTask(MIN_PIXELS_PER_TASK, width);
+        final int[][] partial = new int[(height + rows - 1) / rows][];
+        Parallel.forRange(0, partial.length, 1, band -> {
+            partial[band] = countBand(image, band * rows, Math.min(height, band * rows + rows));
+        });
+
+        int channels = Channel.values().length;
+        long[][] histograms = new long[channels][LEVELS];
+        for (int[] counts : partial) {
+            for (int i = 0; i < counts.length; i++) {
+                histograms[i / LEVELS][i % LEVELS] += counts[i];
+            }
+        }
+        return new ImageStatistics(histograms, (long) width * height);
+    }
+
+    /** Get number of pixels.
+     *
+     * @return Number of pixels of the analyzed image.
+     */
+    public long getPixelCount() {
+        return pixelCount;
+    }
+
+    /** Get histogram of a channel.
+     *
+     * @param channel Channel to query.
+     * @return Number of pixels for each of the 256 channel values (a copy).
+     */
+    public long[] getHistogram(final Channel channel) {
+        return histogram(channel).clone();
+    }
+
+    /** Get mean value of a channel.
+     *
+     * @param channel Channel to query.
+     * @return Mean value in 0 to 255 range.
+     */
+    public double getMean(final Channel channel) {
+        long[] hist = histogram(channel);
+        double sum = 0;
+        for (int i = 0; i < LEVELS; i++) {
+            sum += (double) i * hist[i];
+        }
+        return sum / pixelCount;
+    }
+
+    /** Get variance of a channel.
+     *
+     * @param channel Channel to query.
+     * @return Variance (of the whole population).
+     */
+    public double getVariance(final Channel channel) {
+        long[] hist = histogram(channel);
+        double mean = getMean(channel);
+        double sum = 0;
+        for (int i = 0; i < LEVELS; i++) {
+            sum += (i - mean) * (i - mean) * hist[i];
+        }
+        return sum / pixelCount;
+    }
+
+    /** Get standard deviation of a channel.
+     *
+     * @param channel Channel to query.
+     * @return Standard deviation (of the whole population).
+     */
+    public double getStandardDeviation(final Channel channel) {
+        return Math.sqrt(getVariance(channel));
+    }
+
+    /** Get minimum value of a channel.
+     *
+     * @param channel Channel to query.
+     * @return Smallest value present in the image.
+     */
+    public int getMin(final Channel channel) {
+        return getPercentile(channel, 0);
+    }
+
+    /** Get maximum value of a channel.
+     *
+     * @param channel Channel to query.
+     * @return Largest value present in the image.
+     */
+    public int getMax(final Channel channel) {
+        long[] hist = histogram(channel);
+        int res = LEVELS - 1;
+        while (hist[res] == 0) {
+            res--;
+        }
+        return res;
+    }
+
+    /** Get value below which given fraction of pixels lies.
+     *
+     * @param channel Channel to query.
+     * @param fraction Fraction of pixels (0 to 1).
+     * @return Smallest value v such that at least given fraction of pixels is at most v.
+     */
+    public int getPercentile(final Channel channel, final double fraction) {
+        if (!(fraction >= 0) || (fraction > 1)) {
+            throw new Problem("Fraction %f is out of range [0, 1].", fraction);
+        }
+        long[] hist = histogram(channel);
+        long limit = Math.max(1, (long) Math.ceil(fraction * pixelCount));
+        long count = 0;
+        for (int i = 0; i < LEVELS; i++) {
+            count += hist[i];
+            if (count >= limit) {
+                return i;
+            }
+        }
+        return LEVELS - 1;
+    }
+
+    /** Get average color of the image.
+     *
+     * @return Color with mean values of all channels.
+     */
+    public Color getMeanColor() {
+        return new Color((int) Math.round(getMean(Channel.RED)),
+                (int) Math.round(getMean(Channel.GREEN)),
+                (int) Math.round(getMean(Channel.BLUE)),
+                (int) Math.round(getMean(Channel.ALPHA)));
+    }
+
+    /** Compute table for histogram equalization of a channel.
+     *
+     * @param channel Channel to equalize.
+     * @return New value for each of the 256 channel values.
+     */
+    int[] equalizationTable(final Channel channel) {
+        long[] hist = histogram(channel);
+        long first = hist[getMin(channel)];
+        int[] res = new int[LEVELS];
+        long count = 0;
+        for (int i = 0; i < LEVELS; i++) {
+            count += hist[i];
+            if (pixelCount == first) {
+                res[i] = i;
+            } else {
+                res[i] = (int) Math.round((double) Math.max(0, count - first)
+                        * (LEVELS - 1) / (pixelCount - first));
+            }
+        }
+        return res;
+    }
+
+    /** Compute table that stretches a channel to the full range.
+     *
+     * @param channel Channel to stretch.
+     * @param clip Fraction of darkest (and brightest) pixels that may saturate.
+     * @return New value for each of the 256 channel values.
+     */
+    int[] levelsTable(final Channel channel, final double clip) {
+        int low = getPercentile(channel, clip);
+        int high = getPercentile(channel, 1 - clip);
+        int[] res = new int[LEVELS];
+        for (int i = 0; i < LEVELS; i++) {
+            if (high <= low) {
+                res[i] = i;
+            } else {
+                long value = Math.round((double) (i - low) * (LEVELS - 1) / (high - low));
+                res[i] = (int) Math.max(0, Math.min(LEVELS - 1, value));
+            }
+        }
+        return res;
+    }
+
+    /** Get histogram without copying.
+     *
+     * @param channel Channel to query.
+     * @return Histogram of the channel.
+     */
+    private long[] histogram(final Channel channel) {
+        Problem.whenNull(channel, "channel");
+        return histograms[channel.ordinal()];
+    }
+
+    /** Count histograms of a band of rows.
+     *
+     * @param image Image to analyze.
+     * @param from First row (inclusive).
+     * @param to Last row (exclusive).
+     * @return Concatenated histograms of all channels (in channel order).
+     */
+    private static int[] countBand(final Image image, final int from, final int to) {
+        int[] counts = new int[Channel.values().length * LEVELS];
+        int[] pixels = image.getPixelsUnsafe();
+        for (int y = from; y < to; y++) {
+            int rowStart = image.getOffsetUnsafe() + y * image.getStrideUnsafe();
+            for (int i = rowStart; i < rowStart + image.getWidth(); i++) {
+                int p = pixels[i];
+                counts[(p >> 16) & 0xFF]++;
+                counts[LEVELS + ((p >> 8) & 0xFF)]++;
+                counts[2 * LEVELS + (p & 0xFF)]++;
+                counts[3 * LEVELS + (p >>> 24)]++;
+                counts[4 * LEVELS + Channel.luminance(p)]++;
+            }
+        }
+        return counts;
+    }
+}
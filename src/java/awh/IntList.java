@@ -23,11 +23,32 @@
 
 package awh;
 
-/** List of integers. */
+import java.io.InputStream;
+
+/** List of integers.
+ *
+ * <p>
+ * The integers are stored unboxed. The list can be saved to a compact
+ * binary file and loaded back, large files can be also memory-mapped
+ * instead of being loaded to memory.
+ */
 public class IntList extends SimpleList<Integer> {
+    /** Storage of the values (the same object is used by the parent). */
+    private final IntStorage values;
 
     /** Default constructor. */
-    public IntList() {}
+    public IntList() {
+        this(new IntStorage());
+    }
+
+    /** Constructor with existing storage.
+     *
+     * @param storage Storage of the values.
+     */
+    private IntList(final IntStorage storage) {
+        super(storage);
+        values = storage;
+    }
 
     /** Create list of integers and populate it with initial values.
      *
@@ -35,9 +56,170 @@ public class IntList extends SimpleList<Integer> {
      * @return Populated list of integers.
      */
     public static IntList create(final int... values) {
+        Problem.whenNull(values, "initial values");
+
+        return new IntList(new IntStorage(values.clone()));
+    }
+
+    /** Load list previously saved with saveToFile().
+     *
+     * @param path Path to the file.
+     * @return Loaded list.
+     * @throws Problem When list cannot be loaded.
+     */
+    public static IntList loadFromFile(final String path) {
+        Problem.whenNull(path, "list path");
+
+        return new IntList(new IntStorage(BinaryListFile.readInts(path)));
+    }
+
+    /** Read integers from a text file.
+     *
+     * <p>
+     * The numbers can be separated by any whitespace or commas, so this
+     * reads files with one number per line as well as comma-separated rows.
+     * The file is parsed directly from memory-mapped bytes, without creating
+     * a String for each number.
+     *
+     * @param path Path to the file.
+     * @return List with the numbers in the order they appear in the file.
+     * @throws Problem When file cannot be read or contains something else than integers.
+     */
+    public static IntList readFrom(final String path) {
+        return readFrom(path, false);
+    }
+
+    /** Read integers from a text file, optionally in parallel.
+     *
+     * <p>
+     * When parallel reading is requested, large files are split into
+     * chunks (one for each processor) that are parsed at the same time.
+     *
+     * @param path Path to the file.
+     * @param parallel Whether to parse large files in parallel.
+     * @return List with the numbers in the order they appear in the file.
+     * @throws Problem When file cannot be read or contains something else than integers.
+     */
+    public static IntList readFrom(final String path, final boolean parallel) {
+        return new IntList(IntParser.readFile(path, parallel));
+    }
+
+    /** Read integers in text form from a stream.
+     *
+     * <p>
+     * The numbers can be separated by any whitespace or commas.
+     * The stream is read till its end but it is not closed.
+     *
+     * @param in Input stream.
+     * @return List with the numbers in the order they appear in the stream.
+     * @throws Problem When stream cannot be read or contains something else than integers.
+     */
+    public static IntList readFrom(final InputStream in) {
+        return new IntList(IntParser.readStream(in));
+    }
+
+    /** Open list previously saved with saveToFile() without loading it.
+     *
+     * <p>
+     * The file is memory-mapped: opening is instant regardless of file size,
+     * the values are paged in by the operating system when accessed and
+     * the page cache is shared with other processes reading the same file.
+     * The returned list is read-only, any attempt to modify it throws
+     * Problem. The file can contain at most 2 GB of values.
+     *
+     * @param path Path to the file.
+     * @return Read-only list backed by the file.
+     * @throws Problem When list cannot be opened.
+     */
+    public static IntList openMapped(final String path) {
+        return new IntList(new IntStorage(BinaryListFile.mapInts(path)));
+    }
+
+    /** Append value to the end of the list.
+     *
+     * @param value Value to append.
+     */
+    public void add(final int value) {
+        values.addInt(value);
+    }
+
+    /** Get element at the specified position without boxing.
+     *
+     * <p>
+     * Works as get() (including negative indices) but returns
+     * the primitive value, use it in loops over large lists.
+     *
+     * @param index Position (zero based).
+     * @return Element at given index.
+     */
+    public int getInt(final int index) {
+        return values.getInt(toPositiveIndex(index));
+    }
+
+    /** Save list to a binary file.
+     *
+     * <p>
+     * The file uses little-endian binary format with a small header,
+     * use loadFromFile() or openMapped() to read it back.
+     *
+     * @param path Destination file path.
+     * @throws Problem When list cannot be saved.
+     */
+    public void saveToFile(final String path) {
+        BinaryListFile.writeInts(path, values.contents());
+    }
+
+    @Override
+    void appendElement(final StringBuilder sb, final int index) {
+        sb.append(values.getInt(index));
+    }
+
+    @Override
+    public Integer max() {
+        if (isEmpty()) {
+            throw new Problem("Cannot find maximum for empty list");
+        }
+        int res = values.getInt(0);
+        for (int i = 1; i < size(); i++) {
+            int v = values.getInt(i);
+            if (v > res) {
+                res = v;
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public void sort() {
+        values.sort();
+    }
+
+    @Override
+    public IntList topK(final int k) {
+        Problem.whenNotInRange("number of elements", k, 0, Integer.MAX_VALUE + 1L);
+
+        return create(Selection.largest(values.contents(), size(), k));
+    }
+
+    @Override
+    public Integer kthSmallest(final int k) {
+        Problem.whenNotInRange("element rank", k, 0, size());
+
+        int[] scratch = values.toIntArray();
+        Selection.select(scratch, scratch.length, k);
+        return scratch[k];
+    }
+
+    @Override
+    public IntList percentiles(final double... percentiles) {
+        int[] ranks = percentileRanks(percentiles);
+
+        int[] scratch = values.toIntArray();
+        Selection.select(scratch, scratch.length, Selection.sortedRanks(ranks));
+
         IntList res = new IntList();
-        for (int v : values) {
-            res.add(v);
+        for (int rank : ranks) {
+            res.add(scratch[rank]);
         }
         return res;
     }
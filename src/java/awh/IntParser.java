@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/** Parser of integers in text form. */
+final class IntParser extends AbstractNumberParser {
+    /** Parsed values. */
+    private final IntStorage values = new IntStorage();
+
+    /** Constructor.
+     *
+     * @param what Source description for error messages.
+     */
+    private IntParser(final String what) {
+        super(what);
+    }
+
+    /** Read integers from a text file.
+     *
+     * @param path Path to the file.
+     * @param parallel Whether to parse large files in parallel chunks.
+     * @return Parsed integers.
+     * @throws Problem When file cannot be read or contains invalid numbers.
+     */
+    static IntStorage readFile(final String path, final boolean parallel) {
+        IntParser parser = new IntParser(describeFile(path));
+        parser.parseFile(path, parallel);
+        return parser.values;
+    }
+
+    /** Read integers from a stream.
+     *
+     * @param in Input stream (not closed by this method).
+     * @return Parsed integers.
+     * @throws Problem When stream cannot be read or contains invalid numbers.
+     */
+    static IntStorage readStream(final InputStream in) {
+        IntParser parser = new IntParser("input stream");
+        parser.parseStream(in);
+        return parser.values;
+    }
+
+    @Override
+    void parseNumber(final ByteBuffer buf, final int start, final int end) {
+        int i = start;
+        boolean negative = buf.get(i) == '-';
+        if (negative || (buf.get(i) == '+')) {
+            i++;
+        }
+        if (i == end) {
+            fail(buf, start, end);
+        }
+
+        // Accumulate the absolute value in a long to detect overflows.
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buf.get(i) - '0';
+            if ((digit < 0) || (digit > 9)) {
+                fail(buf, start, end);
+            }
+            value = value * 10 + digit;
+            if (value > -(long) Integer.MIN_VALUE) {
+                fail(buf, start, end);
+            }
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (value > Integer.MAX_VALUE) {
+            fail(buf, start, end);
+        }
+
+        values.addInt((int) value);
+    }
+
+    @Override
+    AbstractNumberParser newChunkParser() {
+        return new IntParser(getSource());
+    }
+
+    @Override
+    void appendChunk(final AbstractNumberParser chunk) {
+        values.append(((IntParser) chunk).values);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/** Storage of primitive integers behind IntList.
+ *
+ * <p>
+ * The values are kept in an IntBuffer that is either backed by a growable
+ * array (the usual case) or by a read-only memory-mapped file.
+ * The boxed List interface is provided for SimpleList, IntList itself uses
+ * the primitive accessors to avoid boxing.
+ */
+final class IntStorage extends AbstractList<Integer> implements RandomAccess {
+    /** Capacity of a newly created storage. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Maximum capacity of the array (some VMs reserve header words in arrays). */
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    /** The values, only first count of them are valid. */
+    private IntBuffer buffer;
+
+    /** Number of valid values. */
+    private int count;
+
+    /** Whether the storage can be modified. */
+    private final boolean writable;
+
+    /** Create empty growable storage. */
+    IntStorage() {
+        buffer = IntBuffer.allocate(INITIAL_CAPACITY);
+        writable = true;
+    }
+
+    /** Create read-only storage over existing buffer.
+     *
+     * @param view Buffer with the values (from position zero to its limit).
+     */
+    IntStorage(final IntBuffer view) {
+        buffer = view;
+        count = view.limit();
+        writable = false;
+    }
+
+    /** Create storage with given values.
+     *
+     * @param values Initial values (the array is used directly, not copied).
+     */
+    IntStorage(final int[] values) {
+        buffer = IntBuffer.wrap(values);
+        count = values.length;
+        writable = true;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public Integer get(final int index) {
+        checkIndex(index);
+        return buffer.get(index);
+    }
+
+    @Override
+    public Integer set(final int index, final Integer value) {
+        checkIndex(index);
+        Problem.whenNull(value, "new element");
+        checkWritable();
+
+        int old = buffer.get(index);
+        buffer.put(index, value);
+        return old;
+    }
+
+    @Override
+    public boolean add(final Integer value) {
+        Problem.whenNull(value, "element that is added");
+
+        addInt(value);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+
+        count = 0;
+        modCount++;
+    }
+
+    /** Get value without any range checks.
+     *
+     * @param index Index in range 0 to size() - 1.
+     * @return Value at given index.
+     */
+    int getInt(final int index) {
+        return buffer.get(index);
+    }
+
+    /** Append primitive value.
+     *
+     * @param value Value to append.
+     */
+    void addInt(final int value) {
+        checkWritable();
+        if (count == buffer.capacity()) {
+            ensureCapacity(count + 1L);
+        }
+
+        buffer.put(count, value);
+        count++;
+        modCount++;
+    }
+
+    /** Sort values in place. */
+    void sort() {
+        checkWritable();
+
+        Arrays.sort(buffer.array(), 0, count);
+        modCount++;
+    }
+
+    /** Get values as a buffer.
+     *
+     * @return Buffer with all values between position zero and its limit (do not modify).
+     */
+    IntBuffer contents() {
+        IntBuffer res = buffer.duplicate();
+        res.limit(count);
+        return res;
+    }
+
+    /** Copy values to a new array.
+     *
+     * @return New array with all the values.
+     */
+    int[] toIntArray() {
+        int[] res = new int[count];
+        contents().get(res);
+        return res;
+    }
+
+    /** Append all values from another storage.
+     *
+     * @param other Storage with values to append.
+     */
+    void append(final IntStorage other) {
+        checkWritable();
+        ensureCapacity((long) count + other.count);
+
+        other.contents().get(buffer.array(), count, other.count);
+        count += other.count;
+        modCount++;
+    }
+
+    /** Enlarge the backing array if needed.
+     *
+     * @param minCapacity Minimal required capacity.
+     * @throws Problem When required capacity is too big.
+     */
+    private void ensureCapacity(final long minCapacity) {
+        int capacity = buffer.capacity();
+        if (minCapacity <= capacity) {
+            return;
+        }
+        if (minCapacity > MAX_CAPACITY) {
+            throw new Problem("Cannot store more than %d elements.", MAX_CAPACITY);
+        }
+        int newCapacity = (int) Math.min(MAX_CAPACITY, Math.max(minCapacity,
+                Math.max(INITIAL_CAPACITY, capacity + (long) (capacity >> 1))));
+
+        IntBuffer bigger = IntBuffer.allocate(newCapacity);
+        System.arraycopy(buffer.array(), 0, bigger.array(), 0, count);
+        buffer = bigger;
+    }
+
+    /** Check that index is valid.
+     *
+     * @param index Index to check.
+     * @throws IndexOutOfBoundsException When index is out of range (as required by List).
+     */
+    private void checkIndex(final int index) {
+        if ((index < 0) || (index >= count)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+        }
+    }
+
+    /** Check that the storage is not read-only.
+     *
+     * @throws Problem When storage is read-only.
+     */
+    private void checkWritable() {
+        if (!writable) {
+            throw new Problem("Cannot modify read-only list (memory-mapped from a file).");
+        }
+    }
+}
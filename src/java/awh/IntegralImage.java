@@ -0,0 +1,338 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+/** Summed-area tables of image channels (see Image.integral()).
+ *
+ * <p>
+ * For every channel the table holds sums of values of all pixels above
+ * and to the left of each position. Sum and mean of any rectangle are
+ * then computed from four table entries, no matter how large the
+ * rectangle is. Tables of squared values, needed for variance, are
+ * computed only on request (see Image.integralWithVariance()).
+ *
+ * <p>
+ * The tables are computed once and do not follow later changes of the
+ * image.
+ *
+ * <pre>
+ * IntegralImage integral = photo.integral(Channel.LUMINANCE);
+ * double local = integral.getMean(Channel.LUMINANCE, x - 7, y - 7, 15, 15);
+ * </pre>
+ */
+public final class IntegralImage {
+    /** Minimal number of table entries processed by one task. */
+    private static final int MIN_ENTRIES_PER_TASK = 64 * 1024;
+
+    /** Channels computed when none are given. */
+    private static final Channel[] DEFAULT_CHANNELS = {Channel.RED, Channel.GREEN, Channel.BLUE};
+
+    /** Number of table columns accumulated by one task. */
+    private static final int COLUMNS_PER_STRIP = 256;
+
+    /** Image width. */
+    private final int width;
+
+    /** Image height. */
+    private final int height;
+
+    /** Sums of values (indexed by channel ordinal, null for missing channels). */
+    private final long[][] sums;
+
+    /** Sums of squared values (indexed by channel ordinal, null when not computed). */
+    private final long[][] squares;
+
+    /** Constructor.
+     *
+     * @param width Image width.
+     * @param height Image height.
+     * @param sums Sums of values.
+     * @param squares Sums of squared values.
+     */
+    private IntegralImage(final int width, final int height, final long[][] sums,
+            final long[][] squares) {
+        this.width = width;
+        this.height = height;
+        this.sums = sums;
+        this.squares = squares;
+    }
+
+    /** Compute summed-area tables of given channels.
+     *
+     * <p>
+     * Tables have one extra row and column of zeros at the top and left.
+     * The first pass computes prefix sums of each row (bands of rows in
+     * parallel), the second accumulates them down the columns (strips
+     * of columns in parallel).
+     *
+     * @param image Source image.
+     * @param withSquares Whether to compute also tables of squared values.
+     * @param channels Channels to compute (red, green and blue when none are given).
+     * @return Computed tables.
+     */
+    static IntegralImage compute(final Image image, final boolean withSquares,
+            final Channel... channels) {
+        Problem.whenNull(channels, "channels");
+        final int imageWidth = image.getWidth();
+        final int imageHeight = image.getHeight();
+        final long[][] sumTables = new long[Channel.values().length][];
+        final long[][] squareTables = new long[sumTables.length][];
+        final Channel[] selected = channels.length == 0 ? DEFAULT_CHANNELS : channels;
+        for (Channel channel : selected) {
+            Problem.whenNull(channel, "channel");
+            sumTables[channel.ordinal()] = new long[(imageWidth + 1) * (imageHeight + 1)];
+            if (withSquares) {
+                squareTables[channel.ordinal()] = new long[(imageWidth + 1) * (imageHeight + 1)];
+            }
+        }
+
+        Parallel.forRange(0, imageHeight, Parallel.rowsPerTask(MIN_ENTRIES_PER_TASK, imageWidth),
+            y -> {
+                for (Channel channel : Channel.values()) {
+                    prefixRow(image, y, channel, sumTables[channel.ordinal()],
+                            squareTables[channel.ordinal()]);
+                }
+            });
+        final int strips = (imageWidth + COLUMNS_PER_STRIP - 1) / COLUMNS_PER_STRIP;
+        Parallel.forRange(0, strips, 1, strip -> {
+            int from = 1 + strip * COLUMNS_PER_STRIP;
+            int to = Math.min(imageWidth + 1, from + COLUMNS_PER_STRIP);
+            for (int c = 0; c < sumTables.length; c++) {
+                accumulateColumns(sumTables[c], imageWidth + 1, from, to);
+                accumulateColumns(squareTables[c], imageWidth + 1, from, to);
+            }
+        });
+        return new IntegralImage(imageWidth, imageHeight, sumTables, squareTables);
+    }
+
+    /** Compute prefix sums of one image row into the tables.
+     *
+     * @param image Source image.
+     * @param y Image row.
+     * @param channel Channel to sum.
+     * @param sum Table of sums (null when the channel is not computed).
+     * @param square Table of sums of squares (may be null).
+     */
+    private static void prefixRow(final Image image, final int y, final Channel channel,
+            final long[] sum, final long[] square) {
+        if (sum == null) {
+            return;
+        }
+        final int[] pixels = image.getPixelsUnsafe();
+        final int src = image.getOffsetUnsafe() + y * image.getStrideUnsafe();
+        final int dst = (y + 1) * (image.getWidth() + 1) + 1;
+        long rowSum = 0;
+        long rowSquares = 0;
+        for (int x = 0; x < image.getWidth(); x++) {
+            int value = channel.of(pixels[src + x]);
+            rowSum += value;
+            sum[dst + x] = rowSum;
+            if (square != null) {
+                rowSquares += value * value;
+                square[dst + x] = rowSquares;
+            }
+        }
+    }
+
+    /** Accumulate row prefix sums down a strip of columns.
+     *
+     * @param table Table to accumulate (may be null).
+     * @param stride Number of table columns.
+     * @param from First table column (inclusive).
+     * @param to Last table column (exclusive).
+     */
+    private static void accumulateColumns(final long[] table, final int stride,
+            final int from, final int to) {
+        if (table == null) {
+            return;
+        }
+        for (int row = 2 * stride; row < table.length; row += stride) {
+            for (int i = row + from; i < row + to; i++) {
+                table[i] += table[i - stride];
+            }
+        }
+    }
+
+    /** Get width of the source image.
+     *
+     * @return Width in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /** Get height of the source image.
+     *
+     * @return Height in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /** Get sum of channel values in a rectangle.
+     *
+     * <p>
+     * The rectangle is clipped to the image.
+     *
+     * @param channel Channel to query.
+     * @param x Left edge of the rectangle.
+     * @param y Top edge of the rectangle.
+     * @param rectWidth Width of the rectangle.
+     * @param rectHeight Height of the rectangle.
+     * @return Sum of the values.
+     */
+    public long getSum(final Channel channel, final int x, final int y,
+            final int rectWidth, final int rectHeight) {
+        return query(table(sums, channel), x, y, rectWidth, rectHeight);
+    }
+
+    /** Get mean of channel values in a rectangle.
+     *
+     * <p>
+     * The rectangle is clipped to the image.
+     *
+     * @param channel Channel to query.
+     * @param x Left edge of the rectangle.
+     * @param y Top edge of the rectangle.
+     * @param rectWidth Width of the rectangle.
+     * @param rectHeight Height of the rectangle.
+     * @return Mean value in 0 to 255 range.
+     * @throws Problem When the rectangle lies outside of the image.
+     */
+    public double getMean(final Channel channel, final int x, final int y,
+            final int rectWidth, final int rectHeight) {
+        long area = area(x, y, rectWidth, rectHeight);
+        return (double) getSum(channel, x, y, rectWidth, rectHeight) / area;
+    }
+
+    /** Get variance of channel values in a rectangle.
+     *
+     * <p>
+     * The rectangle is clipped to the image.
+     *
+     * @param channel Channel to query.
+     * @param x Left edge of the rectangle.
+     * @param y Top edge of the rectangle.
+     * @param rectWidth Width of the rectangle.
+     * @param rectHeight Height of the rectangle.
+     * @return Variance (of the whole population).
+     * @throws Problem When the rectangle lies outside of the image or squares were not computed.
+     */
+    public double getVariance(final Channel channel, final int x, final int y,
+            final int rectWidth, final int rectHeight) {
+        long area = area(x, y, rectWidth, rectHeight);
+        long sum = getSum(channel, x, y, rectWidth, rectHeight);
+        if (squares[channel.ordinal()] == null) {
+            throw new Problem("Variance of %s was not computed (see Image.integralWithVariance()).",
+                    channel);
+        }
+        long sumOfSquares = query(table(squares, channel), x, y, rectWidth, rectHeight);
+        // (n * sum(v^2) - sum(v)^2) / n^2, rounding must not make it negative.
+        double scaled = (double) sumOfSquares * area - (double) sum * sum;
+        return Math.max(0, scaled) / ((double) area * area);
+    }
+
+    /** Get standard deviation of channel values in a rectangle.
+     *
+     * @param channel Channel to query.
+     * @param x Left edge of the rectangle.
+     * @param y Top edge of the rectangle.
+     * @param rectWidth Width of the rectangle.
+     * @param rectHeight Height of the rectangle.
+     * @return Standard deviation (of the whole population).
+     * @throws Problem When the rectangle lies outside of the image or squares were not computed.
+     */
+    public double getStandardDeviation(final Channel channel, final int x, final int y,
+            final int rectWidth, final int rectHeight) {
+        return Math.sqrt(getVariance(channel, x, y, rectWidth, rectHeight));
+    }
+
+    /** Sum table entries of a (clipped) rectangle.
+     *
+     * @param table Summed-area table.
+     * @param x Left edge of the rectangle.
+     * @param y Top edge of the rectangle.
+     * @param rectWidth Width of the rectangle.
+     * @param rectHeight Height of the rectangle.
+     * @return Sum over the rectangle.
+     */
+    private long query(final long[] table, final int x, final int y,
+            final int rectWidth, final int rectHeight) {
+        int left = clamp(x, width);
+        int right = clamp((long) x + rectWidth, width);
+        int top = clamp(y, height);
+        int bottom = clamp((long) y + rectHeight, height);
+        if ((left >= right) || (top >= bottom)) {
+            return 0;
+        }
+        int stride = width + 1;
+        return table[bottom * stride + right] - table[top * stride + right]
+                - table[bottom * stride + left] + table[top * stride + left];
+    }
+
+    /** Compute area of a clipped rectangle.
+     *
+     * @param x Left edge of the rectangle.
+     * @param y Top edge of the rectangle.
+     * @param rectWidth Width of the rectangle.
+     * @param rectHeight Height of the rectangle.
+     * @return Number of pixels inside the image.
+     * @throws Problem When the rectangle does not contain any pixel.
+     */
+    private long area(final int x, final int y, final int rectWidth, final int rectHeight) {
+        long w = clamp((long) x + rectWidth, width) - clamp(x, width);
+        long h = clamp((long) y + rectHeight, height) - clamp(y, height);
+        if ((w <= 0) || (h <= 0)) {
+            throw new Problem("Rectangle %dx%d at %d,%d does not overlap the image.",
+                    rectWidth, rectHeight, x, y);
+        }
+        return w * h;
+    }
+
+    /** Get table of a channel.
+     *
+     * @param tables Tables of all channels.
+     * @param channel Channel to query.
+     * @return Summed-area table.
+     * @throws Problem When the channel was not computed.
+     */
+    private static long[] table(final long[][] tables, final Channel channel) {
+        Problem.whenNull(channel, "channel");
+        long[] res = tables[channel.ordinal()];
+        if (res == null) {
+            throw new Problem("Channel %s was not computed.", channel);
+        }
+        return res;
+    }
+
+    /** Clamp coordinate to image bounds.
+     *
+     * @param value Coordinate.
+     * @param size Image size.
+     * @return Coordinate in 0 to size range (inclusive).
+     */
+    private static int clamp(final long value, final int size) {
+        return (int) Math.max(0, Math.min(size, value));
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.Arrays;
+
+/** Convolution kernel (matrix of weights) for Filters.convolve().
+ *
+ * <p>
+ * The new value of each pixel is the weighted sum of its neighbourhood,
+ * the center of the kernel is placed over the computed pixel (kernel
+ * dimensions must be odd).
+ *
+ * <pre>
+ * Kernel emboss = new Kernel(3, 3,
+ *     -2, -1, 0,
+ *     -1,  1, 1,
+ *      0,  1, 2);
+ * image.filter().convolve(emboss);
+ * </pre>
+ *
+ * <p>
+ * Kernels that are product of a column and a row (such as the Gaussian
+ * one) are detected and applied as two one-dimensional passes, which is
+ * much faster for bigger kernels.
+ */
+public final class Kernel {
+    /** Maximum kernel width and height. */
+    static final int MAX_SIZE = 255;
+
+    /** Maximum sum of absolute values of the weights (keeps fixed-point sums in range). */
+    static final int MAX_WEIGHT = 256;
+
+    /** Tolerance when checking whether the kernel is separable. */
+    private static final double EPSILON = 1e-9;
+
+    /** Kernel width. */
+    private final int width;
+
+    /** Kernel height. */
+    private final int height;
+
+    /** Weights row by row. */
+    private final double[] weights;
+
+    /** Horizontal weights of separable kernel (null when not separable). */
+    private final double[] rowWeights;
+
+    /** Vertical weights of separable kernel (null when not separable). */
+    private final double[] columnWeights;
+
+    /** Create kernel from given weights.
+     *
+     * @param width Kernel width (odd number).
+     * @param height Kernel height (odd number).
+     * @param weights Weights row by row (width * height values).
+     * @throws Problem When the dimensions are not odd or do not match the weights.
+     */
+    public Kernel(final int width, final int height, final double... weights) {
+        Problem.whenNull(weights, "kernel weights");
+        Problem.whenNotInRange("kernel width", width, 1, MAX_SIZE + 1);
+        Problem.whenNotInRange("kernel height", height, 1, MAX_SIZE + 1);
+        if ((width % 2 == 0) || (height % 2 == 0)) {
+            throw new Problem("Kernel dimensions must be odd (got %dx%d).", width, height);
+        }
+        if (weights.length != width * height) {
+            throw new Problem("Kernel %dx%d needs %d weights (got %d).",
+                    width, height, width * height, weights.length);
+        }
+        double total = 0;
+        for (double w : weights) {
+            total += Math.abs(w);
+        }
+        if (!(total <= MAX_WEIGHT)) {
+            throw new Problem("Kernel weights are too big (sum of absolute values is %f).", total);
+        }
+
+        this.width = width;
+        this.height = height;
+        this.weights = weights.clone();
+
+        double[][] factors = factorize();
+        this.columnWeights = factors == null ? null : factors[0];
+        this.rowWeights = factors == null ? null : factors[1];
+    }
+
+    /** Create box kernel (plain average of the neighbourhood).
+     *
+     * @param radius Kernel radius (kernel size is 2 * radius + 1).
+     * @return New kernel.
+     */
+    public static Kernel box(final int radius) {
+        Problem.whenNotInRange("box radius", radius, 0, MAX_SIZE / 2 + 1);
+        int size = 2 * radius + 1;
+        double[] weights = new double[size * size];
+        Arrays.fill(weights, 1.0 / (size * size));
+        return new Kernel(size, size, weights);
+    }
+
+    /** Create Gaussian kernel.
+     *
+     * @param sigma Standard deviation in pixels (radius is about 3 sigma).
+     * @return New kernel.
+     */
+    public static Kernel gaussian(final double sigma) {
+        checkSigma(sigma);
+        int radius = (int) Math.ceil(3 * sigma);
+        int size = 2 * radius + 1;
+        double[] line = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            line[i] = Math.exp(-(i - radius) * (i - radius) / (2 * sigma * sigma));
+            sum += line[i];
+        }
+        double[] weights = new double[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                weights[y * size + x] = line[y] * line[x] / (sum * sum);
+            }
+        }
+        return new Kernel(size, size, weights);
+    }
+
+    /** Create 3x3 sharpening kernel.
+     *
+     * @return New kernel.
+     */
+    public static Kernel sharpen() {
+        return new Kernel(3, 3,
+                0, -1, 0,
+                -1, 5, -1,
+                0, -1, 0);
+    }
+
+    /** Get kernel width.
+     *
+     * @return Kernel width.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /** Get kernel height.
+     *
+     * @return Kernel height.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /** Get single weight.
+     *
+     * @param x Column (zero based).
+     * @param y Row (zero based).
+     * @return Weight at given position.
+     */
+    public double getWeight(final int x, final int y) {
+        Problem.whenNotInRange("x coordinate", x, 0, width);
+        Problem.whenNotInRange("y coordinate", y, 0, height);
+        return weights[y * width + x];
+    }
+
+    /** Tell whether the kernel can be applied as two one-dimensional passes.
+     *
+     * @return Whether the kernel is product of a column and a row.
+     */
+    public boolean isSeparable() {
+        return rowWeights != null;
+    }
+
+    /** Check standard deviation of Gaussian blur.
+     *
+     * @param sigma Standard deviation in pixels.
+     * @throws Problem When the kernel radius would exceed the maximum size.
+     */
+    static void checkSigma(final double sigma) {
+        if (!(sigma > 0) || (sigma > MAX_SIZE / 2 / 3.0)) {
+            throw new Problem("Sigma %f is out of range.", sigma);
+        }
+    }
+
+    /** Get all weights.
+     *
+     * @return Reference (not copy!) of the weights, row by row.
+     */
+    double[] getWeightsUnsafe() {
+        return weights;
+    }
+
+    /** Get horizontal pass of a separable kernel.
+     *
+     * @return Reference (not copy!) of the weights or null.
+     */
+    double[] getRowWeightsUnsafe() {
+        return rowWeights;
+    }
+
+    /** Get vertical pass of a separable kernel.
+     *
+     * @return Reference (not copy!) of the weights or null.
+     */
+    double[] getColumnWeightsUnsafe() {
+        return columnWeights;
+    }
+
+    /** Split kernel into column and row vector.
+     *
+     * <p>
+     * The row containing the biggest weight is taken as the row vector,
+     * the column is computed from the column with the biggest weight.
+     *
+     * @return Column and row weights or null when the kernel is not separable.
+     */
+    private double[][] factorize() {
+        int pivot = 0;
+        for (int i = 1; i < weights.length; i++) {
+            if (Math.abs(weights[i]) > Math.abs(weights[pivot])) {
+                pivot = i;
+            }
+        }
+        if (weights[pivot] == 0) {
+            return null;
+        }
+        int pivotX = pivot % width;
+        int pivotY = pivot / width;
+        double[] row = Arrays.copyOfRange(weights, pivotY * width, pivotY * width + width);
+        double[] column = new double[height];
+        for (int y = 0; y < height; y++) {
+            column[y] = weights[y * width + pivotX] / weights[pivot];
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double expected = column[y] * row[x];
+                if (Math.abs(weights[y * width + x] - expected) > EPSILON) {
+                    return null;
+                }
+            }
+        }
+        return new double[][] { column, row };
+    }
+}
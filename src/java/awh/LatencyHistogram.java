@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Histogram of durations for library metrics.
+ *
+ * <p>
+ * Durations (in nanoseconds) are counted in power-of-two buckets,
+ * percentiles are therefore reported as upper bounds of the bucket
+ * (i.e. with precision of factor of two) which is enough to tell where
+ * the time goes.
+ */
+final class LatencyHistogram {
+    /** Number of buckets (one per bit of a long). */
+    private static final int BUCKETS = 64;
+
+    /** Reported percentiles. */
+    private static final int[] PERCENTILES = { 50, 90, 99 };
+
+    /** Metric name. */
+    private final String name;
+
+    /** Counts of durations, index is number of significant bits. */
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    /** Sum of all durations. */
+    private final LongAdder total = new LongAdder();
+
+    /** Longest duration. */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /** Create new histogram, use Metrics.histogram() to get a registered one.
+     *
+     * @param metricName Metric name.
+     */
+    LatencyHistogram(final String metricName) {
+        name = metricName;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /** Record duration since given start.
+     *
+     * @param start Start time from Metrics.startTimer().
+     * @return Current time (to be used as start of the next measurement).
+     */
+    long recordSince(final long start) {
+        if (start == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        record(now - start);
+        return now;
+    }
+
+    /** Record single duration.
+     *
+     * @param nanos Duration in nanoseconds.
+     */
+    void record(final long nanos) {
+        long duration = Math.max(nanos, 0);
+        buckets[Math.max(0, BUCKETS - 1 - Long.numberOfLeadingZeros(duration))].increment();
+        total.add(duration);
+        max.accumulate(duration);
+    }
+
+    /** Reset the histogram. */
+    void reset() {
+        for (LongAdder b : buckets) {
+            b.reset();
+        }
+        total.reset();
+        max.reset();
+    }
+
+    /** Store current values into a snapshot.
+     *
+     * @param snapshot Where to store the values.
+     */
+    void storeTo(final Map<String, Long> snapshot) {
+        long[] counts = new long[BUCKETS];
+        long all = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            all += counts[i];
+        }
+        snapshot.put(name + ".count", all);
+        snapshot.put(name + ".nanos", total.sum());
+        snapshot.put(name + ".max", max.get());
+        for (int p : PERCENTILES) {
+            snapshot.put(name + ".p" + p, percentile(counts, all, p));
+        }
+    }
+
+    /** Estimate percentile from bucket counts.
+     *
+     * @param counts Counts in individual buckets.
+     * @param all Sum of all counts.
+     * @param percentile Percentile to estimate (0 to 100).
+     * @return Upper bound of the bucket containing the percentile.
+     */
+    private static long percentile(final long[] counts, final long all, final int percentile) {
+        long rank = (all * percentile + 99) / 100;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if ((seen >= rank) && (seen > 0)) {
+                return i >= BUCKETS - 2 ? Long.MAX_VALUE : (2L << i) - 1;
+            }
+        }
+        return 0;
+    }
+}
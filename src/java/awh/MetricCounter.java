@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Counter of events (or bytes, pixels etc.) for library metrics.
+ *
+ * <p>
+ * The value is kept in a LongAdder so that concurrent updates from
+ * many threads do not contend on a single memory location.
+ */
+final class MetricCounter {
+    /** Metric name. */
+    private final String name;
+
+    /** Whether this is a gauge (i.e. current state that is never reset). */
+    private final boolean gauge;
+
+    /** Current value. */
+    private final LongAdder value = new LongAdder();
+
+    /** Create new counter, use Metrics.counter() to get a registered one.
+     *
+     * @param metricName Metric name.
+     * @param isGauge Whether the counter represents current state.
+     */
+    MetricCounter(final String metricName, final boolean isGauge) {
+        name = metricName;
+        gauge = isGauge;
+    }
+
+    /** Add to the counter when metrics are enabled.
+     *
+     * @param amount Value to add.
+     */
+    void add(final long amount) {
+        if (Metrics.isEnabled()) {
+            value.add(amount);
+        }
+    }
+
+    /** Increment the counter, regardless of whether metrics are enabled.
+     *
+     * <p>
+     * Used for gauges (e.g. queue depths) where every increment must be
+     * matched by a decrement even when metrics are turned on in between.
+     */
+    void increment() {
+        value.increment();
+    }
+
+    /** Decrement the counter, regardless of whether metrics are enabled. */
+    void decrement() {
+        value.decrement();
+    }
+
+    /** Reset the counter to zero (gauges are left intact). */
+    void reset() {
+        if (!gauge) {
+            value.reset();
+        }
+    }
+
+    /** Store current value into a snapshot.
+     *
+     * @param snapshot Where to store the value.
+     */
+    void storeTo(final Map<String, Long> snapshot) {
+        snapshot.put(name, value.sum());
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/** Optional runtime metrics of the library.
+ *
+ * <p>
+ * Metrics are disabled by default, enable them with setEnabled(true)
+ * or by starting Java with -Dawh.metrics=true. Once enabled, the metrics
+ * are also available through JMX as awh:type=Metrics (e.g. in JConsole).
+ *
+ * <p>
+ * Collected metrics (durations are in nanoseconds):
+ * <ul>
+ * <li>image.decode.FORMAT.* and image.encode.FORMAT.* count,
+ *     bytes and nanos of loadFromFile() and saveToFile() per format</li>
+ * <li>image.pixels: pixels processed by bulk operations</li>
+ * <li>image.rescale.*: durations of rescale()</li>
+ * <li>movie.frame.convert.* and movie.frame.encode.*: durations of
+ *     the two phases of Movie.addFrame()</li>
+ * <li>parallel.queue.depth: tasks waiting for a thread (e.g. parallel
+ *     parsing of files or Sys.forEachConcurrently())</li>
+ * </ul>
+ * Histograms are reported as NAME.count, NAME.nanos (total),
+ * NAME.max and NAME.p50, NAME.p90 and NAME.p99 (percentiles).
+ */
+public final class Metrics {
+    /** Name of the MBean with the metrics. */
+    public static final String MBEAN_NAME = "awh:type=Metrics";
+
+    /** Registered counters. */
+    private static final ConcurrentMap<String, MetricCounter> COUNTERS =
+            new ConcurrentHashMap<>();
+
+    /** Registered histograms. */
+    private static final ConcurrentMap<String, LatencyHistogram> HISTOGRAMS =
+            new ConcurrentHashMap<>();
+
+    /** Whether the MBean was already registered. */
+    private static final AtomicBoolean REGISTERED = new AtomicBoolean();
+
+    /** Whether metrics are collected (checked on each update). */
+    private static volatile boolean enabled = Boolean.getBoolean("awh.metrics");
+
+    static {
+        if (enabled) {
+            registerMBean();
+        }
+    }
+
+    /** Prevent instantiation. */
+    private Metrics() {}
+
+    /** Turn collecting of metrics on or off.
+     *
+     * @param enable Whether to collect metrics.
+     */
+    public static void setEnabled(final boolean enable) {
+        if (enable) {
+            registerMBean();
+        }
+        enabled = enable;
+    }
+
+    /** Tell whether metrics are being collected.
+     *
+     * @return Whether metrics are enabled.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Get current values of all metrics.
+     *
+     * @return Metric values sorted by name.
+     */
+    public static SortedMap<String, Long> snapshot() {
+        SortedMap<String, Long> res = new TreeMap<>();
+        for (MetricCounter c : COUNTERS.values()) {
+            c.storeTo(res);
+        }
+        for (LatencyHistogram h : HISTOGRAMS.values()) {
+            h.storeTo(res);
+        }
+        return Collections.unmodifiableSortedMap(res);
+    }
+
+    /** Reset all metrics to zero (gauges are kept). */
+    public static void reset() {
+        for (MetricCounter c : COUNTERS.values()) {
+            c.reset();
+        }
+        for (LatencyHistogram h : HISTOGRAMS.values()) {
+            h.reset();
+        }
+    }
+
+    /** Get registered counter (create it if needed).
+     *
+     * @param name Counter name.
+     * @return Counter with given name.
+     */
+    static MetricCounter counter(final String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new MetricCounter(n, false));
+    }
+
+    /** Get registered gauge (create it if needed).
+     *
+     * @param name Gauge name.
+     * @return Gauge (counter that is not reset) with given name.
+     */
+    static MetricCounter gauge(final String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new MetricCounter(n, true));
+    }
+
+    /** Get registered histogram (create it if needed).
+     *
+     * @param name Histogram name.
+     * @return Histogram with given name.
+     */
+    static LatencyHistogram histogram(final String name) {
+        return HISTOGRAMS.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /** Start measuring duration.
+     *
+     * @return Start time for LatencyHistogram.recordSince(), zero when disabled.
+     */
+    static long startTimer() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /** Record loading or saving of an image file.
+     *
+     * @param operation Either decode or encode.
+     * @param format Image format.
+     * @param bytes File size.
+     * @param start Start time from startTimer().
+     */
+    static void recordImageFile(final String operation, final String format,
+            final long bytes, final long start) {
+        if (start == 0) {
+            return;
+        }
+        String prefix = "image." + operation + "." + format.toLowerCase();
+        histogram(prefix).recordSince(start);
+        counter(prefix + ".bytes").add(bytes);
+    }
+
+    /** Register the MBean with platform server (only once). */
+    private static void registerMBean() {
+        if (!REGISTERED.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new Bean(), new ObjectName(MBEAN_NAME));
+        } catch (JMException | SecurityException e) {
+            // Metrics remain available through snapshot(), try again next time.
+            REGISTERED.set(false);
+        }
+    }
+
+    /** JMX view of the metrics. */
+    private static final class Bean implements MetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return Metrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(final boolean enable) {
+            Metrics.setEnabled(enable);
+        }
+
+        @Override
+        public Map<String, Long> getValues() {
+            return snapshot();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
@@ -26,12 +26,29 @@ package awh;
 import java.io.File;
 import java.io.IOException;
 import org.jcodec.api.awt.AWTSequenceEncoder;
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Picture;
 
 /** Create movie from individual frames. */
 public class Movie {
+    /** Duration of converting frames for the encoder (metrics). */
+    private static final LatencyHistogram CONVERT_TIME = Metrics.histogram("movie.frame.convert");
+
+    /** Duration of encoding frames (metrics). */
+    private static final LatencyHistogram ENCODE_TIME = Metrics.histogram("movie.frame.encode");
+
+    /** Minimal number of pixels converted by one parallel task. */
+    private static final int MIN_PIXELS_PER_TASK = 64 * 1024;
+
+    /** Pixels processed by bulk operations (metrics). */
+    private static final MetricCounter PIXELS_PROCESSED = Metrics.counter("image.pixels");
+
     /** Actual encoder used for creating the movie. */
     private final AWTSequenceEncoder encoder;
 
+    /** Frame converted for the encoder (reused for frames of the same size). */
+    private Picture picture;
+
     /** Construct with existing sequence encoder.
      *
      * @param enc Existing encoder.
@@ -66,8 +83,12 @@ public class Movie {
     public Movie addFrame(final Image frame) {
         Problem.whenNull(frame, "movie frame");
 
+        long start = Metrics.startTimer();
         try {
-            encoder.encodeImage(frame.getAsAwtImageUnsafe());
+            Picture converted = toPicture(frame);
+            start = CONVERT_TIME.recordSince(start);
+            encoder.encodeNativeFrame(converted);
+            ENCODE_TIME.recordSince(start);
         } catch (IOException e) {
             throw new Problem("Failed to add new frame: %s.", e.getMessage());
         }
@@ -82,4 +103,43 @@ public class Movie {
             throw new Problem("Failed to finalize the movie: %s.", e.getMessage());
         }
     }
+
+    /** Convert image to the RGB picture expected by the encoder.
+     *
+     * <p>
+     * This is a single pass over the image pixels (rows of large frames
+     * are converted in parallel), the encoder would otherwise read
+     * the image pixel by pixel through getRGB().
+     *
+     * @param frame Image to convert.
+     * @return Converted picture (valid until the next call).
+     */
+    // Package-private to allow allocation checks in performance tests.
+    Picture toPicture(final Image frame) {
+        final int width = frame.getWidth();
+        int height = frame.getHeight();
+        if ((picture == null) || (picture.getWidth() != width)
+                || (picture.getHeight() != height)) {
+            picture = Picture.create(width, height, ColorSpace.RGB);
+        }
+
+        // jcodec stores color components as signed bytes shifted by 128.
+        final int[] pixels = frame.getPixelsUnsafe();
+        final int offset = frame.getOffsetUnsafe();
+        final int stride = frame.getStrideUnsafe();
+        final byte[] rgb = picture.getPlaneData(0);
+        Parallel.forRange(0, height, Parallel.rowsPerTask(MIN_PIXELS_PER_TASK, width), y -> {
+            int out = y * width * 3;
+            int rowStart = offset + y * stride;
+            for (int i = rowStart; i < rowStart + width; i++) {
+                int argb = pixels[i];
+                rgb[out] = (byte) (((argb >> 16) & 0xFF) - 128);
+                rgb[out + 1] = (byte) (((argb >> 8) & 0xFF) - 128);
+                rgb[out + 2] = (byte) ((argb & 0xFF) - 128);
+                out += 3;
+            }
+        });
+        PIXELS_PROCESSED.add((long) width * height);
+        return picture;
+    }
 }
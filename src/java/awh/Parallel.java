@@ -0,0 +1,371 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/** Shared scheduler for all parallel work of the library.
+ *
+ * <p>
+ * Computations run on the common fork-join pool so that nested or
+ * concurrent parallel operations never use more threads than there are
+ * cores. Blocking tasks (e.g. file I/O) run on virtual threads when the
+ * JVM offers them, otherwise on a shared bounded pool.
+ *
+ * <p>
+ * All operations are structured: they return only after all their
+ * tasks have finished and the first failure is rethrown as Problem.
+ */
+final class Parallel {
+    /** Number of chunks per core when splitting ranges (for load balancing). */
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    /** Tasks waiting for a thread (metrics). */
+    private static final MetricCounter QUEUE_DEPTH = Metrics.gauge("parallel.queue.depth");
+
+    /** Prevent instantiation. */
+    private Parallel() {}
+
+    /** Get pool for computations.
+     *
+     * @return Shared fork-join pool.
+     */
+    static ForkJoinPool computePool() {
+        return ForkJoinPool.commonPool();
+    }
+
+    /** Run body for each index in range on the compute pool.
+     *
+     * @param from First index (inclusive).
+     * @param to Last index (exclusive).
+     * @param minGrain Minimal number of indices processed by one task.
+     * @param body Code to execute for each index.
+     * @throws Problem When body fails for any index.
+     */
+    static void forRange(final int from, final int to, final int minGrain,
+            final IntConsumer body) {
+        long count = (long) to - from;
+        if (count <= 0) {
+            return;
+        }
+        long chunks = (long) computePool().getParallelism() * CHUNKS_PER_THREAD;
+        int grain = (int) Math.max(Math.max(minGrain, 1), (count + chunks - 1) / chunks);
+        RangeTask task = new RangeTask(from, to, grain, body, new AtomicBoolean());
+        task.quietlyInvoke();
+        rethrow(task.getException());
+    }
+
+    /** Compute number of image rows processed by one task of forRange().
+     *
+     * @param minPixels Minimal number of pixels processed by one task.
+     * @param width Row length.
+     * @return Number of rows (at least one).
+     */
+    static int rowsPerTask(final int minPixels, final int width) {
+        return Math.max(1, minPixels / width);
+    }
+
+    /** Run task for each item, possibly blocking ones (e.g. reading files).
+     *
+     * @param <T> Item type.
+     * @param items Items to process.
+     * @param task Task to execute for each item.
+     * @throws Problem When task fails for any item.
+     */
+    static <T> void forEach(final Iterable<? extends T> items, final Consumer<? super T> task) {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (final T item : items) {
+            tasks.add(() -> {
+                task.accept(item);
+                return null;
+            });
+        }
+        invokeAll(ioExecutor(), tasks);
+    }
+
+    /** Get executor for blocking tasks.
+     *
+     * @return Shared executor with virtual threads or a bounded pool.
+     */
+    static ExecutorService ioExecutor() {
+        return IoExecutor.INSTANCE;
+    }
+
+    /** Execute all tasks and wait for their results.
+     *
+     * <p>
+     * When a task fails, tasks that have not started yet are skipped.
+     * The method still waits for the running ones so that no work
+     * outlives the call.
+     *
+     * <p>
+     * When called from a thread of the bounded I/O pool (nested
+     * forEach()), the tasks run directly on the calling thread: waiting
+     * for them in the pool could block all its threads and deadlock.
+     *
+     * @param <T> Result type.
+     * @param executor Executor to run the tasks.
+     * @param tasks Tasks to execute.
+     * @return Results in the order of the tasks.
+     * @throws Problem When any of the tasks fails.
+     */
+    static <T> List<T> invokeAll(final ExecutorService executor,
+            final List<? extends Callable<T>> tasks) {
+        if ((executor == ioExecutor()) && (Thread.currentThread() instanceof IoWorker)) {
+            return callInline(tasks);
+        }
+
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (final Callable<T> task : tasks) {
+            QUEUE_DEPTH.increment();
+            RecordingTask<T> future = new RecordingTask<>(() -> {
+                QUEUE_DEPTH.decrement();
+                return failure.get() == null ? task.call() : null;
+            }, failure);
+            executor.execute(future);
+            futures.add(future);
+        }
+        return awaitAll(futures, failure);
+    }
+
+    /** Execute tasks one by one on the current thread.
+     *
+     * @param <T> Result type.
+     * @param tasks Tasks to execute.
+     * @return Results in the order of the tasks.
+     * @throws Problem When any of the tasks fails (remaining ones are skipped).
+     */
+    private static <T> List<T> callInline(final List<? extends Callable<T>> tasks) {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            RecordingTask<T> future = new RecordingTask<>(task, failure);
+            future.run();
+            rethrow(failure.get());
+            futures.add(future);
+        }
+        return awaitAll(futures, failure);
+    }
+
+    /** Wait for all tasks and collect their results.
+     *
+     * @param <T> Result type.
+     * @param futures Submitted tasks.
+     * @param failure First failure of any task.
+     * @return Results in the order of the tasks.
+     * @throws Problem When any of the tasks fails or the wait is interrupted.
+     */
+    private static <T> List<T> awaitAll(final List<Future<T>> futures,
+            final AtomicReference<Throwable> failure) {
+        List<T> results = new ArrayList<>(futures.size());
+        boolean interrupted = false;
+        for (Future<T> f : futures) {
+            while (true) {
+                try {
+                    results.add(f.get());
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    failure.compareAndSet(null, e);
+                } catch (ExecutionException e) {
+                    results.add(null);
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        rethrow(failure.get());
+        return results;
+    }
+
+    /** Rethrow failure of a task.
+     *
+     * @param failure Failure (null when all tasks succeeded).
+     * @throws Problem Problems and other exceptions (as cause).
+     */
+    private static void rethrow(final Throwable failure) {
+        if (failure == null) {
+            return;
+        }
+        if (failure instanceof Problem) {
+            throw (Problem) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure instanceof InterruptedException) {
+            throw new Problem(failure, "Interrupted while waiting for parallel tasks.");
+        }
+        throw new Problem(failure, "Parallel task failed (%s).", failure);
+    }
+
+    /** Range of indices processed by splitting into halves. */
+    private static final class RangeTask extends RecursiveAction {
+        /** Serial UID. */
+        private static final long serialVersionUID = 1L;
+
+        /** First index (inclusive). */
+        private final int from;
+
+        /** Last index (exclusive). */
+        private final int to;
+
+        /** Maximum range processed without splitting. */
+        private final int grain;
+
+        /** Code to execute. */
+        private final transient IntConsumer body;
+
+        /** Whether any task has failed (the rest is then skipped). */
+        private final AtomicBoolean failed;
+
+        /** Create task for given range.
+         *
+         * @param first First index (inclusive).
+         * @param last Last index (exclusive).
+         * @param maxRange Maximum range processed without splitting.
+         * @param code Code to execute for each index.
+         * @param failureFlag Flag shared by all tasks of the range.
+         */
+        RangeTask(final int first, final int last, final int maxRange,
+                final IntConsumer code, final AtomicBoolean failureFlag) {
+            from = first;
+            to = last;
+            grain = maxRange;
+            body = code;
+            failed = failureFlag;
+        }
+
+        @Override
+        protected void compute() {
+            if (failed.get()) {
+                return;
+            }
+            if (to - from <= grain) {
+                boolean finished = false;
+                try {
+                    for (int i = from; i < to; i++) {
+                        body.accept(i);
+                    }
+                    finished = true;
+                } finally {
+                    if (!finished) {
+                        failed.set(true);
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, middle, grain, body, failed),
+                    new RangeTask(middle, to, grain, body, failed));
+        }
+    }
+
+    /** Shared executor for blocking tasks (created on first use). */
+    private static final class IoExecutor {
+        /** Virtual threads when available, bounded pool otherwise. */
+        static final ExecutorService INSTANCE = create();
+
+        /** Prevent instantiation. */
+        private IoExecutor() {}
+
+        /** Create executor with one virtual thread per task (Java 21+).
+         *
+         * @return New executor, bounded pool when virtual threads are not available.
+         */
+        private static ExecutorService create() {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return Executors.newFixedThreadPool(
+                        2 * Runtime.getRuntime().availableProcessors(), new DaemonThreads());
+            }
+        }
+    }
+
+    /** Task that records its failure.
+     *
+     * @param <T> Result type.
+     */
+    private static final class RecordingTask<T> extends FutureTask<T> {
+        /** First failure of any task. */
+        private final AtomicReference<Throwable> failure;
+
+        /** Create task.
+         *
+         * @param task Code to execute.
+         * @param firstFailure Where to store first failure.
+         */
+        RecordingTask(final Callable<T> task, final AtomicReference<Throwable> firstFailure) {
+            super(task);
+            failure = firstFailure;
+        }
+
+        @Override
+        protected void setException(final Throwable t) {
+            failure.compareAndSet(null, t);
+            super.setException(t);
+        }
+    }
+
+    /** Factory of daemon threads (so that the pool does not prevent JVM exit). */
+    private static final class DaemonThreads implements ThreadFactory {
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread res = new IoWorker(r);
+            res.setDaemon(true);
+            return res;
+        }
+    }
+
+    /** Thread of the bounded I/O pool. */
+    private static final class IoWorker extends Thread {
+        /** Constructor.
+         *
+         * @param r Code to run.
+         */
+        IoWorker(final Runnable r) {
+            super(r, "awh-worker");
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+/** Rectangular area of ARGB pixels stored row by row in an array.
+ *
+ * <p>
+ * Used to pass the array together with its layout when copying pixels
+ * between tiles and ordinary arrays.
+ */
+final class PixelArea {
+    /** The array. */
+    private final int[] pixels;
+
+    /** Index of the top-left pixel. */
+    private final int offset;
+
+    /** Distance between rows. */
+    private final int stride;
+
+    /** Area width. */
+    private final int width;
+
+    /** Area height. */
+    private final int height;
+
+    /** Constructor.
+     *
+     * @param pixels The array.
+     * @param offset Index of the top-left pixel.
+     * @param stride Distance between rows.
+     * @param width Area width.
+     * @param height Area height.
+     */
+    PixelArea(final int[] pixels, final int offset, final int stride,
+            final int width, final int height) {
+        this.pixels = pixels;
+        this.offset = offset;
+        this.stride = stride;
+        this.width = width;
+        this.height = height;
+    }
+
+    /** Get area covering pixels of an image.
+     *
+     * @param image Image (or its view).
+     * @return Area with pixels of the image.
+     */
+    static PixelArea of(final Image image) {
+        return new PixelArea(image.getPixelsUnsafe(), image.getOffsetUnsafe(),
+                image.getStrideUnsafe(), image.getWidth(), image.getHeight());
+    }
+
+    /** Get part of this area.
+     *
+     * @param x Left edge of the part (relative to this area).
+     * @param y Top edge of the part (relative to this area).
+     * @param partWidth Part width.
+     * @param partHeight Part height.
+     * @return Area sharing the array with this one.
+     */
+    PixelArea part(final int x, final int y, final int partWidth, final int partHeight) {
+        return new PixelArea(pixels, offset + y * stride + x, stride, partWidth, partHeight);
+    }
+
+    /** Get the array.
+     *
+     * @return Array with the pixels.
+     */
+    int[] getPixels() {
+        return pixels;
+    }
+
+    /** Get index of the first pixel of a row.
+     *
+     * @param y Row (relative to this area).
+     * @return Index into the array.
+     */
+    int rowStart(final int y) {
+        return offset + y * stride;
+    }
+
+    /** Get area width.
+     *
+     * @return Width in pixels.
+     */
+    int getWidth() {
+        return width;
+    }
+
+    /** Get area height.
+     *
+     * @return Height in pixels.
+     */
+    int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+/** Blending of two ARGB pixels (not premultiplied by alpha). */
+final class PixelBlend {
+    /** Prevent instantiation. */
+    private PixelBlend() {}
+
+    /** Draw pixel over another one (standard "source over" compositing).
+     *
+     * <p>
+     * Equivalent to blending colors premultiplied by alpha and dividing
+     * the result by its alpha. Opaque background (the usual case) needs
+     * no division at all.
+     *
+     * @param dst Background pixel.
+     * @param src Pixel drawn over it.
+     * @return Resulting pixel.
+     */
+    static int over(final int dst, final int src) {
+        int srcAlpha = src >>> 24;
+        if (srcAlpha == 0xFF) {
+            return src;
+        } else if (srcAlpha == 0) {
+            return dst;
+        }
+        int dstWeight = (dst >>> 24) * (0xFF - srcAlpha);
+        if (dstWeight == 0xFF * (0xFF - srcAlpha)) {
+            int res = 0xFF000000;
+            for (int shift = 0; shift < 24; shift += 8) {
+                int value = ((src >> shift) & 0xFF) * srcAlpha
+                        + ((dst >> shift) & 0xFF) * (0xFF - srcAlpha);
+                res |= divideBy255(value) << shift;
+            }
+            return res;
+        }
+        int srcWeight = srcAlpha * 0xFF;
+        int total = srcWeight + dstWeight;
+        int res = ((total + 0x7F) / 0xFF) << 24;
+        for (int shift = 0; shift < 24; shift += 8) {
+            int value = (((src >> shift) & 0xFF) * srcWeight
+                    + ((dst >> shift) & 0xFF) * dstWeight + total / 2) / total;
+            res |= value << shift;
+        }
+        return res;
+    }
+
+    /** Mix two pixels channel by channel.
+     *
+     * @param first First pixel.
+     * @param second Second pixel.
+     * @param weight Weight of the second pixel (0 to 256).
+     * @return Weighted average of the pixels.
+     */
+    static int mix(final int first, final int second, final int weight) {
+        int res = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int a = (first >>> shift) & 0xFF;
+            int b = (second >>> shift) & 0xFF;
+            res |= (a + (((b - a) * weight + 0x80) >> 8)) << shift;
+        }
+        return res;
+    }
+
+    /** Divide by 255 with rounding (without division).
+     *
+     * @param value Value in 0 to 255 * 255 range.
+     * @return Value divided by 255.
+     */
+    private static int divideBy255(final int value) {
+        return ((value + 0x80) * 0x101) >> 16;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+/** Limit of images (and their pixels) processed at the same time.
+ *
+ * <p>
+ * A single image bigger than the whole budget is still allowed when
+ * nothing else is in flight so that the processing always progresses.
+ */
+final class PixelBudget {
+    /** Maximum number of pixels in flight. */
+    private final long maxPixels;
+
+    /** Maximum number of images in flight. */
+    private final int maxImages;
+
+    /** Pixels currently in flight. */
+    private long pixels;
+
+    /** Images currently in flight. */
+    private int images;
+
+    /** Create new budget.
+     *
+     * @param pixelLimit Maximum number of pixels in flight.
+     * @param imageLimit Maximum number of images in flight.
+     */
+    PixelBudget(final long pixelLimit, final int imageLimit) {
+        maxPixels = pixelLimit;
+        maxImages = imageLimit;
+    }
+
+    /** Wait until there is enough budget for another image.
+     *
+     * @param amount Number of pixels of the image.
+     * @throws InterruptedException When interrupted while waiting.
+     */
+    synchronized void acquire(final long amount) throws InterruptedException {
+        while ((images > 0) && ((images >= maxImages) || (pixels + amount > maxPixels))) {
+            wait();
+        }
+        images++;
+        pixels += amount;
+    }
+
+    /** Return budget of a finished image.
+     *
+     * @param amount Number of pixels of the image.
+     */
+    synchronized void release(final long amount) {
+        images--;
+        pixels -= amount;
+        notifyAll();
+    }
+
+    /** Wait until all images are finished.
+     *
+     * @throws InterruptedException When interrupted while waiting.
+     */
+    synchronized void awaitEmpty() throws InterruptedException {
+        while (images > 0) {
+            wait();
+        }
+    }
+}
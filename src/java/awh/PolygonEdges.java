@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.Arrays;
+
+/** Edge table of a polygon for scanline filling.
+ *
+ * <p>
+ * Edges are sorted by their top end and scanlines are queried from top
+ * to bottom, so only edges crossing the current scanline (the active
+ * edges) are examined. Edges are half-open (top inclusive, bottom
+ * exclusive) and crossings are paired with the even-odd rule.
+ */
+final class PolygonEdges {
+    /** Top ends of the edges (sorted). */
+    private final double[] top;
+
+    /** Bottom ends of the edges. */
+    private final double[] bottom;
+
+    /** X coordinate of the top end. */
+    private final double[] topX;
+
+    /** Change of X coordinate per unit of Y. */
+    private final double[] slope;
+
+    /** Indices of active edges. */
+    private final int[] active;
+
+    /** Number of active edges. */
+    private int activeCount;
+
+    /** First edge not yet activated. */
+    private int next;
+
+    /** Last queried scanline. */
+    private double lastY = Double.NEGATIVE_INFINITY;
+
+    /** Constructor.
+     *
+     * @param xs X coordinates of the vertices.
+     * @param ys Y coordinates of the vertices.
+     * @param shift Value added to all coordinates.
+     */
+    PolygonEdges(final double[] xs, final double[] ys, final double shift) {
+        int count = 0;
+        double[][] edges = new double[xs.length][];
+        for (int i = 0; i < xs.length; i++) {
+            int j = (i + 1) % xs.length;
+            if (ys[i] == ys[j]) {
+                continue;
+            }
+            int upper = ys[i] < ys[j] ? i : j;
+            int lower = upper == i ? j : i;
+            edges[count++] = new double[] {
+                ys[upper] + shift, ys[lower] + shift, xs[upper] + shift,
+                (xs[lower] - xs[upper]) / (ys[lower] - ys[upper]),
+            };
+        }
+        Arrays.sort(edges, 0, count, (a, b) -> Double.compare(a[0], b[0]));
+        top = new double[count];
+        bottom = new double[count];
+        topX = new double[count];
+        slope = new double[count];
+        for (int i = 0; i < count; i++) {
+            top[i] = edges[i][0];
+            bottom[i] = edges[i][1];
+            topX[i] = edges[i][2];
+            slope[i] = edges[i][3];
+        }
+        active = new int[count];
+    }
+
+    /** Convert integer coordinates to real ones.
+     *
+     * @param coords Integer coordinates.
+     * @return Same coordinates as doubles.
+     */
+    static double[] toDoubles(final int[] coords) {
+        double[] res = new double[coords.length];
+        for (int i = 0; i < coords.length; i++) {
+            res[i] = coords[i];
+        }
+        return res;
+    }
+
+    /** Get the topmost Y coordinate of the polygon.
+     *
+     * @return Top of the bounding box.
+     */
+    double getTop() {
+        return top.length == 0 ? 0 : top[0];
+    }
+
+    /** Get the bottommost Y coordinate of the polygon.
+     *
+     * @return Bottom of the bounding box.
+     */
+    double getBottom() {
+        double res = getTop();
+        for (double b : bottom) {
+            res = Math.max(res, b);
+        }
+        return res;
+    }
+
+    /** Compute sorted crossings of the polygon edges with a scanline.
+     *
+     * <p>
+     * Scanlines must be queried with increasing Y.
+     *
+     * @param y Y coordinate of the scanline.
+     * @param crossings Where to store X coordinates of the crossings.
+     * @return Number of crossings (always even).
+     */
+    int crossings(final double y, final double[] crossings) {
+        assert y >= lastY;
+        lastY = y;
+        while ((next < top.length) && (top[next] <= y)) {
+            active[activeCount++] = next++;
+        }
+        int count = 0;
+        for (int i = 0; i < activeCount; i++) {
+            int edge = active[i];
+            if (bottom[edge] <= y) {
+                continue;
+            }
+            active[count] = edge;
+            double x = topX[edge] + (y - top[edge]) * slope[edge];
+            int pos = count++;
+            while ((pos > 0) && (crossings[pos - 1] > x)) {
+                crossings[pos] = crossings[pos - 1];
+                pos--;
+            }
+            crossings[pos] = x;
+        }
+        activeCount = count;
+        return count;
+    }
+
+    /** Get maximal number of crossings with a single scanline.
+     *
+     * @return Number of edges.
+     */
+    int getEdgeCount() {
+        return top.length;
+    }
+}
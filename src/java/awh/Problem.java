@@ -37,6 +37,16 @@ public class Problem extends RuntimeException {
         super(String.format(format, args));
     }
 
+    /** Constructor with message and original cause.
+     *
+     * @param cause Original exception.
+     * @param format printf-like format describing the exception.
+     * @param args Arguments to format.
+     */
+    public Problem(final Throwable cause, final String format, final Object... args) {
+        super(String.format(format, args), cause);
+    }
+
     /** Throws when value is out of range.
      *
      * @param valueName Name of the value that is being checked (such as coordinate).
@@ -53,6 +63,27 @@ public class Problem extends RuntimeException {
         }
     }
 
+    /** Throws when index is out of range.
+     *
+     * <p>
+     * Unlike whenNotInRange(), the name of the index is derived from
+     * the class of the indexed object only when the index is invalid,
+     * so checking a valid index allocates nothing.
+     *
+     * @param container Object that is being indexed (such as a list).
+     * @param index Actual index to be checked.
+     * @param minInclusive Minimal index (inclusive).
+     * @param maxExclusive Maximum index (exclusive).
+     * @throws Problem When index is out of range.
+     */
+    public static void whenIndexNotInRange(final Object container, final long index,
+            final long minInclusive, final long maxExclusive) {
+        if ((index < minInclusive) || (index >= maxExclusive)) {
+            throw new Problem("%s index out of range, %d not in [%d, %d).",
+                    container.getClass().getName(), index, minInclusive, maxExclusive);
+        }
+    }
+
     /** Throws when value is null.
      *
      * @param value Value to be checked for nullity.
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Raw raster file used by ImageCache.
+ *
+ * <p>
+ * The file starts with a 16 byte header followed by the ARGB pixels
+ * (row by row), everything is stored in little-endian byte order.
+ * The header contains the magic bytes <code>AWHR</code>, format version
+ * (32-bit integer), image width and image height (32-bit integers).
+ *
+ * <p>
+ * Unlike PNG or JPEG, loading such file is a plain memory copy.
+ */
+final class RasterFile {
+    /** Magic bytes "AWHR" read as little-endian integer. */
+    private static final int MAGIC = 0x52485741;
+
+    /** Current format version. */
+    private static final int VERSION = 1;
+
+    /** Header size in bytes. */
+    private static final int HEADER_SIZE = 16;
+
+    /** Size of the buffer used for writing (in bytes). */
+    private static final int BATCH_SIZE = 256 * 1024;
+
+    /** Prevent instantiation. */
+    private RasterFile() {}
+
+    /** Compute file size for given image.
+     *
+     * @param image Image to store.
+     * @return File size in bytes.
+     */
+    static long sizeOf(final Image image) {
+        return HEADER_SIZE + 4L * image.getWidth() * image.getHeight();
+    }
+
+    /** Write image to a raster file (atomically).
+     *
+     * @param path File path.
+     * @param image Image to store.
+     * @throws Problem When file cannot be written.
+     */
+    static void write(final Path path, final Image image) {
+        final int[] pixels = image.getPixelsUnsafe();
+        final int width = image.getWidth();
+        Sys.writeAtomically(path.toString(), out -> {
+            ByteBuffer batch = ByteBuffer.allocate(BATCH_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            batch.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(image.getHeight());
+            for (int y = 0; y < image.getHeight(); y++) {
+                int rowStart = image.getOffsetUnsafe() + y * image.getStrideUnsafe();
+                int x = 0;
+                while (x < width) {
+                    if (batch.remaining() < 4) {
+                        out.write(batch.array(), 0, batch.position());
+                        batch.clear();
+                    }
+                    int count = Math.min(batch.remaining() / 4, width - x);
+                    batch.asIntBuffer().put(pixels, rowStart + x, count);
+                    batch.position(batch.position() + count * 4);
+                    x += count;
+                }
+            }
+            out.write(batch.array(), 0, batch.position());
+        });
+    }
+
+    /** Read image from a raster file.
+     *
+     * @param path File path.
+     * @return Loaded image or null when the file is missing or invalid.
+     */
+    static Image read(final Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                return null;
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            int width = data.getInt(8);
+            int height = data.getInt(12);
+            boolean validHeader = (data.getInt(0) == MAGIC) && (data.getInt(4) == VERSION);
+            boolean validSize = (width > 0) && (height > 0)
+                    && (size == HEADER_SIZE + 4L * width * height);
+            if (!validHeader || !validSize) {
+                return null;
+            }
+            Image res = Image.createBlank(width, height);
+            data.position(HEADER_SIZE);
+            data.asIntBuffer().get(res.getPixelsUnsafe());
+            return res;
+        } catch (IOException | Problem e) {
+            return null;
+        }
+    }
+}
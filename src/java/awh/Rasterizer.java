@@ -0,0 +1,351 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.Arrays;
+
+/** Drawing of basic shapes directly into the pixel array.
+ *
+ * <p>
+ * Every primitive is clipped to the image once and then written as
+ * horizontal spans (or, for lines, as a walk with precomputed index
+ * steps), so there is no per-pixel range checking. Anti-aliased
+ * variants are in SmoothRasterizer.
+ */
+final class Rasterizer {
+    /** Maximal absolute value of line end-point coordinates. */
+    static final int MAX_COORDINATE = 1 << 28;
+
+    /** Prevent instantiation. */
+    private Rasterizer() {}
+
+    /** Fill rectangle.
+     *
+     * @param image Target image.
+     * @param x Left edge.
+     * @param y Top edge.
+     * @param width Rectangle width.
+     * @param height Rectangle height.
+     * @param argb Fill color.
+     */
+    static void fillRect(final Image image, final int x, final int y,
+            final int width, final int height, final int argb) {
+        Problem.whenNotInRange("rectangle width", width, 0, Integer.MAX_VALUE);
+        Problem.whenNotInRange("rectangle height", height, 0, Integer.MAX_VALUE);
+
+        int left = Math.max(x, 0);
+        int right = (int) Math.min((long) x + width, image.getWidth());
+        int bottom = (int) Math.min((long) y + height, image.getHeight());
+        for (int row = Math.max(y, 0); row < bottom; row++) {
+            fillSpan(image, row, left, right, argb);
+        }
+    }
+
+    /** Draw one pixel wide line (Bresenham's algorithm).
+     *
+     * <p>
+     * The part of the line inside the image is computed up-front so that
+     * the walk can start directly at the first visible pixel.
+     *
+     * @param image Target image.
+     * @param x0 X coordinate of the start.
+     * @param y0 Y coordinate of the start.
+     * @param x1 X coordinate of the end.
+     * @param y1 Y coordinate of the end.
+     * @param argb Line color.
+     */
+    static void drawLine(final Image image, final int x0, final int y0,
+            final int x1, final int y1, final int argb) {
+        checkCoordinates(x0, y0);
+        checkCoordinates(x1, y1);
+
+        Axis horizontal = new Axis(x0, x1, image.getWidth(), 1);
+        Axis vertical = new Axis(y0, y1, image.getHeight(), image.getStrideUnsafe());
+        if (vertical.length > horizontal.length) {
+            walkLine(image, vertical, horizontal, argb);
+        } else {
+            walkLine(image, horizontal, vertical, argb);
+        }
+    }
+
+    /** Draw line, walking along its major axis.
+     *
+     * @param image Target image.
+     * @param major Axis with the longer projection of the line.
+     * @param minor The other axis.
+     * @param argb Line color.
+     */
+    private static void walkLine(final Image image, final Axis major, final Axis minor,
+            final int argb) {
+        final long[] steps = visibleSteps(major, minor);
+        if (steps[0] > steps[1]) {
+            return;
+        }
+
+        final long denominator = Math.max(1, 2 * major.length);
+        final long numerator = 2 * steps[0] * minor.length + major.length;
+        long remainder = numerator % denominator;
+        int index = image.getOffsetUnsafe()
+                + (int) (major.position(steps[0]) * major.unit
+                        + minor.position(numerator / denominator) * minor.unit);
+
+        final int[] pixels = image.getPixelsUnsafe();
+        final boolean opaque = (argb >>> 24) == 0xFF;
+        for (long i = steps[0]; i <= steps[1]; i++) {
+            pixels[index] = opaque ? argb : PixelBlend.over(pixels[index], argb);
+            remainder += 2 * minor.length;
+            if (remainder >= denominator) {
+                remainder -= denominator;
+                index += minor.step;
+            }
+            index += major.step;
+        }
+    }
+
+    /** Compute steps along the major axis where the line is inside the image.
+     *
+     * <p>
+     * The minor offset after i steps is q(i) = floor((2 i minor + major) / (2 major)),
+     * it must stay between the first and last visible offset of the minor axis.
+     *
+     * @param major Axis with the longer projection of the line.
+     * @param minor The other axis.
+     * @return First and last visible step (the first is bigger when nothing is visible).
+     */
+    private static long[] visibleSteps(final Axis major, final Axis minor) {
+        long from = Math.max(0, major.firstVisible());
+        long to = Math.min(major.length, major.lastVisible());
+        long low = minor.firstVisible();
+        long high = minor.lastVisible();
+        if (minor.length > 0) {
+            from = Math.max(from, -Math.floorDiv(major.length - 2 * major.length * low,
+                    2 * minor.length));
+            to = Math.min(to, Math.floorDiv(2 * major.length * (high + 1) - major.length - 1,
+                    2 * minor.length));
+        } else if ((low > 0) || (high < 0)) {
+            to = -1;
+        }
+        return new long[] {from, to};
+    }
+
+    /** Fill ellipse (pixels whose centers lie inside it).
+     *
+     * @param image Target image.
+     * @param cx X coordinate of the center.
+     * @param cy Y coordinate of the center.
+     * @param rx Horizontal radius.
+     * @param ry Vertical radius.
+     * @param argb Fill color.
+     */
+    static void fillEllipse(final Image image, final int cx, final int cy,
+            final int rx, final int ry, final int argb) {
+        Problem.whenNotInRange("horizontal radius", rx, 0, Integer.MAX_VALUE);
+        Problem.whenNotInRange("vertical radius", ry, 0, Integer.MAX_VALUE);
+
+        int top = (int) Math.max(0, (long) cy - ry);
+        int bottom = (int) Math.min(image.getHeight() - 1L, (long) cy + ry);
+        for (int y = top; y <= bottom; y++) {
+            double dy = ry == 0 ? 0 : (double) (y - cy) / ry;
+            long half = (long) Math.floor(rx * Math.sqrt(1 - dy * dy) + 1e-9);
+            int left = (int) Math.max(0, cx - half);
+            int right = (int) Math.min(image.getWidth(), cx + half + 1);
+            fillSpan(image, y, left, right, argb);
+        }
+    }
+
+    /** Fill polygon (pixels whose centers lie inside, even-odd rule).
+     *
+     * @param image Target image.
+     * @param xs X coordinates of the vertices.
+     * @param ys Y coordinates of the vertices.
+     * @param argb Fill color.
+     */
+    static void fillPolygon(final Image image, final int[] xs, final int[] ys, final int argb) {
+        checkVertices(xs, ys);
+
+        PolygonEdges edges = new PolygonEdges(PolygonEdges.toDoubles(xs),
+                PolygonEdges.toDoubles(ys), 0);
+        double[] crossings = new double[edges.getEdgeCount()];
+        int top = (int) Math.max(0, Math.ceil(edges.getTop()));
+        int bottom = (int) Math.min(image.getHeight(), Math.ceil(edges.getBottom()));
+        for (int y = top; y < bottom; y++) {
+            int count = edges.crossings(y, crossings);
+            for (int i = 0; i < count; i += 2) {
+                int left = (int) Math.max(0, Math.ceil(crossings[i]));
+                int right = (int) Math.min(image.getWidth(), Math.ceil(crossings[i + 1]));
+                fillSpan(image, y, left, right, argb);
+            }
+        }
+    }
+
+    /** Fill horizontal span (already clipped).
+     *
+     * @param image Target image.
+     * @param y Row.
+     * @param from First pixel (inclusive).
+     * @param to Last pixel (exclusive).
+     * @param argb Fill color.
+     */
+    private static void fillSpan(final Image image, final int y, final int from, final int to,
+            final int argb) {
+        if (from >= to) {
+            return;
+        }
+        int[] pixels = image.getPixelsUnsafe();
+        int base = image.getOffsetUnsafe() + y * image.getStrideUnsafe();
+        int alpha = argb >>> 24;
+        if (alpha == 0xFF) {
+            Arrays.fill(pixels, base + from, base + to, argb);
+        } else if (alpha != 0) {
+            for (int i = base + from; i < base + to; i++) {
+                pixels[i] = PixelBlend.over(pixels[i], argb);
+            }
+        }
+    }
+
+    /** Check that line end-point is not too far away.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @throws Problem When one of the coordinates is out of range.
+     */
+    private static void checkCoordinates(final int x, final int y) {
+        Problem.whenNotInRange("x coordinate", x, -MAX_COORDINATE, MAX_COORDINATE + 1);
+        Problem.whenNotInRange("y coordinate", y, -MAX_COORDINATE, MAX_COORDINATE + 1);
+    }
+
+    /** Check that polygon vertices are valid.
+     *
+     * @param xs X coordinates of the vertices.
+     * @param ys Y coordinates of the vertices.
+     * @throws Problem When the arrays are missing or of different lengths.
+     */
+    private static void checkVertices(final int[] xs, final int[] ys) {
+        Problem.whenNull(xs, "x coordinates of polygon vertices");
+        Problem.whenNull(ys, "y coordinates of polygon vertices");
+        checkVertexCount(xs.length, ys.length);
+    }
+
+    /** Check that polygon vertices are valid.
+     *
+     * @param xs X coordinates of the vertices.
+     * @param ys Y coordinates of the vertices.
+     * @throws Problem When the arrays are missing, of different lengths or not finite.
+     */
+    static void checkVertices(final double[] xs, final double[] ys) {
+        Problem.whenNull(xs, "x coordinates of polygon vertices");
+        Problem.whenNull(ys, "y coordinates of polygon vertices");
+        checkVertexCount(xs.length, ys.length);
+        checkFinite(xs);
+        checkFinite(ys);
+    }
+
+    /** Check that there is the same number of X and Y coordinates.
+     *
+     * @param xCount Number of X coordinates.
+     * @param yCount Number of Y coordinates.
+     * @throws Problem When the counts differ.
+     */
+    private static void checkVertexCount(final int xCount, final int yCount) {
+        if (xCount != yCount) {
+            throw new Problem("Polygon has %d x coordinates but %d y coordinates.",
+                    xCount, yCount);
+        }
+    }
+
+    /** Check that all values are finite numbers.
+     *
+     * @param values Values to check.
+     * @throws Problem When one of the values is infinite or NaN.
+     */
+    static void checkFinite(final double... values) {
+        for (double v : values) {
+            if (Double.isNaN(v) || Double.isInfinite(v)) {
+                throw new Problem("Coordinate %f is not a finite number.", v);
+            }
+        }
+    }
+
+    /** One axis of a line walk. */
+    private static final class Axis {
+        /** Coordinate of the line start. */
+        private final int start;
+
+        /** Length of the line projection (in pixels). */
+        private final long length;
+
+        /** Direction of the walk (1 or -1). */
+        private final int direction;
+
+        /** Image size along the axis. */
+        private final int size;
+
+        /** Index distance of neighbouring pixels along the axis. */
+        private final int unit;
+
+        /** Index change for one step of the walk. */
+        private final int step;
+
+        /** Constructor.
+         *
+         * @param from Coordinate of the line start.
+         * @param to Coordinate of the line end.
+         * @param imageSize Image size along the axis.
+         * @param pixelDistance Index distance of neighbouring pixels along the axis.
+         */
+        Axis(final int from, final int to, final int imageSize, final int pixelDistance) {
+            start = from;
+            length = Math.abs((long) to - from);
+            direction = to >= from ? 1 : -1;
+            size = imageSize;
+            unit = pixelDistance;
+            step = direction * pixelDistance;
+        }
+
+        /** Get coordinate after given number of steps.
+         *
+         * @param steps Number of steps from the start.
+         * @return Coordinate.
+         */
+        long position(final long steps) {
+            return start + direction * steps;
+        }
+
+        /** Get the smallest number of steps giving a coordinate inside the image.
+         *
+         * @return Number of steps (may be negative).
+         */
+        long firstVisible() {
+            return direction > 0 ? -start : start - size + 1L;
+        }
+
+        /** Get the biggest number of steps giving a coordinate inside the image.
+         *
+         * @return Number of steps (may be negative).
+         */
+        long lastVisible() {
+            return direction > 0 ? size - 1L - start : start;
+        }
+    }
+}
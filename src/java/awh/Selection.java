@@ -0,0 +1,478 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/** Order statistics (k-th smallest element, percentiles, k largest elements).
+ *
+ * <p>
+ * Selection is done with introselect: quickselect with median-of-three pivot
+ * and three-way partitioning (to cope with many equal values) that falls back
+ * to sorting the remaining range when the recursion gets too deep.
+ * Several ranks can be selected in one pass, ranges not containing
+ * any requested rank are never visited again.
+ *
+ * <p>
+ * All selection methods reorder the given array in place, callers are
+ * expected to pass a scratch copy when the original order matters.
+ */
+final class Selection {
+    /** Ranges shorter than this are simply sorted (by Arrays.sort()). */
+    private static final int SORT_THRESHOLD = 16;
+
+    /** Prevent instantiation. */
+    private Selection() {}
+
+    /** Convert percentiles to zero-based ranks (nearest-rank method).
+     *
+     * @param size Number of elements (must be positive).
+     * @param percentiles Percentiles in range 0 to 100 (inclusive).
+     * @return Ranks, in the same order as the percentiles.
+     * @throws Problem When some percentile is out of range.
+     */
+    static int[] percentileRanks(final int size, final double... percentiles) {
+        Problem.whenNull(percentiles, "percentiles");
+
+        int[] res = new int[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            double p = percentiles[i];
+            if (!((p >= 0) && (p <= 100))) {
+                throw new Problem("percentile out of range, %s not in [0, 100].", p);
+            }
+            res[i] = Math.max(0, (int) Math.ceil(p * size / 100.0) - 1);
+        }
+        return res;
+    }
+
+    /** Sorted copy of given ranks, as needed by the select methods.
+     *
+     * @param ranks Ranks in any order.
+     * @return Sorted copy.
+     */
+    static int[] sortedRanks(final int... ranks) {
+        int[] res = Arrays.copyOf(ranks, ranks.length);
+        Arrays.sort(res);
+        return res;
+    }
+
+    /** Put elements at given ranks to their sorted position.
+     *
+     * @param a Array to reorder.
+     * @param length Number of valid elements at the beginning of the array.
+     * @param ranks Zero-based ranks in ascending order.
+     */
+    static void select(final int[] a, final int length, final int... ranks) {
+        select(a, 0, length - 1, ranks, 0, ranks.length, depthLimit(length));
+    }
+
+    /** Put elements at given ranks to their sorted position.
+     *
+     * @param a Array to reorder.
+     * @param length Number of valid elements at the beginning of the array.
+     * @param ranks Zero-based ranks in ascending order.
+     */
+    static void select(final double[] a, final int length, final int... ranks) {
+        select(a, 0, length - 1, ranks, 0, ranks.length, depthLimit(length));
+    }
+
+    /** Put elements at given ranks to their sorted position.
+     *
+     * @param a Array of mutually comparable elements to reorder.
+     * @param ranks Zero-based ranks in ascending order.
+     */
+    static void select(final Object[] a, final int... ranks) {
+        select(a, 0, a.length - 1, ranks, 0, ranks.length, depthLimit(a.length));
+    }
+
+    /** Multi-select on a range of integers.
+     *
+     * @param a Array to reorder.
+     * @param lo First index of the range (inclusive).
+     * @param hi Last index of the range (inclusive).
+     * @param ranks Sorted ranks.
+     * @param rankLo First rank inside this range (inclusive).
+     * @param rankHi Last rank inside this range (exclusive).
+     * @param depth Remaining recursion depth.
+     */
+    private static void select(final int[] a, final int lo, final int hi,
+            final int[] ranks, final int rankLo, final int rankHi, final int depth) {
+        if ((rankLo >= rankHi) || (lo >= hi)) {
+            return;
+        }
+        if ((hi - lo < SORT_THRESHOLD) || (depth == 0)) {
+            Arrays.sort(a, lo, hi + 1);
+            return;
+        }
+
+        int pivot = medianOfThree(a[lo], a[(lo + hi) >>> 1], a[hi]);
+        int lt = lo;
+        int gt = hi;
+        int i = lo;
+        while (i <= gt) {
+            if (a[i] < pivot) {
+                swap(a, lt, i);
+                lt++;
+                i++;
+            } else if (a[i] > pivot) {
+                swap(a, i, gt);
+                gt--;
+            } else {
+                i++;
+            }
+        }
+
+        int leftEnd = firstRankAtLeast(ranks, rankLo, rankHi, lt);
+        int rightStart = firstRankAtLeast(ranks, leftEnd, rankHi, gt + 1);
+        select(a, lo, lt - 1, ranks, rankLo, leftEnd, depth - 1);
+        select(a, gt + 1, hi, ranks, rightStart, rankHi, depth - 1);
+    }
+
+    /** Multi-select on a range of doubles (ordered as by Double.compare).
+     *
+     * @param a Array to reorder.
+     * @param lo First index of the range (inclusive).
+     * @param hi Last index of the range (inclusive).
+     * @param ranks Sorted ranks.
+     * @param rankLo First rank inside this range (inclusive).
+     * @param rankHi Last rank inside this range (exclusive).
+     * @param depth Remaining recursion depth.
+     */
+    private static void select(final double[] a, final int lo, final int hi,
+            final int[] ranks, final int rankLo, final int rankHi, final int depth) {
+        if ((rankLo >= rankHi) || (lo >= hi)) {
+            return;
+        }
+        if ((hi - lo < SORT_THRESHOLD) || (depth == 0)) {
+            Arrays.sort(a, lo, hi + 1);
+            return;
+        }
+
+        double pivot = medianOfThree(a[lo], a[(lo + hi) >>> 1], a[hi]);
+        int lt = lo;
+        int gt = hi;
+        int i = lo;
+        while (i <= gt) {
+            int cmp = Double.compare(a[i], pivot);
+            if (cmp < 0) {
+                swap(a, lt, i);
+                lt++;
+                i++;
+            } else if (cmp > 0) {
+                swap(a, i, gt);
+                gt--;
+            } else {
+                i++;
+            }
+        }
+
+        int leftEnd = firstRankAtLeast(ranks, rankLo, rankHi, lt);
+        int rightStart = firstRankAtLeast(ranks, leftEnd, rankHi, gt + 1);
+        select(a, lo, lt - 1, ranks, rankLo, leftEnd, depth - 1);
+        select(a, gt + 1, hi, ranks, rightStart, rankHi, depth - 1);
+    }
+
+    /** Multi-select on a range of comparable objects.
+     *
+     * @param a Array to reorder.
+     * @param lo First index of the range (inclusive).
+     * @param hi Last index of the range (inclusive).
+     * @param ranks Sorted ranks.
+     * @param rankLo First rank inside this range (inclusive).
+     * @param rankHi Last rank inside this range (exclusive).
+     * @param depth Remaining recursion depth.
+     */
+    private static void select(final Object[] a, final int lo, final int hi,
+            final int[] ranks, final int rankLo, final int rankHi, final int depth) {
+        if ((rankLo >= rankHi) || (lo >= hi)) {
+            return;
+        }
+        if ((hi - lo < SORT_THRESHOLD) || (depth == 0)) {
+            Arrays.sort(a, lo, hi + 1);
+            return;
+        }
+
+        Object pivot = medianOfThree(a[lo], a[(lo + hi) >>> 1], a[hi]);
+        int lt = lo;
+        int gt = hi;
+        int i = lo;
+        while (i <= gt) {
+            int cmp = compare(a[i], pivot);
+            if (cmp < 0) {
+                swap(a, lt, i);
+                lt++;
+                i++;
+            } else if (cmp > 0) {
+                swap(a, i, gt);
+                gt--;
+            } else {
+                i++;
+            }
+        }
+
+        int leftEnd = firstRankAtLeast(ranks, rankLo, rankHi, lt);
+        int rightStart = firstRankAtLeast(ranks, leftEnd, rankHi, gt + 1);
+        select(a, lo, lt - 1, ranks, rankLo, leftEnd, depth - 1);
+        select(a, gt + 1, hi, ranks, rightStart, rankHi, depth - 1);
+    }
+
+    /** Find k largest values with a bounded min-heap.
+     *
+     * @param a Values to search (absolute indexing is used).
+     * @param length Number of values.
+     * @param k How many values to find.
+     * @return At most k largest values, ordered from the largest one.
+     */
+    static int[] largest(final IntBuffer a, final int length, final int k) {
+        int[] heap = new int[Math.min(k, length)];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (count < heap.length) {
+                heap[count] = a.get(i);
+                count++;
+                siftUp(heap, count - 1);
+            } else if ((count > 0) && (a.get(i) > heap[0])) {
+                heap[0] = a.get(i);
+                siftDown(heap, count);
+            }
+        }
+        // Repeatedly moving the minimum to the end sorts in descending order.
+        for (int end = count - 1; end > 0; end--) {
+            swap(heap, 0, end);
+            siftDown(heap, end);
+        }
+        return heap;
+    }
+
+    /** Find k largest values with a bounded min-heap.
+     *
+     * @param a Values to search (absolute indexing is used).
+     * @param length Number of values.
+     * @param k How many values to find.
+     * @return At most k largest values, ordered from the largest one.
+     */
+    static double[] largest(final DoubleBuffer a, final int length, final int k) {
+        double[] heap = new double[Math.min(k, length)];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (count < heap.length) {
+                heap[count] = a.get(i);
+                count++;
+                siftUp(heap, count - 1);
+            } else if ((count > 0) && (Double.compare(a.get(i), heap[0]) > 0)) {
+                heap[0] = a.get(i);
+                siftDown(heap, count);
+            }
+        }
+        for (int end = count - 1; end > 0; end--) {
+            swap(heap, 0, end);
+            siftDown(heap, end);
+        }
+        return heap;
+    }
+
+    /** Tell recursion depth after which selection falls back to sorting.
+     *
+     * @param length Number of elements.
+     * @return Maximum recursion depth.
+     */
+    private static int depthLimit(final int length) {
+        return 2 * (Integer.SIZE - Integer.numberOfLeadingZeros(length));
+    }
+
+    /** Find first rank in given range that is not smaller than a threshold.
+     *
+     * @param ranks Sorted ranks.
+     * @param from First rank to check (inclusive).
+     * @param to Last rank to check (exclusive).
+     * @param threshold Threshold index.
+     * @return Index into ranks array.
+     */
+    private static int firstRankAtLeast(final int[] ranks, final int from, final int to,
+            final int threshold) {
+        int i = from;
+        while ((i < to) && (ranks[i] < threshold)) {
+            i++;
+        }
+        return i;
+    }
+
+    /** Choose median of three values as a pivot.
+     *
+     * @param a First value.
+     * @param b Second value.
+     * @param c Third value.
+     * @return Median of the values.
+     */
+    private static int medianOfThree(final int a, final int b, final int c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    /** Choose median of three values as a pivot.
+     *
+     * @param a First value.
+     * @param b Second value.
+     * @param c Third value.
+     * @return Median of the values.
+     */
+    private static double medianOfThree(final double a, final double b, final double c) {
+        double lower = Double.compare(a, b) <= 0 ? a : b;
+        double upper = Double.compare(a, b) <= 0 ? b : a;
+        if (Double.compare(upper, c) <= 0) {
+            return upper;
+        }
+        return Double.compare(lower, c) <= 0 ? c : lower;
+    }
+
+    /** Choose median of three values as a pivot.
+     *
+     * @param a First value.
+     * @param b Second value.
+     * @param c Third value.
+     * @return Median of the values.
+     */
+    private static Object medianOfThree(final Object a, final Object b, final Object c) {
+        Object lower = compare(a, b) <= 0 ? a : b;
+        Object upper = compare(a, b) <= 0 ? b : a;
+        if (compare(upper, c) <= 0) {
+            return upper;
+        }
+        return compare(lower, c) <= 0 ? c : lower;
+    }
+
+    /** Compare two objects that are known to be mutually comparable.
+     *
+     * @param a First object.
+     * @param b Second object.
+     * @return Result of a.compareTo(b).
+     */
+    @SuppressWarnings("unchecked")
+    private static int compare(final Object a, final Object b) {
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    /** Restore heap property after inserting a new last element.
+     *
+     * @param heap Min-heap.
+     * @param index Index of the new element.
+     */
+    private static void siftUp(final int[] heap, final int index) {
+        int i = index;
+        while ((i > 0) && (heap[(i - 1) / 2] > heap[i])) {
+            swap(heap, i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
+    }
+
+    /** Restore heap property after inserting a new last element.
+     *
+     * @param heap Min-heap.
+     * @param index Index of the new element.
+     */
+    private static void siftUp(final double[] heap, final int index) {
+        int i = index;
+        while ((i > 0) && (Double.compare(heap[(i - 1) / 2], heap[i]) > 0)) {
+            swap(heap, i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
+    }
+
+    /** Restore heap property after replacing the root.
+     *
+     * @param heap Min-heap.
+     * @param count Number of elements in the heap.
+     */
+    private static void siftDown(final int[] heap, final int count) {
+        int i = 0;
+        while (2 * i + 1 < count) {
+            int child = 2 * i + 1;
+            if ((child + 1 < count) && (heap[child + 1] < heap[child])) {
+                child++;
+            }
+            if (heap[i] <= heap[child]) {
+                return;
+            }
+            swap(heap, i, child);
+            i = child;
+        }
+    }
+
+    /** Restore heap property after replacing the root.
+     *
+     * @param heap Min-heap.
+     * @param count Number of elements in the heap.
+     */
+    private static void siftDown(final double[] heap, final int count) {
+        int i = 0;
+        while (2 * i + 1 < count) {
+            int child = 2 * i + 1;
+            if ((child + 1 < count) && (Double.compare(heap[child + 1], heap[child]) < 0)) {
+                child++;
+            }
+            if (Double.compare(heap[i], heap[child]) <= 0) {
+                return;
+            }
+            swap(heap, i, child);
+            i = child;
+        }
+    }
+
+    /** Swap two array elements.
+     *
+     * @param a Array.
+     * @param i First index.
+     * @param j Second index.
+     */
+    private static void swap(final int[] a, final int i, final int j) {
+        int tmp = a[i];
+        a[i] = a[j];
+        a[j] = tmp;
+    }
+
+    /** Swap two array elements.
+     *
+     * @param a Array.
+     * @param i First index.
+     * @param j Second index.
+     */
+    private static void swap(final double[] a, final int i, final int j) {
+        double tmp = a[i];
+        a[i] = a[j];
+        a[j] = tmp;
+    }
+
+    /** Swap two array elements.
+     *
+     * @param a Array.
+     * @param i First index.
+     * @param j Second index.
+     */
+    private static void swap(final Object[] a, final int i, final int j) {
+        Object tmp = a[i];
+        a[i] = a[j];
+        a[j] = tmp;
+    }
+}
@@ -23,10 +23,12 @@
 
 package awh;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
 
 /** Simple list-like collection with some extra functionality.
  *
@@ -37,11 +39,27 @@ import java.util.List;
  * @param <E> Type of elements in the list.
  */
 class SimpleList<E extends Comparable<? super E>> implements Iterable<E> {
+    /** Number of elements used for estimating length of joined list. */
+    static final int JOIN_LENGTH_SAMPLES = 32;
+
+    /** Upper limit for presized string buffers. */
+    static final int MAX_PRESIZED_LENGTH = Integer.MAX_VALUE - 8;
+
     /** Actual implementation behind this wrapper. */
-    private final List<E> backend = new ArrayList<>();
+    private final List<E> backend;
 
     /** Default constructor. */
-    SimpleList() {}
+    SimpleList() {
+        this(new ArrayList<E>());
+    }
+
+    /** Constructor with custom storage of the elements.
+     *
+     * @param storage Storage of the elements (possibly not empty).
+     */
+    SimpleList(final List<E> storage) {
+        backend = storage;
+    }
 
     /** Append value to the end of the list.
      *
@@ -79,11 +97,7 @@ class SimpleList<E extends Comparable<? super E>> implements Iterable<E> {
      * @return Element at given index.
      */
     public E get(final int index) {
-        Problem.whenNotInRange(this.getClass().getName() + " index", index, -size(), size());
-
-        int positiveIndex = index >= 0 ? index : size() + index;
-
-        return backend.get(positiveIndex);
+        return backend.get(toPositiveIndex(index));
     }
 
     /** Set element at the specified position in the list.
@@ -97,11 +111,25 @@ class SimpleList<E extends Comparable<? super E>> implements Iterable<E> {
      * @return Previous element at given index.
      */
     public E set(final int index, final E newValue) {
-        Problem.whenNotInRange(this.getClass().getName() + " index", index, -size(), size());
-
-        int positiveIndex = index >= 0 ? index : size() + index;
+        return backend.set(toPositiveIndex(index), newValue);
+    }
 
-        return backend.set(positiveIndex, newValue);
+    /** Check index and convert it to the range 0 to size() - 1.
+     *
+     * <p>
+     * Kept tiny so that JIT can inline it into loops calling get().
+     *
+     * @param index Position (negative counts from the end).
+     * @return Non-negative position.
+     * @throws Problem When index is out of range.
+     */
+    final int toPositiveIndex(final int index) {
+        int size = backend.size();
+        if ((index >= 0) && (index < size)) {
+            return index;
+        }
+        Problem.whenIndexNotInRange(this, index, -size, size);
+        return size + index;
     }
 
     /** Removes all elements from the list.  */
@@ -123,13 +151,108 @@ class SimpleList<E extends Comparable<? super E>> implements Iterable<E> {
         if (isEmpty()) {
             throw new Problem("Cannot find maximum for empty list");
         }
-        int maxIndex = 0;
-        for (int i = 1; i < size(); i++) {
-            if (get(i).compareTo(get(maxIndex)) > 0) {
-                maxIndex = i;
+        E res = backend.get(0);
+        for (E e : backend) {
+            if (e.compareTo(res) > 0) {
+                res = e;
+            }
+        }
+        return res;
+    }
+
+    /** Get k largest elements of the list.
+     *
+     * <p>
+     * The list itself is not modified. The elements are collected with
+     * a bounded heap, which is much cheaper than sorting the whole list
+     * when k is small.
+     *
+     * @param k Number of elements to return.
+     * @return List with (at most) k largest elements, starting with the largest one.
+     */
+    public SimpleList<E> topK(final int k) {
+        Problem.whenNotInRange("number of elements", k, 0, Integer.MAX_VALUE + 1L);
+
+        PriorityQueue<E> heap = new PriorityQueue<>(Math.max(1, Math.min(k, size())));
+        for (E e : backend) {
+            if (heap.size() < k) {
+                heap.add(e);
+            } else if ((k > 0) && (e.compareTo(heap.peek()) > 0)) {
+                heap.poll();
+                heap.add(e);
             }
         }
-        return get(maxIndex);
+
+        List<E> largest = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            largest.add(heap.poll());
+        }
+        Collections.reverse(largest);
+
+        SimpleList<E> res = new SimpleList<>();
+        res.backend.addAll(largest);
+        return res;
+    }
+
+    /** Get k-th smallest element of the list.
+     *
+     * <p>
+     * The list itself is not modified and it is not sorted either:
+     * the element is found by selection on a copy of the list
+     * which takes linear time on average.
+     *
+     * @param k Rank of the element (zero based, 0 is the minimum).
+     * @return Element that would be at index k if the list was sorted.
+     * @throws Problem When k is out of range.
+     */
+    public E kthSmallest(final int k) {
+        Problem.whenNotInRange("element rank", k, 0, size());
+
+        Object[] scratch = backend.toArray();
+        Selection.select(scratch, k);
+        return elementOf(scratch[k]);
+    }
+
+    /** Get median of the list.
+     *
+     * <p>
+     * For lists with even number of elements, the lower of the two
+     * middle elements is returned.
+     *
+     * @return Median value.
+     * @throws Problem When list is empty.
+     */
+    public E median() {
+        if (isEmpty()) {
+            throw new Problem("Cannot find median for empty list");
+        }
+        return kthSmallest((size() - 1) / 2);
+    }
+
+    /** Get several percentiles of the list at once.
+     *
+     * <p>
+     * Percentiles are computed with the nearest-rank method, i.e. the result is
+     * always an element of the list (0th percentile is the minimum, 100th is
+     * the maximum). All the percentiles are selected in a single pass
+     * over a copy of the list, which is much faster than calling
+     * kthSmallest() for each of them.
+     *
+     * @param percentiles Percentiles in range 0 to 100 (inclusive).
+     * @return List of values for each requested percentile (in the same order).
+     * @throws Problem When list is empty or some percentile is out of range.
+     */
+    public SimpleList<E> percentiles(final double... percentiles) {
+        int[] ranks = percentileRanks(percentiles);
+
+        Object[] scratch = backend.toArray();
+        Selection.select(scratch, Selection.sortedRanks(ranks));
+
+        SimpleList<E> res = new SimpleList<>();
+        for (int rank : ranks) {
+            res.backend.add(elementOf(scratch[rank]));
+        }
+        return res;
     }
 
     /** Reverse order of elements in the list (in place). */
@@ -145,23 +268,43 @@ class SimpleList<E extends Comparable<? super E>> implements Iterable<E> {
     /** Stringify elements of the list and join them.
      *
      * @param delim Delimiter between individual elements.
-     * @return Elements of the list joined with given separator,
+     * @return Elements of the list joined with given separator.
      */
     public String join(final String delim) {
         Problem.whenNull(delim, "separator");
 
-        if (isEmpty()) {
-            return "";
-        }
+        StringBuilder res = new StringBuilder(estimateJoinedLength(delim));
+        joinTo(res, delim);
+        return res.toString();
+    }
 
-        StringBuilder res = new StringBuilder();
-        for (E e : backend) {
-            res.append(e.toString());
-            res.append(delim);
-        }
-        res.delete(res.length() - delim.length(), res.length());
+    /** Stringify elements of the list and write them joined to given output.
+     *
+     * <p>
+     * The text is written in small chunks, so this works with any list size
+     * without building the whole string in memory first (e.g. when writing
+     * the list to a file through a Writer).
+     *
+     * @param out Where to write the elements (StringBuilder, Writer, PrintStream etc.).
+     * @param delim Delimiter between individual elements.
+     * @throws Problem When writing fails.
+     */
+    public void joinTo(final Appendable out, final String delim) {
+        Problem.whenNull(delim, "separator");
 
-        return res.toString();
+        ChunkedAppender appender = new ChunkedAppender(out);
+        try {
+            for (int i = 0; i < size(); i++) {
+                if (i > 0) {
+                    appender.buffer().append(delim);
+                }
+                appendElement(appender.buffer(), i);
+                appender.flushWhenFull();
+            }
+            appender.flush();
+        } catch (IOException e) {
+            throw new Problem(e, "Failed to write list (%s).", e.getMessage());
+        }
     }
 
     /** Create printable form of this list.
@@ -174,7 +317,66 @@ class SimpleList<E extends Comparable<? super E>> implements Iterable<E> {
      */
     @Override
     public String toString() {
-        return String.format("[%s]", join(","));
+        StringBuilder res = new StringBuilder(estimateJoinedLength(",") + 2);
+        res.append('[');
+        joinTo(res, ",");
+        res.append(']');
+        return res.toString();
+    }
+
+    /** Append string representation of one element.
+     *
+     * @param sb Where to append.
+     * @param index Index of the element (no range checks are done).
+     */
+    void appendElement(final StringBuilder sb, final int index) {
+        sb.append(backend.get(index));
+    }
+
+    /** Estimate length of the list joined with given delimiter.
+     *
+     * <p>
+     * The estimate is based on a few elements evenly spread over the list
+     * and it is slightly bigger than their average to avoid reallocations.
+     *
+     * @param delim Delimiter between individual elements.
+     * @return Estimated number of characters.
+     */
+    int estimateJoinedLength(final String delim) {
+        int samples = Math.min(size(), JOIN_LENGTH_SAMPLES);
+        if (samples == 0) {
+            return 0;
+        }
+
+        StringBuilder sample = new StringBuilder();
+        for (int i = 0; i < samples; i++) {
+            appendElement(sample, (int) ((long) i * size() / samples));
+        }
+        double perElement = 1.1 * sample.length() / samples + delim.length();
+        return (int) Math.min(MAX_PRESIZED_LENGTH, perElement * size());
+    }
+
+    /** Convert percentiles to ranks in this list.
+     *
+     * @param percentiles Percentiles in range 0 to 100 (inclusive).
+     * @return Zero-based ranks, in the order of the percentiles.
+     * @throws Problem When list is empty or some percentile is out of range.
+     */
+    int[] percentileRanks(final double... percentiles) {
+        if (isEmpty()) {
+            throw new Problem("Cannot find percentiles for empty list");
+        }
+        return Selection.percentileRanks(size(), percentiles);
+    }
+
+    /** Cast element from scratch array back to the element type.
+     *
+     * @param obj Element taken from a copy of the backend list.
+     * @return The same element with proper type.
+     */
+    @SuppressWarnings("unchecked")
+    private E elementOf(final Object obj) {
+        return (E) obj;
     }
 
     /** Checks for equality of two lists.
@@ -0,0 +1,350 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.util.Arrays;
+
+/** Drawing of anti-aliased shapes directly into the pixel array.
+ *
+ * <p>
+ * Real coordinates denote pixel centers (pixel [x, y] covers the
+ * square from x - 0.5 to x + 0.5), edge pixels are blended with the
+ * background according to how much of them the shape covers.
+ */
+final class SmoothRasterizer {
+    /** Sub-scanlines per pixel row in anti-aliased fills. */
+    private static final int SUBSAMPLES = 16;
+
+    /** Prevent instantiation. */
+    private SmoothRasterizer() {}
+
+    /** Draw anti-aliased line (Xiaolin Wu's algorithm).
+     *
+     * @param image Target image.
+     * @param x0 X coordinate of the start.
+     * @param y0 Y coordinate of the start.
+     * @param x1 X coordinate of the end.
+     * @param y1 Y coordinate of the end.
+     * @param argb Line color.
+     */
+    static void drawSmoothLine(final Image image, final double x0, final double y0,
+            final double x1, final double y1, final int argb) {
+        Rasterizer.checkFinite(x0, y0, x1, y1);
+
+        double[] line = {x0, y0, x1, y1};
+        if (!clip(line, image.getWidth(), image.getHeight())) {
+            return;
+        }
+        final boolean steep = Math.abs(line[3] - line[1]) > Math.abs(line[2] - line[0]);
+        double[] ends = alongMajorAxis(line, steep);
+        double ax = ends[0];
+        double ay = ends[1];
+        double bx = ends[2];
+        double by = ends[3];
+        double gradient = bx == ax ? 1 : (by - ay) / (bx - ax);
+
+        long start = Math.round(ax);
+        long end = Math.round(bx);
+        double startY = ay + gradient * (start - ax);
+        double endY = by + gradient * (end - bx);
+        double startGap = 0.5 - (ax - start);
+        double endGap = 0.5 + (bx - end);
+        plotPair(image, steep, start, startY, startGap, argb);
+        plotPair(image, steep, end, endY, endGap, argb);
+        double y = startY + gradient;
+        for (long x = start + 1; x < end; x++) {
+            plotPair(image, steep, x, y, 1, argb);
+            y += gradient;
+        }
+    }
+
+    /** Fill ellipse with anti-aliased edges.
+     *
+     * @param image Target image.
+     * @param cx X coordinate of the center.
+     * @param cy Y coordinate of the center.
+     * @param rx Horizontal radius.
+     * @param ry Vertical radius.
+     * @param argb Fill color.
+     */
+    static void fillSmoothEllipse(final Image image, final double cx, final double cy,
+            final double rx, final double ry, final int argb) {
+        Rasterizer.checkFinite(cx, cy, rx, ry);
+        if ((rx < 0) || (ry < 0)) {
+            throw new Problem("Radius cannot be negative (%f, %f).", rx, ry);
+        }
+
+        final double centerX = cx + 0.5;
+        final double centerY = cy + 0.5;
+        fillSmooth(image, centerY - ry, centerY + ry, 2, (y, spans) -> {
+            double dy = (y - centerY) / ry;
+            if (dy * dy >= 1) {
+                return 0;
+            }
+            double half = rx * Math.sqrt(1 - dy * dy);
+            spans[0] = centerX - half;
+            spans[1] = centerX + half;
+            return 2;
+        }, argb);
+    }
+
+    /** Fill polygon with anti-aliased edges (even-odd rule).
+     *
+     * @param image Target image.
+     * @param xs X coordinates of the vertices.
+     * @param ys Y coordinates of the vertices.
+     * @param argb Fill color.
+     */
+    static void fillSmoothPolygon(final Image image, final double[] xs, final double[] ys,
+            final int argb) {
+        Rasterizer.checkVertices(xs, ys);
+
+        PolygonEdges edges = new PolygonEdges(xs, ys, 0.5);
+        fillSmooth(image, edges.getTop(), edges.getBottom(), edges.getEdgeCount(),
+                edges::crossings, argb);
+    }
+
+    /** Fill shape given by its spans with anti-aliased edges.
+     *
+     * <p>
+     * Every pixel row is sampled by several sub-scanlines and horizontal
+     * coverage of each span is computed exactly. Fully covered pixels
+     * are accumulated in a difference array so that long spans cost
+     * the same as short ones.
+     *
+     * @param image Target image.
+     * @param top Top of the shape (pixel [x, y] covers y to y + 1).
+     * @param bottom Bottom of the shape.
+     * @param maxSpans Maximal number of span end-points per scanline.
+     * @param shape Spans of the shape.
+     * @param argb Fill color.
+     */
+    private static void fillSmooth(final Image image, final double top, final double bottom,
+            final int maxSpans, final Spans shape, final int argb) {
+        double[] spans = new double[maxSpans];
+        Coverage coverage = new Coverage(image.getWidth());
+        int firstRow = (int) Math.max(0, Math.floor(top));
+        int lastRow = (int) Math.min(image.getHeight(), Math.ceil(bottom));
+        for (int row = firstRow; row < lastRow; row++) {
+            for (int s = 0; s < SUBSAMPLES; s++) {
+                int count = shape.at(row + (s + 0.5) / SUBSAMPLES, spans);
+                coverage.addSpans(spans, count);
+            }
+            coverage.plotRow(image, row, argb);
+        }
+    }
+
+    /** Reorder line end-points so that the walk goes along the major axis.
+     *
+     * @param line Start and end coordinates.
+     * @param steep Whether the Y axis is the major one (the axes are swapped then).
+     * @return Coordinates of the end-points, the one with smaller major coordinate first.
+     */
+    private static double[] alongMajorAxis(final double[] line, final boolean steep) {
+        int major = steep ? 1 : 0;
+        int minor = 1 - major;
+        int first = line[major] <= line[2 + major] ? 0 : 2;
+        int second = 2 - first;
+        return new double[] {
+            line[first + major], line[first + minor], line[second + major], line[second + minor],
+        };
+    }
+
+    /** Plot two vertically adjacent pixels of an anti-aliased line.
+     *
+     * @param image Target image.
+     * @param steep Whether the axes are swapped.
+     * @param x Position along the major axis.
+     * @param y Real position along the minor axis.
+     * @param gap Coverage of the major axis step (partial at line ends).
+     * @param argb Line color.
+     */
+    private static void plotPair(final Image image, final boolean steep, final long x,
+            final double y, final double gap, final int argb) {
+        long lower = (long) Math.floor(y);
+        double fraction = y - lower;
+        if (steep) {
+            plot(image, lower, x, (1 - fraction) * gap, argb);
+            plot(image, lower + 1, x, fraction * gap, argb);
+        } else {
+            plot(image, x, lower, (1 - fraction) * gap, argb);
+            plot(image, x, lower + 1, fraction * gap, argb);
+        }
+    }
+
+    /** Blend one pixel with partial coverage.
+     *
+     * @param image Target image.
+     * @param x X coordinate (may be outside the image).
+     * @param y Y coordinate (may be outside the image).
+     * @param coverage Pixel coverage (0 to 1).
+     * @param argb Color.
+     */
+    private static void plot(final Image image, final long x, final long y,
+            final double coverage, final int argb) {
+        if ((x < 0) || (y < 0) || (x >= image.getWidth()) || (y >= image.getHeight())) {
+            return;
+        }
+        int alpha = (int) Math.round((argb >>> 24) * Math.min(1, coverage));
+        if (alpha <= 0) {
+            return;
+        }
+        int[] pixels = image.getPixelsUnsafe();
+        int index = image.getOffsetUnsafe() + (int) y * image.getStrideUnsafe() + (int) x;
+        pixels[index] = PixelBlend.over(pixels[index], (alpha << 24) | (argb & 0xFFFFFF));
+    }
+
+    /** Clip line to the image extended by one pixel (Liang-Barsky).
+     *
+     * @param line Start and end coordinates (modified in place).
+     * @param width Image width.
+     * @param height Image height.
+     * @return Whether any part of the line remained.
+     */
+    private static boolean clip(final double[] line, final int width, final int height) {
+        double dx = line[2] - line[0];
+        double dy = line[3] - line[1];
+        double[] p = {-dx, dx, -dy, dy};
+        double[] q = {line[0] + 1, width - line[0], line[1] + 1, height - line[1]};
+        double enter = 0;
+        double leave = 1;
+        for (int i = 0; i < p.length; i++) {
+            if (p[i] == 0) {
+                if (!(q[i] >= 0)) {
+                    return false;
+                }
+            } else if (p[i] < 0) {
+                enter = Math.max(enter, q[i] / p[i]);
+            } else {
+                leave = Math.min(leave, q[i] / p[i]);
+            }
+        }
+        if (!(enter <= leave)) {
+            return false;
+        }
+        line[2] = line[0] + leave * dx;
+        line[3] = line[1] + leave * dy;
+        line[0] += enter * dx;
+        line[1] += enter * dy;
+        return true;
+    }
+
+    /** Horizontal spans of a shape. */
+    private interface Spans {
+        /** Compute spans crossing given scanline.
+         *
+         * @param y Y coordinate of the scanline.
+         * @param spans Where to store pairs of start and end of each span.
+         * @return Number of stored values.
+         */
+        int at(double y, double[] spans);
+    }
+
+    /** Coverage of pixels in one row, accumulated over sub-scanlines. */
+    private static final class Coverage {
+        /** Weight of one sub-scanline. */
+        private static final double WEIGHT = 1.0 / SUBSAMPLES;
+
+        /** Row width. */
+        private final int width;
+
+        /** Coverage of partially covered pixels. */
+        private final double[] partial;
+
+        /** Differences of the coverage of fully covered pixels. */
+        private final double[] delta;
+
+        /** First touched pixel. */
+        private int minX;
+
+        /** Last touched pixel. */
+        private int maxX;
+
+        /** Constructor.
+         *
+         * @param rowWidth Row width.
+         */
+        Coverage(final int rowWidth) {
+            width = rowWidth;
+            partial = new double[rowWidth + 1];
+            delta = new double[rowWidth + 1];
+            minX = rowWidth;
+        }
+
+        /** Add spans of one sub-scanline.
+         *
+         * @param spans Span end-points (pairs of X coordinates).
+         * @param count Number of used end-points.
+         */
+        void addSpans(final double[] spans, final int count) {
+            for (int i = 0; i < count; i += 2) {
+                addSpan(Math.max(0, spans[i]), Math.min(width, spans[i + 1]));
+            }
+        }
+
+        /** Add one (clipped) span of a sub-scanline.
+         *
+         * @param a Left end-point.
+         * @param b Right end-point.
+         */
+        private void addSpan(final double a, final double b) {
+            if (!(a < b)) {
+                return;
+            }
+            int left = (int) a;
+            int right = (int) b;
+            minX = Math.min(minX, left);
+            maxX = Math.max(maxX, right);
+            if (left == right) {
+                partial[left] += (b - a) * WEIGHT;
+                return;
+            }
+            partial[left] += (left + 1 - a) * WEIGHT;
+            partial[right] += (b - right) * WEIGHT;
+            delta[left + 1] += WEIGHT;
+            delta[right] -= WEIGHT;
+        }
+
+        /** Blend the covered pixels and reset for the next row.
+         *
+         * @param image Target image.
+         * @param row Pixel row.
+         * @param argb Fill color.
+         */
+        void plotRow(final Image image, final int row, final int argb) {
+            if (minX > maxX) {
+                return;
+            }
+            double full = 0;
+            for (int x = minX; x <= Math.min(maxX, width - 1); x++) {
+                full += delta[x];
+                plot(image, x, row, full + partial[x], argb);
+            }
+            Arrays.fill(partial, minX, Math.min(maxX + 1, width + 1), 0);
+            Arrays.fill(delta, minX, Math.min(maxX + 1, width + 1), 0);
+            minX = width;
+            maxX = 0;
+        }
+    }
+}
@@ -23,11 +23,43 @@
 
 package awh;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /** System utilities. */
 public final class Sys {
+    /** Buffer size for writing files. */
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+
+    /** How many names to try when creating temporary file. */
+    private static final int TEMPORARY_NAME_ATTEMPTS = 16;
+
+    /** Name of the file path argument (for messages). */
+    private static final String FILE_PATH = "file path";
+
+    /** Maximum size of a file read into an array or mapped at once. */
+    private static final long MAX_FILE_SIZE = Integer.MAX_VALUE - 8;
 
     /** Prevent instantiation. */
     private Sys() {}
@@ -54,6 +86,10 @@ public final class Sys {
     }
 
     /** Get file extensions from file path.
+     *
+     * <p>
+     * Trailing dots are ignored, i.e. extension of {@code a.tar.} is
+     * {@code tar}.
      *
      * @param filepath Relative or absolute file path.
      * @return File extension (last if multiple present).
@@ -61,15 +97,324 @@ public final class Sys {
     public static String getFileExtension(final String filepath) {
         Problem.whenNull(filepath, "file path cannot be null");
 
-        Path name = Paths.get(filepath).getFileName();
-        if (name == null) {
+        final int nameEnd = fileNameEnd(filepath);
+        int start = fileNameStart(filepath, nameEnd);
+        int end = withoutTrailingDots(filepath, start, nameEnd);
+        int dot = filepath.lastIndexOf('.', end - 1);
+        if (dot < start) {
+            return "";
+        }
+        return filepath.substring(dot + 1, end);
+    }
+
+    /** Get file name without directories and extension.
+     *
+     * <p>
+     * For example, base name of /photos/2018/party.jpg is party.
+     * Trailing dots are dropped together with the extension (as in
+     * getFileExtension()), base name of archive.tar. is archive.
+     *
+     * @param filepath Relative or absolute file path.
+     * @return File name without extension (last one if multiple present).
+     */
+    public static String getBaseName(final String filepath) {
+        Problem.whenNull(filepath, "file path cannot be null");
+
+        final int nameEnd = fileNameEnd(filepath);
+        int start = fileNameStart(filepath, nameEnd);
+        int end = withoutTrailingDots(filepath, start, nameEnd);
+        int dot = filepath.lastIndexOf('.', end - 1);
+        return filepath.substring(start, dot < start ? end : dot);
+    }
+
+    /** Read lines of a text file (in UTF-8) lazily.
+     *
+     * <p>
+     * Use the stream in try-with-resources so that the file is closed:
+     * <pre>
+     * try (Stream&lt;String&gt; lines = Sys.lines("input.txt")) {
+     *     lines.forEach(line -&gt; System.out.println(line));
+     * }
+     * </pre>
+     *
+     * @param path File path.
+     * @return Stream of lines (without line terminators).
+     * @throws Problem When the file cannot be read.
+     */
+    public static Stream<String> lines(final String path) {
+        Problem.whenNull(path, FILE_PATH);
+
+        FileLines lines = new FileLines(path);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(lines,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(lines::close);
+    }
+
+    /** Read whole file into memory.
+     *
+     * @param path File path.
+     * @return File contents.
+     * @throws Problem When the file cannot be read or is too big.
+     */
+    public static byte[] readAllBytes(final String path) {
+        Problem.whenNull(path, FILE_PATH);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            byte[] res = new byte[checkFileSize(path, channel.size())];
+            ByteBuffer buffer = ByteBuffer.wrap(res);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            return buffer.hasRemaining() ? Arrays.copyOf(res, buffer.position()) : res;
+        } catch (IOException e) {
+            throw new Problem(e, "Failed to read '%s' (%s).", path, e.getMessage());
+        }
+    }
+
+    /** Map whole file into memory for reading.
+     *
+     * <p>
+     * The contents are loaded by the operating system on demand so this
+     * is the fastest way to read large files. The returned buffer is
+     * read-only and remains valid after the file is closed.
+     *
+     * @param path File path.
+     * @return Read-only view of the file contents.
+     * @throws Problem When the file cannot be mapped or is too big.
+     */
+    public static ByteBuffer mapFile(final String path) {
+        Problem.whenNull(path, FILE_PATH);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    checkFileSize(path, channel.size()));
+        } catch (IOException e) {
+            throw new Problem(e, "Failed to map '%s' (%s).", path, e.getMessage());
+        }
+    }
+
+    /** Write file so that readers never see it half-written.
+     *
+     * <p>
+     * Data are written (through a large buffer) to a temporary file
+     * in the same directory that replaces the destination only when
+     * everything was written successfully. The file keeps permissions
+     * of the file it replaces; new file gets the default permissions
+     * (as any other newly created file).
+     *
+     * <pre>
+     * Sys.writeAtomically("out.txt", out -&gt; out.write(data));
+     * </pre>
+     *
+     * @param path Destination file path.
+     * @param writer Code writing the file contents.
+     * @throws Problem When the file cannot be written.
+     */
+    public static void writeAtomically(final String path, final OutputConsumer writer) {
+        Problem.whenNull(path, FILE_PATH);
+        Problem.whenNull(writer, "file writer");
+
+        Path target = Paths.get(path).toAbsolutePath();
+        Path temporary = null;
+        try {
+            temporary = createSibling(target);
+            copyPermissions(target, temporary);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel),
+                        WRITE_BUFFER_SIZE);
+                writer.accept(out);
+                out.flush();
+                channel.force(true);
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temporary = null;
+        } catch (IOException e) {
+            throw new Problem(e, "Failed to write '%s' (%s).", path, e.getMessage());
+        } finally {
+            deleteQuietly(temporary);
+        }
+    }
+
+    /** Execute code for each number in given range in parallel.
+     *
+     * <p>
+     * The range is split into chunks that are executed by a shared pool
+     * with one thread per core (the same pool is used by the library
+     * itself). The body must be safe to run from several threads at once,
+     * e.g. processing different rows of an image.
+     *
+     * <pre>
+     * Sys.parallelFor(0, image.getHeight(), y -&gt; {
+     *     for (int x = 0; x &lt; image.getWidth(); x++) {
+     *         ...
+     *     }
+     * });
+     * </pre>
+     *
+     * @param from First number (inclusive).
+     * @param to Last number (exclusive).
+     * @param body Code to execute for each number.
+     * @throws Problem When the body fails (other numbers are then skipped).
+     */
+    public static void parallelFor(final int from, final int to, final IntConsumer body) {
+        Problem.whenNull(body, "parallel loop body");
+
+        Parallel.forRange(from, to, 1, body);
+    }
+
+    /** Execute task for each item concurrently.
+     *
+     * <p>
+     * Unlike parallelFor(), this is intended for tasks that mostly wait,
+     * such as loading files or downloading data. Tasks run on virtual
+     * threads when the JVM supports them (Java 21+), otherwise on a shared
+     * pool with a bounded number of threads.
+     *
+     * @param <T> Item type.
+     * @param items Items to process.
+     * @param task Task to execute for each item.
+     * @throws Problem When the task fails (items not yet started are then skipped).
+     */
+    public static <T> void forEachConcurrently(final Iterable<? extends T> items,
+            final Consumer<? super T> task) {
+        Problem.whenNull(items, "items to process");
+        Problem.whenNull(task, "task to execute");
+
+        Parallel.forEach(items, task);
+    }
+
+    /** Find end of the file name (i.e. without trailing separators).
+     *
+     * @param filepath File path.
+     * @return Index after the last character of the file name.
+     * @throws Problem When the path consists of separators only.
+     */
+    private static int fileNameEnd(final String filepath) {
+        int end = filepath.length();
+        while ((end > 0) && isSeparator(filepath.charAt(end - 1))) {
+            end--;
+        }
+        if ((end == 0) && !filepath.isEmpty()) {
             throw new Problem("Path '%s' does not contain last element.", filepath);
         }
-        String[] parts = name.toString().split("[.]");
-        if (parts.length <= 1) {
-            return "";
-        } else {
-            return parts[parts.length - 1];
+        return end;
+    }
+
+    /** Find start of the file name.
+     *
+     * @param filepath File path.
+     * @param end End of the file name.
+     * @return Index of the first character of the file name.
+     */
+    private static int fileNameStart(final String filepath, final int end) {
+        int start = end;
+        while ((start > 0) && !isSeparator(filepath.charAt(start - 1))) {
+            start--;
+        }
+        return start;
+    }
+
+    /** Find end of the file name without trailing dots.
+     *
+     * @param filepath File path.
+     * @param start Start of the file name.
+     * @param end End of the file name.
+     * @return Index after the last character that is not a trailing dot.
+     */
+    private static int withoutTrailingDots(final String filepath, final int start,
+            final int end) {
+        int res = end;
+        while ((res > start) && (filepath.charAt(res - 1) == '.')) {
+            res--;
+        }
+        return res;
+    }
+
+    /** Tell whether character separates path elements.
+     *
+     * @param c Character to check.
+     * @return Whether the character is a separator on this platform.
+     */
+    private static boolean isSeparator(final char c) {
+        return (c == '/') || (c == File.separatorChar);
+    }
+
+    /** Check that file can be read into an array.
+     *
+     * @param path File path (for error message).
+     * @param size File size.
+     * @return File size.
+     * @throws Problem When the file is too big.
+     */
+    private static int checkFileSize(final String path, final long size) {
+        if (size > MAX_FILE_SIZE) {
+            throw new Problem("File '%s' is too big (%d bytes).", path, size);
+        }
+        return (int) size;
+    }
+
+    /** Create empty temporary file next to given file.
+     *
+     * <p>
+     * Unlike Files.createTempFile(), the file gets default permissions.
+     *
+     * @param target File next to which the temporary file is created.
+     * @return Path to the created file.
+     * @throws IOException When the file cannot be created.
+     */
+    private static Path createSibling(final Path target) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            String suffix = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+            Path candidate = target.resolveSibling(
+                    "." + target.getFileName() + "." + suffix + ".tmp");
+            try {
+                return Files.createFile(candidate);
+            } catch (FileAlreadyExistsException e) {
+                if (attempt == TEMPORARY_NAME_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /** Copy POSIX permissions of existing file.
+     *
+     * <p>
+     * Nothing is done when the source does not exist or when the file
+     * system does not support POSIX permissions.
+     *
+     * @param source File to copy permissions from.
+     * @param destination File to set permissions of.
+     * @throws IOException When permissions cannot be read or set.
+     */
+    private static void copyPermissions(final Path source, final Path destination)
+            throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(source,
+                PosixFileAttributeView.class);
+        if ((view == null) || !Files.exists(source)) {
+            return;
+        }
+        Files.setPosixFilePermissions(destination, view.readAttributes().permissions());
+    }
+
+    /** Delete file, ignoring errors.
+     *
+     * @param path File to delete (can be null).
+     */
+    private static void deleteQuietly(final Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            path.toFile().deleteOnExit();
         }
     }
 }
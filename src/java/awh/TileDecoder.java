@@ -0,0 +1,243 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/** Decoder of horizontal bands of an image file for TiledImage.
+ *
+ * <p>
+ * The file stays open and the bands are decoded only when requested,
+ * so opening a big image is cheap and only the touched parts are
+ * decoded. The file is closed once all the bands were decoded.
+ */
+final class TileDecoder {
+    /** Maximum number of pixels decoded at once. */
+    private static final long BAND_PIXELS = 16L * 1024 * 1024;
+
+    /** Path to the file (for messages). */
+    private final String path;
+
+    /** File size (for metrics). */
+    private final long fileSize;
+
+    /** Image format (for metrics). */
+    private final String format;
+
+    /** Opened file. */
+    private final ImageInputStream input;
+
+    /** Reader with the image. */
+    private final ImageReader reader;
+
+    /** Image width. */
+    private final int width;
+
+    /** Image height. */
+    private final int height;
+
+    /** Rows in one band. */
+    private final int bandHeight;
+
+    /** Which bands were already decoded. */
+    private final boolean[] decoded;
+
+    /** Number of bands not decoded yet. */
+    private int remaining;
+
+    /** Whether the file was closed. */
+    private boolean closed;
+
+    /** Constructor.
+     *
+     * @param path Path to the file.
+     * @param input Opened file.
+     * @param reader Reader with the file as its input.
+     * @param rowsPerBand Rows decoded at once, zero to compute.
+     * @throws IOException When the image size cannot be read.
+     */
+    private TileDecoder(final String path, final ImageInputStream input,
+            final ImageReader reader, final int rowsPerBand) throws IOException {
+        this.path = path;
+        this.fileSize = new File(path).length();
+        this.input = input;
+        this.reader = reader;
+        this.format = reader.getFormatName().toUpperCase(Locale.ROOT);
+        this.width = reader.getWidth(0);
+        this.height = reader.getHeight(0);
+        if (rowsPerBand > 0) {
+            this.bandHeight = rowsPerBand;
+        } else {
+            int tiles = (int) Math.max(1,
+                    BAND_PIXELS / ((long) Math.max(width, 1) * TiledImage.TILE_SIZE));
+            this.bandHeight = tiles * TiledImage.TILE_SIZE;
+        }
+        this.remaining = (int) (((long) height + bandHeight - 1) / bandHeight);
+        this.decoded = new boolean[remaining];
+    }
+
+    /** Open image file (without decoding the pixels).
+     *
+     * @param path Path to the file.
+     * @param rowsPerBand Rows decoded at once, zero to compute.
+     * @return Decoder of the file.
+     * @throws Problem When the file cannot be opened or has unknown format.
+     */
+    static TileDecoder open(final String path, final int rowsPerBand) {
+        ImageInputStream in = null;
+        ImageReader reader = null;
+        boolean opened = false;
+        try {
+            in = ImageIO.createImageInputStream(new File(path));
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if ((readers == null) || !readers.hasNext()) {
+                throw new Problem("Failed to load image from '%s' (unknown format).", path);
+            }
+            reader = readers.next();
+            reader.setInput(in);
+            TileDecoder res = new TileDecoder(path, in, reader, rowsPerBand);
+            opened = true;
+            return res;
+        } catch (IOException e) {
+            throw new Problem(e, "Failed to load image from '%s' (%s).", path, e.getMessage());
+        } finally {
+            if (!opened) {
+                release(in, reader);
+            }
+        }
+    }
+
+    /** Get image width.
+     *
+     * @return Width in pixels.
+     */
+    int getWidth() {
+        return width;
+    }
+
+    /** Get image height.
+     *
+     * @return Height in pixels.
+     */
+    int getHeight() {
+        return height;
+    }
+
+    /** Get band containing given row.
+     *
+     * @param y Row of the image.
+     * @return Band index.
+     */
+    int bandOf(final int y) {
+        return y / bandHeight;
+    }
+
+    /** Get first row of a band.
+     *
+     * @param band Band index.
+     * @return Row of the image.
+     */
+    int bandTop(final int band) {
+        return band * bandHeight;
+    }
+
+    /** Tell whether band was already decoded.
+     *
+     * @param band Band index.
+     * @return Whether decode() was called for the band.
+     */
+    boolean isDecoded(final int band) {
+        return decoded[band];
+    }
+
+    /** Tell whether all bands were decoded.
+     *
+     * @return Whether there is nothing left to decode.
+     */
+    boolean isFinished() {
+        return remaining == 0;
+    }
+
+    /** Decode one band.
+     *
+     * <p>
+     * The readers decode from the start of the file, so decoding the
+     * bands costs more the further they are from the top.
+     *
+     * @param band Band index.
+     * @return Band pixels.
+     * @throws Problem When the band cannot be decoded.
+     */
+    Image decode(final int band) {
+        int top = bandTop(band);
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(0, top, width, Math.min(bandHeight, height - top)));
+        final long start = Metrics.startTimer();
+        Image res;
+        try {
+            res = Image.wrap(reader.read(0, param));
+        } catch (IOException e) {
+            throw new Problem(e, "Failed to decode image from '%s' (%s).", path, e.getMessage());
+        }
+        decoded[band] = true;
+        remaining--;
+        Metrics.recordImageFile("decode", format, remaining == 0 ? fileSize : 0, start);
+        return res;
+    }
+
+    /** Close the file (can be called repeatedly). */
+    void close() {
+        if (!closed) {
+            closed = true;
+            release(input, reader);
+        }
+    }
+
+    /** Release reader and close the file, ignoring failures.
+     *
+     * @param in Opened file (may be null).
+     * @param reader Reader (may be null).
+     */
+    private static void release(final ImageInputStream in, final ImageReader reader) {
+        if (reader != null) {
+            reader.dispose();
+        }
+        if (in == null) {
+            return;
+        }
+        try {
+            in.close();
+        } catch (IOException e) {
+            // Nothing was written, the file cannot be damaged.
+        }
+    }
+}
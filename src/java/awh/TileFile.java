@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/** Temporary memory-mapped file with pixels of TiledImage.
+ *
+ * <p>
+ * Tiles are stored one after another (row by row), each of them as
+ * square of ARGB pixels in native byte order. Edge tiles take the full
+ * size too, so the position of a tile is easy to compute. The file
+ * is removed when closed.
+ */
+final class TileFile {
+    /** Opened file. */
+    private final FileChannel channel;
+
+    /** Mapped rows of tiles. */
+    private final MappedByteBuffer[] rows;
+
+    /** Number of tiles in a row. */
+    private final int columns;
+
+    /** Tile width and height in pixels. */
+    private final int tileSize;
+
+    /** Create new (transparent) file.
+     *
+     * @param columns Number of tiles in a row.
+     * @param rowCount Number of tile rows.
+     * @param tileSize Tile width and height in pixels.
+     * @throws Problem When the file cannot be created.
+     */
+    TileFile(final int columns, final int rowCount, final int tileSize) {
+        this.columns = columns;
+        this.tileSize = tileSize;
+        this.rows = new MappedByteBuffer[rowCount];
+
+        Path file = null;
+        try {
+            file = Files.createTempFile("awh-tiles", ".raw");
+            channel = FileChannel.open(file, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            long rowBytes = 4L * columns * tileSize * tileSize;
+            for (int i = 0; i < rowCount; i++) {
+                rows[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * rowBytes, rowBytes);
+            }
+        } catch (IOException e) {
+            if (file != null) {
+                file.toFile().delete();
+            }
+            throw new Problem(e, "Failed to create backing file for tiled image (%s).",
+                    e.getMessage());
+        }
+    }
+
+    /** Get pixels of a tile.
+     *
+     * @param tx Tile column.
+     * @param ty Tile row.
+     * @return Buffer with rows of the tile (changes are written to the file).
+     */
+    IntBuffer tile(final int tx, final int ty) {
+        int tileBytes = 4 * tileSize * tileSize;
+        ByteBuffer data = rows[ty].duplicate();
+        data.position(tx * tileBytes);
+        data.limit(tx * tileBytes + tileBytes);
+        return data.slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /** Copy pixels between a part of a tile and an array.
+     *
+     * @param tx Tile column.
+     * @param ty Tile row.
+     * @param x Left edge of the part (inside the tile).
+     * @param y Top edge of the part (inside the tile).
+     * @param area Pixels in the array (the size of the part).
+     * @param store Whether to copy from the array to the file.
+     */
+    void copy(final int tx, final int ty, final int x, final int y,
+            final PixelArea area, final boolean store) {
+        IntBuffer data = tile(tx, ty);
+        for (int row = 0; row < area.getHeight(); row++) {
+            data.position((y + row) * tileSize + x);
+            if (store) {
+                data.put(area.getPixels(), area.rowStart(row), area.getWidth());
+            } else {
+                data.get(area.getPixels(), area.rowStart(row), area.getWidth());
+            }
+        }
+    }
+
+    /** Set all pixels to the same color.
+     *
+     * @param argb Pixel value.
+     */
+    void fill(final int argb) {
+        int[] row = new int[tileSize];
+        Arrays.fill(row, argb);
+        for (int index = 0; index < rows.length * columns; index++) {
+            IntBuffer data = tile(index % columns, index / columns);
+            for (int y = 0; y < tileSize; y++) {
+                data.put(row);
+            }
+        }
+    }
+
+    /** Close and remove the file.
+     *
+     * @throws Problem When the file cannot be closed.
+     */
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new Problem(e, "Failed to remove backing file (%s).", e.getMessage());
+        }
+    }
+}
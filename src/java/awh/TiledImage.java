@@ -0,0 +1,493 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Consumer;
+import javax.imageio.ImageIO;
+
+/** Image too big to be kept in memory as a whole.
+ *
+ * <p>
+ * The pixels are split into square tiles that are stored in a temporary
+ * file mapped into memory, only the recently used tiles are kept on the
+ * heap as ordinary images. Loading only opens the file, its horizontal
+ * bands are decoded when their tiles are first used. Saving (to PNG)
+ * encodes the image row by row, so even gigapixel images can be
+ * processed with a small heap.
+ *
+ * <pre>
+ * try (TiledImage scan = TiledImage.loadFromFile("scan.png")) {
+ *     scan.forEachTile(tile -&gt; tile.pasteFrom(watermark, 0, 0));
+ *     scan.saveToFile("scan-processed.png");
+ * }
+ * </pre>
+ *
+ * <p>
+ * Processing a tile at a time is much faster than calling getPixel()
+ * and setPixel() for the individual pixels.
+ */
+public final class TiledImage implements AutoCloseable {
+    /** Tile width and height in pixels. */
+    static final int TILE_SIZE = 512;
+
+    /** Default number of tiles kept on the heap. */
+    private static final int DEFAULT_CACHED_TILES = 64;
+
+    /** Image width. */
+    private final int width;
+
+    /** Image height. */
+    private final int height;
+
+    /** Number of tile columns. */
+    private final int columns;
+
+    /** Number of tile rows. */
+    private final int rows;
+
+    /** Backing file with all the tiles. */
+    private final TileFile storage;
+
+    /** Tiles kept on the heap (in access order). */
+    private final LinkedHashMap<Integer, Tile> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Maximum number of tiles kept on the heap. */
+    private int cacheLimit = DEFAULT_CACHED_TILES;
+
+    /** Loaded file with bands not decoded yet (null when there are none). */
+    private TileDecoder source;
+
+    /** Create transparent image backed by a new temporary file.
+     *
+     * @param width Image width.
+     * @param height Image height.
+     * @throws Problem When the backing file cannot be created.
+     */
+    private TiledImage(final int width, final int height) {
+        Image.checkDimensions(width, height);
+        this.width = width;
+        this.height = height;
+        this.columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+        this.rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        this.storage = new TileFile(columns, rows, TILE_SIZE);
+    }
+
+    /** Create tiled image filled with given color.
+     *
+     * @param width Width of new image in pixels.
+     * @param height Height of new image in pixels.
+     * @param bg Background color.
+     * @return Created image.
+     */
+    public static TiledImage createEmpty(final int width, final int height, final Color bg) {
+        Problem.whenNull(bg, "background color");
+
+        TiledImage res = new TiledImage(width, height);
+        res.storage.fill(bg.toAwtColor().getRGB());
+        return res;
+    }
+
+    /** Load tiled image from file on disk.
+     *
+     * <p>
+     * The pixels are decoded when first used, the file must not change
+     * until the image is closed.
+     *
+     * @param path Path to the file.
+     * @return Loaded image.
+     * @throws Problem When image cannot be loaded.
+     */
+    public static TiledImage loadFromFile(final String path) {
+        return loadFromFile(path, 0);
+    }
+
+    /** Load tiled image, decoding bands of given height.
+     *
+     * @param path Path to the file.
+     * @param bandHeight Rows decoded at once (multiple of TILE_SIZE), zero to compute.
+     * @return Loaded image.
+     * @throws Problem When image cannot be loaded.
+     */
+    static TiledImage loadFromFile(final String path, final int bandHeight) {
+        Problem.whenNull(path, "image path");
+
+        TileDecoder decoder = TileDecoder.open(path, bandHeight);
+        boolean created = false;
+        try {
+            TiledImage res = new TiledImage(decoder.getWidth(), decoder.getHeight());
+            res.source = decoder;
+            created = true;
+            return res;
+        } finally {
+            if (!created) {
+                decoder.close();
+            }
+        }
+    }
+
+    /** Get image width.
+     *
+     * @return Image width in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /** Get image height.
+     *
+     * @return Image height in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /** Set how many tiles are kept on the heap.
+     *
+     * <p>
+     * Each tile takes one megabyte.
+     *
+     * @param tiles Number of tiles.
+     * @return This image.
+     */
+    public synchronized TiledImage withCacheLimit(final int tiles) {
+        Problem.whenNotInRange("tile count", tiles, 1, Integer.MAX_VALUE);
+        cacheLimit = tiles;
+        evict();
+        return this;
+    }
+
+    /** Get color of a single pixel.
+     *
+     * @param x Position on the X axis.
+     * @param y Position on the Y axis.
+     * @return Pixel color.
+     */
+    public synchronized Color getPixel(final int x, final int y) {
+        checkPosition(x, y);
+        return tile(x / TILE_SIZE, y / TILE_SIZE).image.getPixel(x % TILE_SIZE, y % TILE_SIZE);
+    }
+
+    /** Set color of a single pixel.
+     *
+     * @param x Position on the X axis.
+     * @param y Position on the Y axis.
+     * @param color New color.
+     */
+    public synchronized void setPixel(final int x, final int y, final Color color) {
+        Problem.whenNull(color, "pixel color");
+        checkPosition(x, y);
+        Tile tile = tile(x / TILE_SIZE, y / TILE_SIZE);
+        tile.image.setPixel(x % TILE_SIZE, y % TILE_SIZE, color);
+        tile.dirty = true;
+    }
+
+    /** Copy a rectangular region into a new (ordinary) image.
+     *
+     * @param x Left edge of the region.
+     * @param y Top edge of the region.
+     * @param regionWidth Region width.
+     * @param regionHeight Region height.
+     * @return Image with the region.
+     * @throws Problem When the region does not fit into this image.
+     */
+    public Image getRegion(final int x, final int y,
+            final int regionWidth, final int regionHeight) {
+        checkPosition(x, y);
+        Problem.whenNotInRange("region width", regionWidth, 1, width - x + 1);
+        Problem.whenNotInRange("region height", regionHeight, 1, height - y + 1);
+        Image res = Image.createBlank(regionWidth, regionHeight);
+        getPixels(x, y, regionWidth, regionHeight, res.getPixelsUnsafe(), 0, regionWidth);
+        return res;
+    }
+
+    /** Paste another image into this one.
+     *
+     * <p>
+     * Parts of the other image that do not fit are ignored.
+     *
+     * @param other Image to paste.
+     * @param x Where to put the left edge of the other image.
+     * @param y Where to put the top edge of the other image.
+     */
+    public synchronized void pasteFrom(final Image other, final int x, final int y) {
+        Problem.whenNull(other, "pasted image");
+
+        int left = Math.max(x, 0);
+        int top = Math.max(y, 0);
+        int right = (int) Math.min((long) x + other.getWidth(), width);
+        int bottom = (int) Math.min((long) y + other.getHeight(), height);
+        if ((left >= right) || (top >= bottom)) {
+            return;
+        }
+        transfer(left, top,
+                PixelArea.of(other).part(left - x, top - y, right - left, bottom - top), true);
+    }
+
+    /** Run an action on every tile of this image.
+     *
+     * <p>
+     * Tiles are passed as ordinary images and changes to them are
+     * stored back. The tiles must not be rescaled and must not be used
+     * after the action finishes.
+     *
+     * @param action Action to run.
+     */
+    public synchronized void forEachTile(final Consumer<Image> action) {
+        Problem.whenNull(action, "tile action");
+
+        for (int ty = 0; ty < rows; ty++) {
+            for (int tx = 0; tx < columns; tx++) {
+                Tile tile = tile(tx, ty);
+                int tileWidth = tile.image.getWidth();
+                int tileHeight = tile.image.getHeight();
+                action.accept(tile.image);
+                if ((tile.image.getWidth() != tileWidth)
+                        || (tile.image.getHeight() != tileHeight)) {
+                    throw new Problem("Tile [%d, %d] was resized.", tx, ty);
+                }
+                if (cache.get(tile.key) == tile) {
+                    tile.dirty = true;
+                } else {
+                    writeBack(tile);
+                }
+            }
+        }
+    }
+
+    /** Save image to file.
+     *
+     * <p>
+     * The image type is determined from file extension. PNG files are
+     * written row by row, other formats need the whole image in memory.
+     *
+     * @param path Destination file path.
+     */
+    public void saveToFile(final String path) {
+        Problem.whenNull(path, "file path");
+
+        String format = ImageFiles.formatFromFilename(path);
+        decodeRows(0, height);
+        long start = Metrics.startTimer();
+        File file = new File(path);
+        try {
+            if (!ImageIO.write(new TiledRenderedImage(this, !"JPEG".equals(format)),
+                    format, file)) {
+                throw new Problem("Failed to save image to '%s' (no writer for %s).",
+                        path, format);
+            }
+        } catch (IOException e) {
+            throw new Problem(e, "Failed to save image to '%s' as %s (%s).",
+                    path, format, e.getMessage());
+        }
+        Metrics.recordImageFile("encode", format, file.length(), start);
+    }
+
+    /** Release the tiles and remove the backing file.
+     *
+     * <p>
+     * The image must not be used afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        cache.clear();
+        if (source != null) {
+            source.close();
+            source = null;
+        }
+        storage.close();
+    }
+
+    /** Copy pixels of a region into an array.
+     *
+     * @param x Left edge of the region.
+     * @param y Top edge of the region.
+     * @param regionWidth Region width.
+     * @param regionHeight Region height.
+     * @param dest Destination array.
+     * @param offset Index of the top-left pixel in the array.
+     * @param stride Distance between rows in the array.
+     */
+    synchronized void getPixels(final int x, final int y,
+            final int regionWidth, final int regionHeight,
+            final int[] dest, final int offset, final int stride) {
+        transfer(x, y, new PixelArea(dest, offset, stride, regionWidth, regionHeight), false);
+    }
+
+    /** Decode bands of the loaded file that were not decoded yet.
+     *
+     * @param top First row to decode (inclusive).
+     * @param bottom Last row to decode (exclusive).
+     */
+    private synchronized void decodeRows(final int top, final int bottom) {
+        TileDecoder decoder = source;
+        if (decoder == null) {
+            return;
+        }
+        for (int band = decoder.bandOf(top); band <= decoder.bandOf(bottom - 1); band++) {
+            if (!decoder.isDecoded(band)) {
+                // Pasting the band calls this again, with the band already decoded.
+                pasteFrom(decoder.decode(band), 0, decoder.bandTop(band));
+            }
+        }
+        if (decoder.isFinished()) {
+            decoder.close();
+            source = null;
+        }
+    }
+
+    /** Copy pixels between a region and an array.
+     *
+     * <p>
+     * Tiles on the heap are used when present, other tiles are read
+     * or written in the backing file directly (so that large regions do
+     * not evict all the cached tiles). Bands of a loaded file are decoded
+     * first.
+     *
+     * @param x Left edge of the region.
+     * @param y Top edge of the region.
+     * @param area Pixels in the array (the size of the region).
+     * @param store Whether to copy from the array to the image.
+     */
+    private void transfer(final int x, final int y, final PixelArea area, final boolean store) {
+        int bottom = y + area.getHeight();
+        int right = x + area.getWidth();
+        decodeRows(y, bottom);
+        for (int ty = y / TILE_SIZE; ty <= (bottom - 1) / TILE_SIZE; ty++) {
+            int top = Math.max(y, ty * TILE_SIZE);
+            int partHeight = Math.min(bottom, (ty + 1) * TILE_SIZE) - top;
+            for (int tx = x / TILE_SIZE; tx <= (right - 1) / TILE_SIZE; tx++) {
+                int left = Math.max(x, tx * TILE_SIZE);
+                int partWidth = Math.min(right, (tx + 1) * TILE_SIZE) - left;
+                PixelArea part = area.part(left - x, top - y, partWidth, partHeight);
+                Tile tile = cache.get(ty * columns + tx);
+                if (tile != null) {
+                    copy(PixelArea.of(tile.image).part(left - tx * TILE_SIZE,
+                            top - ty * TILE_SIZE, partWidth, partHeight), part, store);
+                    tile.dirty |= store;
+                } else {
+                    storage.copy(tx, ty, left - tx * TILE_SIZE, top - ty * TILE_SIZE,
+                            part, store);
+                }
+            }
+        }
+    }
+
+    /** Copy pixels between a tile on the heap and an array.
+     *
+     * @param tile Pixels of the tile.
+     * @param area Pixels in the array (of the same size).
+     * @param store Whether to copy from the array to the tile.
+     */
+    private static void copy(final PixelArea tile, final PixelArea area, final boolean store) {
+        for (int row = 0; row < area.getHeight(); row++) {
+            if (store) {
+                System.arraycopy(area.getPixels(), area.rowStart(row),
+                        tile.getPixels(), tile.rowStart(row), area.getWidth());
+            } else {
+                System.arraycopy(tile.getPixels(), tile.rowStart(row),
+                        area.getPixels(), area.rowStart(row), area.getWidth());
+            }
+        }
+    }
+
+    /** Get tile on the heap (loading it when necessary).
+     *
+     * @param tx Tile column.
+     * @param ty Tile row.
+     * @return The tile.
+     */
+    private Tile tile(final int tx, final int ty) {
+        int key = ty * columns + tx;
+        Tile tile = cache.get(key);
+        if (tile == null) {
+            int tileWidth = Math.min(TILE_SIZE, width - tx * TILE_SIZE);
+            int tileHeight = Math.min(TILE_SIZE, height - ty * TILE_SIZE);
+            Image image = Image.createBlank(tileWidth, tileHeight);
+            transfer(tx * TILE_SIZE, ty * TILE_SIZE, PixelArea.of(image), false);
+            tile = new Tile(key, image);
+            cache.put(key, tile);
+            evict();
+        }
+        return tile;
+    }
+
+    /** Remove least recently used tiles from the heap. */
+    private void evict() {
+        Iterator<Tile> it = cache.values().iterator();
+        while ((cache.size() > cacheLimit) && it.hasNext()) {
+            Tile tile = it.next();
+            it.remove();
+            if (tile.dirty) {
+                writeBack(tile);
+            }
+        }
+    }
+
+    /** Store tile pixels into the backing file.
+     *
+     * @param tile Tile to store.
+     */
+    private void writeBack(final Tile tile) {
+        storage.copy(tile.key % columns, tile.key / columns, 0, 0,
+                PixelArea.of(tile.image), true);
+        tile.dirty = false;
+    }
+
+    /** Check that given coordinates are valid.
+     *
+     * @param x Position on the X axis.
+     * @param y Position on the Y axis.
+     * @throws Problem When one of the coordinates is out of range.
+     */
+    private void checkPosition(final int x, final int y) {
+        Problem.whenNotInRange("x coordinate", x, 0, width);
+        Problem.whenNotInRange("y coordinate", y, 0, height);
+    }
+
+    /** Tile kept on the heap. */
+    private static final class Tile {
+        /** Key in the cache. */
+        private final int key;
+
+        /** Tile pixels. */
+        private final Image image;
+
+        /** Whether the pixels differ from the backing file. */
+        private boolean dirty;
+
+        /** Constructor.
+         *
+         * @param key Key in the cache.
+         * @param image Tile pixels.
+         */
+        Tile(final int key, final Image image) {
+            this.key = key;
+            this.image = image;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Vector;
+
+/** TiledImage presented as an AWT image for ImageIO writers.
+ *
+ * <p>
+ * Pixels are copied from the tiled image only for the requested
+ * rectangles, so writers that ask for a row at a time (such as the
+ * PNG one) never need the whole image in memory.
+ */
+final class TiledRenderedImage implements RenderedImage {
+    /** Source image. */
+    private final TiledImage source;
+
+    /** Color model (with or without alpha). */
+    private final ColorModel colorModel;
+
+    /** Layout of a single tile. */
+    private final SampleModel sampleModel;
+
+    /** Constructor.
+     *
+     * @param source Source image.
+     * @param alpha Whether to include alpha channel.
+     */
+    TiledRenderedImage(final TiledImage source, final boolean alpha) {
+        this.source = source;
+        this.colorModel = alpha ? ColorModel.getRGBdefault()
+                : new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF);
+        this.sampleModel = colorModel.createCompatibleSampleModel(
+                TiledImage.TILE_SIZE, TiledImage.TILE_SIZE);
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(final String name) {
+        return java.awt.Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return null;
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+        return colorModel;
+    }
+
+    @Override
+    public SampleModel getSampleModel() {
+        return sampleModel;
+    }
+
+    @Override
+    public int getWidth() {
+        return source.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return source.getHeight();
+    }
+
+    @Override
+    public int getMinX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinY() {
+        return 0;
+    }
+
+    @Override
+    public int getNumXTiles() {
+        return (source.getWidth() + TiledImage.TILE_SIZE - 1) / TiledImage.TILE_SIZE;
+    }
+
+    @Override
+    public int getNumYTiles() {
+        return (source.getHeight() + TiledImage.TILE_SIZE - 1) / TiledImage.TILE_SIZE;
+    }
+
+    @Override
+    public int getMinTileX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinTileY() {
+        return 0;
+    }
+
+    @Override
+    public int getTileWidth() {
+        return TiledImage.TILE_SIZE;
+    }
+
+    @Override
+    public int getTileHeight() {
+        return TiledImage.TILE_SIZE;
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+        return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+        return 0;
+    }
+
+    @Override
+    public Raster getTile(final int tileX, final int tileY) {
+        return getData(new Rectangle(tileX * TiledImage.TILE_SIZE, tileY * TiledImage.TILE_SIZE,
+                TiledImage.TILE_SIZE, TiledImage.TILE_SIZE));
+    }
+
+    @Override
+    public Raster getData() {
+        return getData(new Rectangle(0, 0, source.getWidth(), source.getHeight()));
+    }
+
+    @Override
+    public Raster getData(final Rectangle rect) {
+        SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel)
+                sampleModel.createCompatibleSampleModel(rect.width, rect.height);
+        DataBufferInt buffer = new DataBufferInt(rect.width * rect.height);
+        WritableRaster res = Raster.createWritableRaster(model, buffer,
+                new Point(rect.x, rect.y));
+        Rectangle part = rect.intersection(
+                new Rectangle(0, 0, source.getWidth(), source.getHeight()));
+        if (!part.isEmpty()) {
+            source.getPixels(part.x, part.y, part.width, part.height, buffer.getData(),
+                    (part.y - rect.y) * rect.width + (part.x - rect.x), rect.width);
+        }
+        return res;
+    }
+
+    @Override
+    public WritableRaster copyData(final WritableRaster raster) {
+        if (raster == null) {
+            return (WritableRaster) getData();
+        }
+        Rectangle part = raster.getBounds().intersection(
+                new Rectangle(0, 0, source.getWidth(), source.getHeight()));
+        if (!part.isEmpty()) {
+            raster.setRect(getData(part));
+        }
+        return raster;
+    }
+}
@@ -0,0 +1,459 @@
+/*
+ * MIT License
+ * Copyright (c) 2018 Vojtech Horky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package awh;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/** Geometric transformations (rescaling, rotation, flipping, transposition).
+ *
+ * <p>
+ * Transformations that swap the axes read the source in square blocks
+ * so that both the rows read and the rows written stay in cache, blocks
+ * of different rows are processed in parallel. Flips and rotation by
+ * 180 degrees keep the dimensions and are done in place, as are
+ * transposition and rotations by 90 degrees of square images.
+ */
+final class Transforms {
+    /** Size of the square block (in pixels) for axis-swapping copies. */
+    private static final int BLOCK = 64;
+
+    /** Number of channels (alpha, red, green, blue). */
+    private static final int CHANNELS = 4;
+
+    /** Minimal number of pixels processed by one task. */
+    private static final int MIN_PIXELS_PER_TASK = 64 * 1024;
+
+    /** Angles closer than this (in degrees) to a right angle are snapped to it. */
+    private static final double ANGLE_EPSILON = 1e-9;
+
+    /** Pixels processed by bulk operations (metrics). */
+    private static final MetricCounter PIXELS_PROCESSED = Metrics.counter("image.pixels");
+
+    /** Duration of rescaling (metrics). */
+    private static final LatencyHistogram RESCALE_TIME = Metrics.histogram("image.rescale");
+
+    /** Prevent instantiation. */
+    private Transforms() {}
+
+    /** Rescale image (with smooth scaling of AWT).
+     *
+     * @param src Source image.
+     * @param width New width.
+     * @param height New height.
+     * @return New image.
+     */
+    static Image rescale(final Image src, final int width, final int height) {
+        long start = Metrics.startTimer();
+        java.awt.Image rescaled = src.getAsAwtImageUnsafe().getScaledInstance(width, height,
+                java.awt.Image.SCALE_SMOOTH);
+        Image res;
+        if (rescaled instanceof BufferedImage) {
+            res = Image.wrap((BufferedImage) rescaled);
+        } else {
+            res = Image.wrap(ImageFiles.recreateImage(rescaled, BufferedImage.TYPE_INT_ARGB));
+        }
+        RESCALE_TIME.recordSince(start);
+        PIXELS_PROCESSED.add((long) width * height);
+        return res;
+    }
+
+    /** Transpose image (mirror along the main diagonal).
+     *
+     * @param src Source image.
+     * @return New image (or the source one when it is square and was transposed in place).
+     */
+    static Image transpose(final Image src) {
+        if (src.getWidth() == src.getHeight()) {
+            transposeInPlace(src);
+            return src;
+        }
+        int dstWidth = src.getHeight();
+        return swapAxes(src, 0, dstWidth, 1);
+    }
+
+    /** Rotate image by 90 degrees clockwise.
+     *
+     * @param src Source image.
+     * @return New image (or the source one when it is square and was rotated in place).
+     */
+    static Image rotate90(final Image src) {
+        if (src.getWidth() == src.getHeight()) {
+            transposeInPlace(src);
+            flipHorizontal(src);
+            return src;
+        }
+        int dstWidth = src.getHeight();
+        return swapAxes(src, dstWidth - 1, dstWidth, -1);
+    }
+
+    /** Rotate image by 90 degrees counterclockwise.
+     *
+     * @param src Source image.
+     * @return New image (or the source one when it is square and was rotated in place).
+     */
+    static Image rotate270(final Image src) {
+        if (src.getWidth() == src.getHeight()) {
+            transposeInPlace(src);
+            flipVertical(src);
+            return src;
+        }
+        int dstWidth = src.getHeight();
+        return swapAxes(src, (src.getWidth() - 1) * dstWidth, -dstWidth, 1);
+    }
+
+    /** Mirror image in place along the vertical axis.
+     *
+     * @param image Image to modify.
+     */
+    static void flipHorizontal(final Image image) {
+        final int[] pixels = image.getPixelsUnsafe();
+        final int width = image.getWidth();
+        final int rows = Parallel.rowsPerTask(MIN_PIXELS_PER_TASK, width);
+        Parallel.forRange(0, image.getHeight(), rows, y -> {
+            int row = image.getOffsetUnsafe() + y * image.getStrideUnsafe();
+            reverse(pixels, row, row, width);
+        });
+        PIXELS_PROCESSED.add((long) width * image.getHeight());
+    }
+
+    /** Mirror image in place along the horizontal axis.
+     *
+     * @param image Image to modify.
+     */
+    static void flipVertical(final Image image) {
+        swapRows(image, false);
+    }
+
+    /** Rotate image in place by 180 degrees.
+     *
+     * @param image Image to modify.
+     */
+    static void rotate180(final Image image) {
+        swapRows(image, true);
+    }
+
+    /** Rotate image by arbitrary angle (bilinear interpolation).
+     *
+     * <p>
+     * The result is large enough to hold the whole rotated image, corners
+     * not covered by it are transparent. Colors are interpolated
+     * premultiplied by alpha so transparent pixels do not bleed into
+     * the edges.
+     *
+     * <p>
+     * Right angles are handled by the specialized methods (so the result
+     * may be the source image rotated in place).
+     *
+     * @param src Source image.
+     * @param degrees Clockwise angle in degrees.
+     * @return New image (or the source one when it was rotated in place).
+     * @throws Problem When the angle is not a finite number.
+     */
+    static Image rotate(final Image src, final double degrees) {
+        if (Double.isNaN(degrees) || Double.isInfinite(degrees)) {
+            throw new Problem("Angle %f is not a finite number.", degrees);
+        }
+        double normalized = ((degrees % 360) + 360) % 360;
+        long quarters = Math.round(normalized / 90) % 4;
+        if (Math.abs(normalized - Math.round(normalized / 90) * 90) < ANGLE_EPSILON) {
+            if (quarters == 1) {
+                return rotate90(src);
+            } else if (quarters == 3) {
+                return rotate270(src);
+            } else if (quarters == 2) {
+                rotate180(src);
+            }
+            return src;
+        }
+        final double cos = Math.cos(Math.toRadians(normalized));
+        final double sin = Math.sin(Math.toRadians(normalized));
+        final int srcWidth = src.getWidth();
+        final int srcHeight = src.getHeight();
+        final int width = (int) Math.ceil(Math.abs(srcWidth * cos) + Math.abs(srcHeight * sin)
+                - ANGLE_EPSILON);
+        final int height = (int) Math.ceil(Math.abs(srcWidth * sin) + Math.abs(srcHeight * cos)
+                - ANGLE_EPSILON);
+        final Image dst = Image.createBlank(width, height);
+        final int[] out = dst.getPixelsUnsafe();
+        Parallel.forRange(0, height, Parallel.rowsPerTask(MIN_PIXELS_PER_TASK, width), y -> {
+            double dy = y + 0.5 - height / 2.0;
+            double dx = 0.5 - width / 2.0;
+            // Source position of the pixel center, minus 0.5 (so that pixel i is at i).
+            double sx = srcWidth / 2.0 + dx * cos + dy * sin - 0.5;
+            double sy = srcHeight / 2.0 - dx * sin + dy * cos - 0.5;
+            int index = dst.getOffsetUnsafe() + y * dst.getStrideUnsafe();
+            double[] acc = new double[CHANNELS];
+            for (int x = 0; x < width; x++) {
+                out[index + x] = sample(src, sx, sy, acc);
+                sx += cos;
+                sy -= sin;
+            }
+        });
+        PIXELS_PROCESSED.add((long) width * height);
+        return dst;
+    }
+
+    /** Transpose square image in place, swapping blocks across the diagonal.
+     *
+     * <p>
+     * Each task handles one row of blocks right of the diagonal (and the
+     * mirrored column of blocks), so the tasks never touch the same pixels.
+     *
+     * @param image Square image to modify.
+     */
+    private static void transposeInPlace(final Image image) {
+        final int size = image.getWidth();
+        Parallel.forRange(0, (size + BLOCK - 1) / BLOCK, 1, block -> {
+            int top = block * BLOCK;
+            for (int left = top; left < size; left += BLOCK) {
+                swapBlock(image, top, Math.min(size, top + BLOCK), left,
+                        Math.min(size, left + BLOCK));
+            }
+        });
+        PIXELS_PROCESSED.add((long) size * size);
+    }
+
+    /** Swap pixels of one block with the mirrored block across the diagonal.
+     *
+     * <p>
+     * Pixels on or below the diagonal are skipped (they are swapped from
+     * the other side or stay in place).
+     *
+     * @param image Square image to modify.
+     * @param top Top row of the block (inclusive).
+     * @param bottom Bottom row of the block (exclusive).
+     * @param left Left column of the block (inclusive).
+     * @param right Right column of the block (exclusive).
+     */
+    private static void swapBlock(final Image image, final int top, final int bottom,
+            final int left, final int right) {
+        final int[] pixels = image.getPixelsUnsafe();
+        final int offset = image.getOffsetUnsafe();
+        final int stride = image.getStrideUnsafe();
+        for (int y = top; y < bottom; y++) {
+            for (int x = Math.max(left, y + 1); x < right; x++) {
+                int upper = offset + y * stride + x;
+                int lower = offset + x * stride + y;
+                int tmp = pixels[upper];
+                pixels[upper] = pixels[lower];
+                pixels[lower] = tmp;
+            }
+        }
+    }
+
+    /** Copy image with swapped axes, in square blocks.
+     *
+     * <p>
+     * Source pixel [x, y] is written to index start + x * xStep + y * yStep
+     * of the new image.
+     *
+     * @param src Source image.
+     * @param start Target index of the source pixel [0, 0].
+     * @param xStep Target index step for source X axis.
+     * @param yStep Target index step for source Y axis.
+     * @return New image with swapped dimensions.
+     */
+    private static Image swapAxes(final Image src, final int start, final int xStep,
+            final int yStep) {
+        final int width = src.getWidth();
+        final int height = src.getHeight();
+        final Image dst = Image.createBlank(height, width);
+        final AxisSwap swap = new AxisSwap(src, dst.getPixelsUnsafe(), start, xStep, yStep);
+        final int blockRows = (height + BLOCK - 1) / BLOCK;
+        Parallel.forRange(0, blockRows, 1, block -> {
+            int top = block * BLOCK;
+            for (int left = 0; left < width; left += BLOCK) {
+                swap.copyBlock(top, Math.min(height, top + BLOCK), left,
+                        Math.min(width, left + BLOCK));
+            }
+        });
+        PIXELS_PROCESSED.add((long) width * height);
+        return dst;
+    }
+
+    /** Swap rows symmetric along the horizontal axis (in place).
+     *
+     * @param image Image to modify.
+     * @param mirror Whether to also mirror the rows (rotation by 180 degrees).
+     */
+    private static void swapRows(final Image image, final boolean mirror) {
+        final int[] pixels = image.getPixelsUnsafe();
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int rows = Parallel.rowsPerTask(MIN_PIXELS_PER_TASK, width);
+        Parallel.forRange(0, (height + 1) / 2, rows, y -> {
+            int upper = image.getOffsetUnsafe() + y * image.getStrideUnsafe();
+            int lower = image.getOffsetUnsafe() + (height - 1 - y) * image.getStrideUnsafe();
+            if (mirror) {
+                reverse(pixels, upper, lower, width);
+            } else if (upper != lower) {
+                for (int x = 0; x < width; x++) {
+                    int tmp = pixels[upper + x];
+                    pixels[upper + x] = pixels[lower + x];
+                    pixels[lower + x] = tmp;
+                }
+            }
+        });
+        PIXELS_PROCESSED.add((long) width * height);
+    }
+
+    /** Exchange two rows, reversing both (works also for a single row).
+     *
+     * @param pixels Pixel array.
+     * @param first Index of the first pixel of one row.
+     * @param second Index of the first pixel of the other row.
+     * @param width Row length.
+     */
+    private static void reverse(final int[] pixels, final int first, final int second,
+            final int width) {
+        if (first == second) {
+            for (int i = 0, j = width - 1; i < j; i++, j--) {
+                int tmp = pixels[first + i];
+                pixels[first + i] = pixels[first + j];
+                pixels[first + j] = tmp;
+            }
+            return;
+        }
+        for (int i = 0; i < width; i++) {
+            int tmp = pixels[first + i];
+            pixels[first + i] = pixels[second + width - 1 - i];
+            pixels[second + width - 1 - i] = tmp;
+        }
+    }
+
+    /** Sample image at real position with bilinear interpolation.
+     *
+     * @param src Source image.
+     * @param x X coordinate (pixel centers are at whole numbers).
+     * @param y Y coordinate (pixel centers are at whole numbers).
+     * @param acc Scratch space for premultiplied channel sums.
+     * @return Interpolated pixel (transparent outside of the image).
+     */
+    private static int sample(final Image src, final double x, final double y,
+            final double[] acc) {
+        int left = (int) Math.floor(x);
+        int top = (int) Math.floor(y);
+        if ((left < -1) || (top < -1) || (left >= src.getWidth()) || (top >= src.getHeight())) {
+            return 0;
+        }
+        double fx = x - left;
+        double fy = y - top;
+        Arrays.fill(acc, 0);
+        addTap(src, left, top, (1 - fx) * (1 - fy), acc);
+        addTap(src, left + 1, top, fx * (1 - fy), acc);
+        addTap(src, left, top + 1, (1 - fx) * fy, acc);
+        addTap(src, left + 1, top + 1, fx * fy, acc);
+        double alpha = acc[0];
+        if (alpha < 0.5) {
+            return 0;
+        }
+        return ((int) Math.round(alpha) << 24)
+                | (channel(acc[1] / alpha) << 16) | (channel(acc[2] / alpha) << 8)
+                | channel(acc[3] / alpha);
+    }
+
+    /** Add weighted pixel to premultiplied channel sums.
+     *
+     * @param src Source image.
+     * @param x Pixel column (pixels outside of the image are transparent).
+     * @param y Pixel row.
+     * @param weight Interpolation weight.
+     * @param acc Premultiplied sums of alpha, red, green and blue.
+     */
+    private static void addTap(final Image src, final int x, final int y, final double weight,
+            final double[] acc) {
+        if ((x < 0) || (y < 0) || (x >= src.getWidth()) || (y >= src.getHeight())) {
+            return;
+        }
+        int argb = src.getPixelsUnsafe()[src.getOffsetUnsafe() + y * src.getStrideUnsafe() + x];
+        double premultiplied = (argb >>> 24) * weight;
+        acc[0] += premultiplied;
+        acc[1] += ((argb >> 16) & 0xFF) * premultiplied;
+        acc[2] += ((argb >> 8) & 0xFF) * premultiplied;
+        acc[3] += (argb & 0xFF) * premultiplied;
+    }
+
+    /** Round channel value and clamp it to valid range.
+     *
+     * @param value Channel value.
+     * @return Value in 0 to 255 range.
+     */
+    private static int channel(final double value) {
+        return (int) Math.max(0, Math.min(255, Math.round(value)));
+    }
+
+    /** Copy of source pixels to a new image with swapped axes. */
+    private static final class AxisSwap {
+        /** Source image. */
+        private final Image src;
+
+        /** Pixels of the new image. */
+        private final int[] out;
+
+        /** Target index of the source pixel [0, 0]. */
+        private final int start;
+
+        /** Target index step for source X axis. */
+        private final int xStep;
+
+        /** Target index step for source Y axis. */
+        private final int yStep;
+
+        /** Constructor.
+         *
+         * @param src Source image.
+         * @param out Pixels of the new image.
+         * @param start Target index of the source pixel [0, 0].
+         * @param xStep Target index step for source X axis.
+         * @param yStep Target index step for source Y axis.
+         */
+        AxisSwap(final Image src, final int[] out, final int start, final int xStep,
+                final int yStep) {
+            this.src = src;
+            this.out = out;
+            this.start = start;
+            this.xStep = xStep;
+            this.yStep = yStep;
+        }
+
+        /** Copy one block of source pixels.
+         *
+         * @param top Top row of the block (inclusive).
+         * @param bottom Bottom row of the block (exclusive).
+         * @param left Left column of the block (inclusive).
+         * @param right Right column of the block (exclusive).
+         */
+        void copyBlock(final int top, final int bottom, final int left, final int right) {
+            final int[] in = src.getPixelsUnsafe();
+            for (int y = top; y < bottom; y++) {
+                int from = src.getOffsetUnsafe() + y * src.getStrideUnsafe();
+                int to = start + y * yStep;
+                for (int x = left; x < right; x++) {
+                    out[to + x * xStep] = in[from + x];
+                }
+            }
+        }
+    }
+}